@@ -91,6 +91,11 @@ public abstract class AbstractAqlQueryContext implements AqlQueryContext {
         return archetypeLocalNodePredicates;
     }
 
+    @Override
+    public String getContinuationToken() {
+        return null;
+    }
+
     @Override
     public void setExecutedAql(String executedAql) {
         this.executedAql = executedAql;
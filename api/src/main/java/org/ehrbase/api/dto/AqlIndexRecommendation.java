@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.api.dto;
+
+import org.ehrbase.api.service.AqlIndexAdvisor;
+
+/**
+ * A partial index on <code>comp_data</code> proposed by the {@link AqlIndexAdvisor} for a condition on a data path that
+ * AQL queries frequently use.
+ *
+ * @param indexName        name of the index, derived from its definition
+ * @param entityConcept    the archetype (<code>.</code> followed by the concept) of the rows the condition is evaluated
+ *                         on
+ * @param rmEntity         the aliased RM type of the rows, <code>null</code> if not restricted
+ * @param entityAttribute  the aliased attribute of the rows, <code>null</code> if not restricted
+ * @param jsonPath         the aliased attributes leading to the value within the data of the rows
+ * @param comparison       how the value is compared: <code>TEXT</code>, <code>JSONB</code> or
+ *                         <code>DV_ORDERED_MAGNITUDE</code>, the latter only allows for a partial index on the rows
+ * @param executions       number of executed queries using the condition
+ * @param totalDbMillis    database time of these queries
+ * @param maxDbMillis      maximum database time of one of these queries
+ * @param createStatement  the <code>CREATE INDEX CONCURRENTLY</code> statement
+ * @param indexStatus      state of the index build requested via the advisor: <code>BUILDING</code>,
+ *                         <code>VALID</code> or <code>FAILED</code>, <code>null</code> if none was requested
+ */
+public record AqlIndexRecommendation(
+        String indexName,
+        String entityConcept,
+        String rmEntity,
+        String entityAttribute,
+        String jsonPath,
+        String comparison,
+        long executions,
+        long totalDbMillis,
+        long maxDbMillis,
+        String createStatement,
+        String indexStatus) {}
@@ -35,7 +35,8 @@ public interface AqlQueryContext {
         RESULT_SIZE("resultsize"),
         DRY_RUN("dry_run"),
         EXECUTED_SQL("executed_sql"),
-        QUERY_PLAN("query_plan");
+        QUERY_PLAN("query_plan"),
+        CONTINUATION_TOKEN("continuation_token");
 
         private final String propertyName;
 
@@ -65,6 +66,11 @@ public interface AqlQueryContext {
 
     boolean isArchetypeLocalNodePredicates();
 
+    /**
+     * @return the token from the previous page of a keyset paginated query, or <code>null</code> for the first page
+     */
+    String getContinuationToken();
+
     void setAqlQueryRequest(AqlQueryRequest aqlQueryRequest);
 
     AqlQueryRequest getAqlQueryRequest();
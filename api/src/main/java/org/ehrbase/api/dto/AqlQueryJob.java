@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import org.ehrbase.api.service.AqlQueryJobService;
+
+/**
+ * State of an AQL query executed asynchronously by the {@link AqlQueryJobService}.
+ *
+ * @param id        of the job
+ * @param status    of the job
+ * @param queryName name of the stored query, <code>null</code> for ad-hoc queries
+ * @param columns   result column names mapped to their paths, as in the <code>columns</code> of a query response
+ * @param submitted when the job was submitted
+ * @param started   when the execution started, <code>null</code> while queued
+ * @param finished  when the execution finished, <code>null</code> while queued or running
+ * @param expires   when the job and its result are discarded, <code>null</code> while queued or running
+ * @param rowCount  number of result rows spooled so far
+ * @param continuationToken of the next page of a keyset paginated query, <code>null</code> unless completed
+ *                  with a full page
+ * @param error     message of the failure, <code>null</code> unless failed
+ */
+public record AqlQueryJob(
+        UUID id,
+        Status status,
+        @JsonProperty("query_name") String queryName,
+        Map<String, String> columns,
+        Instant submitted,
+        Instant started,
+        Instant finished,
+        Instant expires,
+        @JsonProperty("row_count") long rowCount,
+        @JsonProperty("continuation_token") String continuationToken,
+        String error) {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED
+    }
+}
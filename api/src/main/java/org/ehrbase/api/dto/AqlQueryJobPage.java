@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.api.dto;
+
+import java.util.List;
+
+/**
+ * A page of the result of a completed {@link AqlQueryJob}.
+ *
+ * @param job    the job
+ * @param offset index of the first row of the page
+ * @param rows   the rows as JSON arrays, serialized like the <code>rows</code> of a query response
+ */
+public record AqlQueryJobPage(AqlQueryJob job, long offset, List<String> rows) {}
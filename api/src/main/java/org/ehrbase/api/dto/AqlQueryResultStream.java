@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.api.dto;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Result of an AQL query that has been prepared, but whose rows are only produced when {@link #forEachRow(Consumer)}
+ * is invoked. The rows are read from the database cursor and handed over one by one, so the full result set is never
+ * held in memory.
+ * <p>
+ * Implementations must not depend on request scoped state during {@link #forEachRow(Consumer)}, as the rows may be
+ * written by a different thread than the one that prepared the query.
+ */
+public interface AqlQueryResultStream {
+
+    /**
+     * @return the column names mapped to their select paths, in select order
+     */
+    Map<String, String> variables();
+
+    /**
+     * Executes the query and passes each result row to the given <code>rowConsumer</code>.
+     *
+     * @param rowConsumer receives the rows in result order
+     * @return the number of rows passed to the consumer
+     */
+    long forEachRow(Consumer<List<Object>> rowConsumer);
+
+    /**
+     * @return the continuation token of the next page of a keyset paginated query, available once
+     * {@link #forEachRow(Consumer)} completed; <code>null</code> if there is none
+     */
+    default String continuationToken() {
+        return null;
+    }
+
+    /**
+     * Cancels the execution, e.g. as its result is no longer needed. May be called from any thread, also while
+     * {@link #forEachRow(Consumer)} is running, which then fails with a
+     * {@link java.util.concurrent.CancellationException}.
+     */
+    default void cancel() {}
+}
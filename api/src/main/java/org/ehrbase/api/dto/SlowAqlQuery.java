@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.api.dto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.ehrbase.api.service.SlowAqlQueryLog;
+
+/**
+ * An AQL query execution that exceeded the threshold of the {@link SlowAqlQueryLog}.
+ *
+ * @param timestamp          when the execution finished
+ * @param queryName          name of the stored query, <code>null</code> for ad-hoc queries
+ * @param aql                the AQL as requested; literals are replaced by <code>?</code> if values are redacted
+ * @param parameters         the query parameters, <code>null</code> if values are redacted
+ * @param sql                the executed SQL with <code>?</code> placeholders for the bind values
+ * @param bindValues         the bind values of the SQL, <code>null</code> if values are redacted
+ * @param durationMillis     duration of the whole execution
+ * @param phaseMillis        duration of the individual phases of the execution
+ * @param resultSize         number of result rows
+ * @param failure            the exception that terminated the execution, <code>null</code> on success
+ * @param queryPlan          the output of <code>EXPLAIN</code>, <code>null</code> if values are redacted or it could not be
+ *                           obtained (yet)
+ * @param queryPlanAnalyzed  if the query plan was obtained using <code>EXPLAIN ANALYZE</code>
+ */
+public record SlowAqlQuery(
+        Instant timestamp,
+        String queryName,
+        String aql,
+        Map<String, Object> parameters,
+        String sql,
+        List<String> bindValues,
+        long durationMillis,
+        Map<String, Long> phaseMillis,
+        long resultSize,
+        String failure,
+        Map<String, Object> queryPlan,
+        boolean queryPlanAnalyzed) {}
@@ -48,4 +48,9 @@ public final class EHRbaseHeader {
      * In AQL queries CONTAINS expressions with a node predicate: Exclude results from nested archetypes
      */
     public static final String AQL_ARCHETYPE_LOCAL_NODE_PREDICATES = "EHRbase-AQL-Archetype-Local-Node-Predicates";
+
+    /**
+     * Used by the /query endpoint to request the page following the one the continuation token was returned for.
+     */
+    public static final String AQL_CONTINUATION_TOKEN = "EHRbase-AQL-Continuation-Token";
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.api.service;
+
+import java.util.List;
+import org.ehrbase.api.dto.AqlIndexRecommendation;
+
+/**
+ * Aggregates the conditions on data paths of executed AQL queries and proposes indexes for them.
+ */
+public interface AqlIndexAdvisor {
+
+    /**
+     * @return the proposed indexes, the ones serving the queries with the highest database time first
+     */
+    List<AqlIndexRecommendation> getRecommendations();
+
+    /**
+     * Starts building the recommended index with the given name in the background, unless it is already being built.
+     * The progress is reported by {@link AqlIndexRecommendation#indexStatus()}.
+     *
+     * @return the recommendation the index is built for
+     */
+    AqlIndexRecommendation createIndex(String indexName);
+
+    void clear();
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.api.service;
+
+import java.util.UUID;
+import org.ehrbase.api.dto.AqlQueryJob;
+import org.ehrbase.api.dto.AqlQueryJobPage;
+import org.ehrbase.api.dto.AqlQueryRequest;
+import org.ehrbase.api.exception.ObjectNotFoundException;
+import org.ehrbase.api.exception.ServiceUnavailableException;
+import org.ehrbase.api.exception.StateConflictException;
+
+/**
+ * Executes AQL queries asynchronously: the result rows are spooled, so clients can fetch them page by page after the
+ * query has completed.
+ */
+public interface AqlQueryJobService {
+
+    /**
+     * Prepares the query and queues its execution.
+     *
+     * @throws ServiceUnavailableException if no more jobs can be queued
+     */
+    AqlQueryJob submit(AqlQueryRequest aqlQueryRequest);
+
+    /**
+     * @throws ObjectNotFoundException if there is no such job, e.g. because it expired
+     */
+    AqlQueryJob getJob(UUID jobId);
+
+    /**
+     * @param offset index of the first row
+     * @param fetch  maximum number of rows
+     * @throws ObjectNotFoundException if there is no such job, e.g. because it expired
+     * @throws StateConflictException  if the job has not completed
+     */
+    AqlQueryJobPage getPage(UUID jobId, long offset, int fetch);
+
+    /**
+     * Cancels the job, if it is still running, and discards its result.
+     *
+     * @throws ObjectNotFoundException if there is no such job, e.g. because it expired
+     */
+    void delete(UUID jobId);
+}
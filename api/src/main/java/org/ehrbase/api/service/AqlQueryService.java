@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Optional;
 import org.ehrbase.api.dto.AqlQueryContext;
 import org.ehrbase.api.dto.AqlQueryRequest;
+import org.ehrbase.api.dto.AqlQueryResultStream;
 import org.ehrbase.openehr.sdk.response.dto.ehrscape.QueryResultDto;
 
 public interface AqlQueryService {
@@ -37,6 +38,15 @@ public interface AqlQueryService {
      */
     QueryResultDto query(AqlQueryRequest aqlQueryRequest);
 
+    /**
+     * Prepares the given query for streaming execution. The query is parsed and translated to SQL right away, while the
+     * database is only accessed once the rows are consumed via {@link AqlQueryResultStream#forEachRow}.
+     *
+     * @param aqlQueryRequest to perform
+     * @return stream of the result rows
+     */
+    AqlQueryResultStream queryStreaming(AqlQueryRequest aqlQueryRequest);
+
     static void addQueryNameComment(AqlQueryContext aqlQueryContext) {
         AqlQueryRequest aqlQueryRequest = aqlQueryContext.getAqlQueryRequest();
         Optional.ofNullable(aqlQueryRequest).map(AqlQueryRequest::queryName).ifPresent(n -> {
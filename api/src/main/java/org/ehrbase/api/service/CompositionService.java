@@ -30,6 +30,12 @@ import org.ehrbase.openehr.sdk.response.dto.ehrscape.StructuredString;
 
 public interface CompositionService extends VersionedObjectService<Composition, UUID> {
 
+    /**
+     * @param json       the composition in canonical JSON
+     * @param templateId the template_id of the composition
+     */
+    record CanonicalJsonComposition(StructuredString json, String templateId) {}
+
     /**
      * @param compositionId The {@link UUID} of the composition to be returned.
      * @param ehrId         The {@link UUID} of the ehr wich contains the composition
@@ -50,6 +56,17 @@ public interface CompositionService extends VersionedObjectService<Composition,
      */
     StructuredString serialize(Composition composition, CompositionFormat format);
 
+    /**
+     * Retrieves the composition in canonical JSON. The database format is transcoded directly, without creating RM
+     * objects, so the order of the attributes may differ from {@link #serialize}.
+     *
+     * @param ehrId         The {@link UUID} of the ehr wich contains the composition
+     * @param compositionId The {@link UUID} of the composition to be returned.
+     * @param version       The version to returned. If null return the latest
+     * @return Structured string with the JSON of the composition, along with its template_id read by the same query
+     */
+    Optional<CanonicalJsonComposition> retrieveCanonicalJson(UUID ehrId, UUID compositionId, Integer version);
+
     /**
      * Retrieve the latest version number for the given composition ID.
      *
@@ -37,6 +37,15 @@ public interface TemplateService {
 
     Collection<TemplateDetails> findAllTemplates();
 
+    /**
+     * Identifies the current contents of the template store. As it is derived from the database, it is shared by all
+     * instances and changes whenever any of them creates, updates or deletes a template. Changes by other instances
+     * may be seen with a delay.
+     *
+     * @return the version of the template store
+     */
+    String getTemplateStoreVersion();
+
     WebTemplate getInternalTemplate(String templateId);
 
     WebTemplate findWebTemplate(String templateId);
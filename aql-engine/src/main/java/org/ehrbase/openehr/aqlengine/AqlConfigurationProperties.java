@@ -17,14 +17,29 @@
  */
 package org.ehrbase.openehr.aqlengine;
 
+import java.time.Duration;
+import java.util.Map;
 import org.ehrbase.openehr.aqlengine.AqlConfigurationProperties.Experimental.AqlOnFolder;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
 
 /**
  * AQL features that can be optionally enabled.
  *
  * <ul>
  *     <li><code>pg-llj-workaround</code> Enables fix for an old postgresql bug where filters in lateral left joins inside a left join are not respected, default: <code>true</code></li>
+ *     <li><code>bind-parameters</code> Sends the values of AQL conditions as JDBC bind variables instead of SQL literals, so the SQL text of queries only differing in their parameter values can be reused for prepared statements, default: <code>false</code></li>
+ *     <li><code>fetch-size</code> Number of rows fetched per database round trip when results are streamed, default: <code>1000</code></li>
+ *     <li><code>keyset-pagination</code> Pages through ordered, limited results via continuation tokens that carry the sort keys of the last row instead of an OFFSET, default: <code>false</code></li>
+ *     <li><code>template-contains-pruning</code> Matches CONTAINS clauses against the stored templates to restrict queries to the possible templates and archetypes, and to skip queries no template can satisfy. Requires compositions to conform to their templates. Each query reads the version of the template store from the database, so template changes by other instances are respected, default: <code>false</code></li>
+ *     <li><code>slow-query-log.enabled</code> Records AQL executions exceeding <code>slow-query-log.threshold</code> (default: <code>5s</code>) with their SQL, timings and query plan in a log line and in a buffer of the last <code>slow-query-log.capacity</code> (default: <code>100</code>) entries, default: <code>false</code></li>
+ *     <li><code>slow-query-log.redact-values</code> Omits the bind values, parameters and query plan of slow queries and replaces the literals of their AQL, default: <code>true</code></li>
+ *     <li><code>slow-query-log.explain-analyze-rate</code> Fraction of slow queries whose plan is obtained by re-running them with <code>EXPLAIN ANALYZE</code> instead of <code>EXPLAIN</code>, default: <code>0</code></li>
+ *     <li><code>parallel-postprocessing.parallelism</code> Number of threads reconstructing the RM objects of structured result columns, so the rows of large results are converted concurrently in chunks of <code>parallel-postprocessing.chunk-size</code> (default: <code>64</code>) rows. <code>0</code> converts the rows on the request thread, default: <code>0</code></li>
+ *     <li><code>index-advisor.enabled</code> Aggregates the conditions on data paths of executed queries with their database time, and proposes partial indexes on <code>comp_data</code> for the ones used at least <code>index-advisor.min-executions</code> (default: <code>10</code>) times. At most <code>index-advisor.capacity</code> (default: <code>1000</code>) conditions are tracked, default: <code>false</code></li>
+ *     <li><code>index-advisor.create-enabled</code> Allows to create the proposed indexes via the admin API, built one at a time in the background, default: <code>false</code></li>
+ *     <li><code>query-timeout.global</code> Time budget of AQL query executions, applied as <code>statement_timeout</code> and while streamed rows are fetched. Executions exceeding it are cancelled, default: none</li>
+ *     <li><code>query-timeout.stored-queries</code> Time budgets of stored queries by qualified name, optionally with version, e.g. <code>stored-queries[org.ehrbase::compositions]: 30s</code>. Overrides <code>query-timeout.global</code>, default: none</li>
  *     <li><code>experimental.aql-on-folder.enabled</code> if enabled allow to query <code>EHR</code> <code>FOLDER</code> using AQL, default: <code>false</code></li>
  * </ul>
  */
@@ -33,6 +48,14 @@ public final class AqlConfigurationProperties {
     private boolean pgLljWorkaround;
     private boolean archetypeLocalNodePredicates = true;
     private boolean pathNodeSkipping;
+    private boolean bindParameters;
+    private int fetchSize = 1000;
+    private boolean keysetPagination;
+    private boolean templateContainsPruning;
+    private SlowQueryLog slowQueryLog = new SlowQueryLog(false, Duration.ofSeconds(5), 100, true, 0);
+    private ParallelPostprocessing parallelPostprocessing = new ParallelPostprocessing(0, 64);
+    private IndexAdvisor indexAdvisor = new IndexAdvisor(false, 10, 1000, false);
+    private QueryTimeout queryTimeout = new QueryTimeout(null, Map.of());
     private Experimental experimental = new Experimental(new AqlOnFolder(false));
 
     public boolean pgLljWorkaround() {
@@ -47,6 +70,38 @@ public final class AqlConfigurationProperties {
         return pathNodeSkipping;
     }
 
+    public boolean bindParameters() {
+        return bindParameters;
+    }
+
+    public int fetchSize() {
+        return fetchSize;
+    }
+
+    public boolean keysetPagination() {
+        return keysetPagination;
+    }
+
+    public boolean templateContainsPruning() {
+        return templateContainsPruning;
+    }
+
+    public SlowQueryLog slowQueryLog() {
+        return slowQueryLog;
+    }
+
+    public ParallelPostprocessing parallelPostprocessing() {
+        return parallelPostprocessing;
+    }
+
+    public IndexAdvisor indexAdvisor() {
+        return indexAdvisor;
+    }
+
+    public QueryTimeout queryTimeout() {
+        return queryTimeout;
+    }
+
     public Experimental experimental() {
         return experimental;
     }
@@ -63,6 +118,38 @@ public final class AqlConfigurationProperties {
         this.pathNodeSkipping = pathNodeSkipping;
     }
 
+    public void setBindParameters(final boolean bindParameters) {
+        this.bindParameters = bindParameters;
+    }
+
+    public void setFetchSize(final int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public void setKeysetPagination(final boolean keysetPagination) {
+        this.keysetPagination = keysetPagination;
+    }
+
+    public void setTemplateContainsPruning(final boolean templateContainsPruning) {
+        this.templateContainsPruning = templateContainsPruning;
+    }
+
+    public void setSlowQueryLog(final SlowQueryLog slowQueryLog) {
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    public void setParallelPostprocessing(final ParallelPostprocessing parallelPostprocessing) {
+        this.parallelPostprocessing = parallelPostprocessing;
+    }
+
+    public void setIndexAdvisor(final IndexAdvisor indexAdvisor) {
+        this.indexAdvisor = indexAdvisor;
+    }
+
+    public void setQueryTimeout(final QueryTimeout queryTimeout) {
+        this.queryTimeout = queryTimeout;
+    }
+
     public void setExperimental(final Experimental experimental) {
         this.experimental = experimental;
     }
@@ -72,10 +159,39 @@ public final class AqlConfigurationProperties {
         return "AqlConfigurationProperties[" + "pgLljWorkaround="
                 + pgLljWorkaround + ", " + "archetypeLocalNodePredicates="
                 + archetypeLocalNodePredicates + ", " + "pathNodeSkipping="
-                + pathNodeSkipping + ", " + "experimental="
+                + pathNodeSkipping + ", " + "bindParameters="
+                + bindParameters + ", " + "fetchSize="
+                + fetchSize + ", " + "keysetPagination="
+                + keysetPagination + ", " + "templateContainsPruning="
+                + templateContainsPruning + ", " + "slowQueryLog="
+                + slowQueryLog + ", " + "parallelPostprocessing="
+                + parallelPostprocessing + ", " + "indexAdvisor="
+                + indexAdvisor + ", " + "queryTimeout="
+                + queryTimeout + ", " + "experimental="
                 + experimental + ']';
     }
 
+    public record SlowQueryLog(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue("5s") Duration threshold,
+            @DefaultValue("100") int capacity,
+            @DefaultValue("true") boolean redactValues,
+            @DefaultValue("0") double explainAnalyzeRate) {}
+
+    public record ParallelPostprocessing(@DefaultValue("0") int parallelism, @DefaultValue("64") int chunkSize) {}
+
+    public record IndexAdvisor(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue("10") int minExecutions,
+            @DefaultValue("1000") int capacity,
+            @DefaultValue("false") boolean createEnabled) {}
+
+    /**
+     * @param global        <code>null</code> for none
+     * @param storedQueries by qualified name of the stored query, with or without version
+     */
+    public record QueryTimeout(Duration global, @DefaultValue Map<String, Duration> storedQueries) {}
+
     public record Experimental(AqlOnFolder aqlOnFolder) {
 
         public record AqlOnFolder(boolean enabled) {}
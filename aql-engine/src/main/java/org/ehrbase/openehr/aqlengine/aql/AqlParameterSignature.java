@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.aql;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import org.ehrbase.openehr.aqlengine.aql.AqlParameterPostProcessor.TemporalPrimitivePattern;
+
+/**
+ * The types and the shape of the parameters of an AQL query, e.g. the number of values of a parameter used in
+ * a <code>MATCHES</code> condition.
+ * <p>
+ * Numbers, UUIDs and plain strings are replaced by placeholders of the same type, so queries with different values
+ * can be translated once. All other values are part of the signature, because they may affect the translation
+ * beyond the values of the SQL query: booleans, temporal values, version ids, empty strings and strings containing
+ * characters that are escaped in <code>LIKE</code> patterns or JSON.
+ */
+public final class AqlParameterSignature {
+
+    private static final long PLACEHOLDER_BITS = 0x5eb4_1a7e_0000_0000L;
+
+    private static final Pattern UUID_PATTERN =
+            Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+
+    private static final Pattern PLAIN_STRING_PATTERN = Pattern.compile("[^*?%_\\\\\"\\p{Cntrl}]+");
+
+    private enum Kind {
+        LONG,
+        DOUBLE,
+        UUID,
+        STRING
+    }
+
+    private record Leaf(Object signature, Object placeholder) {}
+
+    private final List<Object> signature = new ArrayList<>();
+    private final Map<String, Object> placeholders = new LinkedHashMap<>();
+    private final Map<Object, Object> substitution = new HashMap<>();
+    private final List<Set<Object>> leaves = new ArrayList<>();
+
+    private AqlParameterSignature() {}
+
+    public static AqlParameterSignature of(Map<String, Object> parameters) {
+        AqlParameterSignature result = new AqlParameterSignature();
+        if (parameters != null) {
+            new TreeMap<>(parameters).forEach(result::add);
+        }
+        return result;
+    }
+
+    private void add(String name, Object value) {
+        signature.add(name);
+        if (value instanceof Collection<?> values) {
+            List<Object> shape = new ArrayList<>(values.size());
+            List<Object> placeholderValues = new ArrayList<>(values.size());
+            for (Object v : values) {
+                Leaf leaf = leaf(v);
+                shape.add(leaf.signature());
+                placeholderValues.add(leaf.placeholder());
+            }
+            signature.add(shape);
+            placeholders.put(name, placeholderValues);
+        } else {
+            Leaf leaf = leaf(value);
+            signature.add(leaf.signature());
+            placeholders.put(name, leaf.placeholder());
+        }
+    }
+
+    private Leaf leaf(Object value) {
+        long bits = PLACEHOLDER_BITS + leaves.size();
+        return switch (value) {
+            case Integer i -> placeholder(Kind.LONG, bits, i.longValue());
+            case Long l -> placeholder(Kind.LONG, bits, l);
+            case Number n -> placeholder(Kind.DOUBLE, Double.longBitsToDouble(bits), n.doubleValue());
+            case String s when UUID_PATTERN.matcher(s).matches() -> {
+                // UUID columns are compared with the parsed value, JSONB with the string
+                UUID placeholder = new UUID(PLACEHOLDER_BITS, bits);
+                substitution.put(placeholder, UUID.fromString(s));
+                substitution.put(placeholder.toString(), s);
+                leaves.add(Set.of(placeholder, placeholder.toString()));
+                yield new Leaf(Kind.UUID, placeholder.toString());
+            }
+            case String s when PLAIN_STRING_PATTERN.matcher(s).matches()
+                    && !s.contains("::")
+                    && !TemporalPrimitivePattern.matches(s) ->
+                placeholder(Kind.STRING, "aql-parameter-%x".formatted(bits), s);
+            case null, default -> new Leaf(value, value);
+        };
+    }
+
+    private Leaf placeholder(Kind kind, Object placeholder, Object value) {
+        substitution.put(placeholder, value);
+        leaves.add(Set.of(placeholder));
+        return new Leaf(kind, placeholder);
+    }
+
+    /**
+     * @return the part of the plan cache key identifying the parameters
+     */
+    public List<Object> signature() {
+        return Collections.unmodifiableList(signature);
+    }
+
+    /**
+     * @return the parameters with placeholders in place of the values
+     */
+    public Map<String, Object> placeholders() {
+        return Collections.unmodifiableMap(placeholders);
+    }
+
+    /**
+     * @return the actual values by placeholder, as bind values of the SQL query;
+     * empty if no value was replaced by a placeholder
+     */
+    public Map<Object, Object> substitution() {
+        return Collections.unmodifiableMap(substitution);
+    }
+
+    /**
+     * A placeholder missing from the SQL query was interpreted during the translation, e.g. as template id,
+     * so the translation may differ for other values.
+     *
+     * @param substituted the placeholders found in the SQL query
+     * @return if each parameter value was found, in one of its forms
+     */
+    public boolean isSubstituted(Set<Object> substituted) {
+        return leaves.stream().allMatch(forms -> forms.stream().anyMatch(substituted::contains));
+    }
+}
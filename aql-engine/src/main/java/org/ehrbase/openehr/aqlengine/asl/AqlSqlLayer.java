@@ -110,14 +110,27 @@ public class AqlSqlLayer {
     }
 
     public AslRootQuery buildAslRootQuery(AqlQueryWrapper query) {
+        return buildAslRootQuery(query, TemplateContainsAnalysis.UNRESTRICTED);
+    }
+
+    /**
+     * @param containsAnalysis restricts the CONTAINS clause to the structures of the known templates
+     */
+    public AslRootQuery buildAslRootQuery(AqlQueryWrapper query, TemplateContainsAnalysis containsAnalysis) {
 
         AliasProvider aliasProvider = new AliasProvider();
         AslRootQuery aslQuery = new AslRootQuery();
 
         // FROM
         AslFromCreator.ContainsToOwnerProvider containsToStructureSubquery = new AslFromCreator(
-                        aliasProvider, templateService, aqlQueryContext.isArchetypeLocalNodePredicates())
+                        aliasProvider,
+                        templateService,
+                        aqlQueryContext.isArchetypeLocalNodePredicates(),
+                        containsAnalysis)
                 .addFromClause(aslQuery, query);
+        if (containsAnalysis.isUnsatisfiable()) {
+            aslQuery.addConditionAnd(new AslFalseQueryCondition());
+        }
 
         // Paths
         final AslPathCreator.PathToField pathToField = new AslPathCreator(
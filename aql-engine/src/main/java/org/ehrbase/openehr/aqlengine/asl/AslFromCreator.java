@@ -25,18 +25,27 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Stream;
+import org.apache.commons.collections4.CollectionUtils;
 import org.ehrbase.api.service.TemplateService;
 import org.ehrbase.jooq.pg.Tables;
 import org.ehrbase.openehr.aqlengine.asl.AslUtils.AliasProvider;
+import org.ehrbase.openehr.aqlengine.asl.TemplateContainsAnalysis.ContainsMatches;
 import org.ehrbase.openehr.aqlengine.asl.model.AslExtractedColumn;
+import org.ehrbase.openehr.aqlengine.asl.model.AslRmTypeAndConcept;
 import org.ehrbase.openehr.aqlengine.asl.model.AslStructureColumn;
+import org.ehrbase.openehr.aqlengine.asl.model.condition.AslFalseQueryCondition;
 import org.ehrbase.openehr.aqlengine.asl.model.condition.AslFieldFieldQueryCondition;
+import org.ehrbase.openehr.aqlengine.asl.model.condition.AslFieldValueQueryCondition;
 import org.ehrbase.openehr.aqlengine.asl.model.condition.AslNotNullQueryCondition;
 import org.ehrbase.openehr.aqlengine.asl.model.condition.AslQueryCondition;
+import org.ehrbase.openehr.aqlengine.asl.model.condition.AslQueryCondition.AslConditionOperator;
 import org.ehrbase.openehr.aqlengine.asl.model.field.AslColumnField;
+import org.ehrbase.openehr.aqlengine.asl.model.field.AslComplexExtractedColumnField;
 import org.ehrbase.openehr.aqlengine.asl.model.field.AslField;
+import org.ehrbase.openehr.aqlengine.asl.model.field.AslField.FieldSource;
 import org.ehrbase.openehr.aqlengine.asl.model.field.AslFolderItemIdVirtualField;
 import org.ehrbase.openehr.aqlengine.asl.model.join.AslFolderItemJoinCondition;
 import org.ehrbase.openehr.aqlengine.asl.model.join.AslJoin;
@@ -58,6 +67,7 @@ import org.ehrbase.openehr.dbformat.StructureRmType;
 import org.ehrbase.openehr.sdk.aql.dto.containment.ContainmentClassExpression;
 import org.ehrbase.openehr.sdk.aql.dto.containment.ContainmentSetOperatorSymbol;
 import org.ehrbase.openehr.sdk.aql.dto.containment.ContainmentVersionExpression;
+import org.ehrbase.openehr.sdk.aql.dto.path.AqlObjectPathUtil;
 import org.ehrbase.openehr.sdk.util.rmconstants.RmConstants;
 import org.jooq.JoinType;
 
@@ -66,12 +76,22 @@ public final class AslFromCreator {
     private final AliasProvider aliasProvider;
     private final TemplateService templateService;
     private final boolean archetypeLocalNodePredicates;
+    private final TemplateContainsAnalysis containsAnalysis;
 
     public AslFromCreator(
             AliasProvider aliasProvider, TemplateService templateService, final boolean archetypeLocalNodePredicates1) {
+        this(aliasProvider, templateService, archetypeLocalNodePredicates1, TemplateContainsAnalysis.UNRESTRICTED);
+    }
+
+    public AslFromCreator(
+            AliasProvider aliasProvider,
+            TemplateService templateService,
+            final boolean archetypeLocalNodePredicates1,
+            TemplateContainsAnalysis containsAnalysis) {
         this.aliasProvider = aliasProvider;
         this.templateService = templateService;
         this.archetypeLocalNodePredicates = archetypeLocalNodePredicates1;
+        this.containsAnalysis = containsAnalysis;
     }
 
     @FunctionalInterface
@@ -340,13 +360,19 @@ public final class AslFromCreator {
             isRoot = RmConstants.EHR_STATUS.equals(rmType) || RmConstants.COMPOSITION.equals(rmType);
         }
         final List<AslField> fields = fieldsForContainsSubquery(containsWrapper, requiresVersionJoin, sourceRelation);
+        Optional<ContainsMatches> templateMatches =
+                containsAnalysis.getMatches(containsWrapper).filter(m -> !m.isEmpty());
 
         AslStructureQuery aslStructureQuery = new AslStructureQuery(
                 sAlias,
                 sourceRelation,
                 fields,
                 rmTypes,
-                isRoot ? List.of() : rmTypes,
+                isRoot
+                        ? List.of()
+                        : templateMatches
+                                .map(m -> narrowRmTypes(rmTypes, m.rmTypes()))
+                                .orElse(rmTypes),
                 null,
                 requiresVersionJoin,
                 isOriginalVersion,
@@ -359,11 +385,74 @@ public final class AslFromCreator {
                                 templateId -> Optional.of(templateId).map(templateService::findUuidByTemplateId)))
                 .ifPresent(aslStructureQuery::addConditionAnd);
 
+        containsAnalysis
+                .getMatches(containsWrapper)
+                .flatMap(m -> templateCondition(containsWrapper, aslStructureQuery, requiresVersionJoin, m))
+                .ifPresent(aslStructureQuery::addConditionAnd);
+
         // num = 0 condition for roots gets added by the AqlSqlQueryBuilder
 
         return aslStructureQuery;
     }
 
+    private static List<String> narrowRmTypes(List<String> rmTypes, Set<StructureRmType> templateRmTypes) {
+        return rmTypes.stream()
+                .filter(t -> templateRmTypes.stream().anyMatch(s -> s.name().equals(t)))
+                .toList();
+    }
+
+    /**
+     * Restricts the containment to what the templates can produce:
+     * the templates of compositions, and the archetypes of other nodes (if not already specified by the query).
+     */
+    private Optional<AslQueryCondition> templateCondition(
+            RmContainsWrapper containsWrapper,
+            AslStructureQuery query,
+            boolean requiresVersionJoin,
+            ContainsMatches matches) {
+        if (matches.isEmpty()) {
+            // no template has a matching node
+            return Optional.of(new AslFalseQueryCondition());
+        }
+
+        if (RmConstants.COMPOSITION.equals(containsWrapper.getRmType())) {
+            if (matches.allTemplates() || !requiresVersionJoin) {
+                return Optional.empty();
+            }
+            List<UUID> templateUuids = matches.templateIds().stream()
+                    .map(templateService::findUuidByTemplateId)
+                    .filter(Objects::nonNull)
+                    .sorted()
+                    .toList();
+            return Optional.of(new AslFieldValueQueryCondition<>(
+                    AslUtils.findFieldForOwner(AslStructureColumn.TEMPLATE_ID, query.getSelect(), query),
+                    templateUuids.size() == 1 ? AslConditionOperator.EQ : AslConditionOperator.IN,
+                    templateUuids));
+        }
+
+        boolean hasArchetypeNodeIdPredicate = CollectionUtils.emptyIfNull(containsWrapper.getPredicate()).stream()
+                .flatMap(and -> and.getOperands().stream())
+                .anyMatch(p -> AqlObjectPathUtil.ARCHETYPE_NODE_ID.equals(p.getPath()));
+        if (hasArchetypeNodeIdPredicate
+                || !matches.archetypeNodeIds().stream()
+                        .allMatch(id -> id != null && id.startsWith(AslRmTypeAndConcept.ARCHETYPE_PREFIX))) {
+            return Optional.empty();
+        }
+        try {
+            List<AslRmTypeAndConcept> concepts = matches.archetypeNodeIds().stream()
+                    .sorted()
+                    .map(AslRmTypeAndConcept::fromArchetypeNodeId)
+                    .toList();
+            return Optional.of(new AslFieldValueQueryCondition<>(
+                    AslComplexExtractedColumnField.archetypeNodeIdField(FieldSource.withOwner(query)),
+                    concepts.size() == 1 ? AslConditionOperator.EQ : AslConditionOperator.IN,
+                    concepts));
+        } catch (IllegalArgumentException e) {
+            // archetype of an RM type not stored as structure node
+            return Optional.empty();
+        }
+    }
+
     private static List<AslField> fieldsForContainsSubquery(
             RmContainsWrapper currentDesc, boolean requiresVersionJoin, AslSourceRelation sourceRelation) {
         final List<AslField> fields = new ArrayList<>();
@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.asl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.tuple.Pair;
+import org.ehrbase.openehr.aqlengine.asl.model.AslExtractedColumn;
+import org.ehrbase.openehr.aqlengine.asl.model.AslRmTypeAndConcept;
+import org.ehrbase.openehr.aqlengine.asl.model.AslStructureColumn;
+import org.ehrbase.openehr.aqlengine.asl.model.condition.AslAndQueryCondition;
+import org.ehrbase.openehr.aqlengine.asl.model.condition.AslDvOrderedValueQueryCondition;
+import org.ehrbase.openehr.aqlengine.asl.model.condition.AslFieldValueQueryCondition;
+import org.ehrbase.openehr.aqlengine.asl.model.condition.AslNotQueryCondition;
+import org.ehrbase.openehr.aqlengine.asl.model.condition.AslOrQueryCondition;
+import org.ehrbase.openehr.aqlengine.asl.model.condition.AslQueryCondition;
+import org.ehrbase.openehr.aqlengine.asl.model.condition.AslQueryCondition.AslConditionOperator;
+import org.ehrbase.openehr.aqlengine.asl.model.field.AslColumnField;
+import org.ehrbase.openehr.aqlengine.asl.model.field.AslComplexExtractedColumnField;
+import org.ehrbase.openehr.aqlengine.asl.model.field.AslRmPathField;
+import org.ehrbase.openehr.aqlengine.asl.model.join.AslJoin;
+import org.ehrbase.openehr.aqlengine.asl.model.join.AslPathFilterJoinCondition;
+import org.ehrbase.openehr.aqlengine.asl.model.query.AslEncapsulatingQuery;
+import org.ehrbase.openehr.aqlengine.asl.model.query.AslQuery;
+import org.ehrbase.openehr.aqlengine.asl.model.query.AslRootQuery;
+import org.ehrbase.openehr.aqlengine.asl.model.query.AslStructureQuery;
+import org.ehrbase.openehr.aqlengine.asl.model.query.AslStructureQuery.AslSourceRelation;
+import org.ehrbase.openehr.dbformat.RmAttributeAlias;
+import org.ehrbase.openehr.sdk.aql.dto.path.AqlObjectPath.PathNode;
+
+/**
+ * A condition on a path within the data of <code>comp_data</code> rows, e.g.
+ * <code>o/data[at0001]/events[at0006]/data[at0003]/items[at0004]/value/magnitude &gt; 140</code>
+ * on <code>OBSERVATION o[openEHR-EHR-OBSERVATION.blood_pressure.v2]</code>.
+ * <p>
+ * Together with the <code>entity_concept</code>, <code>rm_entity</code> and <code>entity_attribute</code> of the rows
+ * it is evaluated on, it describes a partial expression index that could serve the condition.
+ *
+ * @param entityConcept   the <code>entity_concept</code> the rows are restricted to
+ * @param rmEntity        the aliased RM type the rows are restricted to, if any
+ * @param entityAttribute the aliased attribute the rows are restricted to, if any
+ * @param jsonPath        the aliased attributes leading to the value within the <code>data</code> column
+ * @param kind            how the value is compared
+ */
+public record AslPathUsage(
+        String entityConcept, String rmEntity, String entityAttribute, List<String> jsonPath, Kind kind) {
+
+    public enum Kind {
+        /**
+         * The value is compared as text: <code>data -&gt; … -&gt;&gt; 0</code>
+         */
+        TEXT,
+        /**
+         * The value is compared as JSONB: <code>data -&gt; …</code>
+         */
+        JSONB,
+        /**
+         * The magnitude of a DV_ORDERED is compared, which is not suited for an expression index
+         */
+        DV_ORDERED_MAGNITUDE
+    }
+
+    public AslPathUsage {
+        Objects.requireNonNull(entityConcept);
+        jsonPath = List.copyOf(jsonPath);
+    }
+
+    /**
+     * Collects the conditions on data paths of the query.
+     * Conditions on rows that are not restricted by an archetype_node_id predicate are ignored.
+     */
+    public static Set<AslPathUsage> collect(AslRootQuery rootQuery) {
+        Set<AslPathUsage> usages = new LinkedHashSet<>();
+        conditions(rootQuery)
+                .flatMap(AslPathUsage::leafConditions)
+                .map(AslPathUsage::fromCondition)
+                .filter(Objects::nonNull)
+                .forEach(usages::add);
+        return usages;
+    }
+
+    private static Stream<AslQueryCondition> conditions(AslQuery query) {
+        Stream<AslQueryCondition> own = Stream.concat(
+                Stream.ofNullable(query.getCondition()), query.getStructureConditions().stream());
+        return switch (query) {
+            case AslEncapsulatingQuery eq ->
+                Stream.of(
+                                own,
+                                eq.getChildren().stream()
+                                        .map(Pair::getRight)
+                                        .filter(Objects::nonNull)
+                                        .map(AslJoin::getOn)
+                                        .flatMap(List::stream)
+                                        .filter(AslPathFilterJoinCondition.class::isInstance)
+                                        .map(c -> ((AslPathFilterJoinCondition) c).getCondition()),
+                                eq.getChildren().stream().map(Pair::getLeft).flatMap(AslPathUsage::conditions))
+                        .flatMap(s -> s);
+            case AslStructureQuery sq ->
+                Stream.concat(
+                        own,
+                        sq.joinConditionsForFiltering().values().stream()
+                                .flatMap(Collection::stream)
+                                .map(AslPathFilterJoinCondition::getCondition));
+            default -> own;
+        };
+    }
+
+    private static Stream<AslQueryCondition> leafConditions(AslQueryCondition condition) {
+        return switch (condition) {
+            case null -> Stream.empty();
+            case AslAndQueryCondition and -> and.getOperands().stream().flatMap(AslPathUsage::leafConditions);
+            case AslOrQueryCondition or -> or.getOperands().stream().flatMap(AslPathUsage::leafConditions);
+            case AslNotQueryCondition not -> leafConditions(not.getCondition());
+            default -> Stream.of(condition);
+        };
+    }
+
+    private static AslPathUsage fromCondition(AslQueryCondition condition) {
+        if (!(condition instanceof AslFieldValueQueryCondition<?> fv)
+                || !(fv.getField() instanceof AslRmPathField pf)
+                || !(pf.getSrcField().getOwner() instanceof AslStructureQuery sq)
+                || sq.getType() != AslSourceRelation.COMPOSITION) {
+            return null;
+        }
+
+        List<AslFieldValueQueryCondition<?>> rowConditions = new ArrayList<>();
+        Stream.concat(Stream.ofNullable(sq.getCondition()), sq.getStructureConditions().stream())
+                .flatMap(AslPathUsage::conjunction)
+                .forEach(rowConditions::add);
+
+        AslRmTypeAndConcept archetype = rowConditions.stream()
+                .filter(c -> c.getField() instanceof AslComplexExtractedColumnField ecf
+                        && ecf.getExtractedColumn() == AslExtractedColumn.ARCHETYPE_NODE_ID)
+                .map(AslPathUsage::singleValue)
+                .filter(AslRmTypeAndConcept.class::isInstance)
+                .map(AslRmTypeAndConcept.class::cast)
+                .findFirst()
+                .orElse(null);
+        if (archetype == null) {
+            return null;
+        }
+        String rmEntity = archetype.aliasedRmType() != null
+                ? archetype.aliasedRmType()
+                : columnValue(rowConditions, AslStructureColumn.RM_ENTITY.getFieldName());
+        String entityAttribute = columnValue(rowConditions, AslStructureQuery.ENTITY_ATTRIBUTE);
+
+        Kind kind;
+        if (fv instanceof AslDvOrderedValueQueryCondition<?>) {
+            kind = Kind.DV_ORDERED_MAGNITUDE;
+        } else if (pf.getType() == String.class) {
+            kind = Kind.TEXT;
+        } else {
+            kind = Kind.JSONB;
+        }
+
+        List<String> jsonPath = pf.getPathInJson().stream()
+                .map(PathNode::getAttribute)
+                .map(RmAttributeAlias::getAlias)
+                .toList();
+        return new AslPathUsage(archetype.concept(), rmEntity, entityAttribute, jsonPath, kind);
+    }
+
+    /**
+     * Only conditions that are AND-ed restrict all rows
+     */
+    private static Stream<AslFieldValueQueryCondition<?>> conjunction(AslQueryCondition condition) {
+        return switch (condition) {
+            case AslAndQueryCondition and -> and.getOperands().stream().flatMap(AslPathUsage::conjunction);
+            case AslFieldValueQueryCondition<?> fv -> Stream.of(fv);
+            default -> Stream.empty();
+        };
+    }
+
+    private static Object singleValue(AslFieldValueQueryCondition<?> condition) {
+        if ((condition.getOperator() == AslConditionOperator.EQ || condition.getOperator() == AslConditionOperator.IN)
+                && condition.getValues().size() == 1) {
+            return condition.getValues().getFirst();
+        }
+        return null;
+    }
+
+    private static String columnValue(List<AslFieldValueQueryCondition<?>> rowConditions, String columnName) {
+        return rowConditions.stream()
+                .filter(c -> c.getField() instanceof AslColumnField cf && columnName.equals(cf.getColumnName()))
+                .map(AslPathUsage::singleValue)
+                .filter(String.class::isInstance)
+                .map(String.class::cast)
+                .findFirst()
+                .orElse(null);
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.asl;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.ehrbase.openehr.aqlengine.aql.model.ListPredicateOperand;
+import org.ehrbase.openehr.aqlengine.asl.model.AslExtractedColumn;
+import org.ehrbase.openehr.aqlengine.querywrapper.contains.ContainsChain;
+import org.ehrbase.openehr.aqlengine.querywrapper.contains.ContainsSetOperationWrapper;
+import org.ehrbase.openehr.aqlengine.querywrapper.contains.ContainsWrapper;
+import org.ehrbase.openehr.aqlengine.querywrapper.contains.RmContainsWrapper;
+import org.ehrbase.openehr.aqlengine.querywrapper.contains.VersionContainsWrapper;
+import org.ehrbase.openehr.dbformat.AncestorStructureRmType;
+import org.ehrbase.openehr.dbformat.StructureRmType;
+import org.ehrbase.openehr.sdk.aql.dto.containment.ContainmentSetOperatorSymbol;
+import org.ehrbase.openehr.sdk.aql.dto.operand.Primitive;
+import org.ehrbase.openehr.sdk.aql.dto.operand.StringPrimitive;
+import org.ehrbase.openehr.sdk.aql.dto.path.AndOperatorPredicate;
+import org.ehrbase.openehr.sdk.aql.dto.path.AqlObjectPathUtil;
+import org.ehrbase.openehr.sdk.aql.dto.path.ComparisonOperatorPredicate;
+import org.ehrbase.openehr.sdk.aql.dto.path.ComparisonOperatorPredicate.PredicateComparisonOperator;
+import org.ehrbase.openehr.sdk.util.rmconstants.RmConstants;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
+
+/**
+ * Matches the CONTAINS clause of a query against the structure of the stored templates, before the ASL is built.
+ * <p>
+ * Only the RM types that cannot occur in a composition unless the template defines them (COMPOSITION, SECTION,
+ * entries, ACTIVITY, HISTORY and events) are considered.
+ * Other containments, e.g. CLUSTER or ELEMENT, may be placed anywhere, so they (and their descendants) are not
+ * restricted.
+ * Since the result depends on the templates, plans based on it must be discarded when templates change.
+ *
+ * @see AslFromCreator
+ */
+public final class TemplateContainsAnalysis {
+
+    /**
+     * No template information: nothing is restricted
+     */
+    public static final TemplateContainsAnalysis UNRESTRICTED = new TemplateContainsAnalysis(true, Map.of(), false);
+
+    private static final Set<StructureRmType> TEMPLATE_DEFINED_TYPES = EnumSet.of(
+            StructureRmType.COMPOSITION,
+            StructureRmType.SECTION,
+            StructureRmType.GENERIC_ENTRY,
+            StructureRmType.ADMIN_ENTRY,
+            StructureRmType.OBSERVATION,
+            StructureRmType.INSTRUCTION,
+            StructureRmType.ACTION,
+            StructureRmType.EVALUATION,
+            StructureRmType.ACTIVITY,
+            StructureRmType.HISTORY,
+            StructureRmType.POINT_EVENT,
+            StructureRmType.INTERVAL_EVENT);
+
+    /**
+     * The possible matches of a containment
+     *
+     * @param templateIds      templates of the matching nodes
+     * @param allTemplates     if the templates of the matching nodes are all known templates
+     * @param rmTypes          the structure RM types of the matching nodes
+     * @param archetypeNodeIds the archetype_node_ids of the matching nodes
+     */
+    public record ContainsMatches(
+            Set<String> templateIds,
+            boolean allTemplates,
+            Set<StructureRmType> rmTypes,
+            Set<String> archetypeNodeIds) {
+
+        /**
+         * @return if no template contains a matching node
+         */
+        public boolean isEmpty() {
+            return templateIds.isEmpty();
+        }
+    }
+
+    private final boolean satisfiable;
+    private final Map<RmContainsWrapper, ContainsMatches> matches;
+    private final boolean templatesKnown;
+
+    private TemplateContainsAnalysis(
+            boolean satisfiable, Map<RmContainsWrapper, ContainsMatches> matches, boolean templatesKnown) {
+        this.satisfiable = satisfiable;
+        this.matches = matches;
+        this.templatesKnown = templatesKnown;
+    }
+
+    /**
+     * @return if no template has the structure required by the CONTAINS clause, i.e. the query cannot have results
+     */
+    public boolean isUnsatisfiable() {
+        return templatesKnown && !satisfiable;
+    }
+
+    /**
+     * @return the possible matches, if the containment was analyzed
+     */
+    public Optional<ContainsMatches> getMatches(RmContainsWrapper containment) {
+        return Optional.ofNullable(matches.get(containment));
+    }
+
+    public static TemplateContainsAnalysis analyze(ContainsChain fromChain, Collection<WebTemplate> templates) {
+        Analysis analysis = new Analysis(templates);
+        boolean satisfiable = analysis.satisfiable(fromChain, 0, null, null);
+        return new TemplateContainsAnalysis(satisfiable, analysis.matches(), true);
+    }
+
+    /**
+     * @return the structure RM types of the type name, empty if no node of this type is defined by templates only
+     */
+    static Set<StructureRmType> templateDefinedTypes(String rmType) {
+        Set<StructureRmType> types = EnumSet.noneOf(StructureRmType.class);
+        AncestorStructureRmType.byTypeName(rmType)
+                .map(AncestorStructureRmType::getDescendants)
+                .or(() -> StructureRmType.byTypeName(rmType).map(Set::of))
+                .ifPresent(types::addAll);
+        if (!TEMPLATE_DEFINED_TYPES.containsAll(types)) {
+            types.clear();
+        }
+        return types;
+    }
+
+    private static final class Analysis {
+
+        private final Collection<WebTemplate> templates;
+        private final Map<RmContainsWrapper, MatchCollector> collectors = new IdentityHashMap<>();
+
+        Analysis(Collection<WebTemplate> templates) {
+            this.templates = templates;
+        }
+
+        Map<RmContainsWrapper, ContainsMatches> matches() {
+            Map<RmContainsWrapper, ContainsMatches> result = new IdentityHashMap<>();
+            collectors.forEach((k, v) -> result.put(k, v.toMatches(templates.size())));
+            return result;
+        }
+
+        /**
+         * @param template the template of the surrounding composition, <code>null</code> outside of compositions
+         * @param parent   the node matched by the parent containment, <code>null</code> outside of compositions
+         */
+        boolean satisfiable(ContainsChain chain, int index, WebTemplate template, WebTemplateNode parent) {
+            if (index == chain.chain().size()) {
+                return !chain.hasTrailingSetOperation()
+                        || satisfiable(chain.trailingSetOperation(), template, parent);
+            }
+
+            ContainsWrapper descriptor = chain.chain().get(index);
+            RmContainsWrapper containment = switch (descriptor) {
+                case VersionContainsWrapper vcw -> vcw.child();
+                case RmContainsWrapper rcw -> rcw;
+            };
+
+            Set<StructureRmType> types = templateDefinedTypes(containment.getRmType());
+            if (types.isEmpty()) {
+                if (parent == null
+                        && (RmConstants.EHR.equals(containment.getRmType())
+                                || RmConstants.FOLDER.equals(containment.getRmType()))) {
+                    // compositions inside may be of any template
+                    return satisfiable(chain, index + 1, null, null);
+                }
+                // nodes of this type are not necessarily defined by the template
+                return true;
+            }
+
+            MatchCollector collector = collectors.computeIfAbsent(containment, c -> new MatchCollector());
+            boolean satisfiable = false;
+            if (parent == null) {
+                for (WebTemplate t : templates) {
+                    WebTemplateNode root = t.getTree();
+                    List<WebTemplateNode> candidates = types.contains(StructureRmType.COMPOSITION)
+                            ? List.of(root)
+                            : Stream.concat(Stream.of(root), descendants(root)).toList();
+                    satisfiable |= matchCandidates(chain, index, containment, types, t, candidates, collector);
+                }
+            } else {
+                satisfiable = matchCandidates(
+                        chain, index, containment, types, template, descendants(parent).toList(), collector);
+            }
+            return satisfiable;
+        }
+
+        private boolean matchCandidates(
+                ContainsChain chain,
+                int index,
+                RmContainsWrapper containment,
+                Set<StructureRmType> types,
+                WebTemplate template,
+                List<WebTemplateNode> candidates,
+                MatchCollector collector) {
+            boolean satisfiable = false;
+            for (WebTemplateNode node : candidates) {
+                Set<StructureRmType> nodeTypes = templateDefinedTypes(node.getRmType());
+                if (nodeTypes.stream().noneMatch(types::contains)
+                        || !matchesPredicates(containment.getPredicate(), template, node)
+                        || !satisfiable(chain, index + 1, template, node)) {
+                    continue;
+                }
+                satisfiable = true;
+                collector.add(template, node, nodeTypes, types);
+            }
+            return satisfiable;
+        }
+
+        private boolean satisfiable(
+                ContainsSetOperationWrapper setOperation, WebTemplate template, WebTemplateNode parent) {
+            // all operands are evaluated, so matches are collected for each of them
+            List<Boolean> operands = setOperation.operands().stream()
+                    .map(o -> satisfiable(o, 0, template, parent))
+                    .toList();
+            return setOperation.operator() == ContainmentSetOperatorSymbol.OR
+                    ? operands.contains(true)
+                    : !operands.contains(false);
+        }
+
+        private static Stream<WebTemplateNode> descendants(WebTemplateNode node) {
+            return node.getChildren().stream().flatMap(c -> Stream.concat(Stream.of(c), descendants(c)));
+        }
+    }
+
+    /**
+     * Only <code>archetype_node_id</code> and <code>template_id</code> predicates are evaluated,
+     * all others are assumed to match.
+     */
+    static boolean matchesPredicates(
+            List<AndOperatorPredicate> predicates, WebTemplate template, WebTemplateNode node) {
+        if (predicates == null || predicates.isEmpty()) {
+            return true;
+        }
+        return predicates.stream()
+                .anyMatch(and -> and.getOperands().stream().allMatch(p -> matchesPredicate(p, template, node)));
+    }
+
+    private static boolean matchesPredicate(
+            ComparisonOperatorPredicate predicate, WebTemplate template, WebTemplateNode node) {
+        final String actual;
+        if (AqlObjectPathUtil.ARCHETYPE_NODE_ID.equals(predicate.getPath())) {
+            actual = node.getNodeId();
+        } else if (AslExtractedColumn.TEMPLATE_ID.getPath().equals(predicate.getPath())) {
+            actual = template.getTemplateId();
+        } else {
+            return true;
+        }
+        if (predicate.getOperator() != PredicateComparisonOperator.EQ) {
+            return true;
+        }
+        return predicateValues(predicate).map(v -> v.contains(actual)).orElse(true);
+    }
+
+    private static Optional<Set<String>> predicateValues(ComparisonOperatorPredicate predicate) {
+        List<?> values = switch (predicate.getValue()) {
+            case ListPredicateOperand<?> lpo -> lpo.getValues();
+            case Primitive<?, ?> p -> List.of(p);
+            default -> List.of();
+        };
+        if (values.isEmpty() || !values.stream().allMatch(StringPrimitive.class::isInstance)) {
+            // e.g. unresolved parameters
+            return Optional.empty();
+        }
+        return Optional.of(values.stream()
+                .map(StringPrimitive.class::cast)
+                .map(StringPrimitive::getValue)
+                .collect(Collectors.toSet()));
+    }
+
+    private static final class MatchCollector {
+        private final Set<String> templateIds = new HashSet<>();
+        private final Set<StructureRmType> rmTypes = EnumSet.noneOf(StructureRmType.class);
+        private final Set<String> archetypeNodeIds = new HashSet<>();
+
+        void add(
+                WebTemplate template,
+                WebTemplateNode node,
+                Set<StructureRmType> nodeTypes,
+                Set<StructureRmType> types) {
+            templateIds.add(template.getTemplateId());
+            nodeTypes.stream().filter(types::contains).forEach(rmTypes::add);
+            archetypeNodeIds.add(node.getNodeId());
+        }
+
+        ContainsMatches toMatches(int templateCount) {
+            return new ContainsMatches(
+                    Set.copyOf(templateIds),
+                    templateIds.size() == templateCount,
+                    Set.copyOf(rmTypes),
+                    Set.copyOf(archetypeNodeIds));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TemplateContainsAnalysis[" + "satisfiable=" + satisfiable + ", " + "matches=" + matches + ']';
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.asl;
+
+import java.util.List;
+import org.ehrbase.api.service.TemplateService;
+import org.ehrbase.openehr.aqlengine.AqlConfigurationProperties;
+import org.ehrbase.openehr.aqlengine.querywrapper.AqlQueryWrapper;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Provides the {@link TemplateContainsAnalysis} of queries based on the cached web templates,
+ * if <code>ehrbase.aql.template-contains-pruning</code> is enabled.
+ * <p>
+ * As the analysis is part of the cached query plans, they are keyed by the {@link #templateStoreVersion()}, which is
+ * shared by all instances using the same database.
+ */
+@Component
+public class TemplateContainsAnalyzer {
+
+    private final TemplateService templateService;
+    private final AqlConfigurationProperties aqlConfigurationProperties;
+
+    public TemplateContainsAnalyzer(
+            TemplateService templateService, AqlConfigurationProperties aqlConfigurationProperties) {
+        this.templateService = templateService;
+        this.aqlConfigurationProperties = aqlConfigurationProperties;
+    }
+
+    public TemplateContainsAnalysis analyze(AqlQueryWrapper query) {
+        if (!aqlConfigurationProperties.templateContainsPruning()) {
+            return TemplateContainsAnalysis.UNRESTRICTED;
+        }
+        List<WebTemplate> templates = templateService.findAllTemplates().stream()
+                .map(TemplateService.TemplateDetails::templateId)
+                .map(templateService::getInternalTemplate)
+                .toList();
+        return TemplateContainsAnalysis.analyze(query.containsChain(), templates);
+    }
+
+    /**
+     * @return the version of the template store the analysis depends on, <code>null</code> if pruning is disabled
+     */
+    public String templateStoreVersion() {
+        return aqlConfigurationProperties.templateContainsPruning() ? templateService.getTemplateStoreVersion() : null;
+    }
+}
@@ -17,21 +17,43 @@
  */
 package org.ehrbase.openehr.aqlengine.repository;
 
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.ehrbase.api.dto.AqlQueryContext;
+import org.ehrbase.api.exception.ServiceUnavailableException;
+import org.ehrbase.api.exception.UnprocessableEntityException;
 import org.ehrbase.api.service.AqlQueryService;
 import org.ehrbase.api.service.SystemService;
 import org.ehrbase.api.service.TemplateService;
+import org.ehrbase.openehr.aqlengine.AqlConfigurationProperties;
+import org.ehrbase.openehr.aqlengine.aql.AqlParameterSignature;
 import org.ehrbase.openehr.aqlengine.asl.model.AslExtractedColumn;
+import org.ehrbase.openehr.aqlengine.asl.model.field.AslOrderByField;
 import org.ehrbase.openehr.aqlengine.asl.model.query.AslRootQuery;
 import org.ehrbase.openehr.aqlengine.querywrapper.select.SelectWrapper;
 import org.ehrbase.openehr.aqlengine.querywrapper.select.SelectWrapper.SelectType;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryMetrics;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryMetrics.Cancellation;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryMetrics.Phase;
 import org.ehrbase.openehr.aqlengine.sql.AqlSqlQueryBuilder;
 import org.ehrbase.openehr.aqlengine.sql.postprocessor.AqlSqlResultPostprocessor;
 import org.ehrbase.openehr.aqlengine.sql.postprocessor.DefaultResultPostprocessor;
@@ -41,35 +63,76 @@ import org.ehrbase.openehr.sdk.aql.dto.operand.IdentifiedPath;
 import org.ehrbase.openehr.sdk.aql.dto.path.AqlObjectPath;
 import org.ehrbase.openehr.sdk.aql.dto.path.AqlObjectPath.PathNode;
 import org.ehrbase.openehr.sdk.util.rmconstants.RmConstants;
+import org.jooq.Configuration;
+import org.jooq.Cursor;
+import org.jooq.JSONB;
 import org.jooq.Record;
+import org.jooq.Record2;
+import org.jooq.Result;
 import org.jooq.ResultQuery;
 import org.jooq.Select;
 import org.jooq.SelectQuery;
+import org.jooq.conf.ParamType;
+import org.jooq.conf.StatementType;
 import org.jooq.impl.DSL;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Executes ASL queries as SQL, and converts the results
+ * <p>
+ * If {@link AqlConfigurationProperties.ParallelPostprocessing#parallelism()} is set, the RM objects of structured
+ * result columns are reconstructed by a dedicated pool, chunk by chunk, while the result order is preserved.
+ * <p>
+ * The time budget of a {@link PreparedQuery} is enforced by the database as <code>statement_timeout</code>, and
+ * between the rows of streamed results. Cancelled or timed out statements are reported as
+ * {@link CancellationException} or {@link ServiceUnavailableException}, respectively.
  */
 @Repository
-public class AqlQueryRepository {
+public class AqlQueryRepository implements DisposableBean {
 
     private static final AqlSqlResultPostprocessor NOOP_POSTPROCESSOR = v -> v;
     private final SystemService systemService;
     private final TemplateService templateService;
     private final AqlSqlQueryBuilder queryBuilder;
     private final AqlQueryContext queryContext;
+    private final AqlConfigurationProperties aqlConfigurationProperties;
+    private final ForkJoinPool postProcessingPool;
+    private final int postProcessingChunkSize;
 
     public AqlQueryRepository(
             SystemService systemService,
             TemplateService templateService,
             AqlSqlQueryBuilder queryBuilder,
-            AqlQueryContext queryContext) {
+            AqlQueryContext queryContext,
+            AqlConfigurationProperties aqlConfigurationProperties) {
         this.systemService = systemService;
         this.templateService = templateService;
         this.queryBuilder = queryBuilder;
         this.queryContext = queryContext;
+        this.aqlConfigurationProperties = aqlConfigurationProperties;
+
+        AqlConfigurationProperties.ParallelPostprocessing parallelPostprocessing =
+                aqlConfigurationProperties.parallelPostprocessing();
+        this.postProcessingPool = parallelPostprocessing.parallelism() > 0
+                ? new ForkJoinPool(
+                        parallelPostprocessing.parallelism(), AqlQueryRepository::newPostProcessingThread, null, false)
+                : null;
+        this.postProcessingChunkSize = Math.max(1, parallelPostprocessing.chunkSize());
+    }
+
+    private static ForkJoinWorkerThread newPostProcessingThread(ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("aql-postprocessing-" + thread.getPoolIndex());
+        return thread;
+    }
+
+    @Override
+    public void destroy() {
+        if (postProcessingPool != null) {
+            postProcessingPool.shutdownNow();
+        }
     }
 
     /**
@@ -79,10 +142,23 @@ public class AqlQueryRepository {
      * @param aslQuery to create the actual SQL query from.
      * @param selects  to obtain {@link AqlSqlResultPostprocessor} for.
      *
-     * @see #executeQuery(PreparedQuery)
+     * @see #executeQuery(PreparedQuery, AqlQueryMetrics.Recording)
      * @see #explainQuery(boolean, PreparedQuery)
      */
     public PreparedQuery prepareQuery(AslRootQuery aslQuery, List<SelectWrapper> selects) {
+        return prepareQuery(planQuery(aslQuery, selects));
+    }
+
+    /**
+     * Builds the SQL query from AQL and selects postprocess based on the given <code>selects</code>.
+     * The resulting plan does not depend on the current request.
+     *
+     * @param aslQuery to create the actual SQL query from.
+     * @param selects  to obtain {@link AqlSqlResultPostprocessor} for.
+     *
+     * @see #prepareQuery(SqlQueryPlan)
+     */
+    public SqlQueryPlan planQuery(AslRootQuery aslQuery, List<SelectWrapper> selects) {
 
         final SelectQuery<Record> selectQuery = queryBuilder.buildSqlQuery(aslQuery);
 
@@ -94,27 +170,136 @@ public class AqlQueryRepository {
             postProcessors = selects.stream().map(this::getPostProcessor).toArray(AqlSqlResultPostprocessor[]::new);
         }
 
-        ResultQuery<Record> resultQuery = prependSqlComments(selectQuery, queryContext);
+        KeysetPagination keysetPagination = queryBuilder.supportsKeysetPagination(aslQuery)
+                ? new KeysetPagination(
+                        selectQuery,
+                        aslQuery.getOrderByFields().stream()
+                                .map(AslOrderByField::direction)
+                                .toList(),
+                        aslQuery.getLimit(),
+                        aslQuery.getOffset())
+                : null;
+
+        return new SqlQueryPlan(selectQuery, postProcessors, keysetPagination);
+    }
+
+    /**
+     * Prepares the given plan for execution within the current request.
+     * <p>
+     * As the plan may be shared, the query is wrapped: jOOQ queries keep execution state and must not be executed
+     * concurrently.
+     *
+     * @param queryPlan to create the actual SQL query from.
+     *
+     * @see #executeQuery(PreparedQuery, AqlQueryMetrics.Recording)
+     * @see #explainQuery(boolean, PreparedQuery)
+     */
+    public PreparedQuery prepareQuery(SqlQueryPlan queryPlan) {
+        return prepareQuery(queryPlan, Map.of());
+    }
+
+    /**
+     * Prepares the given plan for execution within the current request, with the placeholder values of the plan
+     * replaced by the <code>bindValues</code> of the request. The plan is not modified.
+     *
+     * @param queryPlan  to create the actual SQL query from.
+     * @param bindValues the values of the request by placeholder, see {@link AqlParameterSignature#substitution()}
+     */
+    public PreparedQuery prepareQuery(SqlQueryPlan queryPlan, Map<Object, Object> bindValues) {
+        Select<Record> select = selectPage(queryPlan, queryContext.getContinuationToken());
+        ResultQuery<Record> resultQuery = sqlComments(queryContext)
+                .map(comments -> wrapQuery(select, queryPlan.selectQuery, comments))
+                .orElseGet(() -> wrapQuery(select, queryPlan.selectQuery, null));
+        Configuration configuration = executionConfiguration(queryPlan.selectQuery.configuration());
+        if (!bindValues.isEmpty()) {
+            configuration = configuration.deriveAppending(new BindValueSubstitution(bindValues));
+        }
+        resultQuery.attach(configuration);
+        return new PreparedQuery(resultQuery, queryPlan.postProcessors, queryPlan.keysetPagination);
+    }
+
+    /**
+     * Checks if a plan created with placeholder values can be used for the values of <code>other</code>.
+     *
+     * @param plan        created with placeholder values
+     * @param bindValues  the values of <code>other</code> by placeholder
+     * @param other       created with the actual values
+     * @param substituted checks that all values were found among the placeholders replaced in <code>plan</code>
+     * @return if <code>plan</code> with the placeholders replaced is the same SQL query as <code>other</code>
+     */
+    public boolean isEquivalent(
+            SqlQueryPlan plan, Map<Object, Object> bindValues, SqlQueryPlan other, Predicate<Set<Object>> substituted) {
+        BindValueSubstitution substitution = new BindValueSubstitution(bindValues);
+        String sql = DSL.using(plan.selectQuery.configuration().deriveAppending(substitution))
+                .renderInlined(plan.selectQuery);
+        return substituted.test(substitution.substituted())
+                && sql.equals(other.selectQuery.getSQL(ParamType.INLINED))
+                && (plan.keysetPagination == null) == (other.keysetPagination == null)
+                && Arrays.equals(postProcessorTypes(plan), postProcessorTypes(other));
+    }
+
+    private static Class<?>[] postProcessorTypes(SqlQueryPlan plan) {
+        return Arrays.stream(plan.postProcessors).map(Object::getClass).toArray(Class<?>[]::new);
+    }
+
+    private static Select<Record> selectPage(SqlQueryPlan queryPlan, String continuationToken) {
+        if (queryPlan.keysetPagination != null) {
+            return queryPlan.keysetPagination.page(queryPlan.selectQuery, continuationToken);
+        }
+        if (continuationToken != null) {
+            throw new UnprocessableEntityException(
+                    "Continuation tokens require keyset pagination to be enabled and a query with LIMIT that is only"
+                            + " ordered by ehr_id, uid, time_created, contribution or time_committed, ending with a"
+                            + " key unique per row");
+        }
+        return queryPlan.selectQuery;
+    }
 
-        return new PreparedQuery(resultQuery, postProcessors);
+    /**
+     * By default the values of AQL conditions are inlined as SQL literals.
+     * Only if {@link AqlConfigurationProperties#bindParameters()} is enabled they are sent as bind values, and IN lists
+     * are padded, so the number of values has less impact on the SQL text.
+     */
+    private Configuration executionConfiguration(Configuration configuration) {
+        if (aqlConfigurationProperties.bindParameters()) {
+            return configuration.deriveSettings(s -> s.withInListPadding(true));
+        } else {
+            return configuration.deriveSettings(s -> s.withStatementType(StatementType.STATIC_STATEMENT));
+        }
     }
 
     public static <R extends Record> ResultQuery<R> prependSqlComments(
             Select<R> selectQuery, AqlQueryContext queryContext) {
+        return sqlComments(queryContext)
+                .map(comments -> wrapQuery(selectQuery, comments))
+                .orElse(selectQuery);
+    }
+
+    private static Optional<String> sqlComments(AqlQueryContext queryContext) {
         return Optional.of(AqlQueryService.SQL_COMMENTS_KEY)
                 .map(queryContext::<List<String>>getProperty)
                 .filter(CollectionUtils::isNotEmpty)
                 .map(l -> l.stream()
                         .map(AqlQueryRepository::escapeSqlComment)
-                        .collect(Collectors.joining("*/\n/*", "/*", "*/")))
-                .map(comments -> {
-                    ResultQuery<R> query = (ResultQuery<R>) DSL.resultQuery("{0}\n{1}", DSL.raw(comments), selectQuery);
-                    query.coerce(selectQuery.fields());
-                    // reattach the query, in case callers created the query attached
-                    query.attach(selectQuery.configuration());
-                    return query;
-                })
-                .orElse(selectQuery);
+                        .collect(Collectors.joining("*/\n/*", "/*", "*/")));
+    }
+
+    private static <R extends Record> ResultQuery<R> wrapQuery(Select<R> selectQuery, String comments) {
+        return wrapQuery(selectQuery, selectQuery, comments);
+    }
+
+    /**
+     * @param resultFields the query defining the result columns, e.g. <code>selectQuery</code> is a page of it
+     */
+    private static <R extends Record> ResultQuery<R> wrapQuery(
+            Select<R> selectQuery, Select<R> resultFields, String comments) {
+        ResultQuery<R> query = comments == null
+                ? (ResultQuery<R>) DSL.resultQuery("{0}", selectQuery)
+                : (ResultQuery<R>) DSL.resultQuery("{0}\n{1}", DSL.raw(comments), selectQuery);
+        query.coerce(resultFields.fields());
+        // reattach the query, in case callers created the query attached
+        query.attach(resultFields.configuration());
+        return query;
     }
 
     private static String escapeSqlComment(String s) {
@@ -125,11 +310,214 @@ public class AqlQueryRepository {
      * Executes the given {@link PreparedQuery} in its own read only transaction.
      *
      * @param preparedQuery to execute
+     * @param recording     receives the durations of the execution and the post-processing
      * @return resultSet
+     * @throws ServiceUnavailableException if the time budget of the query was exceeded
+     * @throws CancellationException       if the query was cancelled by {@link PreparedQuery#cancel()}
      */
     @Transactional(readOnly = true)
-    public List<List<Object>> executeQuery(PreparedQuery preparedQuery) {
-        return preparedQuery.selectQuery.fetch(r -> postProcessDbRecord(r, preparedQuery.postProcessors));
+    public List<List<Object>> executeQuery(PreparedQuery preparedQuery, AqlQueryMetrics.Recording recording) {
+        TimeBudget budget = startTimeBudget(preparedQuery, recording);
+        Result<Record> result;
+        try {
+            result = recording.time(Phase.DB_EXECUTION, preparedQuery.selectQuery::fetch);
+        } catch (RuntimeException e) {
+            throw budget.translate(e);
+        }
+        if (!result.isEmpty() && setContinuationToken(preparedQuery, result.size(), result.getLast())) {
+            queryContext.setMetaProperty(
+                    AqlQueryContext.EhrbaseMetaProperty.CONTINUATION_TOKEN, preparedQuery.getContinuationToken());
+        }
+        return recording.time(Phase.RESULT_POSTPROCESSING, () -> {
+            result.forEach(r -> recording.addResultBytes(resultBytes(r, preparedQuery.postProcessors.length)));
+            return postProcessDbRecords(result, preparedQuery.postProcessors);
+        });
+    }
+
+    /**
+     * Post-processes the given records, in chunks by the pool if the parallel post-processing applies
+     */
+    List<List<Object>> postProcessDbRecords(
+            List<? extends Record> records, AqlSqlResultPostprocessor[] postProcessors) {
+        if (records.size() <= postProcessingChunkSize || !isPostProcessedInParallel(postProcessors)) {
+            return postProcessChunk(records, postProcessors);
+        }
+
+        List<ForkJoinTask<List<List<Object>>>> chunks = new ArrayList<>();
+        try {
+            for (int from = 0; from < records.size(); from += postProcessingChunkSize) {
+                List<? extends Record> chunk =
+                        records.subList(from, Math.min(from + postProcessingChunkSize, records.size()));
+                chunks.add(postProcessingPool.submit(() -> postProcessChunk(chunk, postProcessors)));
+            }
+            List<List<Object>> rows = new ArrayList<>(records.size());
+            for (ForkJoinTask<List<List<Object>>> chunk : chunks) {
+                rows.addAll(chunk.join());
+            }
+            return rows;
+        } finally {
+            // no-op for completed chunks
+            chunks.forEach(c -> c.cancel(false));
+        }
+    }
+
+    /**
+     * Only the reconstruction of RM objects, i.e. {@link DefaultResultPostprocessor}, is worth the hand-over
+     */
+    private boolean isPostProcessedInParallel(AqlSqlResultPostprocessor[] postProcessors) {
+        return postProcessingPool != null
+                && Arrays.stream(postProcessors).anyMatch(DefaultResultPostprocessor.INSTANCE::equals);
+    }
+
+    private static List<List<Object>> postProcessChunk(
+            List<? extends Record> records, AqlSqlResultPostprocessor[] postProcessors) {
+        List<List<Object>> rows = new ArrayList<>(records.size());
+        for (Record r : records) {
+            rows.add(postProcessDbRecord(r, postProcessors));
+        }
+        return rows;
+    }
+
+    /**
+     * Executes the given {@link PreparedQuery} in its own read only transaction and passes each post-processed row to
+     * the <code>rowConsumer</code> as soon as it is read from the database cursor.
+     * <p>
+     * The rows are fetched in chunks of {@link AqlConfigurationProperties#fetchSize()}, so the memory consumption does
+     * not depend on the size of the result set.
+     * As reading from the cursor is interleaved with the consumer, the time spent by the consumer is recorded as
+     * {@link Phase#SERIALIZATION}.
+     * <p>
+     * The continuation token of keyset paginated queries is provided by {@link PreparedQuery#getContinuationToken()}
+     * once all rows were consumed.
+     *
+     * @param preparedQuery to execute
+     * @param recording     receives the durations of the execution, the post-processing and the consumer
+     * @param rowConsumer   receives the rows in result order
+     * @return number of rows passed to the consumer
+     * @throws ServiceUnavailableException if the time budget of the query was exceeded
+     * @throws CancellationException       if the query was cancelled by {@link PreparedQuery#cancel()}
+     */
+    @Transactional(readOnly = true)
+    public long executeQuery(
+            PreparedQuery preparedQuery, AqlQueryMetrics.Recording recording, Consumer<List<Object>> rowConsumer) {
+        long start = System.nanoTime();
+        TimeBudget budget = startTimeBudget(preparedQuery, recording);
+        RowStream rows = new RowStream(preparedQuery.postProcessors, recording, rowConsumer);
+        try (Cursor<Record> cursor = preparedQuery
+                .selectQuery
+                .fetchSize(aqlConfigurationProperties.fetchSize())
+                .fetchLazy()) {
+            Record last = null;
+            for (Record r : cursor) {
+                budget.check();
+                rows.add(r);
+                last = r;
+            }
+            rows.flush();
+            if (last != null) {
+                // the request scope may be gone, so the token is only kept by the prepared query
+                setContinuationToken(preparedQuery, rows.count, last);
+            }
+        } catch (RuntimeException e) {
+            throw budget.translate(e);
+        } finally {
+            rows.cancel();
+            recording.add(Phase.DB_EXECUTION, System.nanoTime() - start - rows.postProcessing - rows.consuming);
+            recording.add(Phase.RESULT_POSTPROCESSING, rows.postProcessing);
+            recording.add(Phase.SERIALIZATION, rows.consuming);
+        }
+        return rows.count;
+    }
+
+    /**
+     * @return if the page of a keyset paginated query is full, so there may be more, and the token of the next page
+     * was set
+     */
+    private static boolean setContinuationToken(PreparedQuery preparedQuery, long rowCount, Record lastRow) {
+        KeysetPagination keysetPagination = preparedQuery.keysetPagination;
+        if (keysetPagination == null || rowCount != keysetPagination.limit()) {
+            return false;
+        }
+        preparedQuery.setContinuationToken(keysetPagination.continuationToken(lastRow));
+        return true;
+    }
+
+    /**
+     * Applies the time budget of the query as <code>statement_timeout</code>.
+     * <code>SET LOCAL</code> is in effect until the end of the read-only transaction the query is executed in.
+     */
+    private static TimeBudget startTimeBudget(PreparedQuery preparedQuery, AqlQueryMetrics.Recording recording) {
+        TimeBudget budget = new TimeBudget(preparedQuery, recording, preparedQuery.getTimeout());
+        budget.check();
+        if (budget.timeout != null) {
+            // statement_timeout = 0 would disable the timeout
+            long millis = Math.max(1, budget.timeout.toMillis());
+            preparedQuery.selectQuery.configuration().dsl().execute("SET LOCAL statement_timeout = " + millis);
+        }
+        return budget;
+    }
+
+    /**
+     * Tracks the time budget and the cancellation of one execution.
+     */
+    private static final class TimeBudget {
+
+        /**
+         * SQLSTATE <code>query_canceled</code>, for both <code>statement_timeout</code> and
+         * <code>Statement.cancel()</code>
+         */
+        private static final String QUERY_CANCELED = "57014";
+
+        private final PreparedQuery preparedQuery;
+        private final AqlQueryMetrics.Recording recording;
+        private final Duration timeout;
+        private final long deadline;
+
+        private TimeBudget(PreparedQuery preparedQuery, AqlQueryMetrics.Recording recording, Duration timeout) {
+            this.preparedQuery = preparedQuery;
+            this.recording = recording;
+            this.timeout = timeout;
+            this.deadline = timeout == null ? 0 : System.nanoTime() + timeout.toNanos();
+        }
+
+        void check() {
+            if (preparedQuery.isCancelled()) {
+                throw cancelled(null);
+            }
+            if (timeout != null && System.nanoTime() - deadline >= 0) {
+                throw timedOut(null);
+            }
+        }
+
+        /**
+         * @return the exception to throw instead of <code>e</code>: cancelled statements are reported according to
+         * the reason they were cancelled for
+         */
+        RuntimeException translate(RuntimeException e) {
+            if (e instanceof ServiceUnavailableException || e instanceof CancellationException) {
+                return e;
+            }
+            boolean queryCanceled = ExceptionUtils.getThrowableList(e).stream()
+                    .anyMatch(t -> t instanceof SQLException sqlException
+                            && QUERY_CANCELED.equals(sqlException.getSQLState()));
+            if (!queryCanceled) {
+                return e;
+            }
+            return preparedQuery.isCancelled() ? cancelled(e) : timedOut(e);
+        }
+
+        private CancellationException cancelled(Throwable cause) {
+            recording.cancelled(Cancellation.CANCELLED);
+            CancellationException exception = new CancellationException("AQL query was cancelled");
+            exception.initCause(cause);
+            return exception;
+        }
+
+        private ServiceUnavailableException timedOut(Throwable cause) {
+            recording.cancelled(Cancellation.TIMEOUT);
+            return new ServiceUnavailableException(
+                    "AQL query exceeded its time budget of %s".formatted(timeout), cause);
+        }
     }
 
     /**
@@ -140,7 +528,25 @@ public class AqlQueryRepository {
      */
     @Transactional(readOnly = true)
     public String explainQuery(boolean analyze, PreparedQuery preparedQuery) {
-        return queryBuilder.explain(analyze, preparedQuery.selectQuery).formatJSON();
+        // explain the query as it is executed, i.e. with or without bind values
+        return AqlSqlQueryBuilder.explain(
+                        preparedQuery.selectQuery.configuration().dsl(), analyze, preparedQuery.selectQuery)
+                .formatJSON();
+    }
+
+    /**
+     * Explains the given SQL in its own read only transaction, so it can be done independently of the
+     * {@link PreparedQuery} it was obtained from.
+     * @param analyze    also run analyse
+     * @param sql        with <code>?</code> placeholders, see {@link PreparedQuery#getParameterizedQuerySql()}
+     * @param bindValues of the placeholders, see {@link PreparedQuery#getBindValues()}
+     * @return result in serialized Json format
+     */
+    @Transactional(readOnly = true)
+    public String explainQuery(boolean analyze, String sql, List<Object> bindValues) {
+        return queryBuilder
+                .explain(analyze, DSL.resultQuery(sql, bindValues.toArray()))
+                .formatJSON();
     }
 
     private AqlSqlResultPostprocessor getPostProcessor(SelectWrapper select) {
@@ -171,11 +577,125 @@ public class AqlQueryRepository {
                 .orElse(DefaultResultPostprocessor.INSTANCE);
     }
 
+    /**
+     * Additional columns, such as the sort keys for keyset pagination, are not part of the result
+     */
     private static List<Object> postProcessDbRecord(Record r, AqlSqlResultPostprocessor[] postProcessors) {
-        List<Object> resultRow = new ArrayList<>(r.size());
-        for (int i = 0; i < r.size(); i++) {
+        List<Object> resultRow = new ArrayList<>(postProcessors.length);
+        for (int i = 0; i < postProcessors.length; i++) {
             resultRow.add(postProcessors[i].postProcessColumn(r.get(i)));
         }
         return resultRow;
     }
+
+    private static long resultBytes(Record r, int columns) {
+        long bytes = 0;
+        for (int i = 0; i < columns; i++) {
+            bytes += jsonLength(r.get(i));
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the length of the JSON data of a column; the characters are counted, as the data is already decoded
+     */
+    private static long jsonLength(Object columnValue) {
+        return switch (columnValue) {
+            case JSONB jsonb -> jsonb.data().length();
+            case Record2[] rec -> {
+                long length = 0;
+                for (Record2<?, ?> r : rec) {
+                    length += switch (r.value2()) {
+                        case JSONB jsonb -> jsonb.data().length();
+                        case String str -> str.length();
+                        case null, default -> 0;
+                    };
+                }
+                yield length;
+            }
+            case null, default -> 0;
+        };
+    }
+
+    /**
+     * Post-processes the rows read from a cursor and passes them to the consumer in result order.
+     * <p>
+     * With parallel post-processing the records are collected in chunks that are post-processed by the pool while the
+     * next chunks are read. The number of pending chunks is bounded by the parallelism of the pool.
+     */
+    private final class RowStream {
+
+        private final AqlSqlResultPostprocessor[] postProcessors;
+        private final AqlQueryMetrics.Recording recording;
+        private final Consumer<List<Object>> rowConsumer;
+        private final boolean parallel;
+        private final Deque<ForkJoinTask<List<List<Object>>>> pendingChunks = new ArrayDeque<>();
+        private List<Record> chunk = new ArrayList<>();
+
+        private long count;
+        private long postProcessing;
+        private long consuming;
+
+        private RowStream(
+                AqlSqlResultPostprocessor[] postProcessors,
+                AqlQueryMetrics.Recording recording,
+                Consumer<List<Object>> rowConsumer) {
+            this.postProcessors = postProcessors;
+            this.recording = recording;
+            this.rowConsumer = rowConsumer;
+            this.parallel = isPostProcessedInParallel(postProcessors);
+        }
+
+        void add(Record r) {
+            recording.addResultBytes(resultBytes(r, postProcessors.length));
+            if (!parallel) {
+                long postProcessingStart = System.nanoTime();
+                List<Object> row = postProcessDbRecord(r, postProcessors);
+                postProcessing += System.nanoTime() - postProcessingStart;
+                consume(row);
+                return;
+            }
+            chunk.add(r);
+            if (chunk.size() == postProcessingChunkSize) {
+                submitChunk();
+                if (pendingChunks.size() > postProcessingPool.getParallelism()) {
+                    consumeChunk(pendingChunks.poll());
+                }
+            }
+        }
+
+        void flush() {
+            if (!chunk.isEmpty()) {
+                submitChunk();
+            }
+            while (!pendingChunks.isEmpty()) {
+                consumeChunk(pendingChunks.poll());
+            }
+        }
+
+        void cancel() {
+            pendingChunks.forEach(c -> c.cancel(false));
+            pendingChunks.clear();
+        }
+
+        private void submitChunk() {
+            List<Record> records = chunk;
+            pendingChunks.add(postProcessingPool.submit(() -> postProcessChunk(records, postProcessors)));
+            chunk = new ArrayList<>(postProcessingChunkSize);
+        }
+
+        private void consumeChunk(ForkJoinTask<List<List<Object>>> pendingChunk) {
+            long postProcessingStart = System.nanoTime();
+            List<List<Object>> rows = pendingChunk.join();
+            postProcessing += System.nanoTime() - postProcessingStart;
+            rows.forEach(this::consume);
+        }
+
+        private void consume(List<Object> row) {
+            long consumingStart = System.nanoTime();
+            rowConsumer.accept(row);
+            consuming += System.nanoTime() - consumingStart;
+            count++;
+        }
+    }
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.repository;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jooq.Param;
+import org.jooq.VisitContext;
+import org.jooq.VisitListener;
+import org.jooq.impl.DSL;
+
+/**
+ * Replaces the placeholder values of a shared {@link SqlQueryPlan} by the values of the current execution while
+ * the query is rendered and bound, so the plan itself is not modified.
+ *
+ * @see org.ehrbase.openehr.aqlengine.aql.AqlParameterSignature
+ */
+final class BindValueSubstitution implements VisitListener {
+
+    private final Map<Object, Object> bindValues;
+    private final Set<Object> substituted = ConcurrentHashMap.newKeySet();
+
+    BindValueSubstitution(Map<Object, Object> bindValues) {
+        this.bindValues = bindValues;
+    }
+
+    @Override
+    public void visitStart(VisitContext context) {
+        if (context.queryPart() instanceof Param<?> param) {
+            Object placeholder = param.getValue();
+            if (placeholder != null && bindValues.containsKey(placeholder)) {
+                substituted.add(placeholder);
+                context.queryPart(substitute(param, bindValues.get(placeholder)));
+            }
+        }
+    }
+
+    private static <T> Param<T> substitute(Param<T> param, Object value) {
+        return param.isInline() ? DSL.inline(value, param.getDataType()) : DSL.val(value, param.getDataType());
+    }
+
+    /**
+     * @return the placeholders found so far
+     */
+    Set<Object> substituted() {
+        return substituted;
+    }
+}
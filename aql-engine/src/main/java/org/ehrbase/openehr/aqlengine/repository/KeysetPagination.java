@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.repository;
+
+import static org.ehrbase.openehr.aqlengine.sql.AqlSqlQueryBuilder.KEYSET_COLUMN_PREFIX;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.ehrbase.api.exception.InvalidApiParameterException;
+import org.ehrbase.api.exception.UnprocessableEntityException;
+import org.ehrbase.openehr.aqlengine.sql.AqlSqlQueryBuilder;
+import org.jooq.Condition;
+import org.jooq.DataType;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Select;
+import org.jooq.SelectQuery;
+import org.jooq.SortOrder;
+import org.jooq.conf.ParamType;
+import org.jooq.impl.DSL;
+
+/**
+ * Keyset ("seek") pagination of a query planned with {@link AqlSqlQueryBuilder#supportsKeysetPagination}:
+ * instead of skipping the rows of the previous pages via OFFSET, a page starts after the sort keys of the last row of
+ * the previous page, which are handed to the client as an opaque continuation token.
+ * <p>
+ * The ORDER BY and LIMIT are applied around the planned query, so the plan itself can be shared by all pages.
+ * Rows with the same sort keys as the last row of a page are skipped, so it is only used for queries whose ORDER BY
+ * identifies the rows uniquely, e.g. by ending with the <code>uid/value</code> of the only COMPOSITION.
+ */
+final class KeysetPagination {
+
+    private static final String PAGE_ALIAS = "ks";
+    private static final String SEPARATOR = "\u001f";
+    private static final Pattern SEPARATOR_PATTERN = Pattern.compile(SEPARATOR);
+
+    private final SortOrder[] sortOrders;
+    private final DataType<?>[] keyTypes;
+    private final int firstKeyColumn;
+    private final long limit;
+    private final Long offset;
+    private final String fingerprint;
+
+    KeysetPagination(SelectQuery<Record> selectQuery, List<SortOrder> sortOrders, long limit, Long offset) {
+        this.sortOrders = sortOrders.toArray(SortOrder[]::new);
+        Field<?>[] fields = selectQuery.fields();
+        this.firstKeyColumn = fields.length - this.sortOrders.length;
+        this.keyTypes = new DataType<?>[this.sortOrders.length];
+        for (int i = 0; i < keyTypes.length; i++) {
+            keyTypes[i] = fields[firstKeyColumn + i].getDataType();
+        }
+        this.limit = limit;
+        this.offset = offset;
+        // tokens are only accepted for the query they were created for
+        this.fingerprint = Integer.toHexString(selectQuery.getSQL(ParamType.INLINED).hashCode());
+    }
+
+    long limit() {
+        return limit;
+    }
+
+    /**
+     * Wraps the planned query to select the page following the given continuation token; the first page if the token
+     * is <code>null</code>.
+     */
+    Select<Record> page(SelectQuery<Record> selectQuery, String continuationToken) {
+        SelectQuery<Record> page = DSL.select(DSL.asterisk())
+                .from(selectQuery.asTable(PAGE_ALIAS))
+                .getQuery();
+
+        if (continuationToken == null) {
+            page.addLimit(offset == null ? 0L : offset, limit);
+        } else {
+            if (offset != null && offset > 0) {
+                throw new UnprocessableEntityException("A continuation token cannot be combined with an offset");
+            }
+            page.addConditions(seekCondition(parseToken(continuationToken)));
+            page.addLimit(limit);
+        }
+
+        for (int i = 0; i < sortOrders.length; i++) {
+            page.addOrderBy(keyField(i).sort(sortOrders[i]));
+        }
+        return page;
+    }
+
+    /**
+     * @return the token for the page following the given last row, or <code>null</code> if a sort key is missing
+     */
+    String continuationToken(Record lastRow) {
+        StringBuilder sb = new StringBuilder(fingerprint);
+        for (int i = 0; i < sortOrders.length; i++) {
+            Object value = lastRow.get(firstKeyColumn + i);
+            if (value == null) {
+                return null;
+            }
+            sb.append(SEPARATOR).append(value);
+        }
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<String> parseToken(String continuationToken) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(continuationToken), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidApiParameterException("Invalid continuation token", e);
+        }
+        String[] parts = SEPARATOR_PATTERN.split(decoded, -1);
+        if (parts.length != sortOrders.length + 1 || !fingerprint.equals(parts[0])) {
+            throw new InvalidApiParameterException("The continuation token was not issued for this query");
+        }
+        return List.of(parts).subList(1, parts.length);
+    }
+
+    /**
+     * (k0 &gt; v0) OR (k0 = v0 AND k1 &gt; v1) OR …, with &lt; for descending keys
+     */
+    private Condition seekCondition(List<String> lastValues) {
+        List<Condition> alternatives = new ArrayList<>(sortOrders.length);
+        List<Condition> equalKeys = new ArrayList<>(sortOrders.length);
+        for (int i = 0; i < sortOrders.length; i++) {
+            Field<Object> key = keyField(i);
+            Field<Object> lastValue = DSL.cast(DSL.val(lastValues.get(i)), (DataType<Object>) keyTypes[i]);
+            Condition after = sortOrders[i] == SortOrder.DESC ? key.lt(lastValue) : key.gt(lastValue);
+            alternatives.add(DSL.and(List.copyOf(equalKeys)).and(after));
+            equalKeys.add(key.eq(lastValue));
+        }
+        return DSL.or(alternatives);
+    }
+
+    private Field<Object> keyField(int i) {
+        return DSL.field(DSL.name(PAGE_ALIAS, KEYSET_COLUMN_PREFIX + i), (DataType<Object>) keyTypes[i]);
+    }
+}
@@ -17,33 +17,115 @@
  */
 package org.ehrbase.openehr.aqlengine.repository;
 
+import java.time.Duration;
 import java.util.List;
 import org.ehrbase.openehr.aqlengine.asl.model.query.AslRootQuery;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryMetrics;
 import org.ehrbase.openehr.aqlengine.sql.postprocessor.AqlSqlResultPostprocessor;
 import org.jooq.Record;
 import org.jooq.ResultQuery;
+import org.jooq.conf.ParamType;
 
 /**
  * Represents a prepared but not executed SQL query for the {@link AqlQueryRepository} that is constructed by
  * {@link AqlQueryRepository#prepareQuery(AslRootQuery, List)}. This prepared query can be executed by
- * {@link AqlQueryRepository#executeQuery(PreparedQuery)} or can be used to obtain the raw SQL query using
- * {@link AqlQueryRepository#getQuerySql(PreparedQuery)}} or the query planer output
+ * {@link AqlQueryRepository#executeQuery(PreparedQuery, AqlQueryMetrics.Recording)} or can be used to obtain the raw
+ * SQL query using {@link AqlQueryRepository#getQuerySql(PreparedQuery)}} or the query planer output
  * {@link AqlQueryRepository#explainQuery(boolean, PreparedQuery)}.
  */
 public final class PreparedQuery {
 
     final ResultQuery<Record> selectQuery;
     final AqlSqlResultPostprocessor[] postProcessors;
+    final KeysetPagination keysetPagination;
+    private Duration timeout;
+    private volatile boolean cancelled;
+    private volatile String continuationToken;
 
     public PreparedQuery(ResultQuery<Record> selectQuery, AqlSqlResultPostprocessor[] postProcessors) {
+        this(selectQuery, postProcessors, null);
+    }
+
+    PreparedQuery(
+            ResultQuery<Record> selectQuery,
+            AqlSqlResultPostprocessor[] postProcessors,
+            KeysetPagination keysetPagination) {
         this.selectQuery = selectQuery;
         this.postProcessors = postProcessors;
+        this.keysetPagination = keysetPagination;
     }
 
     public String getQuerySql() {
         return selectQuery.getSQL();
     }
 
+    /**
+     * @return the SQL query with all bind values inlined, e.g. for identifying identical queries
+     */
+    public String getInlinedQuerySql() {
+        return selectQuery.getSQL(ParamType.INLINED);
+    }
+
+    /**
+     * @return the SQL query with <code>?</code> placeholders for the bind values, independent of the configured
+     * statement type
+     * @see #getBindValues()
+     */
+    public String getParameterizedQuerySql() {
+        return selectQuery.getSQL(ParamType.INDEXED);
+    }
+
+    public List<Object> getBindValues() {
+        return selectQuery.getBindValues();
+    }
+
+    /**
+     * @return if the result depends on a continuation token and the page is completed by the execution
+     */
+    public boolean isKeysetPaginated() {
+        return keysetPagination != null;
+    }
+
+    /**
+     * @return the token of the page following the one read by the execution; <code>null</code> if the query is not
+     * keyset paginated, the page was not full or the execution did not complete
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    void setContinuationToken(String continuationToken) {
+        this.continuationToken = continuationToken;
+    }
+
+    /**
+     * @return the time budget of the execution, <code>null</code> for none
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @param timeout the time budget of the execution, enforced by the database as <code>statement_timeout</code> and
+     *                while the rows are fetched; <code>null</code> for none
+     */
+    public void setTimeout(final Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Cancels the execution: the running statement is cancelled, and the rows still to be fetched are discarded.
+     * May be called from any thread, also before the execution started.
+     */
+    public void cancel() {
+        cancelled = true;
+        selectQuery.cancel();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
     @Override
     public String toString() {
         return getQuerySql();
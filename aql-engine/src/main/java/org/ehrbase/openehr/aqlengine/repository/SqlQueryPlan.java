@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.repository;
+
+import java.util.List;
+import org.ehrbase.openehr.aqlengine.asl.model.query.AslRootQuery;
+import org.ehrbase.openehr.aqlengine.sql.postprocessor.AqlSqlResultPostprocessor;
+import org.jooq.Record;
+import org.jooq.SelectQuery;
+
+/**
+ * The SQL query built from an ASL query by {@link AqlQueryRepository#planQuery(AslRootQuery, List)}, along with the
+ * {@link AqlSqlResultPostprocessor}s for its columns.
+ * <p>
+ * In contrast to the {@link PreparedQuery} the plan does not depend on the current request, so it may be cached and
+ * shared: each execution uses its own query instance created by {@link AqlQueryRepository#prepareQuery(SqlQueryPlan)}.
+ */
+public final class SqlQueryPlan {
+
+    final SelectQuery<Record> selectQuery;
+    final AqlSqlResultPostprocessor[] postProcessors;
+    final KeysetPagination keysetPagination;
+
+    SqlQueryPlan(
+            SelectQuery<Record> selectQuery,
+            AqlSqlResultPostprocessor[] postProcessors,
+            KeysetPagination keysetPagination) {
+        this.selectQuery = selectQuery;
+        this.postProcessors = postProcessors;
+        this.keysetPagination = keysetPagination;
+    }
+
+    @Override
+    public String toString() {
+        return selectQuery.getSQL();
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import org.ehrbase.api.dto.AqlIndexRecommendation;
+import org.ehrbase.api.exception.ObjectNotFoundException;
+import org.ehrbase.api.exception.UnprocessableEntityException;
+import org.ehrbase.api.service.AqlIndexAdvisor;
+import org.ehrbase.openehr.aqlengine.AqlConfigurationProperties;
+import org.ehrbase.openehr.aqlengine.AqlConfigurationProperties.IndexAdvisor;
+import org.ehrbase.openehr.aqlengine.asl.AslPathUsage;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryMetrics.Phase;
+import org.ehrbase.openehr.aqlengine.sql.PathIndexUtils;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+/**
+ * Aggregates the {@link AslPathUsage}s of executed AQL queries with the database time of the queries, and proposes
+ * the partial indexes of {@link PathIndexUtils} for the ones used at least {@link IndexAdvisor#minExecutions()} times.
+ * <p>
+ * The statistics are kept in memory for up to {@link IndexAdvisor#capacity()} path usages; further usages are ignored
+ * until the statistics are cleared.
+ * <p>
+ * Requested indexes are built one at a time on a background thread. As a failed <code>CREATE INDEX CONCURRENTLY</code>
+ * leaves an invalid index behind, which <code>IF NOT EXISTS</code> would then accept, the validity is checked in
+ * <code>pg_index</code> and invalid indexes are dropped and rebuilt.
+ */
+@Service
+public class AqlIndexAdvisorImp implements AqlIndexAdvisor, DisposableBean {
+
+    private enum IndexStatus {
+        BUILDING,
+        VALID,
+        FAILED
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final AqlConfigurationProperties aqlConfigurationProperties;
+    private final DSLContext context;
+    private final Map<AslPathUsage, UsageStatistics> statistics = new ConcurrentHashMap<>();
+    private final Map<String, IndexStatus> indexBuilds = new ConcurrentHashMap<>();
+    private final ExecutorService indexBuildExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "aql-index-build");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AqlIndexAdvisorImp(AqlConfigurationProperties aqlConfigurationProperties, DSLContext context) {
+        this.aqlConfigurationProperties = aqlConfigurationProperties;
+        this.context = context;
+    }
+
+    public boolean isEnabled() {
+        return aqlConfigurationProperties.indexAdvisor().enabled();
+    }
+
+    /**
+     * Adds the database time of the execution to the statistics of its path usages.
+     * Executions that did not reach the database, e.g. dry runs, are ignored.
+     *
+     * @param pathUsages the path usages of the executed query
+     * @param recording  of the stopped execution
+     */
+    public void record(Set<AslPathUsage> pathUsages, AqlQueryMetrics.Recording recording) {
+        IndexAdvisor config = aqlConfigurationProperties.indexAdvisor();
+        long dbNanos = recording.phaseNanos(Phase.DB_EXECUTION);
+        if (!config.enabled() || pathUsages.isEmpty() || dbNanos < 0) {
+            return;
+        }
+        for (AslPathUsage usage : pathUsages) {
+            UsageStatistics usageStatistics = statistics.get(usage);
+            if (usageStatistics == null) {
+                if (statistics.size() >= config.capacity()) {
+                    continue;
+                }
+                usageStatistics = statistics.computeIfAbsent(usage, u -> new UsageStatistics());
+            }
+            usageStatistics.add(dbNanos);
+        }
+    }
+
+    @Override
+    public List<AqlIndexRecommendation> getRecommendations() {
+        int minExecutions = aqlConfigurationProperties.indexAdvisor().minExecutions();
+        return statistics.entrySet().stream()
+                .filter(e -> e.getValue().executions.sum() >= minExecutions)
+                .map(e -> recommendation(e.getKey(), e.getValue(), indexBuilds))
+                .sorted(Comparator.comparingLong(AqlIndexRecommendation::totalDbMillis)
+                        .reversed()
+                        .thenComparing(AqlIndexRecommendation::indexName))
+                .toList();
+    }
+
+    @Override
+    public AqlIndexRecommendation createIndex(String indexName) {
+        if (!aqlConfigurationProperties.indexAdvisor().createEnabled()) {
+            throw new UnprocessableEntityException(
+                    "Creating indexes is disabled, see ehrbase.aql.index-advisor.create-enabled");
+        }
+        AqlIndexRecommendation recommendation = getRecommendations().stream()
+                .filter(r -> r.indexName().equals(indexName))
+                .findFirst()
+                .orElseThrow(() -> new ObjectNotFoundException(
+                        "index recommendation", "No index recommendation named %s".formatted(indexName)));
+
+        String indexName = recommendation.indexName();
+        if (indexBuilds.put(indexName, IndexStatus.BUILDING) != IndexStatus.BUILDING) {
+            try {
+                indexBuildExecutor.execute(() -> indexBuilds.put(indexName, buildIndex(recommendation)));
+            } catch (RejectedExecutionException e) {
+                indexBuilds.put(indexName, IndexStatus.FAILED);
+                throw e;
+            }
+        }
+        return recommendation(recommendation, indexBuilds.get(indexName));
+    }
+
+    @Override
+    public void destroy() {
+        indexBuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Runs outside of a transaction, as <code>CREATE INDEX CONCURRENTLY</code> cannot run inside a transaction block.
+     */
+    private IndexStatus buildIndex(AqlIndexRecommendation recommendation) {
+        String indexName = recommendation.indexName();
+        try {
+            Boolean valid = isIndexValid(indexName);
+            if (Boolean.TRUE.equals(valid)) {
+                logger.info("Index {} already exists", indexName);
+                return IndexStatus.VALID;
+            }
+            if (valid != null) {
+                logger.warn("Dropping invalid index {} before rebuilding it", indexName);
+                context.execute(PathIndexUtils.dropIndexStatement(indexName));
+            }
+            logger.info("Creating index: {}", recommendation.createStatement());
+            context.execute(recommendation.createStatement());
+            if (Boolean.TRUE.equals(isIndexValid(indexName))) {
+                logger.info("Created index {}", indexName);
+                return IndexStatus.VALID;
+            }
+            logger.error("Index {} is not valid after it was created", indexName);
+        } catch (RuntimeException e) {
+            logger.error("Failed to create index {}", indexName, e);
+        }
+        dropInvalidIndex(indexName);
+        return IndexStatus.FAILED;
+    }
+
+    /**
+     * Invalid indexes are not used by queries, but are still maintained on writes.
+     */
+    private void dropInvalidIndex(String indexName) {
+        try {
+            if (Boolean.FALSE.equals(isIndexValid(indexName))) {
+                context.execute(PathIndexUtils.dropIndexStatement(indexName));
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to drop invalid index {}", indexName, e);
+        }
+    }
+
+    /**
+     * @return <code>pg_index.indisvalid</code> of the index, <code>null</code> if it does not exist
+     */
+    private Boolean isIndexValid(String indexName) {
+        return context.fetchOptional(
+                        "SELECT indisvalid FROM pg_catalog.pg_index WHERE indexrelid = to_regclass(?)",
+                        PathIndexUtils.qualifiedIndexName(indexName))
+                .map(r -> r.get(0, Boolean.class))
+                .orElse(null);
+    }
+
+    @Override
+    public void clear() {
+        statistics.clear();
+    }
+
+    private static AqlIndexRecommendation recommendation(
+            AslPathUsage usage, UsageStatistics usageStatistics, Map<String, IndexStatus> indexBuilds) {
+        String indexName = PathIndexUtils.indexName(usage);
+        IndexStatus indexStatus = indexBuilds.get(indexName);
+        return new AqlIndexRecommendation(
+                indexName,
+                usage.entityConcept(),
+                usage.rmEntity(),
+                usage.entityAttribute(),
+                String.join("/", usage.jsonPath()),
+                usage.kind().name(),
+                usageStatistics.executions.sum(),
+                TimeUnit.NANOSECONDS.toMillis(usageStatistics.totalNanos.sum()),
+                TimeUnit.NANOSECONDS.toMillis(usageStatistics.maxNanos.get()),
+                PathIndexUtils.createIndexStatement(usage),
+                indexStatus == null ? null : indexStatus.name());
+    }
+
+    private static AqlIndexRecommendation recommendation(AqlIndexRecommendation r, IndexStatus indexStatus) {
+        return new AqlIndexRecommendation(
+                r.indexName(),
+                r.entityConcept(),
+                r.rmEntity(),
+                r.entityAttribute(),
+                r.jsonPath(),
+                r.comparison(),
+                r.executions(),
+                r.totalDbMillis(),
+                r.maxDbMillis(),
+                r.createStatement(),
+                indexStatus == null ? null : indexStatus.name());
+    }
+
+    private static final class UsageStatistics {
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void add(long nanos) {
+            executions.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+    }
+}
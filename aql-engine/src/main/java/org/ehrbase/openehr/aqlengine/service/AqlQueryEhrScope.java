@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.ehrbase.openehr.aqlengine.asl.model.AslExtractedColumn;
+import org.ehrbase.openehr.aqlengine.querywrapper.AqlQueryWrapper;
+import org.ehrbase.openehr.aqlengine.querywrapper.contains.ContainsWrapper;
+import org.ehrbase.openehr.aqlengine.querywrapper.contains.RmContainsWrapper;
+import org.ehrbase.openehr.aqlengine.querywrapper.where.ComparisonOperatorConditionWrapper;
+import org.ehrbase.openehr.aqlengine.querywrapper.where.ConditionWrapper;
+import org.ehrbase.openehr.aqlengine.querywrapper.where.ConditionWrapper.ComparisonConditionOperator;
+import org.ehrbase.openehr.aqlengine.querywrapper.where.LogicalOperatorConditionWrapper;
+import org.ehrbase.openehr.sdk.aql.dto.operand.Primitive;
+import org.ehrbase.openehr.sdk.aql.dto.path.AndOperatorPredicate;
+import org.ehrbase.openehr.sdk.aql.dto.path.ComparisonOperatorPredicate;
+import org.ehrbase.openehr.sdk.aql.dto.path.ComparisonOperatorPredicate.PredicateComparisonOperator;
+import org.ehrbase.openehr.sdk.util.rmconstants.RmConstants;
+
+/**
+ * Determines the EHRs an AQL query is restricted to, i.e. <code>FROM EHR e[ehr_id/value = '…']</code> or
+ * <code>FROM EHR e … WHERE e/ehr_id/value = '…'</code>, with <code>MATCHES</code>, <code>AND</code> and
+ * <code>OR</code> taken into account.
+ */
+final class AqlQueryEhrScope {
+
+    private AqlQueryEhrScope() {}
+
+    /**
+     * @param bindValues the values replacing the placeholders of a parameterized plan, see {@link AqlQueryPlan}
+     * @return the EHR ids, or an empty set if the query is not restricted to certain EHRs
+     */
+    static Set<UUID> of(AqlQueryWrapper query, Map<Object, Object> bindValues) {
+        Set<UUID> ehrIds = of(query);
+        if (bindValues.isEmpty()) {
+            return ehrIds;
+        }
+        return ehrIds.stream()
+                .map(id -> bindValues.get(id) instanceof UUID actual ? actual : id)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * @return the EHR ids, or an empty set if the query is not restricted to certain EHRs
+     */
+    static Set<UUID> of(AqlQueryWrapper query) {
+        List<ContainsWrapper> chain = query.containsChain().chain();
+        if (chain.isEmpty()
+                || !(chain.getFirst() instanceof RmContainsWrapper ehr)
+                || !RmConstants.EHR.equals(ehr.getRmType())) {
+            return Set.of();
+        }
+        return fromPredicate(ehr.getPredicate())
+                .or(() -> Optional.ofNullable(query.where()).flatMap(w -> fromCondition(w, ehr)))
+                .orElse(Set.of());
+    }
+
+    private static Optional<Set<UUID>> fromPredicate(List<AndOperatorPredicate> predicate) {
+        if (predicate == null || predicate.isEmpty()) {
+            return Optional.empty();
+        }
+        // alternatives: each one has to be restricted
+        Set<UUID> ehrIds = new HashSet<>();
+        for (AndOperatorPredicate and : predicate) {
+            Optional<UUID> ehrId = and.getOperands().stream()
+                    .filter(p -> p.getOperator() == PredicateComparisonOperator.EQ)
+                    .filter(p -> AslExtractedColumn.EHR_ID.getPath().equals(p.getPath()))
+                    .map(ComparisonOperatorPredicate::getValue)
+                    .map(v -> v instanceof Primitive<?, ?> p ? toUuid(p) : Optional.<UUID>empty())
+                    .flatMap(Optional::stream)
+                    .findFirst();
+            if (ehrId.isEmpty()) {
+                return Optional.empty();
+            }
+            ehrIds.add(ehrId.get());
+        }
+        return Optional.of(ehrIds);
+    }
+
+    private static Optional<Set<UUID>> fromCondition(ConditionWrapper condition, RmContainsWrapper ehr) {
+        return switch (condition) {
+            case ComparisonOperatorConditionWrapper c -> {
+                if (c.leftComparisonOperand().root() != ehr
+                        || !AslExtractedColumn.EHR_ID
+                                .getPath()
+                                .equals(c.leftComparisonOperand().path().getPath())
+                        || (c.operator() != ComparisonConditionOperator.EQ
+                                && c.operator() != ComparisonConditionOperator.MATCHES)) {
+                    yield Optional.empty();
+                }
+                Set<UUID> ehrIds = new HashSet<>();
+                for (Primitive<?, ?> value : c.rightComparisonOperands()) {
+                    Optional<UUID> ehrId = toUuid(value);
+                    if (ehrId.isEmpty()) {
+                        yield Optional.empty();
+                    }
+                    ehrIds.add(ehrId.get());
+                }
+                yield Optional.of(ehrIds);
+            }
+            case LogicalOperatorConditionWrapper l ->
+                switch (l.operator()) {
+                    // any restriction of a conjunction applies
+                    case AND ->
+                        l.logicalOperands().stream()
+                                .map(o -> fromCondition(o, ehr))
+                                .flatMap(Optional::stream)
+                                .findFirst();
+                    // all alternatives have to be restricted
+                    case OR -> {
+                        Set<UUID> ehrIds = new HashSet<>();
+                        for (ConditionWrapper operand : l.logicalOperands()) {
+                            Optional<Set<UUID>> operandEhrIds = fromCondition(operand, ehr);
+                            if (operandEhrIds.isEmpty()) {
+                                yield Optional.empty();
+                            }
+                            ehrIds.addAll(operandEhrIds.get());
+                        }
+                        yield Optional.of(ehrIds);
+                    }
+                    case NOT -> Optional.empty();
+                };
+        };
+    }
+
+    private static Optional<UUID> toUuid(Primitive<?, ?> value) {
+        if (value.getValue() instanceof String s) {
+            try {
+                return Optional.of(UUID.fromString(s));
+            } catch (IllegalArgumentException e) {
+                return Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+}
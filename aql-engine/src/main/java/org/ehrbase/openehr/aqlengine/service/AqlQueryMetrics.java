@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer metrics of AQL query executions.
+ * <p>
+ * The duration of each {@link Phase} is exported as <code>ehrbase.aql.query.phase</code>, the whole execution as
+ * <code>ehrbase.aql.query</code>. Both are tagged with the qualified name of the stored query (<code>none</code> for
+ * ad-hoc queries) and the exception that caused the execution to fail (<code>none</code> on success). The total
+ * is additionally tagged with a bucket of the result size.
+ * <p>
+ * The number of result rows and the length of the JSON data read from the database are exported as the histograms
+ * <code>ehrbase.aql.result.rows</code> and <code>ehrbase.aql.result.bytes</code>.
+ * <p>
+ * Executions that were aborted before completion are counted as <code>ehrbase.aql.query.cancelled</code>, tagged with
+ * the {@link Cancellation} reason.
+ */
+@Component
+public class AqlQueryMetrics {
+
+    public static final String QUERY_TIMER = "ehrbase.aql.query";
+    public static final String PHASE_TIMER = "ehrbase.aql.query.phase";
+    public static final String RESULT_ROWS = "ehrbase.aql.result.rows";
+    public static final String RESULT_BYTES = "ehrbase.aql.result.bytes";
+    public static final String CANCELLED_COUNTER = "ehrbase.aql.query.cancelled";
+
+    public static final String TAG_QUERY = "query";
+    public static final String TAG_PHASE = "phase";
+    public static final String TAG_EXCEPTION = "exception";
+    public static final String TAG_RESULT_SIZE = "result_size";
+    public static final String TAG_REASON = "reason";
+
+    private static final String NONE = "none";
+
+    /**
+     * Upper bounds of the <code>result_size</code> buckets
+     */
+    private static final long[] RESULT_SIZE_BUCKETS = {0, 1, 10, 100, 1_000, 10_000};
+
+    public enum Phase {
+        /**
+         * {@link org.ehrbase.openehr.aqlengine.aql.AqlQueryParsingPostProcessor}s
+         */
+        AQL_POSTPROCESSING("aql_postprocessing"),
+        /**
+         * {@link org.ehrbase.openehr.aqlengine.querywrapper.AqlQueryWrapper#create}
+         */
+        QUERY_WRAPPER("query_wrapper"),
+        /**
+         * {@link org.ehrbase.openehr.aqlengine.asl.AqlSqlLayer#buildAslRootQuery}, including the
+         * {@link org.ehrbase.openehr.aqlengine.asl.AslPostProcessor}s
+         */
+        ASL("asl"),
+        /**
+         * {@link org.ehrbase.openehr.aqlengine.sql.AqlSqlQueryBuilder#buildSqlQuery}
+         */
+        SQL("sql"),
+        /**
+         * Executing the SQL query and fetching the rows
+         */
+        DB_EXECUTION("db_execution"),
+        /**
+         * {@link org.ehrbase.openehr.aqlengine.sql.postprocessor.AqlSqlResultPostprocessor}s, i.e. the
+         * reconstruction of the RM objects
+         */
+        RESULT_POSTPROCESSING("result_postprocessing"),
+        /**
+         * Assembling the response from the result rows, or writing the rows of a streamed response
+         */
+        SERIALIZATION("serialization");
+
+        private final String tag;
+
+        Phase(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    public enum Cancellation {
+        /**
+         * The time budget of the query was exceeded, either by the database <code>statement_timeout</code> or
+         * while fetching the rows
+         */
+        TIMEOUT("timeout"),
+        /**
+         * The execution was cancelled explicitly, e.g. by deleting an asynchronous query job
+         */
+        CANCELLED("cancelled"),
+        /**
+         * The client disconnected while the result was streamed
+         */
+        CLIENT_DISCONNECT("client_disconnect");
+
+        private final String tag;
+
+        Cancellation(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    public AqlQueryMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    AqlQueryMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param queryName the name of the stored query as in {@link org.ehrbase.api.dto.AqlQueryRequest#queryName()},
+     *                  <code>null</code> for ad-hoc queries
+     * @return a new recording for one execution
+     */
+    public Recording start(String queryName) {
+        return new Recording(queryName == null ? NONE : StringUtils.substringBeforeLast(queryName, "/"));
+    }
+
+    static String resultSizeBucket(long rows) {
+        for (long bound : RESULT_SIZE_BUCKETS) {
+            if (rows <= bound) {
+                return bound == 0 ? "0" : "le_" + bound;
+            }
+        }
+        return "gt_" + RESULT_SIZE_BUCKETS[RESULT_SIZE_BUCKETS.length - 1];
+    }
+
+    static String failureCause(Throwable failure) {
+        if (failure == null) {
+            return NONE;
+        }
+        return Optional.of(failure)
+                .map(Throwable::getCause)
+                .orElse(failure)
+                .getClass()
+                .getSimpleName();
+    }
+
+    /**
+     * Collects the phase durations of one query execution.
+     * The meters are only updated by {@link #stop(long, Throwable)}, so all of them carry the outcome of the
+     * execution.
+     * <p>
+     * Not thread-safe: the phases of an execution are run sequentially.
+     */
+    public final class Recording {
+
+        private final String queryName;
+        private final long startNanos = System.nanoTime();
+        private final long[] phaseNanos = new long[Phase.values().length];
+        private long resultBytes;
+        private Cancellation cancellation;
+        private long durationNanos = -1;
+
+        private Recording(String queryName) {
+            this.queryName = queryName;
+            Arrays.fill(phaseNanos, -1);
+        }
+
+        public <T> T time(Phase phase, Supplier<T> action) {
+            long start = System.nanoTime();
+            try {
+                return action.get();
+            } finally {
+                add(phase, System.nanoTime() - start);
+            }
+        }
+
+        public void time(Phase phase, Runnable action) {
+            long start = System.nanoTime();
+            try {
+                action.run();
+            } finally {
+                add(phase, System.nanoTime() - start);
+            }
+        }
+
+        public void add(Phase phase, long nanos) {
+            int i = phase.ordinal();
+            phaseNanos[i] = Math.max(phaseNanos[i], 0) + nanos;
+        }
+
+        public void addResultBytes(long bytes) {
+            resultBytes += bytes;
+        }
+
+        /**
+         * Marks the execution as cancelled. The first reason wins.
+         */
+        public void cancelled(Cancellation reason) {
+            if (cancellation == null) {
+                cancellation = reason;
+            }
+        }
+
+        /**
+         * @return the reason the execution was cancelled for, <code>null</code> if it was not
+         */
+        public Cancellation cancellation() {
+            return cancellation;
+        }
+
+        /**
+         * @return the duration of the phase, -1 if it was not run
+         */
+        public long phaseNanos(Phase phase) {
+            return phaseNanos[phase.ordinal()];
+        }
+
+        /**
+         * @return the length of the JSON data fetched so far
+         */
+        public long resultBytes() {
+            return resultBytes;
+        }
+
+        /**
+         * @return the duration of the execution, as of now if it was not stopped yet
+         */
+        public long elapsedNanos() {
+            return durationNanos >= 0 ? durationNanos : System.nanoTime() - startNanos;
+        }
+
+        public String queryName() {
+            return queryName;
+        }
+
+        /**
+         * Updates the meters. Subsequent calls are ignored.
+         *
+         * @param rows    number of result rows
+         * @param failure the exception that terminated the execution, <code>null</code> on success.
+         *                Exceptions wrapping the actual cause, e.g. a <code>DataAccessException</code>, are tagged
+         *                with the cause.
+         */
+        public void stop(long rows, Throwable failure) {
+            if (durationNanos >= 0) {
+                return;
+            }
+            long elapsed = elapsedNanos();
+            durationNanos = elapsed;
+
+            Tags tags = Tags.of(TAG_QUERY, queryName, TAG_EXCEPTION, failureCause(failure));
+            for (Phase phase : Phase.values()) {
+                long nanos = phaseNanos(phase);
+                if (nanos >= 0) {
+                    Timer.builder(PHASE_TIMER)
+                            .description("Duration of the phases of AQL query executions")
+                            .tags(tags)
+                            .tag(TAG_PHASE, phase.tag())
+                            .register(meterRegistry)
+                            .record(nanos, TimeUnit.NANOSECONDS);
+                }
+            }
+            Timer.builder(QUERY_TIMER)
+                    .description("Duration of AQL query executions")
+                    .tags(tags)
+                    .tag(TAG_RESULT_SIZE, resultSizeBucket(rows))
+                    .register(meterRegistry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+
+            if (cancellation != null) {
+                Counter.builder(CANCELLED_COUNTER)
+                        .description("Number of AQL query executions aborted before completion")
+                        .tag(TAG_QUERY, queryName)
+                        .tag(TAG_REASON, cancellation.tag())
+                        .register(meterRegistry)
+                        .increment();
+            }
+
+            if (failure == null) {
+                DistributionSummary.builder(RESULT_ROWS)
+                        .description("Number of rows of AQL query results")
+                        .tag(TAG_QUERY, queryName)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(rows);
+                DistributionSummary.builder(RESULT_BYTES)
+                        .description("Length of the JSON data read from the database for AQL query results")
+                        .baseUnit("bytes")
+                        .tag(TAG_QUERY, queryName)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(resultBytes);
+            }
+        }
+    }
+}
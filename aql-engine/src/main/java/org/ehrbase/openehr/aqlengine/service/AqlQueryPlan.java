@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.service;
+
+import java.util.List;
+import java.util.Set;
+import org.ehrbase.openehr.aqlengine.asl.AslPathUsage;
+import org.ehrbase.openehr.aqlengine.querywrapper.AqlQueryWrapper;
+import org.ehrbase.openehr.aqlengine.querywrapper.select.SelectWrapper;
+import org.ehrbase.openehr.aqlengine.repository.SqlQueryPlan;
+
+/**
+ * The request independent result of translating an AQL query to SQL.
+ *
+ * @param queryWrapper        the analyzed AQL query
+ * @param nonPrimitiveSelects the selects retrieved by the SQL query
+ * @param sqlQueryPlan        the SQL query
+ * @param unsatisfiable       if no template has the structure required by the CONTAINS clause
+ * @param pathUsages          the conditions on data paths for the {@link AqlIndexAdvisorImp}
+ * @param parameterized       if the plan was created with placeholder parameter values, to be replaced by the values
+ *                            of the request (see {@link org.ehrbase.openehr.aqlengine.aql.AqlParameterSignature})
+ *
+ * @see AqlQueryPlanCache
+ */
+public record AqlQueryPlan(
+        AqlQueryWrapper queryWrapper,
+        List<SelectWrapper> nonPrimitiveSelects,
+        SqlQueryPlan sqlQueryPlan,
+        boolean unsatisfiable,
+        Set<AslPathUsage> pathUsages,
+        boolean parameterized) {
+
+    AqlQueryPlan parameterize() {
+        return new AqlQueryPlan(queryWrapper, nonPrimitiveSelects, sqlQueryPlan, unsatisfiable, pathUsages, true);
+    }
+}
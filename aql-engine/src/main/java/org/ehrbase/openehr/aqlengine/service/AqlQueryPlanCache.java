@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.service;
+
+import java.util.function.Supplier;
+
+/**
+ * Cache for {@link AqlQueryPlan}s, so repeated AQL queries skip the translation to SQL.
+ * Plans are shared by requests with different parameter values of the same types, unless the translation depends on
+ * the values: then a plan is only reused for the same values.
+ * <p>
+ * As the plans depend on the known templates, implementations must be cleared whenever templates change.
+ */
+public interface AqlQueryPlanCache {
+
+    /**
+     * Identifies a plan: the rendered AQL query before the
+     * {@link org.ehrbase.openehr.aqlengine.aql.AqlQueryParsingPostProcessor}s were applied, the parameters they
+     * depend on, along with the options affecting the translation and the version of the template store the
+     * translation depends on (see {@link org.ehrbase.openehr.aqlengine.asl.TemplateContainsAnalyzer#templateStoreVersion()}).
+     *
+     * @param parameters the {@link org.ehrbase.openehr.aqlengine.aql.AqlParameterSignature#signature()}, or the
+     *                   parameter values if the plan depends on them
+     */
+    record Key(
+            String aql,
+            Object parameters,
+            Long fetch,
+            Long offset,
+            boolean pathSkipping,
+            boolean archetypeLocalNodePredicates,
+            String templateStoreVersion) {}
+
+    /**
+     * @param key     of the plan
+     * @param planner creates the plan if it is not cached
+     * @return the cached or newly created plan
+     */
+    AqlQueryPlan get(Key key, Supplier<AqlQueryPlan> planner);
+
+    void clear();
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Cache for the rows of AQL query results, so repeated executions of identical queries skip the database.
+ * <p>
+ * Implementations must only return results if the {@link CommitWatermark} did not advance for the EHRs the query is
+ * restricted to since the result was computed.
+ * The rows are shared by all requests and must not be modified.
+ */
+public interface AqlQueryResultCache {
+
+    /**
+     * @param rows  the rows of the result
+     * @param bytes the length of the JSON data the rows were read from, so implementations can bound their size
+     */
+    record Result(List<List<Object>> rows, long bytes) {}
+
+    /**
+     * @param sql    the executed SQL query including all values
+     * @param ehrIds the EHRs the query is restricted to, empty if it is not restricted
+     * @param query  executes the query if no valid result is cached
+     * @return the cached or newly queried rows
+     */
+    List<List<Object>> get(String sql, Set<UUID> ehrIds, Supplier<Result> query);
+
+    void clear();
+}
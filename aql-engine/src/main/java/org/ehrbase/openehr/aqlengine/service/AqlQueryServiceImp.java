@@ -20,28 +20,42 @@ package org.ehrbase.openehr.aqlengine.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.UncheckedIOException;
 import java.lang.constant.Constable;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.LongStream;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.apache.commons.lang3.StringUtils;
 import org.ehrbase.api.dto.AqlQueryContext;
 import org.ehrbase.api.dto.AqlQueryRequest;
+import org.ehrbase.api.dto.AqlQueryResultStream;
 import org.ehrbase.api.exception.BadGatewayException;
 import org.ehrbase.api.exception.InternalServerException;
 import org.ehrbase.api.service.AqlQueryService;
+import org.ehrbase.openehr.aqlengine.AqlConfigurationProperties;
+import org.ehrbase.openehr.aqlengine.aql.AqlParameterSignature;
 import org.ehrbase.openehr.aqlengine.aql.AqlQueryParsingPostProcessor;
 import org.ehrbase.openehr.aqlengine.asl.AqlSqlLayer;
+import org.ehrbase.openehr.aqlengine.asl.AslPathUsage;
 import org.ehrbase.openehr.aqlengine.asl.AslPostProcessor;
+import org.ehrbase.openehr.aqlengine.asl.TemplateContainsAnalysis;
+import org.ehrbase.openehr.aqlengine.asl.TemplateContainsAnalyzer;
 import org.ehrbase.openehr.aqlengine.asl.model.query.AslRootQuery;
 import org.ehrbase.openehr.aqlengine.querywrapper.AqlQueryWrapper;
 import org.ehrbase.openehr.aqlengine.querywrapper.select.SelectWrapper;
 import org.ehrbase.openehr.aqlengine.querywrapper.select.SelectWrapper.SelectType;
 import org.ehrbase.openehr.aqlengine.repository.AqlQueryRepository;
 import org.ehrbase.openehr.aqlengine.repository.PreparedQuery;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryMetrics.Cancellation;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryMetrics.Phase;
 import org.ehrbase.openehr.sdk.aql.dto.AqlQuery;
 import org.ehrbase.openehr.sdk.aql.render.AqlRenderer;
 import org.ehrbase.openehr.sdk.response.dto.ehrscape.QueryResultDto;
@@ -61,53 +75,235 @@ public class AqlQueryServiceImp implements AqlQueryService {
     protected final AqlQueryRepository aqlQueryRepository;
     protected final ExternalTerminologyValidation tsAdapter;
     protected final AqlSqlLayer aqlSqlLayer;
+    protected final TemplateContainsAnalyzer templateContainsAnalyzer;
     protected final ObjectMapper objectMapper;
     protected final AqlQueryContext aqlQueryContext;
     protected final List<AqlQueryParsingPostProcessor> aqlPostProcessors;
     protected final List<AslPostProcessor> aslPostProcessors;
+    protected final Optional<AqlQueryPlanCache> aqlQueryPlanCache;
+    protected final Optional<AqlQueryResultCache> aqlQueryResultCache;
+    protected final AqlQueryMetrics aqlQueryMetrics;
+    protected final SlowAqlQueryLogImp slowAqlQueryLog;
+    protected final AqlIndexAdvisorImp aqlIndexAdvisor;
+    protected final AqlConfigurationProperties aqlConfigurationProperties;
 
     @Autowired
     public AqlQueryServiceImp(
             AqlQueryRepository aqlQueryRepository,
             ExternalTerminologyValidation tsAdapter,
             AqlSqlLayer aqlSqlLayer,
+            TemplateContainsAnalyzer templateContainsAnalyzer,
             ObjectMapper objectMapper,
             AqlQueryContext aqlQueryContext,
             List<AqlQueryParsingPostProcessor> aqlPostProcessors,
-            List<AslPostProcessor> aslPostProcessors) {
+            List<AslPostProcessor> aslPostProcessors,
+            Optional<AqlQueryPlanCache> aqlQueryPlanCache,
+            Optional<AqlQueryResultCache> aqlQueryResultCache,
+            AqlQueryMetrics aqlQueryMetrics,
+            SlowAqlQueryLogImp slowAqlQueryLog,
+            AqlIndexAdvisorImp aqlIndexAdvisor,
+            AqlConfigurationProperties aqlConfigurationProperties) {
         this.aqlQueryRepository = aqlQueryRepository;
         this.tsAdapter = tsAdapter;
         this.aqlSqlLayer = aqlSqlLayer;
+        this.templateContainsAnalyzer = templateContainsAnalyzer;
         this.objectMapper = objectMapper;
         this.aqlQueryContext = aqlQueryContext;
         this.aqlPostProcessors = aqlPostProcessors;
         this.aslPostProcessors = aslPostProcessors;
+        this.aqlQueryPlanCache = aqlQueryPlanCache;
+        this.aqlQueryResultCache = aqlQueryResultCache;
+        this.aqlQueryMetrics = aqlQueryMetrics;
+        this.slowAqlQueryLog = slowAqlQueryLog;
+        this.aqlIndexAdvisor = aqlIndexAdvisor;
+        this.aqlConfigurationProperties = aqlConfigurationProperties;
     }
 
     @Override
     public QueryResultDto query(AqlQueryRequest aqlQueryRequest) {
 
+        AqlQueryMetrics.Recording recording = aqlQueryMetrics.start(aqlQueryRequest.queryName());
+        AqlQueryExecution execution = null;
+        long resultSize = 0;
+        try {
+            execution = prepareExecution(aqlQueryRequest, recording);
+
+            List<List<Object>> resultData;
+            if (aqlQueryContext.isDryRun()) {
+                resultData = List.of();
+            } else {
+                AqlQueryExecution prepared = execution;
+                resultData = handleExecutionErrors(() -> executeCachedQuery(prepared, recording));
+                resultSize = resultData.size();
+                aqlQueryContext.setMetaProperty(AqlQueryContext.EhrbaseMetaProperty.RESULT_SIZE, resultData.size());
+            }
+            List<SelectWrapper> selects = execution.queryWrapper().selects();
+            QueryResultDto result = recording.time(Phase.SERIALIZATION, () -> formatResult(selects, resultData));
+            finishExecution(aqlQueryRequest, execution, recording, resultSize, null);
+            return result;
+        } catch (RuntimeException e) {
+            finishExecution(aqlQueryRequest, execution, recording, resultSize, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public AqlQueryResultStream queryStreaming(AqlQueryRequest aqlQueryRequest) {
+
+        AqlQueryMetrics.Recording recording = aqlQueryMetrics.start(aqlQueryRequest.queryName());
+        AqlQueryExecution execution;
+        try {
+            execution = prepareExecution(aqlQueryRequest, recording);
+        } catch (RuntimeException e) {
+            finishExecution(aqlQueryRequest, null, recording, 0, e);
+            throw e;
+        }
+        // evaluated eagerly: the rows may be consumed outside the request scope the context is bound to
+        boolean dryRun = aqlQueryContext.isDryRun();
+        Map<String, String> variables = columns(execution.queryWrapper().selects());
+
+        return new AqlQueryResultStream() {
+            @Override
+            public Map<String, String> variables() {
+                return variables;
+            }
+
+            @Override
+            public long forEachRow(Consumer<List<Object>> rowConsumer) {
+                long resultSize = 0;
+                try {
+                    if (!dryRun) {
+                        resultSize = handleExecutionErrors(
+                                () -> streamQuery(execution, recording, detectDisconnect(rowConsumer, recording)));
+                    }
+                } catch (RuntimeException e) {
+                    finishExecution(aqlQueryRequest, execution, recording, resultSize, e);
+                    throw e;
+                }
+                finishExecution(aqlQueryRequest, execution, recording, resultSize, null);
+                return resultSize;
+            }
+
+            @Override
+            public String continuationToken() {
+                return execution.preparedQuery().getContinuationToken();
+            }
+
+            @Override
+            public void cancel() {
+                execution.preparedQuery().cancel();
+            }
+        };
+    }
+
+    /**
+     * Writing a row fails with an {@link UncheckedIOException} once the client disconnected; the execution is then
+     * aborted, which closes the cursor.
+     */
+    private static Consumer<List<Object>> detectDisconnect(
+            Consumer<List<Object>> rowConsumer, AqlQueryMetrics.Recording recording) {
+        return row -> {
+            try {
+                rowConsumer.accept(row);
+            } catch (UncheckedIOException e) {
+                recording.cancelled(Cancellation.CLIENT_DISCONNECT);
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * The time budget of the query: the one of the stored query, if configured, by name with or without version,
+     * otherwise {@link AqlConfigurationProperties.QueryTimeout#global()}.
+     */
+    protected Optional<Duration> queryTimeout(AqlQueryRequest aqlQueryRequest) {
+        AqlConfigurationProperties.QueryTimeout queryTimeout = aqlConfigurationProperties.queryTimeout();
+        String queryName = aqlQueryRequest.queryName();
+        Map<String, Duration> storedQueries = queryTimeout.storedQueries();
+        if (queryName != null && storedQueries != null) {
+            Duration timeout = Optional.ofNullable(storedQueries.get(queryName))
+                    .orElseGet(() -> storedQueries.get(StringUtils.substringBeforeLast(queryName, "/")));
+            if (timeout != null) {
+                return Optional.of(timeout);
+            }
+        }
+        return Optional.ofNullable(queryTimeout.global());
+    }
+
+    /**
+     * Updates the metrics, records slow executions and the path usages for the index advisor.
+     *
+     * @param execution <code>null</code> if the query could not be prepared
+     * @param failure   the exception that terminated the execution, <code>null</code> on success
+     */
+    protected void finishExecution(
+            AqlQueryRequest aqlQueryRequest,
+            AqlQueryExecution execution,
+            AqlQueryMetrics.Recording recording,
+            long resultSize,
+            RuntimeException failure) {
+        recording.stop(resultSize, failure);
+        if (execution != null) {
+            slowAqlQueryLog.record(aqlQueryRequest, execution.preparedQuery(), recording, resultSize, failure);
+            if (failure == null) {
+                aqlIndexAdvisor.record(execution.pathUsages(), recording);
+            }
+        }
+    }
+
+    /**
+     * The AQL query translated to SQL, along with the information needed to assemble the result rows.
+     *
+     * @param queryWrapper the analyzed AQL query, with placeholder values if the plan is parameterized
+     * @param bindValues   the values of the request by placeholder, see {@link AqlQueryPlan#parameterized()}
+     */
+    protected record AqlQueryExecution(
+            AqlQueryWrapper queryWrapper,
+            List<SelectWrapper> nonPrimitiveSelects,
+            PreparedQuery preparedQuery,
+            Map<Object, Object> bindValues,
+            boolean unsatisfiable,
+            Set<AslPathUsage> pathUsages) {
+
+        /**
+         * @return if the result is known to be empty without executing the query.
+         * Aggregate functions yield a row even for no matches, so they are still executed.
+         */
+        boolean isEmptyResult() {
+            return unsatisfiable
+                    && nonPrimitiveSelects.stream().noneMatch(s -> s.type() == SelectType.AGGREGATE_FUNCTION);
+        }
+    }
+
+    protected AqlQueryExecution prepareExecution(
+            AqlQueryRequest aqlQueryRequest, AqlQueryMetrics.Recording recording) {
+
         aqlQueryContext.setAqlQueryRequest(aqlQueryRequest);
         AqlQueryService.addQueryNameComment(aqlQueryContext);
 
         // TODO: check that select aliases are not duplicated
         try {
             AqlQuery aqlQuery = aqlQueryRequest.aqlQuery();
+            // the plans are keyed by the query with parameters, so they are shared by requests with other values
+            String parameterizedAql = aqlQueryPlanCache.map(c -> AqlRenderer.render(aqlQuery)).orElse(null);
 
             // apply AQL postprocessors
-            aqlPostProcessors.forEach(p -> p.afterParseAql(aqlQuery, aqlQueryRequest, aqlQueryContext));
+            recording.time(
+                    Phase.AQL_POSTPROCESSING,
+                    () -> aqlPostProcessors.forEach(p -> p.afterParseAql(aqlQuery, aqlQueryRequest, aqlQueryContext)));
 
             try {
-                if (logger.isTraceEnabled()) {
-                    logger.trace(objectMapper.writeValueAsString(aqlQuery));
+                AqlQueryPlan queryPlan;
+                Map<Object, Object> bindValues;
+                if (aqlQueryPlanCache.isPresent()) {
+                    AqlParameterSignature signature = AqlParameterSignature.of(aqlQueryRequest.parameters());
+                    queryPlan = cachedPlan(parameterizedAql, signature, aqlQuery, aqlQueryRequest, recording);
+                    bindValues = queryPlan.parameterized() ? signature.substitution() : Map.of();
+                } else {
+                    queryPlan = planQuery(aqlQuery, aqlQueryRequest, recording);
+                    bindValues = Map.of();
                 }
-
-                AqlQueryWrapper queryWrapper = AqlQueryWrapper.create(aqlQuery, aqlQueryContext.isPathSkipping());
-
-                AslRootQuery aslQuery = aqlSqlLayer.buildAslRootQuery(queryWrapper);
-                aslPostProcessors.forEach(p -> p.afterBuildAsl(aslQuery, aqlQuery, queryWrapper, aqlQueryRequest));
-                List<SelectWrapper> nonPrimitiveSelects =
-                        queryWrapper.nonPrimitiveSelects().toList();
+                AqlQueryWrapper queryWrapper = queryPlan.queryWrapper();
 
                 if (aqlQueryContext.showExecutedAql()) {
                     aqlQueryContext.setExecutedAql(AqlRenderer.render(aqlQuery));
@@ -127,7 +323,11 @@ public class AqlQueryServiceImp implements AqlQueryService {
                                             .orElse(0));
                         });
 
-                PreparedQuery preparedQuery = aqlQueryRepository.prepareQuery(aslQuery, nonPrimitiveSelects);
+                PreparedQuery preparedQuery = aqlQueryRepository.prepareQuery(queryPlan.sqlQueryPlan(), bindValues);
+                // the budget includes the time spent on planning
+                queryTimeout(aqlQueryRequest)
+                        .map(timeout -> timeout.minusNanos(recording.elapsedNanos()))
+                        .ifPresent(preparedQuery::setTimeout);
 
                 // aql debug options
                 if (aqlQueryContext.showExecutedSql()) {
@@ -144,14 +344,13 @@ public class AqlQueryServiceImp implements AqlQueryService {
                             objectMapper.readValue(explainedQuery, typeRef));
                 }
 
-                List<List<Object>> resultData;
-                if (aqlQueryContext.isDryRun()) {
-                    resultData = List.of();
-                } else {
-                    resultData = executeQuery(preparedQuery, queryWrapper, nonPrimitiveSelects);
-                    aqlQueryContext.setMetaProperty(AqlQueryContext.EhrbaseMetaProperty.RESULT_SIZE, resultData.size());
-                }
-                return formatResult(queryWrapper.selects(), resultData);
+                return new AqlQueryExecution(
+                        queryWrapper,
+                        queryPlan.nonPrimitiveSelects(),
+                        preparedQuery,
+                        bindValues,
+                        queryPlan.unsatisfiable(),
+                        queryPlan.pathUsages());
 
             } catch (IllegalArgumentException | JsonProcessingException e) {
                 // regular IllegalArgumentException, not due to illegal query parameters
@@ -164,59 +363,274 @@ public class AqlQueryServiceImp implements AqlQueryService {
         }
     }
 
-    private List<List<Object>> executeQuery(
-            PreparedQuery preparedQuery, AqlQueryWrapper queryWrapper, List<SelectWrapper> nonPrimitiveSelects) {
+    /**
+     * Looks up the plan in the {@link AqlQueryPlanCache}.
+     * <p>
+     * Plans are keyed by the {@link AqlParameterSignature} of the parameters, so requests with other values share
+     * the plan. To this end the query is also translated with placeholder values. If the SQL query only differs by
+     * the values, the plan with the placeholders is cached and the values are bound for each execution.
+     * Otherwise, the translation depends on the values, so the plans are keyed by the values instead.
+     *
+     * @param aql      the AQL query before the parameters were replaced
+     * @param aqlQuery the AQL query with the values of the request
+     */
+    private AqlQueryPlan cachedPlan(
+            String aql,
+            AqlParameterSignature signature,
+            AqlQuery aqlQuery,
+            AqlQueryRequest aqlQueryRequest,
+            AqlQueryMetrics.Recording recording) {
+        AqlQueryPlanCache cache = aqlQueryPlanCache.orElseThrow();
+        boolean hasPlaceholders = !signature.substitution().isEmpty();
+        AqlQueryPlan[] planned = new AqlQueryPlan[1];
+        AqlQueryPlan queryPlan = cache.get(planKey(aql, signature.signature(), aqlQueryRequest), () -> {
+            planned[0] = planQuery(aqlQuery, aqlQueryRequest, recording);
+            return hasPlaceholders
+                    ? planWithPlaceholders(aql, signature, aqlQueryRequest, planned[0], recording)
+                    : planned[0];
+        });
+        if (!hasPlaceholders || queryPlan.parameterized()) {
+            return queryPlan;
+        }
+        return cache.get(
+                planKey(aql, new HashMap<>(aqlQueryRequest.parameters()), aqlQueryRequest),
+                () -> planned[0] != null ? planned[0] : planQuery(aqlQuery, aqlQueryRequest, recording));
+    }
 
-        List<List<Object>> resultData = aqlQueryRepository.executeQuery(preparedQuery);
-        List<SelectWrapper> selects = queryWrapper.selects();
+    private AqlQueryPlanCache.Key planKey(String aql, Object parameters, AqlQueryRequest aqlQueryRequest) {
+        return new AqlQueryPlanCache.Key(
+                aql,
+                parameters,
+                aqlQueryRequest.fetch(),
+                aqlQueryRequest.offset(),
+                aqlQueryContext.isPathSkipping(),
+                aqlQueryContext.isArchetypeLocalNodePredicates(),
+                templateContainsAnalyzer.templateStoreVersion());
+    }
 
-        if (nonPrimitiveSelects.isEmpty()) {
-            // only primitives selected: only a count() was performed, so the list must be constructed
-            resultData = LongStream.range(0, (long) resultData.getFirst().getFirst())
-                    .<List<Object>>mapToObj(i -> new ArrayList<>(selects.size()))
-                    .toList();
+    /**
+     * @return the plan for the placeholder values, if it is the <code>actualPlan</code> apart from the values,
+     * otherwise the <code>actualPlan</code>
+     */
+    private AqlQueryPlan planWithPlaceholders(
+            String aql,
+            AqlParameterSignature signature,
+            AqlQueryRequest aqlQueryRequest,
+            AqlQueryPlan actualPlan,
+            AqlQueryMetrics.Recording recording) {
+        AqlQueryPlan placeholderPlan;
+        try {
+            AqlQueryRequest placeholderRequest = AqlQueryRequest.prepareNamed(
+                    aql,
+                    aqlQueryRequest.queryName(),
+                    signature.placeholders(),
+                    aqlQueryRequest.fetch(),
+                    aqlQueryRequest.offset());
+            AqlQuery placeholderQuery = placeholderRequest.aqlQuery();
+            aqlPostProcessors.forEach(p -> p.afterParseAql(placeholderQuery, placeholderRequest, aqlQueryContext));
+            placeholderPlan = planQuery(placeholderQuery, placeholderRequest, recording);
+        } catch (RuntimeException e) {
+            // e.g. a placeholder is not valid as archetype_node_id
+            return actualPlan;
         }
+        boolean equivalent = placeholderPlan.unsatisfiable() == actualPlan.unsatisfiable()
+                && placeholderPlan.pathUsages().equals(actualPlan.pathUsages())
+                && columns(placeholderPlan.queryWrapper().selects())
+                        .equals(columns(actualPlan.queryWrapper().selects()))
+                && aqlQueryRepository.isEquivalent(
+                        placeholderPlan.sqlQueryPlan(),
+                        signature.substitution(),
+                        actualPlan.sqlQueryPlan(),
+                        signature::isSubstituted);
+        return equivalent ? placeholderPlan.parameterize() : actualPlan;
+    }
+
+    /**
+     * Translates the AQL query to SQL.
+     * <p>
+     * If a {@link AqlQueryPlanCache} is used, the plan is shared by all requests for the same AQL query, parameter
+     * types, fetch and offset, so the {@link AslPostProcessor}s must not depend on the request beyond these.
+     */
+    protected AqlQueryPlan planQuery(
+            AqlQuery aqlQuery, AqlQueryRequest aqlQueryRequest, AqlQueryMetrics.Recording recording) {
+        if (logger.isTraceEnabled()) {
+            try {
+                logger.trace(objectMapper.writeValueAsString(aqlQuery));
+            } catch (JsonProcessingException e) {
+                throw new InternalServerException(e.getMessage(), e);
+            }
+        }
+
+        AqlQueryWrapper queryWrapper = recording.time(
+                Phase.QUERY_WRAPPER, () -> AqlQueryWrapper.create(aqlQuery, aqlQueryContext.isPathSkipping()));
 
-        // Since we do not add primitive value selects to the SQL query, we add them after the query was
-        // executed
+        long aslStart = System.nanoTime();
+        TemplateContainsAnalysis containsAnalysis = templateContainsAnalyzer.analyze(queryWrapper);
+        AslRootQuery aslQuery = aqlSqlLayer.buildAslRootQuery(queryWrapper, containsAnalysis);
+        aslPostProcessors.forEach(p -> p.afterBuildAsl(aslQuery, aqlQuery, queryWrapper, aqlQueryRequest));
+        recording.add(Phase.ASL, System.nanoTime() - aslStart);
+
+        List<SelectWrapper> nonPrimitiveSelects = queryWrapper.nonPrimitiveSelects().toList();
+        Set<AslPathUsage> pathUsages = aqlIndexAdvisor.isEnabled() ? AslPathUsage.collect(aslQuery) : Set.of();
+
+        return new AqlQueryPlan(
+                queryWrapper,
+                nonPrimitiveSelects,
+                recording.time(Phase.SQL, () -> aqlQueryRepository.planQuery(aslQuery, nonPrimitiveSelects)),
+                containsAnalysis.isUnsatisfiable(),
+                pathUsages,
+                false);
+    }
+
+    protected <T> T handleExecutionErrors(Supplier<T> execution) {
+        try {
+            return execution.get();
+        } catch (IllegalArgumentException e) {
+            throw new InternalServerException(e.getMessage(), e);
+        } catch (RestClientException e) {
+            throw new BadGatewayException(errorMessage("Bad gateway", e), e);
+        } catch (DataAccessException e) {
+            throw new InternalServerException(errorMessage("Data Access Error", e), e);
+        }
+    }
+
+    /**
+     * Uses the {@link AqlQueryResultCache}, if present.
+     * Keyset paginated queries are not cached, because the executions yield the continuation token.
+     */
+    private List<List<Object>> executeCachedQuery(AqlQueryExecution execution, AqlQueryMetrics.Recording recording) {
+        PreparedQuery preparedQuery = execution.preparedQuery();
+        if (aqlQueryResultCache.isEmpty() || preparedQuery.isKeysetPaginated()) {
+            return executeQuery(execution, recording);
+        }
+        return aqlQueryResultCache
+                .get()
+                .get(
+                        preparedQuery.getInlinedQuerySql(),
+                        AqlQueryEhrScope.of(execution.queryWrapper(), execution.bindValues()),
+                        () -> new AqlQueryResultCache.Result(
+                                executeQuery(execution, recording), recording.resultBytes()));
+    }
+
+    private List<List<Object>> executeQuery(AqlQueryExecution execution, AqlQueryMetrics.Recording recording) {
+
+        if (execution.isEmptyResult()) {
+            return List.of();
+        }
+
+        List<List<Object>> resultData = aqlQueryRepository.executeQuery(execution.preparedQuery(), recording);
+        List<SelectWrapper> selects = execution.queryWrapper().selects();
+
+        if (execution.nonPrimitiveSelects().isEmpty()) {
+            // only primitives selected: only a count() was performed, so all rows are the same
+            long count = (long) resultData.getFirst().getFirst();
+            return Collections.nCopies(Math.toIntExact(count), constantRow(selects));
+        }
+
+        for (List<Object> row : resultData) {
+            addPrimitiveSelects(selects, row);
+        }
+        return resultData;
+    }
+
+    private long streamQuery(
+            AqlQueryExecution execution, AqlQueryMetrics.Recording recording, Consumer<List<Object>> rowConsumer) {
+
+        if (execution.isEmptyResult()) {
+            return 0;
+        }
+
+        List<SelectWrapper> selects = execution.queryWrapper().selects();
+
+        if (execution.nonPrimitiveSelects().isEmpty()) {
+            // only primitives selected: only a count() was performed, so the same row is repeated
+            long count = (long) aqlQueryRepository
+                    .executeQuery(execution.preparedQuery(), recording)
+                    .getFirst()
+                    .getFirst();
+            List<Object> row = constantRow(selects);
+            recording.time(Phase.SERIALIZATION, () -> {
+                for (long i = 0; i < count; i++) {
+                    rowConsumer.accept(row);
+                }
+            });
+            return count;
+        }
+
+        return aqlQueryRepository.executeQuery(
+                execution.preparedQuery(), recording, row -> rowConsumer.accept(addPrimitiveSelects(selects, row)));
+    }
+
+    /**
+     * @return the single, immutable row of a query only selecting primitive values
+     */
+    private static List<Object> constantRow(List<SelectWrapper> selects) {
+        return Collections.unmodifiableList(addPrimitiveSelects(selects, new ArrayList<>(selects.size())));
+    }
+
+    /**
+     * Since we do not add primitive value selects to the SQL query, we add them after the query was executed
+     */
+    private static List<Object> addPrimitiveSelects(List<SelectWrapper> selects, List<Object> row) {
         for (int i = 0, s = selects.size(); i < s; i++) {
             SelectWrapper sd = selects.get(i);
             if (sd.type() == SelectType.PRIMITIVE) {
                 Constable value = sd.getPrimitive().getValue();
-                for (List<Object> row : resultData) {
-                    row.add(i, value);
-                }
+                row.add(i, value);
             }
         }
-        return resultData;
+        return row;
     }
 
-    protected QueryResultDto formatResult(List<SelectWrapper> selectFields, List<List<Object>> resultData) {
-
-        String[] columnNames = new String[selectFields.size()];
+    protected static Map<String, String> columns(List<SelectWrapper> selectFields) {
         Map<String, String> columns = new LinkedHashMap<>();
         for (int i = 0, s = selectFields.size(); i < s; i++) {
             SelectWrapper namePath = selectFields.get(i);
-            columnNames[i] =
-                    Optional.of(namePath).map(SelectWrapper::getSelectAlias).orElse("#" + i);
-            columns.put(columnNames[i], namePath.getSelectPath().orElse(null));
+            columns.put(columnName(namePath, i), namePath.getSelectPath().orElse(null));
         }
+        return columns;
+    }
+
+    private static String columnName(SelectWrapper select, int index) {
+        return Optional.of(select).map(SelectWrapper::getSelectAlias).orElse("#" + index);
+    }
+
+    protected QueryResultDto formatResult(List<SelectWrapper> selectFields, List<List<Object>> resultData) {
+
+        Map<String, String> columns = columns(selectFields);
+        String[] columnNames = columns.keySet().toArray(String[]::new);
 
         QueryResultDto dto = new QueryResultDto();
         dto.setVariables(columns);
 
-        dto.setResultSet(resultData.stream()
-                .map(r -> {
-                    ResultHolder fieldMap = new ResultHolder();
-                    for (int i = 0, s = r.size(); i < s; i++) {
-                        fieldMap.putResult(columnNames[i], r.get(i));
-                    }
-                    return fieldMap;
-                })
-                .toList());
+        if (isRepeatedRow(resultData)) {
+            // e.g. only primitives selected: share a single holder instead of creating one per row
+            dto.setResultSet(
+                    Collections.nCopies(resultData.size(), toResultHolder(columnNames, resultData.getFirst())));
+        } else {
+            dto.setResultSet(resultData.stream()
+                    .map(r -> toResultHolder(columnNames, r))
+                    .toList());
+        }
         return dto;
     }
 
+    private static boolean isRepeatedRow(List<List<Object>> resultData) {
+        if (resultData.size() < 2) {
+            return false;
+        }
+        List<Object> first = resultData.getFirst();
+        return resultData.stream().allMatch(r -> r == first);
+    }
+
+    private static ResultHolder toResultHolder(String[] columnNames, List<Object> row) {
+        ResultHolder fieldMap = new ResultHolder();
+        for (int i = 0, s = row.size(); i < s; i++) {
+            fieldMap.putResult(columnNames[i], row.get(i));
+        }
+        return fieldMap;
+    }
+
     protected static String errorMessage(String prefix, Exception e) {
         return prefix + ": " + Optional.of(e).map(Throwable::getCause).orElse(e).getMessage();
     }
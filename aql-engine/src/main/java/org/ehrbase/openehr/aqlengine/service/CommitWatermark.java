@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Monotonically increasing counter of the commits that may change AQL results, so cached results can be validated
+ * by comparing the watermark they were computed at.
+ * <p>
+ * The last commit is also tracked per EHR: results of queries restricted to certain EHRs stay valid when other EHRs
+ * are modified. To limit the memory consumption only a bounded number of EHRs is tracked; if the bound is exceeded,
+ * all tracked EHRs are treated as modified.
+ */
+@Component
+public class CommitWatermark {
+
+    static final int MAX_TRACKED_EHRS = 100_000;
+
+    private final AtomicLong watermark = new AtomicLong();
+    private final Map<UUID, Long> ehrWatermarks = new ConcurrentHashMap<>();
+    /**
+     * Watermark of the last commit affecting EHRs that are not tracked individually
+     */
+    private final AtomicLong untrackedEhrWatermark = new AtomicLong();
+
+    public long current() {
+        return watermark.get();
+    }
+
+    /**
+     * Records a commit affecting the given EHR.
+     * Within a transaction the watermark is advanced once it is completed, so concurrent readers cannot cache results
+     * that do not contain the changes yet.
+     *
+     * @param ehrId the modified EHR, <code>null</code> if any EHR may be affected
+     */
+    public void advance(UUID ehrId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    advanceNow(ehrId);
+                }
+            });
+        } else {
+            advanceNow(ehrId);
+        }
+    }
+
+    private void advanceNow(UUID ehrId) {
+        long next = watermark.incrementAndGet();
+        if (ehrId == null) {
+            untrackedEhrWatermark.accumulateAndGet(next, Math::max);
+        } else {
+            if (ehrWatermarks.size() >= MAX_TRACKED_EHRS) {
+                untrackedEhrWatermark.accumulateAndGet(next, Math::max);
+                ehrWatermarks.clear();
+            }
+            ehrWatermarks.merge(ehrId, next, Math::max);
+        }
+    }
+
+    /**
+     * @param since  the watermark when the result was computed
+     * @param ehrIds the EHRs the result is restricted to; empty if it is not restricted
+     * @return if nothing affecting the result was committed since
+     */
+    public boolean isUnchanged(long since, Collection<UUID> ehrIds) {
+        if (ehrIds.isEmpty()) {
+            return watermark.get() == since;
+        }
+        // the untracked watermark is raised before EHRs are removed, so it has to be checked last
+        return ehrIds.stream().allMatch(id -> ehrWatermarks.getOrDefault(id, 0L) <= since)
+                && untrackedEhrWatermark.get() <= since;
+    }
+}
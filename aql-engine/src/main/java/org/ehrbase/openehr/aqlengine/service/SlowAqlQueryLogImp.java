@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import org.ehrbase.api.dto.AqlQueryRequest;
+import org.ehrbase.api.dto.SlowAqlQuery;
+import org.ehrbase.api.service.SlowAqlQueryLog;
+import org.ehrbase.openehr.aqlengine.AqlConfigurationProperties;
+import org.ehrbase.openehr.aqlengine.AqlConfigurationProperties.SlowQueryLog;
+import org.ehrbase.openehr.aqlengine.repository.AqlQueryRepository;
+import org.ehrbase.openehr.aqlengine.repository.PreparedQuery;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryMetrics.Phase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Records AQL executions exceeding {@link SlowQueryLog#threshold()} in a log line and in a ring buffer of the last
+ * {@link SlowQueryLog#capacity()} entries.
+ * <p>
+ * The query plan is obtained by an additional <code>EXPLAIN</code> of the executed SQL. For a fraction of
+ * {@link SlowQueryLog#explainAnalyzeRate()} of the successful executions <code>EXPLAIN ANALYZE</code> is used, which
+ * runs the query again.
+ * The plans are obtained by a single background thread, so the response is not delayed; the entry is completed and
+ * logged afterwards. If too many plans are pending, the entry is kept without a plan.
+ * As the SQL contains the values of the AQL conditions as literals unless they are sent as bind parameters, no plan is
+ * obtained if {@link SlowQueryLog#redactValues()} is set.
+ */
+@Service
+public class SlowAqlQueryLogImp implements SlowAqlQueryLog, DisposableBean {
+
+    /**
+     * Maximum number of slow queries waiting for their plan
+     */
+    static final int EXPLAIN_QUEUE_CAPACITY = 16;
+
+    /**
+     * String literals and numbers that are not part of identifiers, e.g. <code>at0001</code> or <code>.v1</code>
+     */
+    private static final Pattern AQL_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.)*'"
+            + "|\"(?:[^\"\\\\]|\\\\.)*\""
+            + "|(?<![\\w.$-])-?\\d+(?:\\.\\d+)?(?:[eE][+-]?\\d+)?(?![\\w.])");
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final AqlConfigurationProperties aqlConfigurationProperties;
+    private final AqlQueryRepository aqlQueryRepository;
+    private final ObjectMapper objectMapper;
+    /**
+     * The entries are completed by the background thread once the plan is obtained
+     */
+    private final Deque<AtomicReference<SlowAqlQuery>> entries = new ArrayDeque<>();
+
+    private final Executor explainExecutor;
+
+    @Autowired
+    public SlowAqlQueryLogImp(
+            AqlConfigurationProperties aqlConfigurationProperties,
+            AqlQueryRepository aqlQueryRepository,
+            ObjectMapper objectMapper) {
+        this(
+                aqlConfigurationProperties,
+                aqlQueryRepository,
+                objectMapper,
+                new ThreadPoolExecutor(
+                        1,
+                        1,
+                        0,
+                        TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(EXPLAIN_QUEUE_CAPACITY),
+                        r -> {
+                            Thread thread = new Thread(r, "aql-slow-query-explain");
+                            thread.setDaemon(true);
+                            return thread;
+                        }));
+    }
+
+    SlowAqlQueryLogImp(
+            AqlConfigurationProperties aqlConfigurationProperties,
+            AqlQueryRepository aqlQueryRepository,
+            ObjectMapper objectMapper,
+            Executor explainExecutor) {
+        this.aqlConfigurationProperties = aqlConfigurationProperties;
+        this.aqlQueryRepository = aqlQueryRepository;
+        this.objectMapper = objectMapper;
+        this.explainExecutor = explainExecutor;
+    }
+
+    @Override
+    public void destroy() {
+        if (explainExecutor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Records the execution if it exceeded the threshold.
+     * The SQL and its bind values are captured immediately, the query plan is obtained in the background.
+     *
+     * @param recording  of the stopped execution
+     * @param failure    the exception that terminated the execution, <code>null</code> on success
+     */
+    public void record(
+            AqlQueryRequest aqlQueryRequest,
+            PreparedQuery preparedQuery,
+            AqlQueryMetrics.Recording recording,
+            long resultSize,
+            Throwable failure) {
+        SlowQueryLog config = aqlConfigurationProperties.slowQueryLog();
+        if (!config.enabled() || recording.elapsedNanos() < config.threshold().toNanos()) {
+            return;
+        }
+
+        boolean redact = config.redactValues();
+        boolean analyze = !redact
+                && failure == null
+                && ThreadLocalRandom.current().nextDouble() < config.explainAnalyzeRate();
+
+        String sql = preparedQuery.getParameterizedQuerySql();
+        List<Object> bindValues = preparedQuery.getBindValues();
+        SlowAqlQuery entry = new SlowAqlQuery(
+                Instant.now(),
+                aqlQueryRequest.queryName(),
+                redact ? redactLiterals(aqlQueryRequest.aqlString()) : aqlQueryRequest.aqlString(),
+                redact ? null : aqlQueryRequest.parameters(),
+                sql,
+                redact ? null : bindValues.stream().map(String::valueOf).toList(),
+                TimeUnit.NANOSECONDS.toMillis(recording.elapsedNanos()),
+                phaseMillis(recording),
+                resultSize,
+                failure == null ? null : AqlQueryMetrics.failureCause(failure),
+                null,
+                false);
+
+        AtomicReference<SlowAqlQuery> entryRef = add(entry, config.capacity());
+        if (redact) {
+            log(entry);
+            return;
+        }
+        try {
+            explainExecutor.execute(() -> {
+                SlowAqlQuery explained = withQueryPlan(entry, explain(sql, bindValues, analyze), analyze);
+                // a no-op if the entry was evicted in the meantime
+                entryRef.compareAndSet(entry, explained);
+                log(explained);
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Too many slow AQL queries waiting for their plan", e);
+            log(entry);
+        }
+    }
+
+    private void log(SlowAqlQuery entry) {
+        if (logger.isWarnEnabled()) {
+            try {
+                logger.warn("Slow AQL query: {}", objectMapper.writeValueAsString(entry));
+            } catch (JsonProcessingException e) {
+                logger.warn("Slow AQL query: {}", entry);
+            }
+        }
+    }
+
+    private synchronized AtomicReference<SlowAqlQuery> add(SlowAqlQuery entry, int capacity) {
+        AtomicReference<SlowAqlQuery> entryRef = new AtomicReference<>(entry);
+        entries.addLast(entryRef);
+        while (entries.size() > Math.max(capacity, 0)) {
+            entries.removeFirst();
+        }
+        return entryRef;
+    }
+
+    @Override
+    public synchronized List<SlowAqlQuery> getEntries() {
+        return entries.stream().map(AtomicReference::get).toList();
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private Map<String, Object> explain(String sql, List<Object> bindValues, boolean analyze) {
+        try {
+            return objectMapper.readValue(
+                    aqlQueryRepository.explainQuery(analyze, sql, bindValues), new TypeReference<>() {});
+        } catch (RuntimeException | JsonProcessingException e) {
+            // the entry is still useful without a plan
+            logger.debug("Failed to explain slow AQL query", e);
+            return null;
+        }
+    }
+
+    private static SlowAqlQuery withQueryPlan(SlowAqlQuery entry, Map<String, Object> queryPlan, boolean analyzed) {
+        return new SlowAqlQuery(
+                entry.timestamp(),
+                entry.queryName(),
+                entry.aql(),
+                entry.parameters(),
+                entry.sql(),
+                entry.bindValues(),
+                entry.durationMillis(),
+                entry.phaseMillis(),
+                entry.resultSize(),
+                entry.failure(),
+                queryPlan,
+                queryPlan != null && analyzed);
+    }
+
+    private static Map<String, Long> phaseMillis(AqlQueryMetrics.Recording recording) {
+        Map<String, Long> phaseMillis = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            long nanos = recording.phaseNanos(phase);
+            if (nanos >= 0) {
+                phaseMillis.put(phase.tag(), TimeUnit.NANOSECONDS.toMillis(nanos));
+            }
+        }
+        return phaseMillis;
+    }
+
+    static String redactLiterals(String aql) {
+        return aql == null ? null : AQL_LITERAL.matcher(aql).replaceAll("?");
+    }
+}
@@ -38,7 +38,6 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.tuple.Pair;
-import org.ehrbase.api.service.TemplateService;
 import org.ehrbase.jooq.pg.tables.EhrFolderData;
 import org.ehrbase.jooq.pg.util.AdditionalSQLFunctions;
 import org.ehrbase.openehr.aqlengine.AqlConfigurationProperties;
@@ -50,6 +49,7 @@ import org.ehrbase.openehr.aqlengine.asl.model.field.AslComplexExtractedColumnFi
 import org.ehrbase.openehr.aqlengine.asl.model.field.AslConstantField;
 import org.ehrbase.openehr.aqlengine.asl.model.field.AslField;
 import org.ehrbase.openehr.aqlengine.asl.model.field.AslFolderItemIdVirtualField;
+import org.ehrbase.openehr.aqlengine.asl.model.field.AslOrderByField;
 import org.ehrbase.openehr.aqlengine.asl.model.field.AslRmPathField;
 import org.ehrbase.openehr.aqlengine.asl.model.field.AslStringAggregationField;
 import org.ehrbase.openehr.aqlengine.asl.model.field.AslSubqueryField;
@@ -94,19 +94,18 @@ import org.springframework.stereotype.Component;
 @Component
 public class AqlSqlQueryBuilder {
 
+    public static final String KEYSET_COLUMN_PREFIX = "ks_";
+
     private final AqlConfigurationProperties aqlConfigurationProperties;
     private final DSLContext context;
-    private final TemplateService templateService;
     private final Optional<AqlSqlQueryPostProcessor> queryPostProcessor;
 
     public AqlSqlQueryBuilder(
             AqlConfigurationProperties aqlConfigurationProperties,
             DSLContext context,
-            TemplateService templateService,
             Optional<AqlSqlQueryPostProcessor> queryPostProcessor) {
         this.aqlConfigurationProperties = aqlConfigurationProperties;
         this.context = context;
-        this.templateService = templateService;
         this.queryPostProcessor = queryPostProcessor;
     }
 
@@ -155,9 +154,25 @@ public class AqlSqlQueryBuilder {
 
         SelectQuery<Record> query = encapsulatingQuery.getQuery();
 
-        // LIMIT
-        if (aslRootQuery.getLimit() != null) {
-            query.addLimit(aslRootQuery.getOffset() == null ? 0L : aslRootQuery.getOffset(), aslRootQuery.getLimit());
+        if (supportsKeysetPagination(aslRootQuery)) {
+            // the sort keys are selected instead: ORDER BY and LIMIT are applied around the query for each page
+            List<Field<?>> keyFields = aslRootQuery.getOrderByFields().stream()
+                    .flatMap(ob -> EncapsulatingQueryUtils.orderByFields(ob, aslQueryToTable))
+                    .toList();
+            for (int i = 0; i < keyFields.size(); i++) {
+                query.addSelect(keyFields.get(i).as(KEYSET_COLUMN_PREFIX + i));
+            }
+        } else {
+            // ORDER BY
+            aslRootQuery.getOrderByFields().stream()
+                    .flatMap(ob -> EncapsulatingQueryUtils.orderFields(ob, aslQueryToTable))
+                    .forEach(query::addOrderBy);
+
+            // LIMIT
+            if (aslRootQuery.getLimit() != null) {
+                query.addLimit(
+                        aslRootQuery.getOffset() == null ? 0L : aslRootQuery.getOffset(), aslRootQuery.getLimit());
+            }
         }
 
         queryPostProcessor.ifPresent(p -> p.afterBuildSqlQuery(aslRootQuery, query));
@@ -165,6 +180,26 @@ public class AqlSqlQueryBuilder {
         return query;
     }
 
+    /**
+     * Queries with a LIMIT that are only ordered by columns such as <code>ehr_id/value</code>, <code>uid/value</code>
+     * or <code>commit_audit/time_committed/value</code> can be paged by their sort keys instead of an OFFSET.
+     * The SQL query then selects the sort keys as additional columns named {@link #KEYSET_COLUMN_PREFIX}<code>n</code>,
+     * but is neither ordered nor limited.
+     * As rows with the same sort keys as the last row of a page would be skipped, the last sort key has to be unique
+     * per row (see {@link EncapsulatingQueryUtils#isUniqueKeysetField}); all other queries are paged via OFFSET.
+     */
+    public boolean supportsKeysetPagination(AslRootQuery aslRootQuery) {
+        List<AslOrderByField> orderByFields = aslRootQuery.getOrderByFields();
+        return aqlConfigurationProperties.keysetPagination()
+                && aslRootQuery.getLimit() != null
+                && !orderByFields.isEmpty()
+                && aslRootQuery.getGroupByFields().isEmpty()
+                && aslRootQuery.getGroupByDvOrderedMagnitudeFields().isEmpty()
+                && orderByFields.stream().map(AslOrderByField::field).allMatch(EncapsulatingQueryUtils::isKeysetField)
+                && EncapsulatingQueryUtils.isUniqueKeysetField(
+                        aslRootQuery, orderByFields.getLast().field());
+    }
+
     public Result<Record> explain(boolean analyze, ResultQuery<?> selectQuery) {
         return explain(context, analyze, selectQuery);
     }
@@ -231,10 +266,6 @@ public class AqlSqlQueryBuilder {
                         return AdditionalSQLFunctions.jsonb_dv_ordered_magnitude(dvOrderedField);
                     })
                     .forEach(query::addGroupBy);
-
-            rq.getOrderByFields().stream()
-                    .flatMap(ob -> EncapsulatingQueryUtils.orderFields(ob, aslQueryToTable, templateService))
-                    .forEach(query::addOrderBy);
         }
         return from;
     }
@@ -35,6 +35,7 @@ import java.util.stream.Stream;
 import org.apache.commons.lang3.tuple.Pair;
 import org.ehrbase.api.exception.IllegalAqlException;
 import org.ehrbase.jooq.pg.util.AdditionalSQLFunctions;
+import org.ehrbase.openehr.aqlengine.AqlConfigurationProperties;
 import org.ehrbase.openehr.aqlengine.asl.model.AslRmTypeAndConcept;
 import org.ehrbase.openehr.aqlengine.asl.model.AslStructureColumn;
 import org.ehrbase.openehr.aqlengine.asl.model.condition.AslAndQueryCondition;
@@ -413,15 +414,18 @@ final class ConditionUtils {
     }
 
     private static Field<?> createVoIdValue(Pair<String, Integer> voId) {
-        Field<UUID> uuidField = DSL.inline(voId.getLeft()).cast(UUID.class);
+        Field<UUID> uuidField = DSL.val(voId.getLeft()).cast(UUID.class);
         if (voId.getRight() == null) {
             return uuidField;
         } else {
-            Field<Integer> versionField = DSL.inline(voId.getRight());
+            Field<Integer> versionField = DSL.val(voId.getRight());
             return DSL.field(DSL.row(uuidField, versionField));
         }
     }
 
+    /**
+     * The values are added as bind values, see {@link AqlConfigurationProperties#bindParameters()}
+     */
     private static Condition applyOperator(AslConditionOperator operator, Field field, Collection<?> values) {
         Class<?> sqlFieldType = field.getType();
         boolean isJsonbField = JSONB.class.isAssignableFrom(sqlFieldType);
@@ -434,7 +438,7 @@ final class ConditionUtils {
             } else {
                 aqlLikePattern = translateAqlLikePatternToSql(aslLikePattern);
             }
-            return field.cast(String.class).like(DSL.inline(aqlLikePattern));
+            return field.cast(String.class).like(DSL.val(aqlLikePattern));
         } else if (operator == AslConditionOperator.IS_NULL) {
             return field.isNull();
         } else if (operator == AslConditionOperator.IS_NOT_NULL) {
@@ -487,7 +491,7 @@ final class ConditionUtils {
                         || (Number.class.isAssignableFrom(sqlFieldType) && val instanceof Number);
                 Field wrappedValue = isJsonbField || (orderOperator && !valueAndFieldTypeCompatible)
                         ? AdditionalSQLFunctions.to_jsonb(val)
-                        : DSL.inline(val);
+                        : DSL.val(val);
                 Field wrappedField = !isJsonbField && orderOperator && !valueAndFieldTypeCompatible
                         ? AdditionalSQLFunctions.to_jsonb(field)
                         : field;
@@ -505,7 +509,7 @@ final class ConditionUtils {
                 switch (operator) {
                     case IN ->
                         field.in(filteredValues.stream()
-                                .map(v -> isJsonbField ? AdditionalSQLFunctions.to_jsonb(v) : DSL.inline(v))
+                                .map(v -> isJsonbField ? AdditionalSQLFunctions.to_jsonb(v) : DSL.val(v))
                                 .toList());
                     case EQ, NEQ, GT_EQ, GT, LT_EQ, LT ->
                         throw new IllegalArgumentException(
@@ -19,23 +19,23 @@ package org.ehrbase.openehr.aqlengine.sql;
 
 import static org.ehrbase.jooq.pg.Tables.COMP_DATA;
 import static org.ehrbase.jooq.pg.Tables.COMP_VERSION;
+import static org.ehrbase.jooq.pg.Tables.TEMPLATE_STORE;
 import static org.ehrbase.openehr.aqlengine.ChangeTypeUtils.JOOQ_CHANGE_TYPE_TO_CODE;
 
-import java.text.Collator;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Stream;
-import org.ehrbase.api.service.TemplateService;
+import org.apache.commons.lang3.tuple.Pair;
 import org.ehrbase.jooq.pg.enums.ContributionChangeType;
+import org.ehrbase.jooq.pg.tables.TemplateStore;
 import org.ehrbase.jooq.pg.util.AdditionalSQLFunctions;
 import org.ehrbase.openehr.aqlengine.asl.model.AslExtractedColumn;
 import org.ehrbase.openehr.aqlengine.asl.model.field.AslAggregatingField;
@@ -50,9 +50,12 @@ import org.ehrbase.openehr.aqlengine.asl.model.field.AslRmPathField;
 import org.ehrbase.openehr.aqlengine.asl.model.field.AslStringAggregationField;
 import org.ehrbase.openehr.aqlengine.asl.model.field.AslSubqueryField;
 import org.ehrbase.openehr.aqlengine.asl.model.join.AslJoin;
+import org.ehrbase.openehr.aqlengine.asl.model.query.AslPathDataQuery;
 import org.ehrbase.openehr.aqlengine.asl.model.query.AslQuery;
 import org.ehrbase.openehr.aqlengine.asl.model.query.AslRmObjectDataQuery;
+import org.ehrbase.openehr.aqlengine.asl.model.query.AslRootQuery;
 import org.ehrbase.openehr.aqlengine.asl.model.query.AslStructureQuery;
+import org.ehrbase.openehr.aqlengine.asl.model.query.AslStructureQuery.AslSourceRelation;
 import org.ehrbase.openehr.aqlengine.sql.AqlSqlQueryBuilder.AslQueryTables;
 import org.ehrbase.openehr.dbformat.StructureRmType;
 import org.ehrbase.openehr.sdk.aql.dto.operand.AggregateFunction.AggregateFunctionName;
@@ -67,12 +70,17 @@ import org.jooq.SortField;
 import org.jooq.Table;
 import org.jooq.impl.DSL;
 import org.jooq.impl.SQLDataType;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 final class EncapsulatingQueryUtils {
 
-    private static final Logger LOG = LoggerFactory.getLogger(EncapsulatingQueryUtils.class);
+    private static final Set<AslExtractedColumn> KEYSET_COLUMNS = EnumSet.of(
+            AslExtractedColumn.EHR_ID,
+            AslExtractedColumn.EHR_TIME_CREATED,
+            AslExtractedColumn.OV_CONTRIBUTION_ID,
+            AslExtractedColumn.OV_TIME_COMMITTED);
+
+    private static final Set<AslSourceRelation> VERSIONED_OBJECT_TYPES =
+            EnumSet.of(AslSourceRelation.COMPOSITION, AslSourceRelation.EHR_STATUS);
 
     private EncapsulatingQueryUtils() {}
 
@@ -253,27 +261,14 @@ final class EncapsulatingQueryUtils {
                 conceptField);
     }
 
-    private static Field templateIdOrderField(Field templateUidField, TemplateService templateService) {
-        // order lexicographically by template id
-        var templates = templateService.findAllTemplates();
-
-        if (templates.isEmpty()) {
-            LOG.warn("No template ids found: Fallback to ordering by internal UUID");
-            return templateUidField;
-        }
-
-        Map<Param<UUID>, Param<Integer>> templateIdOrderMap = new LinkedHashMap<>();
-        Iterator<UUID> it = templates.stream()
-                .sorted(Comparator.comparing(
-                        TemplateService.TemplateDetails::templateId, Collator.getInstance(Locale.ENGLISH)))
-                .map(TemplateService.TemplateDetails::id)
-                .iterator();
-        int pos = 0;
-        while (it.hasNext()) {
-            templateIdOrderMap.put(DSL.inline(it.next()), DSL.inline(pos++));
-        }
-
-        return DSL.case_(templateUidField).mapValues(templateIdOrderMap).else_(DSL.inline((Object) null));
+    /**
+     * Orders lexicographically by template id, using the sort key maintained in the template store.
+     */
+    private static Field templateIdOrderField(Field templateUidField) {
+        TemplateStore templateStore = TEMPLATE_STORE.as("tso");
+        return DSL.field(DSL.select(templateStore.SORT_KEY)
+                .from(templateStore)
+                .where(templateStore.ID.eq(templateUidField)));
     }
 
     /**
@@ -382,43 +377,104 @@ final class EncapsulatingQueryUtils {
         };
     }
 
-    public static Stream<SortField<?>> orderFields(
-            AslOrderByField ob, AslQueryTables aslQueryToTable, TemplateService templateService) {
+    public static Stream<SortField<?>> orderFields(AslOrderByField ob, AslQueryTables aslQueryToTable) {
+        return orderByFields(ob, aslQueryToTable).map(f -> f.sort(ob.direction()));
+    }
+
+    /**
+     * The fields that are compared to order by the given field, without direction
+     */
+    public static Stream<Field<?>> orderByFields(AslOrderByField ob, AslQueryTables aslQueryToTable) {
         AslField aslField = ob.field();
         Table<?> src = aslQueryToTable.getDataTable(aslField.getInternalProvider());
-        return (switch (aslField) {
-                    case AslDvOrderedColumnField f ->
-                        Stream.of(AdditionalSQLFunctions.jsonb_dv_ordered_magnitude(
-                                (Field<JSONB>) FieldUtils.field(src, f, true)));
-                    case AslColumnField f -> columnOrderField(f, src, templateService);
-                    case AslComplexExtractedColumnField ecf -> complexExtractedColumnOrderByFields(ecf, src);
-                    case AslConstantField __ -> Stream.<Field<?>>empty();
-                    case AslSubqueryField sqf -> Stream.of(subqueryField(sqf, aslQueryToTable));
-                    case AslAggregatingField __ ->
-                        throw new IllegalArgumentException("ORDER BY AslAggregatingField is not allowed");
-                    case AslFolderItemIdVirtualField __ ->
-                        throw new IllegalArgumentException("ORDER BY AslFolderItemIdValuesColumnField is not allowed");
-                    case AslRmPathField arpf -> {
-                        var f = FieldUtils.buildRmPathField(arpf, src);
-                        if (arpf.getType() == String.class
-                                || arpf.getDvOrderedTypes().isEmpty()) {
-                            yield Stream.of(f);
-                        } else {
-                            yield Stream.of(AdditionalSQLFunctions.jsonb_dv_ordered_magnitude((Field<JSONB>) f));
+        return switch (aslField) {
+            case AslDvOrderedColumnField f ->
+                Stream.of(AdditionalSQLFunctions.jsonb_dv_ordered_magnitude(
+                        (Field<JSONB>) FieldUtils.field(src, f, true)));
+            case AslColumnField f -> columnOrderField(f, src);
+            case AslComplexExtractedColumnField ecf -> complexExtractedColumnOrderByFields(ecf, src);
+            case AslConstantField __ -> Stream.<Field<?>>empty();
+            case AslSubqueryField sqf -> Stream.of(subqueryField(sqf, aslQueryToTable));
+            case AslAggregatingField __ ->
+                throw new IllegalArgumentException("ORDER BY AslAggregatingField is not allowed");
+            case AslFolderItemIdVirtualField __ ->
+                throw new IllegalArgumentException("ORDER BY AslFolderItemIdValuesColumnField is not allowed");
+            case AslRmPathField arpf -> {
+                var f = FieldUtils.buildRmPathField(arpf, src);
+                if (arpf.getType() == String.class
+                        || arpf.getDvOrderedTypes().isEmpty()) {
+                    yield Stream.of(f);
+                } else {
+                    yield Stream.of(AdditionalSQLFunctions.jsonb_dv_ordered_magnitude((Field<JSONB>) f));
+                }
+            }
+            case AslStringAggregationField __ ->
+                throw new IllegalArgumentException("ORDER BY AslAggregateRecordArrayField is not allowed");
+        };
+    }
+
+    /**
+     * Keyset pagination requires ORDER BY fields that are ordered by a single non-null column,
+     * so the sort keys of a row can be compared to the last row of the previous page.
+     */
+    public static boolean isKeysetField(AslField field) {
+        return switch (field) {
+            case AslDvOrderedColumnField __ -> false;
+            case AslColumnField f -> KEYSET_COLUMNS.contains(f.getExtractedColumn());
+            case AslComplexExtractedColumnField ecf -> ecf.getExtractedColumn() == AslExtractedColumn.VO_ID;
+            default -> false;
+        };
+    }
+
+    /**
+     * The last ORDER BY field of a keyset paginated query has to identify the rows uniquely, as rows with the same
+     * sort keys as the last row of a page are skipped.
+     * This is only provable for queries that produce at most one row per EHR, or per COMPOSITION or EHR_STATUS,
+     * i.e. that neither contain nested objects nor select multi-valued paths:
+     * the last field then has to be the <code>ehr_id/value</code> of the EHR, or the <code>uid/value</code> of the
+     * COMPOSITION or EHR_STATUS.
+     */
+    public static boolean isUniqueKeysetField(AslRootQuery rootQuery, AslField lastField) {
+        AslStructureQuery ehr = null;
+        AslStructureQuery versionedObject = null;
+        for (Pair<AslQuery, AslJoin> child : rootQuery.getChildren()) {
+            boolean rowPreserving =
+                    switch (child.getLeft()) {
+                        case AslStructureQuery sq when sq.getType() == AslSourceRelation.EHR && ehr == null -> {
+                            ehr = sq;
+                            yield true;
                         }
-                    }
-                    case AslStringAggregationField __ ->
-                        throw new IllegalArgumentException("ORDER BY AslAggregateRecordArrayField is not allowed");
-                })
-                .map(f -> f.sort(ob.direction()));
+                        case AslStructureQuery sq when isVersionedObjectRoot(sq) && versionedObject == null -> {
+                            versionedObject = sq;
+                            yield true;
+                        }
+                        // aggregates the object into a single row
+                        case AslRmObjectDataQuery __ -> true;
+                        case AslPathDataQuery pq -> !pq.isMultipleValued();
+                        default -> false;
+                    };
+            if (!rowPreserving) {
+                return false;
+            }
+        }
+        AslQuery owner = lastField.getOwner();
+        return switch (lastField.getExtractedColumn()) {
+            case EHR_ID -> owner != null && owner == ehr && versionedObject == null;
+            case VO_ID -> owner != null && owner == versionedObject;
+            case null, default -> false;
+        };
+    }
+
+    private static boolean isVersionedObjectRoot(AslStructureQuery sq) {
+        return sq.isRoot() && VERSIONED_OBJECT_TYPES.contains(sq.getType());
     }
 
-    private static Stream<Field<?>> columnOrderField(AslColumnField f, Table<?> src, TemplateService templateService) {
+    private static Stream<Field<?>> columnOrderField(AslColumnField f, Table<?> src) {
         Field<?> field = FieldUtils.field(src, f, true);
 
         field = switch (f.getExtractedColumn()) {
             // ensure order by name, not internal ID
-            case TEMPLATE_ID -> templateIdOrderField(field, templateService);
+            case TEMPLATE_ID -> templateIdOrderField(field);
             case AD_CHANGE_TYPE_VALUE, AD_CHANGE_TYPE_PREFERRED_TERM -> DSL.lower(field.cast(String.class));
             case AD_CHANGE_TYPE_CODE_STRING ->
                 DSL.case_((Field<ContributionChangeType>) field).mapValues(JOOQ_CHANGE_TYPE_TO_CODE);
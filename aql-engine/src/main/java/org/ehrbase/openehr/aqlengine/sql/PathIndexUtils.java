@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.sql;
+
+import static org.ehrbase.jooq.pg.Tables.COMP_DATA;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import org.ehrbase.openehr.aqlengine.asl.AslPathUsage;
+import org.ehrbase.openehr.aqlengine.asl.model.query.AslStructureQuery;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.JSONB;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+
+/**
+ * Partial indexes on <code>comp_data</code> for the conditions described by {@link AslPathUsage}.
+ * <p>
+ * The index expressions are built like the conditions in {@link ConditionUtils}, as PostgreSQL only uses expression
+ * indexes for identical expressions.
+ */
+public final class PathIndexUtils {
+
+    private static final DSLContext RENDER_CONTEXT = DSL.using(SQLDialect.POSTGRES);
+
+    private PathIndexUtils() {}
+
+    /**
+     * The name contains the first 128 bits of the SHA-256 digest of the definition, so distinct definitions do not
+     * share a name in practice.
+     *
+     * @return a name derived from the index definition, so the same recommendation always has the same name
+     */
+    public static String indexName(AslPathUsage usage) {
+        List<String> definition = new ArrayList<>();
+        definition.add(usage.entityConcept());
+        definition.add(Objects.toString(usage.rmEntity(), ""));
+        definition.add(Objects.toString(usage.entityAttribute(), ""));
+        definition.add(usage.kind().name());
+        definition.addAll(usage.jsonPath());
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256")
+                    .digest(String.join("\0", definition).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        return "comp_data_aql_%s_idx".formatted(HexFormat.of().formatHex(digest, 0, 16));
+    }
+
+    /**
+     * @return the index name qualified by the schema of <code>comp_data</code>, e.g. for <code>to_regclass</code>
+     */
+    public static String qualifiedIndexName(String indexName) {
+        return RENDER_CONTEXT.render(DSL.name(COMP_DATA.getSchema().getName(), indexName));
+    }
+
+    /**
+     * @return <code>DROP INDEX CONCURRENTLY</code> statement
+     */
+    public static String dropIndexStatement(String indexName) {
+        return "DROP INDEX CONCURRENTLY IF EXISTS " + qualifiedIndexName(indexName);
+    }
+
+    /**
+     * The magnitude of DV_ORDERED values is determined by a function that cannot be used for an index.
+     * For those conditions, the index only covers the rows of the archetype.
+     *
+     * @return <code>CREATE INDEX CONCURRENTLY</code> statement
+     */
+    public static String createIndexStatement(AslPathUsage usage) {
+        String key =
+                switch (usage.kind()) {
+                    case TEXT -> expression(DSL.jsonbGetElementAsText(jsonPathField(usage), DSL.inline(0)));
+                    case JSONB -> expression(jsonPathField(usage));
+                    case DV_ORDERED_MAGNITUDE -> RENDER_CONTEXT.render(column(COMP_DATA.VO_ID.getName(), Object.class));
+                };
+        return "CREATE INDEX CONCURRENTLY IF NOT EXISTS %s ON %s (%s) WHERE %s"
+                .formatted(
+                        RENDER_CONTEXT.render(DSL.name(indexName(usage))),
+                        RENDER_CONTEXT.render(COMP_DATA),
+                        key,
+                        RENDER_CONTEXT.renderInlined(rowCondition(usage)));
+    }
+
+    private static String expression(Field<?> field) {
+        return "(" + RENDER_CONTEXT.renderInlined(field) + ")";
+    }
+
+    private static Field<JSONB> jsonPathField(AslPathUsage usage) {
+        Field<JSONB> field = column(COMP_DATA.DATA.getName(), JSONB.class);
+        for (String attribute : usage.jsonPath()) {
+            field = DSL.jsonbGetAttribute(field, DSL.inline(attribute));
+        }
+        return field;
+    }
+
+    private static Condition rowCondition(AslPathUsage usage) {
+        Condition condition =
+                column(COMP_DATA.ENTITY_CONCEPT.getName(), String.class).eq(DSL.inline(usage.entityConcept()));
+        if (usage.rmEntity() != null) {
+            condition = condition.and(
+                    column(COMP_DATA.RM_ENTITY.getName(), String.class).eq(DSL.inline(usage.rmEntity())));
+        }
+        if (usage.entityAttribute() != null) {
+            condition = condition.and(column(AslStructureQuery.ENTITY_ATTRIBUTE, String.class)
+                    .eq(DSL.inline(usage.entityAttribute())));
+        }
+        return condition;
+    }
+
+    private static <T> Field<T> column(String name, Class<T> type) {
+        return DSL.field(DSL.name(name), type);
+    }
+}
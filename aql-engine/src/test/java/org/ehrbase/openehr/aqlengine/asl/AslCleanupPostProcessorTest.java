@@ -55,7 +55,6 @@ class AslCleanupPostProcessorTest {
     private final AqlSqlQueryBuilder sqlBuilder = new AqlSqlQueryBuilder(
             TestConfig.aqlConfigurationProperties(),
             new DefaultDSLContext(SQLDialect.POSTGRES),
-            mock(),
             Optional.empty());
 
     @Disabled
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.asl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import org.ehrbase.openehr.aqlengine.TestAqlQueryContext;
+import org.ehrbase.openehr.aqlengine.asl.model.query.AslRootQuery;
+import org.ehrbase.openehr.aqlengine.querywrapper.AqlQueryWrapper;
+import org.ehrbase.openehr.aqlengine.sql.PathIndexUtils;
+import org.ehrbase.openehr.dbformat.RmAttributeAlias;
+import org.ehrbase.openehr.sdk.aql.dto.AqlQuery;
+import org.ehrbase.openehr.sdk.aql.parser.AqlQueryParser;
+import org.junit.jupiter.api.Test;
+
+class AslPathUsageTest {
+
+    private static final String BLOOD_PRESSURE = """
+            SELECT o/data[at0001]/events[at0006]/data[at0003]/items[at0004]/value/magnitude
+            FROM EHR e CONTAINS COMPOSITION c CONTAINS OBSERVATION o[openEHR-EHR-OBSERVATION.blood_pressure.v2]
+            """;
+
+    private static Set<AslPathUsage> collect(String aql) {
+        AqlQuery aqlQuery = AqlQueryParser.parse(aql);
+        AqlQueryWrapper queryWrapper = AqlQueryWrapper.create(aqlQuery, false);
+        AqlSqlLayer aqlSqlLayer = new AqlSqlLayer(mock(), () -> "node", new TestAqlQueryContext());
+        AslRootQuery aslRootQuery = aqlSqlLayer.buildAslRootQuery(queryWrapper);
+        new AslCleanupPostProcessor().afterBuildAsl(aslRootQuery, aqlQuery, queryWrapper, null);
+        return AslPathUsage.collect(aslRootQuery);
+    }
+
+    private static List<String> aliases(String... attributes) {
+        return Arrays.stream(attributes).map(RmAttributeAlias::getAlias).toList();
+    }
+
+    @Test
+    void collectMagnitudeCondition() {
+        Set<AslPathUsage> usages = collect(BLOOD_PRESSURE
+                + "WHERE o/data[at0001]/events[at0006]/data[at0003]/items[at0004]/value/magnitude > 140");
+
+        assertThat(usages).singleElement().satisfies(u -> {
+            assertThat(u.entityConcept()).isEqualTo("at0004");
+            assertThat(u.entityAttribute()).isEqualTo(RmAttributeAlias.getAlias("items"));
+            assertThat(u.jsonPath()).isEqualTo(aliases("value", "magnitude"));
+            assertThat(u.kind()).isEqualTo(AslPathUsage.Kind.JSONB);
+        });
+    }
+
+    @Test
+    void collectTextCondition() {
+        Set<AslPathUsage> usages = collect(BLOOD_PRESSURE
+                + "WHERE o/data[at0001]/events[at0006]/data[at0003]/items[at0004]/value/units = 'mm[Hg]'");
+
+        assertThat(usages).singleElement().satisfies(u -> {
+            assertThat(u.entityConcept()).isEqualTo("at0004");
+            assertThat(u.jsonPath()).isEqualTo(aliases("value", "units"));
+            assertThat(u.kind()).isEqualTo(AslPathUsage.Kind.TEXT);
+        });
+    }
+
+    @Test
+    void ignoreConditionsWithoutPath() {
+        assertThat(collect(BLOOD_PRESSURE)).isEmpty();
+        assertThat(collect(BLOOD_PRESSURE + "WHERE e/ehr_id/value = 'e6fad8ba-fb4f-46a2-bf82-66edb43f142f'"))
+                .isEmpty();
+    }
+
+    @Test
+    void createIndexStatement() {
+        AslPathUsage usage =
+                new AslPathUsage(".blood_pressure.v2", "OB", null, List.of("d", "V"), AslPathUsage.Kind.TEXT);
+
+        String statement = PathIndexUtils.createIndexStatement(usage);
+
+        assertThat(PathIndexUtils.indexName(usage)).matches("comp_data_aql_[0-9a-f]{32}_idx");
+        assertThat(statement)
+                .startsWith("CREATE INDEX CONCURRENTLY IF NOT EXISTS \"" + PathIndexUtils.indexName(usage) + "\" ON ")
+                .contains("\"comp_data\"")
+                .contains("'d'", "'V'", "->>")
+                .contains("\"entity_concept\" = '.blood_pressure.v2'")
+                .contains("\"rm_entity\" = 'OB'")
+                .doesNotContain("entity_attribute");
+        assertThat(PathIndexUtils.indexName(usage))
+                .isNotEqualTo(PathIndexUtils.indexName(new AslPathUsage(
+                        ".blood_pressure.v2", "OB", null, List.of("d", "V"), AslPathUsage.Kind.JSONB)));
+        assertThat(PathIndexUtils.dropIndexStatement(PathIndexUtils.indexName(usage)))
+                .isEqualTo("DROP INDEX CONCURRENTLY IF EXISTS \"ehr\".\"" + PathIndexUtils.indexName(usage) + "\"");
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.asl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.xmlbeans.XmlException;
+import org.ehrbase.api.service.TemplateService;
+import org.ehrbase.openehr.aqlengine.asl.TemplateContainsAnalysis.ContainsMatches;
+import org.ehrbase.openehr.aqlengine.querywrapper.AqlQueryWrapper;
+import org.ehrbase.openehr.aqlengine.querywrapper.contains.RmContainsWrapper;
+import org.ehrbase.openehr.dbformat.StructureRmType;
+import org.ehrbase.openehr.sdk.aql.parser.AqlQueryParser;
+import org.ehrbase.openehr.sdk.test_data.operationaltemplate.OperationalTemplateTestData;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
+import org.ehrbase.openehr.sdk.webtemplate.parser.OPTParser;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class TemplateContainsAnalysisTest {
+
+    private static WebTemplate actionTemplate;
+    private static WebTemplate evaluationTemplate;
+
+    @BeforeAll
+    static void parseTemplates() throws IOException, XmlException {
+        actionTemplate = parse(OperationalTemplateTestData.MINIMAL_ACTION);
+        evaluationTemplate = parse(OperationalTemplateTestData.MINIMAL_EVALUATION);
+    }
+
+    private static WebTemplate parse(OperationalTemplateTestData data) throws IOException, XmlException {
+        try (InputStream in = data.getStream()) {
+            return new OPTParser(TemplateService.buildOperationalTemplate(in)).parse();
+        }
+    }
+
+    private static TemplateContainsAnalysis analyze(AqlQueryWrapper queryWrapper) {
+        return TemplateContainsAnalysis.analyze(
+                queryWrapper.containsChain(), List.of(actionTemplate, evaluationTemplate));
+    }
+
+    private static AqlQueryWrapper queryWrapper(String aql) {
+        return AqlQueryWrapper.create(AqlQueryParser.parse(aql), false);
+    }
+
+    private static RmContainsWrapper containment(AqlQueryWrapper queryWrapper, String alias) {
+        return queryWrapper.pathInfos().keySet().stream()
+                .filter(RmContainsWrapper.class::isInstance)
+                .map(RmContainsWrapper.class::cast)
+                .filter(c -> alias.equals(c.alias()))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static Set<String> archetypeNodeIds(WebTemplate template, String rmType) {
+        return nodes(template.getTree())
+                .filter(n -> rmType.equals(n.getRmType()))
+                .map(WebTemplateNode::getNodeId)
+                .collect(Collectors.toSet());
+    }
+
+    private static Stream<WebTemplateNode> nodes(WebTemplateNode node) {
+        return Stream.concat(Stream.of(node), node.getChildren().stream().flatMap(TemplateContainsAnalysisTest::nodes));
+    }
+
+    @ParameterizedTest
+    @CsvSource(textBlock = """
+            SELECT c FROM EHR e CONTAINS COMPOSITION c CONTAINS ACTION a | true
+            SELECT c FROM COMPOSITION c CONTAINS CARE_ENTRY ce | true
+            SELECT c FROM COMPOSITION c CONTAINS CLUSTER cl | true
+            SELECT e FROM EHR e CONTAINS (COMPOSITION c1 CONTAINS ACTION a AND COMPOSITION c2 CONTAINS EVALUATION ev) | true
+            SELECT c FROM COMPOSITION c CONTAINS (ACTION a OR OBSERVATION o) | true
+            SELECT c FROM COMPOSITION c CONTAINS OBSERVATION o | false
+            SELECT c FROM COMPOSITION c CONTAINS (ACTION a AND EVALUATION ev) | false
+            SELECT c FROM COMPOSITION c CONTAINS ACTION a[openEHR-EHR-ACTION.unknown.v1] | false
+            SELECT c FROM COMPOSITION c CONTAINS ACTION a CONTAINS SECTION s | false
+            """, delimiterString = "|")
+    void satisfiable(String aql, boolean satisfiable) {
+        assertThat(analyze(queryWrapper(aql)).isUnsatisfiable()).isEqualTo(!satisfiable);
+    }
+
+    @Test
+    void unrestricted() {
+        assertThat(TemplateContainsAnalysis.UNRESTRICTED.isUnsatisfiable()).isFalse();
+    }
+
+    @Test
+    void templates() {
+        AqlQueryWrapper queryWrapper = queryWrapper("SELECT c FROM EHR e CONTAINS COMPOSITION c CONTAINS ACTION a");
+        TemplateContainsAnalysis analysis = analyze(queryWrapper);
+
+        ContainsMatches composition =
+                analysis.getMatches(containment(queryWrapper, "c")).orElseThrow();
+        assertThat(composition.templateIds()).containsExactly(actionTemplate.getTemplateId());
+        assertThat(composition.allTemplates()).isFalse();
+
+        // EHR is not defined by templates
+        assertThat(analysis.getMatches(containment(queryWrapper, "e"))).isEmpty();
+    }
+
+    @Test
+    void rmTypesAndArchetypes() {
+        AqlQueryWrapper queryWrapper = queryWrapper("SELECT ce FROM COMPOSITION c CONTAINS CARE_ENTRY ce");
+        TemplateContainsAnalysis analysis = analyze(queryWrapper);
+
+        ContainsMatches careEntry =
+                analysis.getMatches(containment(queryWrapper, "ce")).orElseThrow();
+        assertThat(careEntry.rmTypes()).containsExactlyInAnyOrder(StructureRmType.ACTION, StructureRmType.EVALUATION);
+        assertThat(careEntry.archetypeNodeIds())
+                .containsExactlyInAnyOrderElementsOf(Stream.concat(
+                                archetypeNodeIds(actionTemplate, "ACTION").stream(),
+                                archetypeNodeIds(evaluationTemplate, "EVALUATION").stream())
+                        .toList());
+        assertThat(careEntry.allTemplates()).isTrue();
+    }
+
+    @Test
+    void notDefinedByTemplates() {
+        AqlQueryWrapper queryWrapper = queryWrapper("SELECT cl FROM COMPOSITION c CONTAINS CLUSTER cl");
+        TemplateContainsAnalysis analysis = analyze(queryWrapper);
+
+        assertThat(analysis.getMatches(containment(queryWrapper, "cl"))).isEmpty();
+        assertThat(analysis.getMatches(containment(queryWrapper, "c")).orElseThrow().allTemplates())
+                .isTrue();
+    }
+}
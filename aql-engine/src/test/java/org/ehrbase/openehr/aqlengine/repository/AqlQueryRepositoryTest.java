@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import org.ehrbase.openehr.aqlengine.AqlConfigurationProperties;
+import org.ehrbase.openehr.aqlengine.sql.postprocessor.AqlSqlResultPostprocessor;
+import org.ehrbase.openehr.aqlengine.sql.postprocessor.DefaultResultPostprocessor;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class AqlQueryRepositoryTest {
+
+    private static final DSLContext CONTEXT = DSL.using(SQLDialect.POSTGRES);
+
+    private static final Field<Integer> ID = DSL.field(DSL.name("id"), Integer.class);
+    private static final Field<String> NAME = DSL.field(DSL.name("name"), String.class);
+
+    private AqlQueryRepository repository;
+
+    @AfterEach
+    void tearDown() {
+        repository.destroy();
+    }
+
+    private AqlQueryRepository repository(int parallelism, int chunkSize) {
+        AqlConfigurationProperties properties = new AqlConfigurationProperties();
+        properties.setParallelPostprocessing(
+                new AqlConfigurationProperties.ParallelPostprocessing(parallelism, chunkSize));
+        repository = new AqlQueryRepository(mock(), mock(), mock(), mock(), properties);
+        return repository;
+    }
+
+    private static List<Record> records(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> {
+                    Record r = CONTEXT.newRecord(ID, NAME);
+                    r.set(ID, i);
+                    r.set(NAME, "name-" + i);
+                    return r;
+                })
+                .toList();
+    }
+
+    @ParameterizedTest
+    @CsvSource(textBlock = """
+            0 | 64 | 1000
+            4 | 64 | 1000
+            4 | 7  | 1000
+            4 | 64 | 10
+            2 | 1  | 0
+            """, delimiterString = "|")
+    void postProcessDbRecordsPreservesOrder(int parallelism, int chunkSize, int count) {
+
+        AqlSqlResultPostprocessor[] postProcessors = {DefaultResultPostprocessor.INSTANCE, v -> "pp:" + v};
+
+        List<List<Object>> rows =
+                repository(parallelism, chunkSize).postProcessDbRecords(records(count), postProcessors);
+
+        assertThat(rows).hasSize(count);
+        for (int i = 0; i < count; i++) {
+            assertThat(rows.get(i)).containsExactly(i, "pp:name-" + i);
+        }
+    }
+}
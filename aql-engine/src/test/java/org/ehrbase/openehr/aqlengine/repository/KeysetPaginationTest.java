@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import org.ehrbase.api.exception.InvalidApiParameterException;
+import org.ehrbase.api.exception.UnprocessableEntityException;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.SQLDialect;
+import org.jooq.SelectQuery;
+import org.jooq.SortOrder;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.Test;
+
+class KeysetPaginationTest {
+
+    private static final DSLContext CONTEXT = DSL.using(SQLDialect.POSTGRES);
+
+    private static final Field<UUID> VO_ID = DSL.field(DSL.name("c", "vo_id"), UUID.class);
+    private static final Field<OffsetDateTime> TIME_COMMITTED =
+            DSL.field(DSL.name("c", "sys_period_lower"), OffsetDateTime.class);
+
+    private static SelectQuery<Record> plannedQuery(String table) {
+        return CONTEXT.select(VO_ID.as("c0"), TIME_COMMITTED.as("ks_0"), VO_ID.as("ks_1"))
+                .from(DSL.table(DSL.name(table)).as("c"))
+                .getQuery();
+    }
+
+    private static Record lastRow(SelectQuery<Record> query, UUID voId, OffsetDateTime timeCommitted) {
+        Record row = CONTEXT.newRecord(query.fields());
+        row.set(0, voId);
+        row.set(1, timeCommitted);
+        row.set(2, voId);
+        return row;
+    }
+
+    @Test
+    void firstPage() {
+        SelectQuery<Record> query = plannedQuery("comp_version");
+        KeysetPagination keysetPagination =
+                new KeysetPagination(query, List.of(SortOrder.DESC, SortOrder.ASC), 10, 20L);
+
+        String sql = CONTEXT.renderInlined(keysetPagination.page(query, null));
+        assertThat(sql)
+                .doesNotContain("where")
+                .contains("order by \"ks\".\"ks_0\" desc, \"ks\".\"ks_1\" asc")
+                .contains("limit 10")
+                .contains("offset 20");
+    }
+
+    @Test
+    void nextPage() {
+        SelectQuery<Record> query = plannedQuery("comp_version");
+        KeysetPagination keysetPagination =
+                new KeysetPagination(query, List.of(SortOrder.DESC, SortOrder.ASC), 10, null);
+
+        UUID voId = UUID.randomUUID();
+        OffsetDateTime timeCommitted = OffsetDateTime.of(2026, 1, 2, 3, 4, 5, 6000, ZoneOffset.UTC);
+        String token = keysetPagination.continuationToken(lastRow(query, voId, timeCommitted));
+        assertThat(token).isNotBlank().doesNotContain(voId.toString());
+
+        String sql = CONTEXT.renderInlined(keysetPagination.page(query, token));
+        assertThat(sql)
+                .contains("\"ks\".\"ks_0\" < cast('" + timeCommitted + "' as timestamp with time zone)")
+                .contains("\"ks\".\"ks_0\" = cast('" + timeCommitted + "' as timestamp with time zone)")
+                .contains("\"ks\".\"ks_1\" > cast('" + voId + "' as uuid)")
+                .contains("order by \"ks\".\"ks_0\" desc, \"ks\".\"ks_1\" asc")
+                .contains("limit 10")
+                .doesNotContain("offset");
+    }
+
+    @Test
+    void missingSortKey() {
+        SelectQuery<Record> query = plannedQuery("comp_version");
+        KeysetPagination keysetPagination =
+                new KeysetPagination(query, List.of(SortOrder.ASC, SortOrder.ASC), 10, null);
+
+        assertThat(keysetPagination.continuationToken(lastRow(query, UUID.randomUUID(), null))).isNull();
+    }
+
+    @Test
+    void invalidToken() {
+        SelectQuery<Record> query = plannedQuery("comp_version");
+        KeysetPagination keysetPagination =
+                new KeysetPagination(query, List.of(SortOrder.ASC, SortOrder.ASC), 10, null);
+
+        assertThatThrownBy(() -> keysetPagination.page(query, "not base64!"))
+                .isInstanceOf(InvalidApiParameterException.class);
+
+        // issued for a different query
+        SelectQuery<Record> otherQuery = plannedQuery("ehr_status_version");
+        String otherToken = new KeysetPagination(otherQuery, List.of(SortOrder.ASC, SortOrder.ASC), 10, null)
+                .continuationToken(lastRow(otherQuery, UUID.randomUUID(), OffsetDateTime.now()));
+        assertThatThrownBy(() -> keysetPagination.page(query, otherToken))
+                .isInstanceOf(InvalidApiParameterException.class);
+    }
+
+    @Test
+    void tokenWithOffset() {
+        SelectQuery<Record> query = plannedQuery("comp_version");
+        KeysetPagination keysetPagination =
+                new KeysetPagination(query, List.of(SortOrder.ASC, SortOrder.ASC), 10, 5L);
+        String token = keysetPagination.continuationToken(lastRow(query, UUID.randomUUID(), OffsetDateTime.now()));
+
+        assertThatThrownBy(() -> keysetPagination.page(query, token))
+                .isInstanceOf(UnprocessableEntityException.class);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.ehrbase.openehr.aqlengine.querywrapper.AqlQueryWrapper;
+import org.ehrbase.openehr.sdk.aql.parser.AqlQueryParser;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class AqlQueryEhrScopeTest {
+
+    private static final String EHR_1 = "c8a4a6a4-4b4c-4b8c-9d85-3a4c9e1f0a01";
+    private static final String EHR_2 = "c8a4a6a4-4b4c-4b8c-9d85-3a4c9e1f0a02";
+
+    @ParameterizedTest
+    @CsvSource(textBlock = """
+            SELECT c FROM EHR e CONTAINS COMPOSITION c |
+            SELECT c FROM COMPOSITION c |
+            SELECT c FROM EHR e[ehr_id/value='c8a4a6a4-4b4c-4b8c-9d85-3a4c9e1f0a01'] CONTAINS COMPOSITION c | 1
+            SELECT c FROM EHR e CONTAINS COMPOSITION c WHERE e/ehr_id/value = 'c8a4a6a4-4b4c-4b8c-9d85-3a4c9e1f0a01' | 1
+            SELECT c FROM EHR e CONTAINS COMPOSITION c WHERE e/ehr_id/value != 'c8a4a6a4-4b4c-4b8c-9d85-3a4c9e1f0a01' |
+            SELECT c FROM EHR e CONTAINS COMPOSITION c WHERE e/ehr_id/value = 'no-uuid' |
+            SELECT c FROM EHR e CONTAINS COMPOSITION c WHERE e/ehr_id/value MATCHES {'c8a4a6a4-4b4c-4b8c-9d85-3a4c9e1f0a01', 'c8a4a6a4-4b4c-4b8c-9d85-3a4c9e1f0a02'} | 1,2
+            SELECT c FROM EHR e CONTAINS COMPOSITION c WHERE c/name/value = 'x' AND e/ehr_id/value = 'c8a4a6a4-4b4c-4b8c-9d85-3a4c9e1f0a02' | 2
+            SELECT c FROM EHR e CONTAINS COMPOSITION c WHERE c/name/value = 'x' OR e/ehr_id/value = 'c8a4a6a4-4b4c-4b8c-9d85-3a4c9e1f0a02' |
+            SELECT c FROM EHR e CONTAINS COMPOSITION c WHERE e/ehr_id/value = 'c8a4a6a4-4b4c-4b8c-9d85-3a4c9e1f0a01' OR e/ehr_id/value = 'c8a4a6a4-4b4c-4b8c-9d85-3a4c9e1f0a02' | 1,2
+            SELECT c FROM EHR e CONTAINS COMPOSITION c WHERE NOT e/ehr_id/value = 'c8a4a6a4-4b4c-4b8c-9d85-3a4c9e1f0a01' |
+            """, delimiterString = "|")
+    void ehrScope(String aql, String expected) {
+        Set<UUID> expectedEhrIds = expected == null
+                ? Set.of()
+                : Arrays.stream(expected.split(","))
+                        .map(i -> UUID.fromString(i.equals("1") ? EHR_1 : EHR_2))
+                        .collect(Collectors.toSet());
+
+        AqlQueryWrapper queryWrapper = AqlQueryWrapper.create(AqlQueryParser.parse(aql), false);
+
+        assertThat(AqlQueryEhrScope.of(queryWrapper)).isEqualTo(expectedEhrIds);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.ehrbase.api.exception.InternalServerException;
+import org.ehrbase.api.exception.ServiceUnavailableException;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryMetrics.Cancellation;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryMetrics.Phase;
+import org.jooq.exception.DataAccessException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class AqlQueryMetricsTest {
+
+    @ParameterizedTest
+    @CsvSource(textBlock = """
+            0 | 0
+            1 | le_1
+            2 | le_10
+            100 | le_100
+            101 | le_1000
+            10000 | le_10000
+            10001 | gt_10000
+            """, delimiterString = "|")
+    void resultSizeBucket(long rows, String bucket) {
+        assertThat(AqlQueryMetrics.resultSizeBucket(rows)).isEqualTo(bucket);
+    }
+
+    @Test
+    void failureCause() {
+        assertThat(AqlQueryMetrics.failureCause(null)).isEqualTo("none");
+        assertThat(AqlQueryMetrics.failureCause(new IllegalStateException())).isEqualTo("IllegalStateException");
+        assertThat(AqlQueryMetrics.failureCause(
+                        new InternalServerException("Data Access Error", new DataAccessException("timeout"))))
+                .isEqualTo("DataAccessException");
+    }
+
+    @Test
+    void recordPhases() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AqlQueryMetrics metrics = new AqlQueryMetrics(registry);
+
+        AqlQueryMetrics.Recording recording = metrics.start("org.ehrbase::compositions/1.0.0");
+        assertThat(recording.time(Phase.QUERY_WRAPPER, () -> "wrapper")).isEqualTo("wrapper");
+        recording.add(Phase.DB_EXECUTION, 2_000);
+        recording.add(Phase.DB_EXECUTION, 3_000);
+        recording.addResultBytes(42);
+        recording.stop(5, null);
+        // ignored
+        recording.stop(7, null);
+
+        assertThat(recording.phaseNanos(Phase.DB_EXECUTION)).isEqualTo(5_000);
+        assertThat(recording.phaseNanos(Phase.SQL)).isEqualTo(-1);
+
+        Timer execution = registry.get(AqlQueryMetrics.PHASE_TIMER)
+                .tag(AqlQueryMetrics.TAG_QUERY, "org.ehrbase::compositions")
+                .tag(AqlQueryMetrics.TAG_PHASE, Phase.DB_EXECUTION.tag())
+                .tag(AqlQueryMetrics.TAG_EXCEPTION, "none")
+                .timer();
+        assertThat(execution.count()).isEqualTo(1);
+        assertThat(execution.totalTime(TimeUnit.NANOSECONDS)).isEqualTo(5_000);
+        assertThat(registry.get(AqlQueryMetrics.PHASE_TIMER)
+                        .tag(AqlQueryMetrics.TAG_PHASE, Phase.QUERY_WRAPPER.tag())
+                        .timer()
+                        .count())
+                .isEqualTo(1);
+        // phases that were not run, e.g. due to the plan cache, are not recorded
+        assertThat(registry.find(AqlQueryMetrics.PHASE_TIMER)
+                        .tag(AqlQueryMetrics.TAG_PHASE, Phase.SQL.tag())
+                        .timer())
+                .isNull();
+
+        assertThat(registry.get(AqlQueryMetrics.QUERY_TIMER)
+                        .tag(AqlQueryMetrics.TAG_RESULT_SIZE, "le_10")
+                        .timer()
+                        .count())
+                .isEqualTo(1);
+
+        DistributionSummary rows = registry.get(AqlQueryMetrics.RESULT_ROWS).summary();
+        assertThat(rows.count()).isEqualTo(1);
+        assertThat(rows.totalAmount()).isEqualTo(5);
+        assertThat(registry.get(AqlQueryMetrics.RESULT_BYTES).summary().totalAmount())
+                .isEqualTo(42);
+    }
+
+    @Test
+    void recordFailure() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AqlQueryMetrics metrics = new AqlQueryMetrics(registry);
+
+        AqlQueryMetrics.Recording recording = metrics.start(null);
+        recording.add(Phase.ASL, 1_000);
+        recording.stop(0, new IllegalArgumentException());
+
+        assertThat(registry.get(AqlQueryMetrics.PHASE_TIMER)
+                        .tag(AqlQueryMetrics.TAG_QUERY, "none")
+                        .tag(AqlQueryMetrics.TAG_EXCEPTION, "IllegalArgumentException")
+                        .timer()
+                        .count())
+                .isEqualTo(1);
+        assertThat(registry.find(AqlQueryMetrics.RESULT_ROWS).summary()).isNull();
+    }
+
+    @Test
+    void recordCancellation() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AqlQueryMetrics metrics = new AqlQueryMetrics(registry);
+
+        AqlQueryMetrics.Recording recording = metrics.start(null);
+        recording.cancelled(Cancellation.TIMEOUT);
+        // ignored
+        recording.cancelled(Cancellation.CANCELLED);
+        recording.stop(0, new ServiceUnavailableException("timeout"));
+
+        assertThat(recording.cancellation()).isEqualTo(Cancellation.TIMEOUT);
+        assertThat(registry.get(AqlQueryMetrics.CANCELLED_COUNTER)
+                        .tag(AqlQueryMetrics.TAG_QUERY, "none")
+                        .tag(AqlQueryMetrics.TAG_REASON, "timeout")
+                        .counter()
+                        .count())
+                .isEqualTo(1);
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import org.ehrbase.api.dto.AqlQueryRequest;
+import org.ehrbase.api.service.TemplateService;
+import org.ehrbase.openehr.aqlengine.AqlConfigurationProperties;
+import org.ehrbase.openehr.aqlengine.TestAqlQueryContext;
+import org.ehrbase.openehr.aqlengine.aql.AqlConditionAsPredicatePostProcessor;
+import org.ehrbase.openehr.aqlengine.aql.AqlEhrPathPostProcessor;
+import org.ehrbase.openehr.aqlengine.aql.AqlFromEhrOptimisationPostProcessor;
+import org.ehrbase.openehr.aqlengine.aql.AqlParameterPostProcessor;
+import org.ehrbase.openehr.aqlengine.asl.AqlSqlLayer;
+import org.ehrbase.openehr.aqlengine.asl.AslCleanupPostProcessor;
+import org.ehrbase.openehr.aqlengine.asl.TemplateContainsAnalyzer;
+import org.ehrbase.openehr.aqlengine.repository.AqlQueryRepository;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryServiceImp.AqlQueryExecution;
+import org.ehrbase.openehr.aqlengine.sql.AqlSqlQueryBuilder;
+import org.ehrbase.openehr.util.TestConfig;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DefaultDSLContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AqlQueryServiceImpTest {
+
+    private final TemplateService templateService = mock();
+    private final Map<AqlQueryPlanCache.Key, AqlQueryPlan> plans = new HashMap<>();
+    private AqlQueryServiceImp service;
+
+    private static final class MapPlanCache implements AqlQueryPlanCache {
+
+        private final Map<Key, AqlQueryPlan> plans;
+
+        private MapPlanCache(Map<Key, AqlQueryPlan> plans) {
+            this.plans = plans;
+        }
+
+        @Override
+        public AqlQueryPlan get(Key key, Supplier<AqlQueryPlan> planner) {
+            return plans.computeIfAbsent(key, k -> planner.get());
+        }
+
+        @Override
+        public void clear() {
+            plans.clear();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        when(templateService.findUuidByTemplateId(anyString())).thenAnswer(i -> UUID.randomUUID());
+
+        AqlConfigurationProperties properties = TestConfig.aqlConfigurationProperties();
+        TestAqlQueryContext queryContext = new TestAqlQueryContext();
+        AqlQueryRepository repository = new AqlQueryRepository(
+                mock(),
+                templateService,
+                new AqlSqlQueryBuilder(properties, new DefaultDSLContext(SQLDialect.POSTGRES), Optional.empty()),
+                queryContext,
+                properties);
+        service = new AqlQueryServiceImp(
+                repository,
+                mock(),
+                new AqlSqlLayer(templateService, () -> "node", queryContext),
+                new TemplateContainsAnalyzer(templateService, properties),
+                new ObjectMapper(),
+                queryContext,
+                List.of(
+                        new AqlParameterPostProcessor(),
+                        new AqlEhrPathPostProcessor(),
+                        new AqlFromEhrOptimisationPostProcessor(),
+                        new AqlConditionAsPredicatePostProcessor()),
+                List.of(new AslCleanupPostProcessor()),
+                Optional.of(new MapPlanCache(plans)),
+                Optional.empty(),
+                new AqlQueryMetrics(new SimpleMeterRegistry()),
+                mock(),
+                mock(),
+                properties);
+    }
+
+    private AqlQueryExecution prepare(String aql, Map<String, Object> parameters) {
+        AqlQueryRequest request = AqlQueryRequest.prepare(aql, parameters, null, null);
+        return service.prepareExecution(request, service.aqlQueryMetrics.start(null));
+    }
+
+    @Test
+    void planSharedByParameterValues() {
+        String aql = """
+                SELECT c/name/value
+                FROM EHR e CONTAINS COMPOSITION c
+                WHERE e/ehr_id/value = $ehr_id AND c/name/value = $name""";
+        UUID ehrId1 = UUID.randomUUID();
+        UUID ehrId2 = UUID.randomUUID();
+
+        AqlQueryExecution first = prepare(aql, Map.of("ehr_id", ehrId1.toString(), "name", "first name"));
+        assertThat(plans).hasSize(1);
+        AqlQueryPlan plan = plans.values().iterator().next();
+        assertThat(plan.parameterized()).isTrue();
+        String sharedSql = plan.sqlQueryPlan().toString();
+
+        AqlQueryExecution second = prepare(aql, Map.of("ehr_id", ehrId2.toString(), "name", "second name"));
+        assertThat(plans).hasSize(1).containsValue(plan);
+
+        assertThat(first.preparedQuery().getInlinedQuerySql())
+                .contains(ehrId1.toString(), "first name")
+                .doesNotContain(ehrId2.toString(), "second name");
+        assertThat(second.preparedQuery().getInlinedQuerySql())
+                .contains(ehrId2.toString(), "second name")
+                .doesNotContain(ehrId1.toString(), "first name");
+        assertThat(AqlQueryEhrScope.of(second.queryWrapper(), second.bindValues()))
+                .isEqualTo(Set.of(ehrId2));
+
+        // the shared plan only holds the placeholders
+        assertThat(plan.sqlQueryPlan().toString())
+                .isEqualTo(sharedSql)
+                .doesNotContain(ehrId1.toString(), ehrId2.toString(), "first name", "second name");
+    }
+
+    @Test
+    void planKeyedByValuesIfTranslationDependsOnThem() {
+        String aql = """
+                SELECT c/name/value
+                FROM EHR e CONTAINS COMPOSITION c
+                WHERE c/archetype_details/template_id/value = $template_id""";
+
+        AqlQueryExecution first = prepare(aql, Map.of("template_id", "first.v0"));
+        // the placeholder is not a known template, so the translations differ
+        assertThat(plans).hasSize(2);
+        assertThat(plans.values()).noneMatch(AqlQueryPlan::parameterized);
+        assertThat(first.bindValues()).isEmpty();
+
+        prepare(aql, Map.of("template_id", "first.v0"));
+        assertThat(plans).hasSize(2);
+
+        prepare(aql, Map.of("template_id", "second.v0"));
+        assertThat(plans).hasSize(3);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class CommitWatermarkTest {
+
+    @Test
+    void unrestricted() {
+        CommitWatermark watermark = new CommitWatermark();
+        long since = watermark.current();
+        assertThat(watermark.isUnchanged(since, Set.of())).isTrue();
+
+        watermark.advance(UUID.randomUUID());
+        assertThat(watermark.isUnchanged(since, Set.of())).isFalse();
+        assertThat(watermark.isUnchanged(watermark.current(), Set.of())).isTrue();
+    }
+
+    @Test
+    void restrictedToEhrs() {
+        CommitWatermark watermark = new CommitWatermark();
+        UUID ehr1 = UUID.randomUUID();
+        UUID ehr2 = UUID.randomUUID();
+        long since = watermark.current();
+
+        watermark.advance(ehr2);
+        assertThat(watermark.isUnchanged(since, List.of(ehr1))).isTrue();
+        assertThat(watermark.isUnchanged(since, List.of(ehr1, ehr2))).isFalse();
+
+        // unknown EHR
+        watermark.advance(null);
+        assertThat(watermark.isUnchanged(since, List.of(ehr1))).isFalse();
+    }
+
+    @Test
+    void trackedEhrsBounded() {
+        CommitWatermark watermark = new CommitWatermark();
+        UUID ehr = UUID.randomUUID();
+        long since = watermark.current();
+
+        for (int i = 0; i < CommitWatermark.MAX_TRACKED_EHRS; i++) {
+            watermark.advance(UUID.randomUUID());
+        }
+        assertThat(watermark.isUnchanged(since, List.of(ehr))).isTrue();
+
+        // exceeding the bound invalidates all restricted results computed before
+        watermark.advance(UUID.randomUUID());
+        assertThat(watermark.isUnchanged(since, List.of(ehr))).isFalse();
+        assertThat(watermark.isUnchanged(watermark.current(), List.of(ehr))).isTrue();
+    }
+}
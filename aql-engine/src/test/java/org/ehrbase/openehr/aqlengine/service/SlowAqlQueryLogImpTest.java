@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.aqlengine.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.ehrbase.api.dto.AqlQueryRequest;
+import org.ehrbase.api.dto.SlowAqlQuery;
+import org.ehrbase.openehr.aqlengine.AqlConfigurationProperties;
+import org.ehrbase.openehr.aqlengine.AqlConfigurationProperties.SlowQueryLog;
+import org.ehrbase.openehr.aqlengine.repository.AqlQueryRepository;
+import org.ehrbase.openehr.aqlengine.repository.PreparedQuery;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryMetrics.Phase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class SlowAqlQueryLogImpTest {
+
+    private static final String AQL =
+            "SELECT c/uid/value FROM EHR e CONTAINS COMPOSITION c WHERE e/ehr_id/value = $ehr_id";
+
+    private final AqlConfigurationProperties properties = new AqlConfigurationProperties();
+    private final AqlQueryRepository repository = mock();
+    private final PreparedQuery preparedQuery = mock();
+    private final AqlQueryMetrics metrics = new AqlQueryMetrics(new SimpleMeterRegistry());
+    private final List<Runnable> pendingExplains = new ArrayList<>();
+    private SlowAqlQueryLogImp cut;
+
+    @BeforeEach
+    void setUp() {
+        doReturn("SELECT ? FROM comp_version").when(preparedQuery).getParameterizedQuerySql();
+        doReturn(List.of("secret")).when(preparedQuery).getBindValues();
+        doReturn("{\"Plan\": {\"Node Type\": \"Seq Scan\"}}")
+                .when(repository)
+                .explainQuery(anyBoolean(), anyString(), anyList());
+        cut = new SlowAqlQueryLogImp(properties, repository, new ObjectMapper(), Runnable::run);
+    }
+
+    private void configure(boolean redactValues, int capacity) {
+        properties.setSlowQueryLog(new SlowQueryLog(true, Duration.ZERO, capacity, redactValues, 0));
+    }
+
+    private void record(String queryName) {
+        AqlQueryMetrics.Recording recording = metrics.start(queryName);
+        recording.add(Phase.DB_EXECUTION, 3_000_000);
+        recording.stop(2, null);
+        cut.record(
+                new AqlQueryRequest(AQL, null, queryName, Map.of("ehr_id", "secret"), null, null),
+                preparedQuery,
+                recording,
+                2,
+                null);
+    }
+
+    @ParameterizedTest
+    @CsvSource(textBlock = """
+            SELECT e FROM EHR e WHERE e/ehr_id/value = 'a b' | SELECT e FROM EHR e WHERE e/ehr_id/value = ?
+            SELECT o FROM OBSERVATION o[openEHR-EHR-OBSERVATION.bp.v2] WHERE o/data[at0001]/x > -12.5e1 LIMIT 10 | SELECT o FROM OBSERVATION o[openEHR-EHR-OBSERVATION.bp.v2] WHERE o/data[at0001]/x > ? LIMIT ?
+            SELECT c FROM COMPOSITION c WHERE c/name/value MATCHES {"a", "b"} | SELECT c FROM COMPOSITION c WHERE c/name/value MATCHES {?, ?}
+            """, delimiterString = "|")
+    void redactLiterals(String aql, String expected) {
+        assertThat(SlowAqlQueryLogImp.redactLiterals(aql)).isEqualTo(expected);
+    }
+
+    @Test
+    void disabled() {
+        record("q1");
+        assertThat(cut.getEntries()).isEmpty();
+        verify(repository, never()).explainQuery(anyBoolean(), anyString(), anyList());
+    }
+
+    @Test
+    void belowThreshold() {
+        properties.setSlowQueryLog(new SlowQueryLog(true, Duration.ofMinutes(1), 10, true, 0));
+        record("q1");
+        assertThat(cut.getEntries()).isEmpty();
+    }
+
+    @Test
+    void redacted() {
+        configure(true, 10);
+        record(null);
+
+        assertThat(cut.getEntries()).singleElement().satisfies(e -> {
+            assertThat(e.queryName()).isNull();
+            assertThat(e.aql()).isEqualTo(AQL);
+            assertThat(e.parameters()).isNull();
+            assertThat(e.sql()).isEqualTo("SELECT ? FROM comp_version");
+            assertThat(e.bindValues()).isNull();
+            assertThat(e.resultSize()).isEqualTo(2);
+            assertThat(e.phaseMillis()).containsExactly(Map.entry(Phase.DB_EXECUTION.tag(), 3L));
+            // the plan would contain the values as SQL literals
+            assertThat(e.queryPlan()).isNull();
+            assertThat(e.queryPlanAnalyzed()).isFalse();
+        });
+        verify(repository, never()).explainQuery(anyBoolean(), anyString(), anyList());
+    }
+
+    @Test
+    void notRedacted() {
+        configure(false, 10);
+        record(null);
+
+        SlowAqlQuery entry = cut.getEntries().getFirst();
+        assertThat(entry.parameters()).containsEntry("ehr_id", "secret");
+        assertThat(entry.bindValues()).containsExactly("secret");
+        assertThat(entry.queryPlan()).containsKey("Plan");
+        assertThat(entry.queryPlanAnalyzed()).isFalse();
+        verify(repository).explainQuery(false, "SELECT ? FROM comp_version", List.of("secret"));
+    }
+
+    @Test
+    void explainedInBackground() {
+        cut = new SlowAqlQueryLogImp(properties, repository, new ObjectMapper(), pendingExplains::add);
+        configure(false, 10);
+        record(null);
+
+        // the SQL is captured when the execution is recorded
+        doReturn("SELECT 1").when(preparedQuery).getParameterizedQuerySql();
+        assertThat(cut.getEntries()).singleElement().satisfies(e -> {
+            assertThat(e.sql()).isEqualTo("SELECT ? FROM comp_version");
+            assertThat(e.queryPlan()).isNull();
+        });
+        verify(repository, never()).explainQuery(anyBoolean(), anyString(), anyList());
+
+        pendingExplains.forEach(Runnable::run);
+        assertThat(cut.getEntries()).singleElement().satisfies(e -> assertThat(e.queryPlan())
+                .containsKey("Plan"));
+        verify(repository).explainQuery(false, "SELECT ? FROM comp_version", List.of("secret"));
+    }
+
+    @Test
+    void explainRejected() {
+        Executor busy = r -> {
+            throw new RejectedExecutionException();
+        };
+        cut = new SlowAqlQueryLogImp(properties, repository, new ObjectMapper(), busy);
+        configure(false, 10);
+        record(null);
+
+        assertThat(cut.getEntries()).singleElement().satisfies(e -> assertThat(e.queryPlan())
+                .isNull());
+    }
+
+    @Test
+    void evictedBeforeExplained() {
+        cut = new SlowAqlQueryLogImp(properties, repository, new ObjectMapper(), pendingExplains::add);
+        configure(false, 1);
+        record("q1");
+        record("q2");
+
+        pendingExplains.forEach(Runnable::run);
+        assertThat(cut.getEntries()).singleElement().satisfies(e -> {
+            assertThat(e.queryName()).isEqualTo("q2");
+            assertThat(e.queryPlan()).containsKey("Plan");
+        });
+    }
+
+    @Test
+    void capacity() {
+        configure(true, 2);
+        record("q1");
+        record("q2");
+        record("q3");
+
+        assertThat(cut.getEntries()).extracting(SlowAqlQuery::queryName).containsExactly("q2", "q3");
+
+        cut.clear();
+        assertThat(cut.getEntries()).isEmpty();
+    }
+}
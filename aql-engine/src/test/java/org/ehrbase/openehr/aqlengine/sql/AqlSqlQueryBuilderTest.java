@@ -31,6 +31,7 @@ import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Stream;
 import org.ehrbase.api.service.TemplateService;
+import org.ehrbase.openehr.aqlengine.AqlConfigurationProperties;
 import org.ehrbase.openehr.aqlengine.TestAqlQueryContext;
 import org.ehrbase.openehr.aqlengine.aql.AqlConditionAsPredicatePostProcessor;
 import org.ehrbase.openehr.aqlengine.aql.AqlEhrPathPostProcessor;
@@ -55,6 +56,7 @@ import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentMatchers;
@@ -67,18 +69,9 @@ class AqlSqlQueryBuilderTest {
     private final TemplateService mockTemplateService = mock();
 
     private AqlSqlQueryBuilder aqlSqlQueryBuilder() {
-        TemplateService templateService = mock();
-        Mockito.when(templateService.findAllTemplates())
-                .thenReturn(List.of(
-                        new TemplateService.TemplateDetails(
-                                UUID.randomUUID(), "template1.v1", null, "template1.v1", null),
-                        new TemplateService.TemplateDetails(
-                                UUID.randomUUID(), "template2.v3", null, "template2.v3", null)));
-
         return new AqlSqlQueryBuilder(
                 TestConfig.aqlConfigurationProperties(),
                 new DefaultDSLContext(SQLDialect.POSTGRES),
-                templateService,
                 Optional.empty());
     }
 
@@ -232,6 +225,71 @@ AND c/archetype_node_id = 'openEHR-EHR-COMPOSITION.test.v0'
                 .contains("on \"sCO_c_0\".\"sCO_c_0_vo_id\" = \"sF_0\".\"sF_0_item_id_value\"");
     }
 
+    @Test
+    void keysetPagination() {
+        AqlConfigurationProperties properties = TestConfig.aqlConfigurationProperties();
+        properties.setKeysetPagination(true);
+        AqlSqlQueryBuilder sqlQueryBuilder =
+                new AqlSqlQueryBuilder(properties, new DefaultDSLContext(SQLDialect.POSTGRES), Optional.empty());
+        AqlSqlLayer aqlSqlLayer = new AqlSqlLayer(mockTemplateService, () -> "node", new TestAqlQueryContext());
+
+        AslRootQuery keysetQuery = aqlSqlLayer.buildAslRootQuery(AqlQueryWrapper.create(
+                AqlQueryParser.parse("""
+                SELECT c/uid/value
+                FROM EHR e CONTAINS COMPOSITION c
+                ORDER BY e/ehr_id/value DESC, c/uid/value
+                LIMIT 10 OFFSET 20
+                """),
+                false));
+        assertThat(sqlQueryBuilder.supportsKeysetPagination(keysetQuery)).isTrue();
+        assertThat(sqlQueryBuilder.buildSqlQuery(keysetQuery).toString())
+                // sort keys are selected, ORDER BY and LIMIT are applied per page
+                .contains("as \"ks_0\"")
+                .contains("as \"ks_1\"")
+                .doesNotContain("order by")
+                .doesNotContain("offset");
+
+        AslRootQuery dataOrderQuery = aqlSqlLayer.buildAslRootQuery(AqlQueryWrapper.create(
+                AqlQueryParser.parse("""
+                SELECT c/uid/value
+                FROM EHR e CONTAINS COMPOSITION c
+                ORDER BY c/name/value
+                LIMIT 10
+                """),
+                false));
+        assertThat(sqlQueryBuilder.supportsKeysetPagination(dataOrderQuery)).isFalse();
+        assertThat(sqlQueryBuilder.buildSqlQuery(dataOrderQuery).toString())
+                .doesNotContain("\"ks_0\"")
+                .contains("order by");
+    }
+
+    @ParameterizedTest
+    @CsvSource(
+            delimiterString = "|",
+            textBlock =
+                    """
+            SELECT e/ehr_id/value FROM EHR e ORDER BY e/time_created/value, e/ehr_id/value LIMIT 10| true
+            SELECT s/uid/value FROM EHR e CONTAINS EHR_STATUS s ORDER BY s/uid/value LIMIT 10| true
+            SELECT c FROM EHR e CONTAINS COMPOSITION c ORDER BY c/uid/value LIMIT 10| true
+            SELECT e/ehr_id/value FROM EHR e ORDER BY e/time_created/value LIMIT 10| false
+            SELECT c/uid/value FROM EHR e CONTAINS COMPOSITION c ORDER BY e/ehr_id/value LIMIT 10| false
+            SELECT c/uid/value FROM VERSION v CONTAINS COMPOSITION c ORDER BY v/commit_audit/time_committed/value LIMIT 10| false
+            SELECT c/uid/value FROM COMPOSITION c CONTAINS OBSERVATION o ORDER BY c/uid/value LIMIT 10| false
+            SELECT c/uid/value, c/content FROM COMPOSITION c ORDER BY c/uid/value LIMIT 10| false
+            SELECT c1/uid/value FROM EHR e CONTAINS (COMPOSITION c1 AND COMPOSITION c2) ORDER BY c1/uid/value LIMIT 10| false
+            """)
+    void keysetPaginationRequiresUniqueLastSortKey(String aql, boolean expected) {
+        AqlConfigurationProperties properties = TestConfig.aqlConfigurationProperties();
+        properties.setKeysetPagination(true);
+        AqlSqlQueryBuilder sqlQueryBuilder =
+                new AqlSqlQueryBuilder(properties, new DefaultDSLContext(SQLDialect.POSTGRES), Optional.empty());
+        AqlSqlLayer aqlSqlLayer = new AqlSqlLayer(mockTemplateService, () -> "node", new TestAqlQueryContext());
+
+        AslRootQuery aslRootQuery =
+                aqlSqlLayer.buildAslRootQuery(AqlQueryWrapper.create(AqlQueryParser.parse(aql), false));
+        assertThat(sqlQueryBuilder.supportsKeysetPagination(aslRootQuery)).isEqualTo(expected);
+    }
+
     @Test
     void clusterWithDataMultiplicitySelectSingle() {
         AqlQuery aqlQuery = AqlQueryParser.parse("""
@@ -34,6 +34,9 @@ import org.ehrbase.openehr.aqlengine.asl.model.field.AslField;
 import org.ehrbase.openehr.aqlengine.asl.model.query.AslQuery;
 import org.ehrbase.openehr.aqlengine.asl.model.query.AslStructureQuery;
 import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
 import org.jooq.impl.QOM;
 import org.junit.jupiter.api.Test;
 
@@ -87,6 +90,33 @@ class ConditionUtilsTest {
                 .isEqualToIgnoringWhitespace("(%s or %s)".formatted(conditionId, conditionVersion));
     }
 
+    @Test
+    void testComplexExtractedColumnConditionVoIdBindValues() {
+        AslQuery q = new AslStructureQuery(
+                "asq",
+                AslStructureQuery.AslSourceRelation.COMPOSITION,
+                List.of(AslStructureColumn.VO_ID.field(), AslStructureColumn.SYS_VERSION.field()),
+                List.of("CO"),
+                List.of(),
+                null,
+                true,
+                false,
+                true);
+
+        AslField.FieldSource fieldSource = new AslField.FieldSource(q, q, q);
+        AslComplexExtractedColumnField ecf = new AslComplexExtractedColumnField(AslExtractedColumn.VO_ID, fieldSource);
+        AslFieldValueQueryCondition<?> fv = new AslFieldValueQueryCondition<>(
+                ecf, AslQueryCondition.AslConditionOperator.EQ, List.of("b::local.ehrbase.org::142"));
+
+        Condition condition = ConditionUtils.complexExtractedColumnCondition(
+                false, fv, ecf, CompData.COMP_DATA, CompVersion.COMP_VERSION);
+
+        DSLContext ctx = DSL.using(SQLDialect.POSTGRES);
+        assertThat(ctx.render(condition)).doesNotContain("142").contains("?");
+        assertThat(ctx.extractBindValues(condition)).containsExactly("b", 142);
+        assertThat(ctx.renderInlined(condition)).contains("'b'", "142");
+    }
+
     @Test
     void escapeAsJsonString() {
         assertThat(ConditionUtils.escapeAsJsonString(null)).isNull();
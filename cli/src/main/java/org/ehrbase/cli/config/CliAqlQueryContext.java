@@ -68,6 +68,11 @@ public class CliAqlQueryContext implements AqlQueryContext {
         throw new UnsupportedOperationException(UNSUPPORTED_MSG);
     }
 
+    @Override
+    public String getContinuationToken() {
+        throw new UnsupportedOperationException(UNSUPPORTED_MSG);
+    }
+
     @Override
     public void setExecutedAql(String executedAql) {
         throw new UnsupportedOperationException(UNSUPPORTED_MSG);
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.configuration.config.health;
+
+import org.ehrbase.cache.CacheProperties;
+import org.ehrbase.cache.TemplateCacheWarmUp;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the instance as out of service until the configured fraction of the templates has been loaded into the
+ * template cache, see {@link CacheProperties#getTemplateInitReadyFraction()}.
+ * Contributes as <code>templateCacheWarmUp</code>, e.g. to <code>management.endpoint.health.group.readiness.include</code>.
+ */
+@Component
+public class TemplateCacheWarmUpHealthIndicator implements HealthIndicator {
+
+    private final TemplateCacheWarmUp cacheWarmUp;
+
+    public TemplateCacheWarmUpHealthIndicator(TemplateCacheWarmUp cacheWarmUp) {
+        this.cacheWarmUp = cacheWarmUp;
+    }
+
+    @Override
+    public Health health() {
+        return (cacheWarmUp.isReady() ? Health.up() : Health.outOfService())
+                .withDetail("templates", cacheWarmUp.getTotal())
+                .withDetail("loaded", cacheWarmUp.getLoaded())
+                .withDetail("failed", cacheWarmUp.getFailed())
+                .build();
+    }
+}
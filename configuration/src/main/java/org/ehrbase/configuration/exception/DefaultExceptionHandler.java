@@ -29,6 +29,7 @@ import org.ehrbase.api.exception.NotAcceptableException;
 import org.ehrbase.api.exception.ObjectNotFoundException;
 import org.ehrbase.api.exception.PreconditionFailedException;
 import org.ehrbase.api.exception.ResourceGoneException;
+import org.ehrbase.api.exception.ServiceUnavailableException;
 import org.ehrbase.api.exception.StateConflictException;
 import org.ehrbase.api.exception.UnprocessableEntityException;
 import org.ehrbase.api.exception.UnsupportedMediaTypeException;
@@ -165,6 +166,12 @@ public class DefaultExceptionHandler {
         return handleExceptionInternal(ex, ex.getMessage(), HttpStatus.BAD_GATEWAY);
     }
 
+    // 503 - service unavailable
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<Object> handleServiceUnavailableException(ServiceUnavailableException ex) {
+        return handleExceptionInternal(ex, ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     // 500 - general
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Object> handleUncaughtException(Exception ex) {
@@ -91,12 +91,15 @@ public final class AdditionalSQLFunctions {
         return DSL.jsonbGetElementAsText(jsonbField, DSL.inline(0));
     }
 
+    /**
+     * @param value bound as query parameter, unless the query is executed as static statement
+     */
     public static Field<JSONB> to_jsonb(Object value) {
-        Field<?> inline = DSL.inline(value);
+        Field<?> param = DSL.val(value);
         if (value instanceof String) {
-            inline = inline.cast(String.class);
+            param = param.cast(String.class);
         }
-        return to_jsonb(inline);
+        return to_jsonb(param);
     }
 
     public static Field<JSONB> to_jsonb(Field target) {
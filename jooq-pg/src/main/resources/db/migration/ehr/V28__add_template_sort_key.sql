@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific LANGUAGE governing permissions and
+ * limitations under the License.
+ */
+
+-- position of the template when ordered by template_id, used for AQL ORDER BY
+ALTER TABLE template_store
+    ADD COLUMN IF NOT EXISTS sort_key integer DEFAULT NULL;
+
+UPDATE template_store t
+SET sort_key = s.pos
+FROM (SELECT id, row_number() OVER (ORDER BY template_id COLLATE "en_US") AS pos FROM template_store) s
+WHERE t.id = s.id;
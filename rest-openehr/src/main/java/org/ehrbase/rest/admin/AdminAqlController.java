@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.rest.admin;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
+import java.util.Objects;
+import org.ehrbase.api.dto.AqlIndexRecommendation;
+import org.ehrbase.api.dto.SlowAqlQuery;
+import org.ehrbase.api.service.AqlIndexAdvisor;
+import org.ehrbase.api.service.SlowAqlQueryLog;
+import org.ehrbase.rest.BaseController;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Provides the entries of the {@link SlowAqlQueryLog}, enabled by <code>ehrbase.aql.slow-query-log.enabled</code>, and
+ * the recommendations of the {@link AqlIndexAdvisor}, enabled by <code>ehrbase.aql.index-advisor.enabled</code>.
+ */
+@ConditionalOnMissingBean(name = "primaryadminaqlcontroller")
+@ConditionalOnProperty(prefix = "admin-api", name = "active")
+@Tag(name = "Admin - AQL")
+@RestController
+@RequestMapping(path = BaseController.ADMIN_API_CONTEXT_PATH + "/aql", produces = APPLICATION_JSON_VALUE)
+public class AdminAqlController extends BaseController {
+
+    private final SlowAqlQueryLog slowAqlQueryLog;
+    private final AqlIndexAdvisor aqlIndexAdvisor;
+
+    @Autowired
+    public AdminAqlController(SlowAqlQueryLog slowAqlQueryLog, AqlIndexAdvisor aqlIndexAdvisor) {
+        this.slowAqlQueryLog = Objects.requireNonNull(slowAqlQueryLog);
+        this.aqlIndexAdvisor = Objects.requireNonNull(aqlIndexAdvisor);
+    }
+
+    @GetMapping(path = "/slow-queries")
+    @ApiResponses(
+            value = {
+                @ApiResponse(
+                        responseCode = "200",
+                        description = "The most recent AQL queries that exceeded the threshold, oldest first"),
+                @ApiResponse(responseCode = "401", description = "Client credentials are invalid or have expired."),
+                @ApiResponse(
+                        responseCode = "403",
+                        description = "Client has no permission to access since admin role is missing.")
+            })
+    public ResponseEntity<List<SlowAqlQuery>> getSlowQueries() {
+        return ResponseEntity.ok(slowAqlQueryLog.getEntries());
+    }
+
+    @DeleteMapping(path = "/slow-queries")
+    @ApiResponses(
+            value = {
+                @ApiResponse(responseCode = "200", description = "The slow query log has been cleared"),
+                @ApiResponse(responseCode = "401", description = "Client credentials are invalid or have expired."),
+                @ApiResponse(
+                        responseCode = "403",
+                        description = "Client has no permission to access since admin role is missing.")
+            })
+    public ResponseEntity<Void> clearSlowQueries() {
+        slowAqlQueryLog.clear();
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping(path = "/index-recommendations")
+    @ApiResponses(
+            value = {
+                @ApiResponse(
+                        responseCode = "200",
+                        description = "Indexes for the conditions on archetype paths used by the executed AQL queries,"
+                                + " the ones serving the queries with the highest database time first"),
+                @ApiResponse(responseCode = "401", description = "Client credentials are invalid or have expired."),
+                @ApiResponse(
+                        responseCode = "403",
+                        description = "Client has no permission to access since admin role is missing.")
+            })
+    public ResponseEntity<List<AqlIndexRecommendation>> getIndexRecommendations() {
+        return ResponseEntity.ok(aqlIndexAdvisor.getRecommendations());
+    }
+
+    @PostMapping(path = "/index-recommendations/{index_name}")
+    @ApiResponses(
+            value = {
+                @ApiResponse(
+                        responseCode = "202",
+                        description = "The recommended index is being built, see indexStatus of the recommendation"),
+                @ApiResponse(responseCode = "401", description = "Client credentials are invalid or have expired."),
+                @ApiResponse(
+                        responseCode = "403",
+                        description = "Client has no permission to access since admin role is missing."),
+                @ApiResponse(responseCode = "404", description = "There is no recommendation with the given name."),
+                @ApiResponse(
+                        responseCode = "422",
+                        description = "Creating indexes is disabled by ehrbase.aql.index-advisor.create-enabled.")
+            })
+    public ResponseEntity<AqlIndexRecommendation> createRecommendedIndex(
+            @Parameter(description = "Name of the recommended index", required = true)
+                    @PathVariable(value = "index_name")
+                    String indexName) {
+        return ResponseEntity.accepted().body(aqlIndexAdvisor.createIndex(indexName));
+    }
+
+    @DeleteMapping(path = "/index-recommendations")
+    @ApiResponses(
+            value = {
+                @ApiResponse(
+                        responseCode = "200",
+                        description = "The statistics of the index advisor have been cleared"),
+                @ApiResponse(responseCode = "401", description = "Client credentials are invalid or have expired."),
+                @ApiResponse(
+                        responseCode = "403",
+                        description = "Client has no permission to access since admin role is missing.")
+            })
+    public ResponseEntity<Void> clearIndexRecommendations() {
+        aqlIndexAdvisor.clear();
+        return ResponseEntity.ok().build();
+    }
+}
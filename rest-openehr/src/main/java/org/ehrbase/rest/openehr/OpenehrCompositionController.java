@@ -49,6 +49,7 @@ import org.ehrbase.rest.openehr.format.OpenEHRMediaType;
 import org.ehrbase.rest.openehr.specification.CompositionApiSpecification;
 import org.ehrbase.rest.util.InternalResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -85,6 +86,12 @@ public class OpenehrCompositionController extends BaseController implements Comp
 
     private final SystemService systemService;
 
+    /**
+     * Return canonical JSON compositions transcoded from the database format, without creating RM objects
+     */
+    @Value("${ehrbase.rest.composition.json-passthrough-enabled:false}")
+    private boolean jsonPassthroughEnabled;
+
     @Autowired
     public OpenehrCompositionController(CompositionService compositionService, SystemService systemService) {
         this.compositionService = Objects.requireNonNull(compositionService);
@@ -377,13 +384,22 @@ public class OpenehrCompositionController extends BaseController implements Comp
             // if a representation is retuned, the following casting can be executed and data manipulated by reference
             // (handled by temporary variable)
 
-            Composition composition = compositionService
-                    .retrieve(ehrId, compositionId, version)
-                    .orElseThrow(() -> new ObjectNotFoundException(COMPOSITION, "Couldn't retrieve composition"));
-
-            templateId = LocatableUtils.getTemplateId(composition);
-
-            StructuredString ss = compositionService.serialize(composition, responseRepresentation.format);
+            StructuredString ss;
+            if (jsonPassthroughEnabled && responseRepresentation == CompositionRepresentation.JSON) {
+                CompositionService.CanonicalJsonComposition composition = compositionService
+                        .retrieveCanonicalJson(ehrId, compositionId, version)
+                        .orElseThrow(() -> new ObjectNotFoundException(COMPOSITION, "Couldn't retrieve composition"));
+                ss = composition.json();
+                templateId = contextTemplateId != null ? contextTemplateId : composition.templateId();
+            } else {
+                Composition composition = compositionService
+                        .retrieve(ehrId, compositionId, version)
+                        .orElseThrow(() -> new ObjectNotFoundException(COMPOSITION, "Couldn't retrieve composition"));
+
+                templateId = LocatableUtils.getTemplateId(composition);
+
+                ss = compositionService.serialize(composition, responseRepresentation.format);
+            }
             compositionData = new CompositionResponseData(ss.getValue(), ss.getFormat());
 
             // finally set last header
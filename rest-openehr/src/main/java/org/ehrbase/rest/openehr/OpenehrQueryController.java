@@ -43,6 +43,7 @@ import org.ehrbase.rest.util.OpenEhrQueryRequestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -58,6 +59,11 @@ import org.springframework.web.bind.annotation.RestController;
  * Controller for openEHR REST API QUERY resource.
  */
 @ConditionalOnMissingBean(name = "primaryopenehrquerycontroller")
+@ConditionalOnProperty(
+        prefix = "ehrbase.rest.aql.streaming",
+        name = "enabled",
+        havingValue = "false",
+        matchIfMissing = true)
 @RestController
 @RequestMapping(
         path = BaseController.API_CONTEXT_PATH_WITH_VERSION + "/query",
@@ -65,10 +71,10 @@ import org.springframework.web.bind.annotation.RestController;
 public class OpenehrQueryController extends BaseController implements QueryApiSpecification {
 
     // request parameter
-    private static final String QUERY_PARAMETERS = "query_parameters";
-    private static final String FETCH_PARAM = "fetch";
-    private static final String OFFSET_PARAM = "offset";
-    private static final String Q_PARAM = "q";
+    static final String QUERY_PARAMETERS = "query_parameters";
+    static final String FETCH_PARAM = "fetch";
+    static final String OFFSET_PARAM = "offset";
+    static final String Q_PARAM = "q";
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
@@ -98,17 +104,8 @@ public class OpenehrQueryController extends BaseController implements QueryApiSp
         // Enriches request attributes with aql for later audit processing
         HttpRestContext.register(QUERY_EXECUTE_ENDPOINT, Boolean.TRUE);
 
-        // validate received query
-        if (StringUtils.isBlank(queryText)) {
-            throw new InvalidApiParameterException("No query provided.");
-        }
-
-        // prepare query
-        AqlQueryRequest queryRequest = AqlQueryRequest.prepare(
-                queryText,
-                OpenEhrQueryRequestUtils.rewriteExplicitParameterTypes(queryParameters),
-                Optional.ofNullable(fetch).map(Integer::longValue).orElse(null),
-                Optional.ofNullable(offset).map(Integer::longValue).orElse(null));
+        // validate received query and prepare it
+        AqlQueryRequest queryRequest = prepareAdHocQuery(queryText, offset, fetch, queryParameters);
 
         // execute query
         QueryResultDto aqlQueryResult = aqlQueryService.query(queryRequest);
@@ -134,32 +131,13 @@ public class OpenehrQueryController extends BaseController implements QueryApiSp
         logger.debug("Got following input: {}", requestBody);
 
         // validate received query
-        Object rawQuery = requestBody.get(Q_PARAM);
-        String queryText =
-                switch (rawQuery) {
-                    case null -> throw new InvalidApiParameterException("No query provided.");
-                    case Collection<?> __ -> throw new InvalidApiParameterException("Multiple queries provided.");
-                    case String s -> {
-                        if (StringUtils.isBlank(s)) {
-                            throw new InvalidApiParameterException("No query provided.");
-                        } else yield s;
-                    }
-                    default -> throw new InvalidApiParameterException("Data type of query not supported.");
-                };
+        String queryText = extractQueryText(requestBody);
 
         // Enriches request attributes with aql for later audit processing
         HttpRestContext.register(QUERY_EXECUTE_ENDPOINT, Boolean.TRUE);
 
-        Map<String, Object> params = OpenEhrQueryRequestUtils.getSubMap(requestBody, QUERY_PARAMETERS);
-
         // prepare query
-        AqlQueryRequest queryRequest = AqlQueryRequest.prepare(
-                queryText,
-                OpenEhrQueryRequestUtils.rewriteExplicitParameterTypes(params),
-                OpenEhrQueryRequestUtils.getOptionalLong(requestBody, FETCH_PARAM)
-                        .orElse(null),
-                OpenEhrQueryRequestUtils.getOptionalLong(requestBody, OFFSET_PARAM)
-                        .orElse(null));
+        AqlQueryRequest queryRequest = prepareAdHocQuery(queryText, requestBody);
 
         // execute query
         QueryResultDto aqlQueryResult = aqlQueryService.query(queryRequest);
@@ -249,14 +227,60 @@ public class OpenehrQueryController extends BaseController implements QueryApiSp
     protected QueryResultDto executeStoredQuery(
             QueryDefinitionResultDto queryDefinition, QueryExecutionMetadata executionMetadata) {
 
-        AqlQueryRequest queryRequest = AqlQueryRequest.prepareNamed(
+        return aqlQueryService.query(prepareStoredQuery(queryDefinition, executionMetadata));
+    }
+
+    static AqlQueryRequest prepareAdHocQuery(
+            String queryText, Integer offset, Integer fetch, Map<String, Object> queryParameters) {
+
+        // validate received query
+        if (StringUtils.isBlank(queryText)) {
+            throw new InvalidApiParameterException("No query provided.");
+        }
+
+        return AqlQueryRequest.prepare(
+                queryText,
+                OpenEhrQueryRequestUtils.rewriteExplicitParameterTypes(queryParameters),
+                Optional.ofNullable(fetch).map(Integer::longValue).orElse(null),
+                Optional.ofNullable(offset).map(Integer::longValue).orElse(null));
+    }
+
+    static AqlQueryRequest prepareAdHocQuery(String queryText, Map<String, Object> requestBody) {
+
+        Map<String, Object> params = OpenEhrQueryRequestUtils.getSubMap(requestBody, QUERY_PARAMETERS);
+
+        return AqlQueryRequest.prepare(
+                queryText,
+                OpenEhrQueryRequestUtils.rewriteExplicitParameterTypes(params),
+                OpenEhrQueryRequestUtils.getOptionalLong(requestBody, FETCH_PARAM)
+                        .orElse(null),
+                OpenEhrQueryRequestUtils.getOptionalLong(requestBody, OFFSET_PARAM)
+                        .orElse(null));
+    }
+
+    static AqlQueryRequest prepareStoredQuery(
+            QueryDefinitionResultDto queryDefinition, QueryExecutionMetadata executionMetadata) {
+
+        return AqlQueryRequest.prepareNamed(
                 queryDefinition.getQueryText(),
-                queryDefinition.getQualifiedName() + "/" + queryDefinition.getVersion(),
+                queryName(queryDefinition),
                 OpenEhrQueryRequestUtils.rewriteExplicitParameterTypes(executionMetadata.queryParameters()),
                 executionMetadata.fetch(),
                 executionMetadata.offset());
+    }
 
-        return aqlQueryService.query(queryRequest);
+    static String extractQueryText(Map<String, Object> requestBody) {
+        Object rawQuery = requestBody.get(Q_PARAM);
+        return switch (rawQuery) {
+            case null -> throw new InvalidApiParameterException("No query provided.");
+            case Collection<?> __ -> throw new InvalidApiParameterException("Multiple queries provided.");
+            case String s -> {
+                if (StringUtils.isBlank(s)) {
+                    throw new InvalidApiParameterException("No query provided.");
+                } else yield s;
+            }
+            default -> throw new InvalidApiParameterException("Data type of query not supported.");
+        };
     }
 
     protected QueryResponseData createQueryResponse(QueryResultDto aqlQueryResult, String queryString, URI location) {
@@ -286,7 +310,7 @@ public class OpenehrQueryController extends BaseController implements QueryApiSp
         }
     }
 
-    private void createRestContext(String qualifiedName, String version) {
+    static void createRestContext(String qualifiedName, String version) {
         HttpRestContext.register(
                 QUERY_EXECUTE_ENDPOINT,
                 Boolean.TRUE,
@@ -299,7 +323,10 @@ public class OpenehrQueryController extends BaseController implements QueryApiSp
 
     private static void setQueryName(
             QueryDefinitionResultDto queryDefinitionResultDto, QueryResponseData queryResponseData) {
-        queryResponseData.setName(
-                queryDefinitionResultDto.getQualifiedName() + "/" + queryDefinitionResultDto.getVersion());
+        queryResponseData.setName(queryName(queryDefinitionResultDto));
+    }
+
+    static String queryName(QueryDefinitionResultDto queryDefinitionResultDto) {
+        return queryDefinitionResultDto.getQualifiedName() + "/" + queryDefinitionResultDto.getVersion();
     }
 }
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.rest.openehr;
+
+import static org.ehrbase.api.rest.HttpRestContext.QUERY_EXECUTE_ENDPOINT;
+import static org.ehrbase.api.rest.HttpRestContext.QUERY_ID;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.UUID;
+import org.ehrbase.api.dto.AqlQueryContext;
+import org.ehrbase.api.dto.AqlQueryJob;
+import org.ehrbase.api.dto.AqlQueryJobPage;
+import org.ehrbase.api.dto.AqlQueryRequest;
+import org.ehrbase.api.rest.HttpRestContext;
+import org.ehrbase.api.service.AqlQueryJobService;
+import org.ehrbase.api.service.StoredQueryService;
+import org.ehrbase.openehr.sdk.response.dto.ehrscape.QueryDefinitionResultDto;
+import org.ehrbase.rest.BaseController;
+import org.ehrbase.rest.openehr.OpenehrQueryController.QueryExecutionMetadata;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Asynchronous execution of AQL queries, enabled by <code>ehrbase.rest.aql.jobs.enabled</code>.
+ * <p>
+ * A query is submitted like via the {@link OpenehrQueryController}, but the response is the state of a job. Once the
+ * job is <code>COMPLETED</code>, the result rows can be fetched page by page using <code>offset</code> and
+ * <code>fetch</code>, independent of the database transaction that produced them.
+ */
+@ConditionalOnProperty(prefix = "ehrbase.rest.aql.jobs", name = "enabled", havingValue = "true")
+@RestController
+@RequestMapping(
+        path = BaseController.API_CONTEXT_PATH_WITH_VERSION + "/" + OpenehrQueryJobController.QUERY_JOB,
+        produces = MediaType.APPLICATION_JSON_VALUE)
+public class OpenehrQueryJobController extends BaseController {
+
+    static final String QUERY_JOB = "query_job";
+
+    private final AqlQueryJobService aqlQueryJobService;
+    private final StoredQueryService storedQueryService;
+    private final ObjectMapper objectMapper;
+
+    public OpenehrQueryJobController(
+            AqlQueryJobService aqlQueryJobService, StoredQueryService storedQueryService, ObjectMapper objectMapper) {
+        this.aqlQueryJobService = aqlQueryJobService;
+        this.storedQueryService = storedQueryService;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostMapping(path = "/aql", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<AqlQueryJob> submitAdHocQuery(@RequestBody Map<String, Object> requestBody) {
+
+        String queryText = OpenehrQueryController.extractQueryText(requestBody);
+
+        // Enriches request attributes with aql for later audit processing
+        HttpRestContext.register(QUERY_EXECUTE_ENDPOINT, Boolean.TRUE);
+
+        return submit(OpenehrQueryController.prepareAdHocQuery(queryText, requestBody));
+    }
+
+    @PostMapping(
+            path = {"/query/{qualified_query_name}", "/query/{qualified_query_name}/{version}"},
+            consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<AqlQueryJob> submitStoredQuery(
+            @PathVariable(name = "qualified_query_name") String qualifiedQueryName,
+            @PathVariable(name = "version", required = false) String version,
+            @RequestBody(required = false) Map<String, Object> requestBody) {
+
+        OpenehrQueryController.createRestContext(qualifiedQueryName, version);
+
+        QueryDefinitionResultDto queryDefinition = storedQueryService.retrieveStoredQuery(qualifiedQueryName, version);
+        AqlQueryRequest queryRequest = OpenehrQueryController.prepareStoredQuery(
+                queryDefinition, QueryExecutionMetadata.fromRequestBody(requestBody));
+
+        HttpRestContext.register(QUERY_ID, queryDefinition.getQualifiedName());
+
+        return submit(queryRequest);
+    }
+
+    private ResponseEntity<AqlQueryJob> submit(AqlQueryRequest queryRequest) {
+        AqlQueryJob job = aqlQueryJobService.submit(queryRequest);
+        return ResponseEntity.accepted()
+                .location(createLocationUri(QUERY_JOB, job.id().toString()))
+                .body(job);
+    }
+
+    @GetMapping(path = "/{job_id}")
+    public ResponseEntity<AqlQueryJob> getJob(@PathVariable(name = "job_id") String jobId) {
+        return ResponseEntity.ok(aqlQueryJobService.getJob(parseJobId(jobId)));
+    }
+
+    /**
+     * Writes the page in the structure of a query response, i.e. with <code>columns</code> and <code>rows</code>.
+     * The spooled rows are written as they are.
+     */
+    @GetMapping(path = "/{job_id}/rows")
+    public ResponseEntity<StreamingResponseBody> getRows(
+            @PathVariable(name = "job_id") String jobId,
+            @RequestParam(name = OpenehrQueryController.OFFSET_PARAM, required = false, defaultValue = "0")
+                    long offset,
+            @RequestParam(name = OpenehrQueryController.FETCH_PARAM, required = false, defaultValue = "1000")
+                    int fetch) {
+
+        AqlQueryJobPage page = aqlQueryJobService.getPage(parseJobId(jobId), offset, fetch);
+
+        StreamingResponseBody body = out -> writePage(out, page);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @DeleteMapping(path = "/{job_id}")
+    public ResponseEntity<Void> deleteJob(@PathVariable(name = "job_id") String jobId) {
+        aqlQueryJobService.delete(parseJobId(jobId));
+        return ResponseEntity.noContent().build();
+    }
+
+    private UUID parseJobId(String jobId) {
+        return parseUUID(jobId, "Job id %s is not a valid UUID".formatted(jobId));
+    }
+
+    private void writePage(OutputStream out, AqlQueryJobPage page) throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            AqlQueryJob job = page.job();
+            if (job.queryName() != null) {
+                generator.writeStringField("name", job.queryName());
+            }
+
+            generator.writeArrayFieldStart("columns");
+            for (Map.Entry<String, String> column : job.columns().entrySet()) {
+                generator.writeStartObject();
+                generator.writeStringField("name", column.getKey());
+                if (column.getValue() != null) {
+                    generator.writeStringField("path", column.getValue());
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+
+            generator.writeArrayFieldStart("rows");
+            for (String row : page.rows()) {
+                generator.writeRawValue(row);
+            }
+            generator.writeEndArray();
+
+            generator.writeObjectFieldStart("meta");
+            generator.writeNumberField(OpenehrQueryController.OFFSET_PARAM, page.offset());
+            generator.writeNumberField(OpenehrQueryController.FETCH_PARAM, page.rows().size());
+            generator.writeNumberField("row_count", job.rowCount());
+            if (job.continuationToken() != null) {
+                generator.writeStringField(
+                        AqlQueryContext.EhrbaseMetaProperty.CONTINUATION_TOKEN.propertyName(),
+                        job.continuationToken());
+            }
+            generator.writeEndObject();
+
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.rest.openehr;
+
+import static org.ehrbase.api.rest.HttpRestContext.QUERY_EXECUTE_ENDPOINT;
+import static org.ehrbase.api.rest.HttpRestContext.QUERY_ID;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.apache.commons.lang3.StringUtils;
+import org.ehrbase.api.dto.AqlQueryContext;
+import org.ehrbase.api.dto.AqlQueryRequest;
+import org.ehrbase.api.dto.AqlQueryResultStream;
+import org.ehrbase.api.rest.EHRbaseHeader;
+import org.ehrbase.api.rest.HttpRestContext;
+import org.ehrbase.api.service.AqlQueryService;
+import org.ehrbase.api.service.StoredQueryService;
+import org.ehrbase.openehr.sdk.response.dto.MetaData;
+import org.ehrbase.openehr.sdk.response.dto.QueryResponseData;
+import org.ehrbase.openehr.sdk.response.dto.ehrscape.QueryDefinitionResultDto;
+import org.ehrbase.rest.BaseController;
+import org.ehrbase.rest.openehr.OpenehrQueryController.QueryExecutionMetadata;
+import org.ehrbase.rest.openehr.specification.QueryApiSpecification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Streaming variant of the {@link OpenehrQueryController}, enabled by <code>ehrbase.rest.aql.streaming.enabled</code>.
+ * <p>
+ * JSON results are written to the response while the rows are read from the database cursor, so neither the result
+ * set nor the response document are held in memory as a whole. As the size of the result is only known after all rows
+ * have been written, the <code>meta</code> section is written at the end of the response. XML responses are not
+ * streamed.
+ * <p>
+ * For exports the rows can also be requested without the envelope:
+ * <ul>
+ *     <li><code>application/x-ndjson</code>: one JSON object per row, keyed by the column names</li>
+ *     <li><code>text/csv</code>: a header line with the column names followed by one line per row. Primitive values
+ *     are written as is, all other values as their JSON representation</li>
+ * </ul>
+ * The continuation token of keyset paginated queries is only known after the rows were written: it is part of the
+ * trailing <code>meta</code> section, or sent as trailer field {@value EHRbaseHeader#AQL_CONTINUATION_TOKEN} of
+ * chunked NDJSON and CSV responses.
+ */
+@ConditionalOnMissingBean(name = "primaryopenehrquerycontroller")
+@ConditionalOnProperty(prefix = "ehrbase.rest.aql.streaming", name = "enabled", havingValue = "true")
+@RestController
+@RequestMapping(
+        path = BaseController.API_CONTEXT_PATH_WITH_VERSION + "/query",
+        produces = {
+            MediaType.APPLICATION_JSON_VALUE,
+            MediaType.APPLICATION_XML_VALUE,
+            MediaType.APPLICATION_NDJSON_VALUE,
+            OpenehrStreamingQueryController.TEXT_CSV_VALUE
+        })
+public class OpenehrStreamingQueryController extends BaseController implements QueryApiSpecification {
+
+    static final String TEXT_CSV_VALUE = "text/csv";
+    static final MediaType TEXT_CSV = MediaType.valueOf(TEXT_CSV_VALUE);
+
+    private final AqlQueryService aqlQueryService;
+    private final StoredQueryService storedQueryService;
+    private final AqlQueryContext aqlQueryContext;
+    private final ObjectMapper objectMapper;
+
+    public OpenehrStreamingQueryController(
+            AqlQueryService aqlQueryService,
+            StoredQueryService storedQueryService,
+            AqlQueryContext aqlQueryContext,
+            ObjectMapper objectMapper) {
+        this.aqlQueryService = aqlQueryService;
+        this.storedQueryService = storedQueryService;
+        this.aqlQueryContext = aqlQueryContext;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @GetMapping(path = "/aql")
+    public ResponseEntity<?> executeAdHocQuery(
+            @RequestParam(name = OpenehrQueryController.Q_PARAM) String queryText,
+            @RequestParam(name = OpenehrQueryController.OFFSET_PARAM, required = false) Integer offset,
+            @RequestParam(name = OpenehrQueryController.FETCH_PARAM, required = false) Integer fetch,
+            @RequestParam(name = OpenehrQueryController.QUERY_PARAMETERS, required = false)
+                    Map<String, Object> queryParameters,
+            @RequestHeader(name = ACCEPT, required = false) String accept) {
+
+        // Enriches request attributes with aql for later audit processing
+        HttpRestContext.register(QUERY_EXECUTE_ENDPOINT, Boolean.TRUE);
+
+        AqlQueryRequest queryRequest =
+                OpenehrQueryController.prepareAdHocQuery(queryText, offset, fetch, queryParameters);
+
+        return executeQuery(queryRequest, accept, queryText, null, createLocationUri("query", "aql"));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @PostMapping(
+            path = "/aql",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_XML_VALUE})
+    public ResponseEntity<?> executeAdHocQuery(
+            @RequestBody Map<String, Object> requestBody,
+            @RequestHeader(name = ACCEPT, required = false) String accept,
+            @RequestHeader(name = CONTENT_TYPE) String contentType) {
+
+        String queryText = OpenehrQueryController.extractQueryText(requestBody);
+
+        // Enriches request attributes with aql for later audit processing
+        HttpRestContext.register(QUERY_EXECUTE_ENDPOINT, Boolean.TRUE);
+
+        AqlQueryRequest queryRequest = OpenehrQueryController.prepareAdHocQuery(queryText, requestBody);
+
+        return executeQuery(queryRequest, accept, queryText, null, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @GetMapping(path = {"/{qualified_query_name}", "/{qualified_query_name}/{version}"})
+    public ResponseEntity<?> executeStoredQuery(
+            @PathVariable(name = "qualified_query_name") String qualifiedQueryName,
+            @PathVariable(name = "version", required = false) String version,
+            @RequestParam(name = OpenehrQueryController.OFFSET_PARAM, required = false) Integer offset,
+            @RequestParam(name = OpenehrQueryController.FETCH_PARAM, required = false) Integer fetch,
+            @RequestParam(name = OpenehrQueryController.QUERY_PARAMETERS, required = false)
+                    Map<String, Object> queryParameters,
+            @RequestHeader(name = ACCEPT, required = false) String accept) {
+
+        OpenehrQueryController.createRestContext(qualifiedQueryName, version);
+
+        QueryDefinitionResultDto queryDefinition = storedQueryService.retrieveStoredQuery(qualifiedQueryName, version);
+        AqlQueryRequest queryRequest = OpenehrQueryController.prepareStoredQuery(
+                queryDefinition, QueryExecutionMetadata.of(queryParameters, offset, fetch));
+
+        HttpRestContext.register(QUERY_ID, queryDefinition.getQualifiedName());
+
+        // use the fully qualified metadata location
+        Stream<String> pathSegments =
+                Stream.of("query", qualifiedQueryName, version).filter(Objects::nonNull);
+        URI locationUri = createLocationUri(pathSegments.toArray(String[]::new));
+
+        return executeQuery(
+                queryRequest, accept, null, OpenehrQueryController.queryName(queryDefinition), locationUri);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @PostMapping(
+            path = {"/{qualified_query_name}", "/{qualified_query_name}/{version}"},
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_XML_VALUE})
+    public ResponseEntity<?> executeStoredQuery(
+            @PathVariable(name = "qualified_query_name") String qualifiedQueryName,
+            @PathVariable(name = "version", required = false) String version,
+            @RequestHeader(name = ACCEPT, required = false) String accept,
+            @RequestHeader(name = CONTENT_TYPE) String contentType,
+            @RequestBody(required = false) Map<String, Object> requestBody) {
+
+        OpenehrQueryController.createRestContext(qualifiedQueryName, version);
+
+        QueryDefinitionResultDto queryDefinition = storedQueryService.retrieveStoredQuery(qualifiedQueryName, version);
+        AqlQueryRequest queryRequest = OpenehrQueryController.prepareStoredQuery(
+                queryDefinition, QueryExecutionMetadata.fromRequestBody(requestBody));
+
+        HttpRestContext.register(QUERY_ID, queryDefinition.getQualifiedName());
+
+        return executeQuery(
+                queryRequest, accept, null, OpenehrQueryController.queryName(queryDefinition), null);
+    }
+
+    private ResponseEntity<?> executeQuery(
+            AqlQueryRequest queryRequest, String accept, String queryText, String queryName, URI location) {
+
+        MediaType contentType = resolveContentType(
+                accept,
+                MediaType.APPLICATION_JSON,
+                MediaType.APPLICATION_XML,
+                MediaType.APPLICATION_NDJSON,
+                TEXT_CSV);
+
+        if (MediaType.APPLICATION_XML.isCompatibleWith(contentType)) {
+            QueryResponseData queryResponseData = new QueryResponseData(aqlQueryService.query(queryRequest));
+            queryResponseData.setQuery(queryText);
+            queryResponseData.setName(queryName);
+            queryResponseData.setMeta(aqlQueryContext.createMetaData(location));
+            return ResponseEntity.ok(queryResponseData);
+        }
+
+        // the query is prepared and the meta data is created while the request scope is still available
+        AqlQueryResultStream resultStream = aqlQueryService.queryStreaming(queryRequest);
+
+        if (MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+            StreamingResponseBody body = out -> writeNdjson(out, resultStream);
+            return continuationTokenTrailer(resultStream)
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(body);
+        }
+        if (TEXT_CSV.isCompatibleWith(contentType)) {
+            StreamingResponseBody body = out -> writeCsv(out, resultStream);
+            return continuationTokenTrailer(resultStream)
+                    .contentType(new MediaType(TEXT_CSV, StandardCharsets.UTF_8))
+                    .body(body);
+        }
+
+        MetaData metaData = aqlQueryContext.createMetaData(location);
+
+        StreamingResponseBody body = out -> writeResponse(out, resultStream, metaData, queryText, queryName);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Announces the continuation token as trailer field, which is sent after the rows, if the protocol supports it
+     */
+    private static ResponseEntity.BodyBuilder continuationTokenTrailer(AqlQueryResultStream resultStream) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        HttpServletResponse response = RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes a
+                ? a.getResponse()
+                : null;
+        if (response == null) {
+            return builder;
+        }
+        try {
+            response.setTrailerFields(() -> Optional.ofNullable(resultStream.continuationToken())
+                    .map(token -> Map.of(EHRbaseHeader.AQL_CONTINUATION_TOKEN, token))
+                    .orElse(Map.of()));
+        } catch (IllegalStateException e) {
+            // e.g. HTTP/1.0
+            return builder;
+        }
+        return builder.header(HttpHeaders.TRAILER, EHRbaseHeader.AQL_CONTINUATION_TOKEN);
+    }
+
+    /**
+     * Writes the result in the same structure as {@link QueryResponseData}
+     */
+    private void writeResponse(
+            OutputStream out, AqlQueryResultStream resultStream, MetaData metaData, String queryText, String queryName)
+            throws IOException {
+
+        try (JsonGenerator generator = objectMapper.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+            if (queryName != null) {
+                generator.writeStringField("name", queryName);
+            }
+            if (queryText != null) {
+                generator.writeStringField("q", queryText);
+            }
+
+            generator.writeArrayFieldStart("columns");
+            for (Map.Entry<String, String> column : resultStream.variables().entrySet()) {
+                generator.writeStartObject();
+                generator.writeStringField("name", column.getKey());
+                if (column.getValue() != null) {
+                    generator.writeStringField("path", column.getValue());
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+
+            generator.writeArrayFieldStart("rows");
+            long resultSize;
+            try {
+                resultSize = resultStream.forEachRow(row -> writeRow(generator, row));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.writeEndArray();
+
+            metaData.setAdditionalProperty(
+                    AqlQueryContext.EhrbaseMetaProperty.RESULT_SIZE.propertyName(), resultSize);
+            String continuationToken = resultStream.continuationToken();
+            if (continuationToken != null) {
+                metaData.setAdditionalProperty(
+                        AqlQueryContext.EhrbaseMetaProperty.CONTINUATION_TOKEN.propertyName(), continuationToken);
+            }
+            generator.writeObjectField("meta", metaData);
+
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Writes one JSON object per line, the keys being the column names
+     */
+    private void writeNdjson(OutputStream out, AqlQueryResultStream resultStream) throws IOException {
+
+        String[] columns = resultStream.variables().keySet().toArray(String[]::new);
+        try (JsonGenerator generator = objectMapper.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            forEachRow(resultStream, row -> {
+                generator.writeStartObject();
+                for (int i = 0; i < columns.length; i++) {
+                    generator.writeFieldName(columns[i]);
+                    generator.writeObject(i < row.size() ? row.get(i) : null);
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            });
+        }
+    }
+
+    /**
+     * Writes the column names followed by one line per row as described in RFC 4180
+     */
+    private void writeCsv(OutputStream out, AqlQueryResultStream resultStream) throws IOException {
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writeCsvLine(writer, List.copyOf(resultStream.variables().keySet()));
+        forEachRow(resultStream, row -> writeCsvLine(writer, row));
+        writer.flush();
+    }
+
+    private void writeCsvLine(Writer writer, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvValue(values.get(i)));
+        }
+        writer.write("\r\n");
+    }
+
+    private String csvValue(Object value) throws IOException {
+        String text =
+                switch (value) {
+                    case null -> "";
+                    case CharSequence chars -> chars.toString();
+                    case Number number -> number.toString();
+                    case Boolean bool -> bool.toString();
+                    default -> objectMapper.writeValueAsString(value);
+                };
+        return escapeCsv(text);
+    }
+
+    static String escapeCsv(String text) {
+        if (StringUtils.containsAny(text, ',', '"', '\r', '\n')) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+
+    private static void forEachRow(AqlQueryResultStream resultStream, RowWriter rowWriter) throws IOException {
+        try {
+            resultStream.forEachRow(row -> {
+                try {
+                    rowWriter.write(row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(List<Object> row) throws IOException;
+    }
+
+    private static void writeRow(JsonGenerator generator, List<Object> row) {
+        try {
+            generator.writeObject(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
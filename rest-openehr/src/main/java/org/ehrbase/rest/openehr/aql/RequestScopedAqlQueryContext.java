@@ -81,6 +81,11 @@ public class RequestScopedAqlQueryContext extends AbstractAqlQueryContext {
         return Optional.of(header).map(request::getHeader).map(Boolean::valueOf).orElse(false);
     }
 
+    @Override
+    public String getContinuationToken() {
+        return request.getHeader(EHRbaseHeader.AQL_CONTINUATION_TOKEN);
+    }
+
     @Override
     public boolean isGeneratorDetailsEnabled() {
         return generatorDetailsEnabled;
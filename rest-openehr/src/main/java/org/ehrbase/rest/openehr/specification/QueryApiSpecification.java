@@ -26,6 +26,9 @@ import org.springframework.http.ResponseEntity;
 
 /**
  * OpenAPI specification for openEHR REST API QUERY resource.
+ * <p>
+ * The responses are {@link QueryResponseData}, unless they are streamed: then the body is written while the result is
+ * read, optionally as NDJSON or CSV rows.
  */
 @Tag(name = "QUERY")
 @SuppressWarnings({"unused", "java:S107"})
@@ -40,7 +43,7 @@ public interface QueryApiSpecification {
                     @ExternalDocumentation(
                             url =
                                     "https://specifications.openehr.org/releases/ITS-REST/latest/query.html#query-execute-query-get"))
-    ResponseEntity<QueryResponseData> executeAdHocQuery(
+    ResponseEntity<?> executeAdHocQuery(
             String query,
             // FIXME: ehr_id is missing?
             Integer offset,
@@ -57,7 +60,7 @@ public interface QueryApiSpecification {
                     @ExternalDocumentation(
                             url =
                                     "https://specifications.openehr.org/releases/ITS-REST/latest/query.html#query-execute-query-post"))
-    ResponseEntity<QueryResponseData> executeAdHocQuery(
+    ResponseEntity<?> executeAdHocQuery(
             Map<String, Object> queryRequest, String accept, String contentType);
 
     /**
@@ -69,7 +72,7 @@ public interface QueryApiSpecification {
                     @ExternalDocumentation(
                             url =
                                     "https://specifications.openehr.org/releases/ITS-REST/latest/query.html#query-execute-query-get-1"))
-    ResponseEntity<QueryResponseData> executeStoredQuery(
+    ResponseEntity<?> executeStoredQuery(
             String qualifiedQueryName,
             String version,
             // FIXME: ehr_id is missing?
@@ -87,7 +90,7 @@ public interface QueryApiSpecification {
                     @ExternalDocumentation(
                             url =
                                     "https://specifications.openehr.org/releases/ITS-REST/latest/query.html#query-execute-query-post-1"))
-    ResponseEntity<QueryResponseData> executeStoredQuery(
+    ResponseEntity<?> executeStoredQuery(
             String qualifiedQueryName,
             String version,
             String accept,
@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.rest.openehr;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.ehrbase.api.dto.AqlQueryContext;
+import org.ehrbase.api.dto.AqlQueryResultStream;
+import org.ehrbase.api.rest.EHRbaseHeader;
+import org.ehrbase.api.service.AqlQueryService;
+import org.ehrbase.api.service.StoredQueryService;
+import org.ehrbase.openehr.sdk.response.dto.MetaData;
+import org.ehrbase.openehr.sdk.response.dto.QueryResponseData;
+import org.ehrbase.openehr.sdk.response.dto.ehrscape.QueryResultDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+class OpenehrStreamingQueryControllerTest {
+
+    private static final String SAMPLE_QUERY = "SELECT e/ehr_id/value AS id, 1 FROM EHR e";
+
+    private final AqlQueryService mockAqlQueryService = mock();
+
+    private final StoredQueryService mockStoredQueryService = mock();
+
+    private final AqlQueryContext mockQueryContext = mock();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final OpenehrStreamingQueryController spyController = spy(new OpenehrStreamingQueryController(
+            mockAqlQueryService, mockStoredQueryService, mockQueryContext, objectMapper));
+
+    @AfterEach
+    void tearDown() {
+        // ensure the context is clean after each test
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private OpenehrStreamingQueryController controller() {
+        doReturn("https://openehr.test.query.controller.com/rest")
+                .when(spyController)
+                .getContextPath();
+        doReturn(new MetaData()).when(mockQueryContext).createMetaData(any());
+        return spyController;
+    }
+
+    private static AqlQueryResultStream resultStream(List<List<Object>> rows) {
+        return resultStream(rows, null);
+    }
+
+    private static AqlQueryResultStream resultStream(List<List<Object>> rows, String continuationToken) {
+        Map<String, String> variables = new LinkedHashMap<>();
+        variables.put("id", "e/ehr_id/value");
+        variables.put("#1", null);
+        return new AqlQueryResultStream() {
+            @Override
+            public Map<String, String> variables() {
+                return variables;
+            }
+
+            @Override
+            public long forEachRow(Consumer<List<Object>> rowConsumer) {
+                rows.forEach(rowConsumer);
+                return rows.size();
+            }
+
+            @Override
+            public String continuationToken() {
+                return continuationToken;
+            }
+        };
+    }
+
+    @Test
+    void executeAdHocQueryStreamsJson() throws IOException {
+
+        doReturn(resultStream(List.of(List.of("ehr-1", 1), List.of("ehr-2", 1))))
+                .when(mockAqlQueryService)
+                .queryStreaming(any());
+
+        ResponseEntity<?> response =
+                controller().executeAdHocQuery(SAMPLE_QUERY, null, null, Map.of(), MediaType.APPLICATION_JSON_VALUE);
+
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(response.getBody()).isInstanceOf(StreamingResponseBody.class);
+        verify(mockAqlQueryService, never()).query(any());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(out);
+        JsonNode json = objectMapper.readTree(out.toByteArray());
+
+        assertThat(json.get("q").asText()).isEqualTo(SAMPLE_QUERY);
+        assertThat(json.get("columns")).hasSize(2);
+        assertThat(json.get("columns").get(0).get("name").asText()).isEqualTo("id");
+        assertThat(json.get("columns").get(0).get("path").asText()).isEqualTo("e/ehr_id/value");
+        assertThat(json.get("columns").get(1).has("path")).isFalse();
+        assertThat(json.get("rows")).hasSize(2);
+        assertThat(json.get("rows").get(1).get(0).asText()).isEqualTo("ehr-2");
+        assertThat(json.get("meta").get("resultsize").asLong()).isEqualTo(2L);
+    }
+
+    @Test
+    void executeAdHocQueryXmlIsNotStreamed() {
+
+        doReturn(new QueryResultDto()).when(mockAqlQueryService).query(any());
+
+        ResponseEntity<?> response =
+                controller().executeAdHocQuery(SAMPLE_QUERY, null, null, Map.of(), MediaType.APPLICATION_XML_VALUE);
+
+        assertThat(response.getBody()).isInstanceOf(QueryResponseData.class);
+        verify(mockAqlQueryService, never()).queryStreaming(any());
+    }
+
+    @Test
+    void executeAdHocQueryStreamsNdjson() throws IOException {
+
+        doReturn(resultStream(List.of(List.of("ehr-1", 1), List.of("ehr-2", 1))))
+                .when(mockAqlQueryService)
+                .queryStreaming(any());
+
+        ResponseEntity<?> response = controller()
+                .executeAdHocQuery(SAMPLE_QUERY, null, null, Map.of(), MediaType.APPLICATION_NDJSON_VALUE);
+
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8))
+                .isEqualTo("""
+                        {"id":"ehr-1","#1":1}
+                        {"id":"ehr-2","#1":1}
+                        """);
+    }
+
+    @Test
+    void executeAdHocQueryStreamsCsv() throws IOException {
+
+        doReturn(resultStream(List.of(Arrays.asList("ehr,1", null), List.of("ehr-\"2\"", Map.of("a", 1)))))
+                .when(mockAqlQueryService)
+                .queryStreaming(any());
+
+        ResponseEntity<?> response = controller().executeAdHocQuery(SAMPLE_QUERY, null, null, Map.of(), "text/csv");
+
+        assertThat(response.getHeaders().getContentType().isCompatibleWith(OpenehrStreamingQueryController.TEXT_CSV))
+                .isTrue();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8))
+                .isEqualTo("id,#1\r\n\"ehr,1\",\r\n\"ehr-\"\"2\"\"\",\"{\"\"a\"\":1}\"\r\n");
+    }
+
+    @Test
+    void continuationTokenInTrailingMeta() throws IOException {
+
+        doReturn(resultStream(List.of(List.of("ehr-1", 1)), "token-1"))
+                .when(mockAqlQueryService)
+                .queryStreaming(any());
+
+        ResponseEntity<?> response =
+                controller().executeAdHocQuery(SAMPLE_QUERY, null, null, Map.of(), MediaType.APPLICATION_JSON_VALUE);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(out);
+        JsonNode json = objectMapper.readTree(out.toByteArray());
+
+        assertThat(json.get("meta").get("continuation_token").asText()).isEqualTo("token-1");
+    }
+
+    @Test
+    void continuationTokenAsTrailer() throws IOException {
+
+        HttpServletResponse servletResponse = mock();
+        RequestContextHolder.setRequestAttributes(
+                new ServletRequestAttributes(mock(HttpServletRequest.class), servletResponse));
+        doReturn(resultStream(List.of(List.of("ehr-1", 1)), "token-1"))
+                .when(mockAqlQueryService)
+                .queryStreaming(any());
+
+        ResponseEntity<?> response = controller()
+                .executeAdHocQuery(SAMPLE_QUERY, null, null, Map.of(), MediaType.APPLICATION_NDJSON_VALUE);
+
+        assertThat(response.getHeaders().get(HttpHeaders.TRAILER))
+                .containsExactly(EHRbaseHeader.AQL_CONTINUATION_TOKEN);
+        ArgumentCaptor<Supplier<Map<String, String>>> trailer = ArgumentCaptor.forClass(Supplier.class);
+        verify(servletResponse).setTrailerFields(trailer.capture());
+
+        ((StreamingResponseBody) response.getBody()).writeTo(new ByteArrayOutputStream());
+        assertThat(trailer.getValue().get()).containsEntry(EHRbaseHeader.AQL_CONTINUATION_TOKEN, "token-1");
+    }
+}
@@ -48,7 +48,8 @@ import org.jooq.Record2;
 
 /**
  * Reconstructs RM objects from the db format JSON.
- * For aliasing see {@link VersionedObjectDataStructure::applyRmAliases}.
+ * For aliasing see {@link VersionedObjectDataStructure#toAliasedJson}, which writes the aliases in
+ * <code>writeAliased</code>.
  */
 public final class DbToRmFormat {
 
@@ -66,7 +67,7 @@ public final class DbToRmFormat {
 
     public static final String UID_ALIAS = "U";
 
-    private static final Comparator<CharSequence> SIMPLE_CHAR_SEQUENCE_COMPARATOR = (cs1, cs2) -> {
+    static final Comparator<CharSequence> SIMPLE_CHAR_SEQUENCE_COMPARATOR = (cs1, cs2) -> {
         if (cs1 instanceof String s1 && cs2 instanceof String s2) {
             return s1.compareTo(s2);
         }
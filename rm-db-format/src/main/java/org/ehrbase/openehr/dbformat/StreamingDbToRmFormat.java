@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.dbformat;
+
+import static org.ehrbase.openehr.dbformat.DbToRmFormat.FEEDER_AUDIT_ATTRIBUTE_ALIAS;
+import static org.ehrbase.openehr.dbformat.DbToRmFormat.MAGNITUDE_ALIAS;
+import static org.ehrbase.openehr.dbformat.DbToRmFormat.TYPE_ALIAS;
+import static org.ehrbase.openehr.dbformat.DbToRmFormat.TYPE_ATTRIBUTE;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.nedap.archie.rm.RMObject;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.io.input.CharSequenceReader;
+import org.apache.commons.lang3.tuple.Pair;
+import org.ehrbase.api.exception.InternalServerException;
+import org.ehrbase.openehr.dbformat.DbToRmFormat.DbJsonPath;
+import org.ehrbase.openehr.dbformat.DbToRmFormat.PathComponent;
+import org.ehrbase.openehr.dbformat.json.RmDbJson;
+import org.ehrbase.openehr.sdk.util.StringSegment;
+
+/**
+ * Reconstructs RM objects from the aggregated db format (see {@link DbToRmFormat#parseDbObjectAggregateString})
+ * without building an intermediate tree of {@link com.fasterxml.jackson.databind.node.ObjectNode}s.
+ * <p>
+ * The rows are arranged by their entity_idx, then each row is tokenized once and written to a {@link JsonGenerator}
+ * with the type and attribute aliases reverted and the child rows inserted.
+ * For RM objects the generator is a {@link TokenBuffer} that is then bound to the RM type; canonical JSON is written
+ * directly.
+ * <p>
+ * As opposed to {@link DbToRmFormat#revertDbInPlace}, every object is expected to carry a type alias.
+ */
+public final class StreamingDbToRmFormat {
+
+    private StreamingDbToRmFormat() {}
+
+    /**
+     * Node in the tree of entity_idx paths
+     */
+    private static final class PathNode {
+        /**
+         * The db format JSON of the row; <code>null</code> for objects nested in the row of an ancestor
+         */
+        private CharSequence json;
+
+        /**
+         * {@link PathNode} or <code>List&lt;PathNode&gt;</code> by attribute alias
+         */
+        private Map<String, Object> children;
+
+        private Map<String, Object> children() {
+            if (children == null) {
+                children = new LinkedHashMap<>();
+            }
+            return children;
+        }
+
+        PathNode objectChild(PathComponent pc, DbJsonPath path) {
+            Object child = children().computeIfAbsent(pc.attribute(), a -> new PathNode());
+            if (child instanceof PathNode node) {
+                return node;
+            }
+            throw new IllegalArgumentException("%s is not an object (%s)".formatted(pc.attribute(), path));
+        }
+
+        @SuppressWarnings("unchecked")
+        PathNode arrayChild(PathComponent pc, DbJsonPath path) {
+            Object child = children().computeIfAbsent(pc.attribute(), a -> new ArrayList<PathNode>());
+            if (!(child instanceof List<?>)) {
+                throw new IllegalArgumentException("%s is not an array (%s)".formatted(pc.attribute(), path));
+            }
+            List<PathNode> list = (List<PathNode>) child;
+            int idx = pc.index();
+            while (list.size() <= idx) {
+                list.add(null);
+            }
+            PathNode node = list.get(idx);
+            if (node == null) {
+                node = new PathNode();
+                list.set(idx, node);
+            }
+            return node;
+        }
+    }
+
+    public static <R extends RMObject> R reconstructRmObject(Class<R> rmType, String dbObjectAggregate) {
+        try (TokenBuffer buffer = new TokenBuffer(RmDbJson.MARSHAL_OM, false)) {
+            new Transcoder(false).writeRoot(buffer, dbObjectAggregate, Map.of());
+            try (JsonParser parser = buffer.asParserOnFirstToken()) {
+                return RmDbJson.MARSHAL_OM.readValue(parser, rmType);
+            }
+        } catch (IOException e) {
+            throw new InternalServerException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Transcodes the aggregated db format to canonical JSON without creating RM objects.
+     * <p>
+     * Like for AQL results (see {@link DbToRmFormat#revertDbInPlace}), <code>_type</code> is omitted for the types
+     * where canonical JSON does not require it. The order of the attributes may differ from the one of the RM
+     * serializer.
+     *
+     * @param gen generator with a codec that is able to write the values of <code>rootAttributes</code>
+     * @param dbObjectAggregate
+     * @param rootAttributes additional attributes of the root object that are not part of the db format, e.g. the uid
+     */
+    public static void writeCanonicalJson(JsonGenerator gen, String dbObjectAggregate, Map<String, ?> rootAttributes)
+            throws IOException {
+        new Transcoder(true).writeRoot(gen, dbObjectAggregate, rootAttributes);
+    }
+
+    private static PathNode buildPathTree(Pair<CharSequence, CharSequence>[] rows) {
+        Arrays.sort(rows, (a, b) -> DbToRmFormat.SIMPLE_CHAR_SEQUENCE_COMPARATOR.compare(a.getLeft(), b.getLeft()));
+
+        int rootPathLength = Integer.MAX_VALUE;
+        for (int i = 0; i < rows.length && rootPathLength > 0; i++) {
+            rootPathLength = Math.min(rootPathLength, rows[i].getLeft().length());
+        }
+
+        PathNode root = new PathNode();
+        root.json = rows[0].getRight();
+        for (int i = 1; i < rows.length; i++) {
+            DbJsonPath path = DbToRmFormat.remainingPath(rootPathLength, rows[i].getLeft());
+            PathNode node = root;
+            for (PathComponent pc : path.components()) {
+                node = pc.index() == -1 ? node.objectChild(pc, path) : node.arrayChild(pc, path);
+            }
+            if (node.json != null) {
+                throw new IllegalArgumentException("duplicate entry for %s".formatted(path));
+            }
+            node.json = rows[i].getRight();
+        }
+        return root;
+    }
+
+    private static final class Transcoder {
+
+        private final boolean typeCleanup;
+
+        private Transcoder(boolean typeCleanup) {
+            this.typeCleanup = typeCleanup;
+        }
+
+        void writeRoot(JsonGenerator gen, String dbObjectAggregate, Map<String, ?> rootAttributes)
+                throws IOException {
+            PathNode root = buildPathTree(DbToRmFormat.parseDbObjectAggregateString(dbObjectAggregate));
+            try (JsonParser parser = openRow(root, DbJsonPath.EMPTY_PATH)) {
+                writeObject(gen, parser, root, rootAttributes);
+            }
+        }
+
+        private void writeRow(JsonGenerator gen, PathNode node, Object path) throws IOException {
+            if (node == null) {
+                gen.writeNull();
+                return;
+            }
+            try (JsonParser parser = openRow(node, path)) {
+                writeObject(gen, parser, node, null);
+            }
+        }
+
+        private static JsonParser openRow(PathNode node, Object path) throws IOException {
+            if (node.json == null) {
+                throw new IllegalArgumentException("missing ancestor (%s)".formatted(path));
+            }
+            JsonParser parser = RmDbJson.MARSHAL_OM.createParser(
+                    node.json instanceof StringSegment s ? s.reader() : new CharSequenceReader(node.json));
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                parser.close();
+                throw new IllegalArgumentException("Unexpected JSON root type (%s)".formatted(path));
+            }
+            return parser;
+        }
+
+        /**
+         * Writes the object the parser is positioned at, reverting the aliases.
+         * <p>
+         * jsonb orders the keys by length first, so only single character aliases may precede the type alias.
+         * These attributes are buffered, so <code>_type</code> is written first and binding the result does not
+         * require buffering the whole object.
+         *
+         * @param node the path node of the object, if child rows may need to be inserted
+         * @param rootAttributes attributes to add to the root object; <code>null</code> for all other objects
+         */
+        private void writeObject(JsonGenerator gen, JsonParser parser, PathNode node, Map<String, ?> rootAttributes)
+                throws IOException {
+            gen.writeStartObject();
+            TokenBuffer beforeType = null;
+            boolean typeWritten = false;
+            Set<String> insertedChildren = node == null || node.children == null ? null : new HashSet<>();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String alias = parser.currentName();
+                parser.nextToken();
+                switch (alias) {
+                    case MAGNITUDE_ALIAS -> parser.skipChildren();
+                    case TYPE_ALIAS -> {
+                        String typeAlias = parser.getText();
+                        if (rootAttributes != null || !typeCleanup || DbToRmFormat.isTypeRequired(typeAlias)) {
+                            gen.writeStringField(TYPE_ATTRIBUTE, RmTypeAlias.getRmType(typeAlias));
+                        }
+                        beforeType = flush(beforeType, gen);
+                        typeWritten = true;
+                    }
+                    default -> {
+                        JsonGenerator out = gen;
+                        if (!typeWritten) {
+                            if (alias.length() == 1 && alias.compareTo(TYPE_ALIAS) < 0) {
+                                if (beforeType == null) {
+                                    beforeType = new TokenBuffer(gen.getCodec(), false);
+                                    beforeType.writeStartObject();
+                                }
+                                out = beforeType;
+                            } else {
+                                // no type
+                                beforeType = flush(beforeType, gen);
+                                typeWritten = true;
+                            }
+                        }
+                        out.writeFieldName(RmAttributeAlias.getAttribute(alias));
+                        Object child = insertedChildren == null ? null : node.children.get(alias);
+                        if (child == null) {
+                            writeValue(out, parser);
+                        } else {
+                            insertedChildren.add(alias);
+                            writeWithChildren(out, parser, alias, child);
+                        }
+                    }
+                }
+            }
+            flush(beforeType, gen);
+
+            if (rootAttributes != null) {
+                for (Map.Entry<String, ?> e : rootAttributes.entrySet()) {
+                    gen.writeObjectField(e.getKey(), e.getValue());
+                }
+            }
+            if (insertedChildren != null && insertedChildren.size() < node.children.size()) {
+                for (Map.Entry<String, Object> e : node.children.entrySet()) {
+                    if (!insertedChildren.contains(e.getKey())) {
+                        gen.writeFieldName(RmAttributeAlias.getAttribute(e.getKey()));
+                        writeChildRows(gen, e.getKey(), e.getValue());
+                    }
+                }
+            }
+            gen.writeEndObject();
+        }
+
+        private static TokenBuffer flush(TokenBuffer beforeType, JsonGenerator gen) throws IOException {
+            if (beforeType != null) {
+                beforeType.writeEndObject();
+                try (JsonParser p = beforeType.asParser()) {
+                    p.nextToken();
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        gen.copyCurrentStructure(p);
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Writes an attribute present in the row, with child rows inserted
+         */
+        @SuppressWarnings("unchecked")
+        private void writeWithChildren(JsonGenerator gen, JsonParser parser, String alias, Object child)
+                throws IOException {
+            JsonToken token = parser.currentToken();
+            if (child instanceof PathNode childNode) {
+                if (childNode.json == null && token == JsonToken.START_OBJECT) {
+                    writeObject(gen, parser, childNode, null);
+                } else if (FEEDER_AUDIT_ATTRIBUTE_ALIAS.equals(alias)) {
+                    // the copy of FEEDER_AUDIT stored in ELEMENT is replaced by its own row
+                    parser.skipChildren();
+                    writeRow(gen, childNode, alias);
+                } else {
+                    throw new IllegalArgumentException("parent already has child %s".formatted(alias));
+                }
+
+            } else if (token == JsonToken.START_ARRAY) {
+                List<PathNode> elements = (List<PathNode>) child;
+                gen.writeStartArray();
+                int i = 0;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    PathNode element = i < elements.size() ? elements.get(i) : null;
+                    if (element == null) {
+                        writeValue(gen, parser);
+                    } else if (element.json == null && token == JsonToken.START_OBJECT) {
+                        writeObject(gen, parser, element, null);
+                    } else if (element.json != null && token == JsonToken.VALUE_NULL) {
+                        writeRow(gen, element, alias);
+                    } else {
+                        throw new IllegalArgumentException("duplicate entry for %s%d".formatted(alias, i));
+                    }
+                    i++;
+                }
+                for (; i < elements.size(); i++) {
+                    writeRow(gen, elements.get(i), alias);
+                }
+                gen.writeEndArray();
+
+            } else {
+                throw new IllegalArgumentException("%s is not an array".formatted(alias));
+            }
+        }
+
+        /**
+         * Writes an attribute not present in the row
+         */
+        @SuppressWarnings("unchecked")
+        private void writeChildRows(JsonGenerator gen, String alias, Object child) throws IOException {
+            if (child instanceof PathNode childNode) {
+                writeRow(gen, childNode, alias);
+            } else {
+                gen.writeStartArray();
+                for (PathNode element : (List<PathNode>) child) {
+                    writeRow(gen, element, alias);
+                }
+                gen.writeEndArray();
+            }
+        }
+
+        private void writeValue(JsonGenerator gen, JsonParser parser) throws IOException {
+            switch (parser.currentToken()) {
+                case START_OBJECT -> writeObject(gen, parser, null, null);
+                case START_ARRAY -> {
+                    gen.writeStartArray();
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        writeValue(gen, parser);
+                    }
+                    gen.writeEndArray();
+                }
+                default -> gen.copyCurrentEvent(parser);
+            }
+        }
+    }
+}
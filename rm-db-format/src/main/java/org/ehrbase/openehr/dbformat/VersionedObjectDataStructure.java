@@ -17,6 +17,7 @@
  */
 package org.ehrbase.openehr.dbformat;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -28,13 +29,14 @@ import com.nedap.archie.rm.datavalues.quantity.datetime.DvDate;
 import com.nedap.archie.rm.datavalues.quantity.datetime.DvDateTime;
 import com.nedap.archie.rm.datavalues.quantity.datetime.DvDuration;
 import com.nedap.archie.rm.datavalues.quantity.datetime.DvTime;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 import org.ehrbase.openehr.dbformat.json.RmDbJson;
 import org.ehrbase.openehr.sdk.util.OpenEHRDateTimeSerializationUtils;
 import org.ehrbase.openehr.sdk.webtemplate.parser.NodeId;
@@ -56,8 +58,7 @@ public final class VersionedObjectDataStructure {
 
     public static @NonNull List<StructureNode> createDataStructure(
             final JsonNode rmObjectTree, Class<? extends RMObject> rmClass) {
-        fillInMagnitudes(rmObjectTree);
-
+        // magnitudes are added while the tree is split up into structure nodes
         var root = createStructureDto(
                 null, rmObjectTree, StructureRmType.byType(rmClass).orElseThrow(), null);
 
@@ -83,31 +84,13 @@ public final class VersionedObjectDataStructure {
         return roots;
     }
 
-    /**
-     * Depth-first stream of object nodes
-     *
-     * @param jsonNode root node
-     */
-    private static Stream<ObjectNode> streamObjectNodes(JsonNode jsonNode) {
-        if (!jsonNode.isContainerNode()) {
-            return Stream.empty();
-        }
-        Stream<ObjectNode> childContainers = StreamSupport.stream(jsonNode.spliterator(), false)
-                .flatMap(VersionedObjectDataStructure::streamObjectNodes);
-        if (jsonNode.isObject()) {
-            return Stream.concat(childContainers, Stream.of((ObjectNode) jsonNode));
-        } else {
-            return childContainers;
+    private static void addMagnitudeAttribute(ObjectNode object) {
+        JsonNode type = object.get(DbToRmFormat.TYPE_ATTRIBUTE);
+        if (type != null) {
+            addMagnitudeAttribute(type.textValue(), object);
         }
     }
 
-    public static void fillInMagnitudes(JsonNode jsonNode) {
-        streamObjectNodes(jsonNode)
-                .filter(JsonNode::isObject)
-                .forEach(n ->
-                        addMagnitudeAttribute(n.get(DbToRmFormat.TYPE_ATTRIBUTE).textValue(), n));
-    }
-
     private static void addMagnitudeAttribute(String type, ObjectNode object) {
         try {
             switch (type) {
@@ -166,6 +149,7 @@ public final class VersionedObjectDataStructure {
         }
 
         if (currentJson.isObject()) {
+            addMagnitudeAttribute((ObjectNode) currentJson);
             handleSubObject(currentNode, (ObjectNode) currentJson, roots);
             return true;
 
@@ -273,7 +257,54 @@ public final class VersionedObjectDataStructure {
                 .map(JsonNode::asText);
     }
 
-    public static ObjectNode applyRmAliases(ObjectNode jsonNode) {
+    /**
+     * Serializes the node like <code>applyRmAliases(jsonNode).toString()</code>, but writes the aliases while
+     * serializing instead of creating an aliased copy of the tree first.
+     *
+     * @param jsonNode
+     * @return the JSON string in database format
+     */
+    public static String toAliasedJson(ObjectNode jsonNode) {
+        StringWriter writer = new StringWriter(256);
+        try (JsonGenerator generator = RmDbJson.MARSHAL_OM.createGenerator(writer)) {
+            writeAliased(generator, jsonNode);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    private static void writeAliased(JsonGenerator generator, ObjectNode jsonNode) throws IOException {
+        generator.writeStartObject();
+        for (Map.Entry<String, JsonNode> e : jsonNode.properties()) {
+            String attribute = e.getKey();
+            JsonNode child = e.getValue();
+            generator.writeFieldName(RmAttributeAlias.getAlias(attribute));
+            if (child.isObject()) {
+                writeAliased(generator, (ObjectNode) child);
+            } else if (child.isArray()) {
+                generator.writeStartArray();
+                for (JsonNode c : child) {
+                    if (c.isObject()) {
+                        writeAliased(generator, (ObjectNode) c);
+                    } else {
+                        generator.writeTree(c);
+                    }
+                }
+                generator.writeEndArray();
+            } else if (child.isTextual() && attribute.equals(DbToRmFormat.TYPE_ATTRIBUTE)) {
+                generator.writeString(RmTypeAlias.getAlias(child.textValue()));
+            } else {
+                generator.writeTree(child);
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Creates an aliased copy of the tree; only used to verify {@link #toAliasedJson} in tests.
+     */
+    static ObjectNode applyRmAliases(ObjectNode jsonNode) {
         ObjectNode newNode = jsonNode.objectNode();
 
         jsonNode.properties().forEach(e -> {
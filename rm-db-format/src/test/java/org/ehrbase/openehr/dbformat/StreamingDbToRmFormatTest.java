@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.openehr.dbformat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nedap.archie.rm.composition.Composition;
+import com.nedap.archie.rm.support.identification.ObjectVersionId;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import org.apache.commons.io.IOUtils;
+import org.ehrbase.openehr.dbformat.json.RmDbJson;
+import org.ehrbase.openehr.sdk.serialisation.RMDataFormat;
+import org.ehrbase.openehr.sdk.serialisation.jsonencoding.CanonicalJson;
+import org.ehrbase.openehr.sdk.test_data.composition.CompositionTestDataCanonicalJson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class StreamingDbToRmFormatTest {
+
+    @ParameterizedTest
+    @EnumSource(
+            value = CompositionTestDataCanonicalJson.class,
+            mode = EnumSource.Mode.EXCLUDE,
+            names = {"INVALID"})
+    void reconstructRmObject(CompositionTestDataCanonicalJson example) throws IOException {
+        Composition composition =
+                RMDataFormat.canonicalJSON().unmarshal(IOUtils.toString(example.getStream(), StandardCharsets.UTF_8));
+
+        Composition reconstructed =
+                StreamingDbToRmFormat.reconstructRmObject(Composition.class, aggregate(composition));
+
+        assertThat(CanonicalJson.MARSHAL_OM.writeValueAsString(reconstructed))
+                .isEqualTo(CanonicalJson.MARSHAL_OM.writeValueAsString(DbToRmFormat.reconstructRmObject(
+                        Composition.class, DbToRmFormatTest.createDbOneJsonArray(composition))));
+    }
+
+    @ParameterizedTest
+    @EnumSource(
+            value = CompositionTestDataCanonicalJson.class,
+            mode = EnumSource.Mode.EXCLUDE,
+            names = {"INVALID"})
+    void writeCanonicalJson(CompositionTestDataCanonicalJson example) throws IOException {
+        Composition composition =
+                RMDataFormat.canonicalJSON().unmarshal(IOUtils.toString(example.getStream(), StandardCharsets.UTF_8));
+        ObjectVersionId uid = new ObjectVersionId(UUID.randomUUID().toString(), "test.ehrbase.org", "1");
+
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator gen = CanonicalJson.MARSHAL_OM.createGenerator(writer)) {
+            StreamingDbToRmFormat.writeCanonicalJson(gen, aggregate(composition), Map.of("uid", uid));
+        }
+
+        JsonNode json = CanonicalJson.MARSHAL_OM.readTree(writer.toString());
+        assertThat(json.fieldNames().next()).isEqualTo("_type");
+        assertThat(json.at("/uid/value").asText()).isEqualTo(uid.getValue());
+
+        Composition transcoded = CanonicalJson.MARSHAL_OM.treeToValue(json, Composition.class);
+        Composition expected = StreamingDbToRmFormat.reconstructRmObject(Composition.class, aggregate(composition));
+        expected.setUid(uid);
+        assertThat(CanonicalJson.MARSHAL_OM.writeValueAsString(transcoded))
+                .isEqualTo(CanonicalJson.MARSHAL_OM.writeValueAsString(expected));
+    }
+
+    /**
+     * jsonb returns the keys ordered by length first, so single character aliases like <code>A</code> or
+     * <code>N</code> precede the type alias <code>T</code> and have to be buffered.
+     */
+    @ParameterizedTest
+    @EnumSource(
+            value = CompositionTestDataCanonicalJson.class,
+            mode = EnumSource.Mode.EXCLUDE,
+            names = {"INVALID"})
+    void jsonbKeyOrder(CompositionTestDataCanonicalJson example) throws IOException {
+        Composition composition =
+                RMDataFormat.canonicalJSON().unmarshal(IOUtils.toString(example.getStream(), StandardCharsets.UTF_8));
+        String dbFormat = aggregate(composition, true);
+        assertThat(dbFormat).doesNotStartWith("{\"T\"");
+
+        Composition reconstructed = StreamingDbToRmFormat.reconstructRmObject(Composition.class, dbFormat);
+        Composition expected = StreamingDbToRmFormat.reconstructRmObject(Composition.class, aggregate(composition));
+        assertThat(CanonicalJson.MARSHAL_OM.writeValueAsString(reconstructed))
+                .isEqualTo(CanonicalJson.MARSHAL_OM.writeValueAsString(expected));
+
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator gen = CanonicalJson.MARSHAL_OM.createGenerator(writer)) {
+            StreamingDbToRmFormat.writeCanonicalJson(gen, dbFormat, Map.of());
+        }
+        JsonNode json = CanonicalJson.MARSHAL_OM.readTree(writer.toString());
+        assertThat(json.fieldNames().next()).isEqualTo("_type");
+        assertThat(CanonicalJson.MARSHAL_OM.writeValueAsString(
+                        CanonicalJson.MARSHAL_OM.treeToValue(json, Composition.class)))
+                .isEqualTo(CanonicalJson.MARSHAL_OM.writeValueAsString(expected));
+    }
+
+    @Test
+    void jsonbKeyOrderBuffersShortAliases() throws IOException {
+        String dbFormat = """
+                {"A": "openEHR-EHR-COMPOSITION.test.v1", "N": {"T": "x", "V": "test"}, "T": "CO"}""";
+
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator gen = CanonicalJson.MARSHAL_OM.createGenerator(writer)) {
+            StreamingDbToRmFormat.writeCanonicalJson(gen, dbFormat, Map.of());
+        }
+
+        JsonNode json = CanonicalJson.MARSHAL_OM.readTree(writer.toString());
+        assertThat(json.properties())
+                .map(Map.Entry::getKey)
+                .containsExactly("_type", "archetype_node_id", "name");
+        assertThat(json.at("/_type").asText()).isEqualTo("COMPOSITION");
+        assertThat(json.at("/name/value").asText()).isEqualTo("test");
+    }
+
+    @Test
+    void missingAncestor() {
+        String dbFormat = """
+                {"T": "CO", "A": "openEHR-EHR-COMPOSITION.test.v1"}
+                c0.d.e0.{"T": "PE", "A": "at0002"}""";
+
+        assertThatThrownBy(() -> StreamingDbToRmFormat.reconstructRmObject(Composition.class, dbFormat))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("missing ancestor");
+    }
+
+    private static String aggregate(Composition composition) {
+        return aggregate(composition, false);
+    }
+
+    /**
+     * @param jsonbKeyOrder if the keys are ordered like in jsonb, i.e. by length and then by their bytes, instead of the
+     *                      order of the serializer, which writes the type alias first
+     */
+    private static String aggregate(Composition composition, boolean jsonbKeyOrder) {
+        List<StructureNode> roots = VersionedObjectDataStructure.createDataStructure(composition);
+        return roots.stream()
+                .filter(r -> r.getStructureRmType().isStructureEntry())
+                .map(n -> {
+                    String json = VersionedObjectDataStructure.toAliasedJson(n.getJsonNode());
+                    return n.getEntityIdx().printIndexString(false, true)
+                            + (jsonbKeyOrder ? toJsonbKeyOrder(json) : json);
+                })
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static String toJsonbKeyOrder(String json) {
+        try {
+            return RmDbJson.MARSHAL_OM.writeValueAsString(
+                    toJsonbKeyOrder(RmDbJson.MARSHAL_OM.readTree(json)));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static JsonNode toJsonbKeyOrder(JsonNode node) {
+        if (node instanceof ObjectNode objectNode) {
+            ObjectNode sorted = objectNode.objectNode();
+            objectNode.properties().stream()
+                    .sorted(Map.Entry.comparingByKey(Comparator.comparing(
+                                    (String k) -> k.getBytes(StandardCharsets.UTF_8),
+                                    Comparator.<byte[]>comparingInt(b -> b.length)
+                                            .thenComparing(Arrays::compareUnsigned))))
+                    .forEach(e -> sorted.set(e.getKey(), toJsonbKeyOrder(e.getValue())));
+            return sorted;
+        } else if (node instanceof ArrayNode arrayNode) {
+            ArrayNode copy = arrayNode.arrayNode();
+            arrayNode.forEach(e -> copy.add(toJsonbKeyOrder(e)));
+            return copy;
+        }
+        return node;
+    }
+}
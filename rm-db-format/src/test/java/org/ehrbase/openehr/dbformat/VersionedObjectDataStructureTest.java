@@ -23,17 +23,25 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.nedap.archie.rm.RMObject;
+import com.nedap.archie.rm.composition.Composition;
 import com.nedap.archie.rm.datastructures.Element;
 import com.nedap.archie.rm.datatypes.CodePhrase;
 import com.nedap.archie.rm.datavalues.DvText;
 import com.nedap.archie.rm.datavalues.encapsulated.DvMultimedia;
+import com.nedap.archie.rm.datavalues.quantity.datetime.DvDuration;
 import com.nedap.archie.rm.support.identification.TerminologyId;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import org.apache.commons.io.IOUtils;
+import org.ehrbase.openehr.sdk.serialisation.RMDataFormat;
 import org.ehrbase.openehr.sdk.serialisation.jsonencoding.CanonicalJson;
+import org.ehrbase.openehr.sdk.test_data.composition.CompositionTestDataCanonicalJson;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
@@ -113,4 +121,35 @@ class VersionedObjectDataStructureTest {
                     {"_type":"DV_MULTIMEDIA","data":"VGVzdERhdGE=","media_type":{"_type":"CODE_PHRASE","terminology_id":{"_type":"TERMINOLOGY_ID","value":"IANA_media-type"},"code_string":"application/pdf"},"size":8}""");
                         }));
     }
+
+    @ParameterizedTest
+    @EnumSource(
+            value = CompositionTestDataCanonicalJson.class,
+            mode = Mode.EXCLUDE,
+            names = {"INVALID"})
+    void toAliasedJson(CompositionTestDataCanonicalJson example) throws IOException {
+        Composition composition =
+                RMDataFormat.canonicalJSON().unmarshal(IOUtils.toString(example.getStream(), StandardCharsets.UTF_8));
+
+        assertThat(VersionedObjectDataStructure.createDataStructure(composition))
+                .allSatisfy(node -> assertThat(VersionedObjectDataStructure.toAliasedJson(node.getJsonNode()))
+                        .isEqualTo(VersionedObjectDataStructure.applyRmAliases(node.getJsonNode())
+                                .toString()));
+    }
+
+    @Test
+    void magnitudesInStructure() {
+        DvDuration duration = new DvDuration(Duration.ofHours(1));
+        Element element = new Element("at0001", new DvText("Duration"), duration);
+
+        List<StructureNode> roots = VersionedObjectDataStructure.createDataStructure(element);
+
+        assertThat(roots)
+                .singleElement()
+                .satisfies(node -> assertThat(node.getJsonNode()
+                                .get("value")
+                                .get(VersionedObjectDataStructure.MAGNITUDE_FIELD)
+                                .asDouble())
+                        .isEqualTo(duration.getMagnitude()));
+    }
 }
@@ -19,12 +19,21 @@ package org.ehrbase.cache;
 
 import com.ethlo.cache.spring.EnhancedTransactionAwareCacheDecorator;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import java.util.Collection;
 import java.util.Optional;
 import java.util.function.Function;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryPlanCache;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryResultCache;
+import org.ehrbase.openehr.aqlengine.service.CommitWatermark;
+import org.ehrbase.repository.VersionCache;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
@@ -86,6 +95,56 @@ public class CacheConfiguration {
                         .build());
     }
 
+    /**
+     * Plans are kept locally and are only cleared by template changes of this instance, so they expire after write
+     * by default. With pruning of CONTAINS clauses they are also keyed by the version of the template store.
+     */
+    @Bean
+    @ConditionalOnProperty(
+            prefix = "ehrbase.aql.plan-cache",
+            name = "enabled",
+            havingValue = "true",
+            matchIfMissing = true)
+    public AqlQueryPlanCache aqlQueryPlanCache(CacheProperties cacheProperties) {
+        return new CaffeineAqlQueryPlanCache(
+                configureCache(Caffeine.newBuilder(), cacheProperties.getAqlQueryPlanCacheConfig())
+                        .build());
+    }
+
+    /**
+     * Rows of AQL query results, bounded by the size of their JSON data, so large results cannot exhaust the heap.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "ehrbase.aql.result-cache", name = "enabled", havingValue = "true")
+    public AqlQueryResultCache aqlQueryResultCache(CacheProperties cacheProperties, CommitWatermark commitWatermark) {
+        CacheProperties.CacheConfig cacheConfig = cacheProperties.getAqlQueryResultCacheConfig();
+        Caffeine<Object, Object> caffeine = configureCache(Caffeine.newBuilder(), cacheConfig);
+        Optional.of(cacheConfig)
+                .map(CacheProperties.CacheConfig::getMaximumWeight)
+                .ifPresent(w -> caffeine.maximumWeight(w).weigher(CaffeineAqlQueryResultCache::weigh));
+        return new CaffeineAqlQueryResultCache(caffeine.build(), commitWatermark);
+    }
+
+    /**
+     * Versions of compositions and EHR_STATUS in canonical JSON, bounded by their size. Hits and misses are exported as
+     * <code>cache.gets</code>, evictions as <code>cache.evictions</code>, tagged with <code>cache=version</code>.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "ehrbase.persistence.version-cache", name = "enabled", havingValue = "true")
+    public VersionCache versionCache(
+            CacheProperties cacheProperties,
+            CommitWatermark commitWatermark,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        CacheProperties.CacheConfig cacheConfig = cacheProperties.getVersionCacheConfig();
+        Caffeine<Object, Object> caffeine = configureCache(Caffeine.newBuilder(), cacheConfig);
+        Optional.of(cacheConfig)
+                .map(CacheProperties.CacheConfig::getMaximumWeight)
+                .ifPresent(w -> caffeine.maximumWeight(w).weigher(CaffeineVersionCache::weigh));
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> cache = caffeine.recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry), cache, "version");
+        return new CaffeineVersionCache(cache, commitWatermark);
+    }
+
     protected static Caffeine<Object, Object> configureCache(
             Caffeine<Object, Object> caffeine, CacheProperties.CacheConfig cacheConfig) {
 
@@ -33,6 +33,16 @@ public class CacheProperties {
      * Whether to initialize the caches during application startup.
      */
     private String templateInitOnStartup = Boolean.TRUE.toString();
+    /**
+     * Number of threads building the WebTemplates during application startup, the most used templates first.
+     * With <code>0</code> they are built on the startup thread before the application starts.
+     */
+    private int templateInitParallelism = 0;
+    /**
+     * Fraction of the templates that have to be built during application startup before the instance is reported
+     * as ready.
+     */
+    private double templateInitReadyFraction = 1.0;
 
     private boolean storedQueryInitOnStartup = true;
     private CacheConfig internalTemplateCacheConfig = new CacheConfig();
@@ -43,6 +53,9 @@ public class CacheProperties {
     private CacheConfig externalFhirTerminologyCacheConfig = new CacheConfig();
     private CacheConfig userIdCacheConfig = new CacheConfig();
     private CacheConfig storedQueryCacheConfig = new CacheConfig();
+    private CacheConfig aqlQueryPlanCacheConfig = expireAfterWrite(maximumSize(1000), 10, TimeUnit.MINUTES);
+    private CacheConfig aqlQueryResultCacheConfig = maximumWeight(32L * 1024 * 1024);
+    private CacheConfig versionCacheConfig = maximumWeight(64L * 1024 * 1024);
 
     public String getTemplateInitOnStartup() {
         return templateInitOnStartup;
@@ -52,6 +65,22 @@ public class CacheProperties {
         this.templateInitOnStartup = templateInitOnStartup;
     }
 
+    public int getTemplateInitParallelism() {
+        return templateInitParallelism;
+    }
+
+    public void setTemplateInitParallelism(int templateInitParallelism) {
+        this.templateInitParallelism = templateInitParallelism;
+    }
+
+    public double getTemplateInitReadyFraction() {
+        return templateInitReadyFraction;
+    }
+
+    public void setTemplateInitReadyFraction(double templateInitReadyFraction) {
+        this.templateInitReadyFraction = templateInitReadyFraction;
+    }
+
     public boolean isStoredQueryInitOnStartup() {
         return storedQueryInitOnStartup;
     }
@@ -132,10 +161,58 @@ public class CacheProperties {
         this.storedQueryCacheConfig = storedQueryCacheConfig;
     }
 
+    public CacheConfig getAqlQueryPlanCacheConfig() {
+        return aqlQueryPlanCacheConfig;
+    }
+
+    public void setAqlQueryPlanCacheConfig(CacheConfig aqlQueryPlanCacheConfig) {
+        this.aqlQueryPlanCacheConfig = aqlQueryPlanCacheConfig;
+    }
+
+    public CacheConfig getAqlQueryResultCacheConfig() {
+        return aqlQueryResultCacheConfig;
+    }
+
+    public void setAqlQueryResultCacheConfig(CacheConfig aqlQueryResultCacheConfig) {
+        this.aqlQueryResultCacheConfig = aqlQueryResultCacheConfig;
+    }
+
+    public CacheConfig getVersionCacheConfig() {
+        return versionCacheConfig;
+    }
+
+    public void setVersionCacheConfig(CacheConfig versionCacheConfig) {
+        this.versionCacheConfig = versionCacheConfig;
+    }
+
+    private static CacheConfig maximumWeight(long maximumWeight) {
+        CacheConfig cacheConfig = new CacheConfig();
+        cacheConfig.setMaximumWeight(maximumWeight);
+        return cacheConfig;
+    }
+
+    private static CacheConfig maximumSize(int maximumSize) {
+        CacheConfig cacheConfig = new CacheConfig();
+        cacheConfig.setMaximumSize(maximumSize);
+        return cacheConfig;
+    }
+
+    private static CacheConfig expireAfterWrite(CacheConfig cacheConfig, long duration, TimeUnit unit) {
+        CacheConfig.ExpireTime expireTime = new CacheConfig.ExpireTime();
+        expireTime.setDuration(duration);
+        expireTime.setUnit(unit);
+        cacheConfig.setExpireAfterWrite(expireTime);
+        return cacheConfig;
+    }
+
     public static class CacheConfig {
 
         private Integer initialCapacity;
         private Integer maximumSize;
+        /**
+         * Only for caches weighing their entries, i.e. the version cache: maximum total size in bytes
+         */
+        private Long maximumWeight;
 
         private ExpireTime expireAfterAccess;
         private ExpireTime expireAfterWrite;
@@ -156,6 +233,14 @@ public class CacheProperties {
             this.maximumSize = maximumSize;
         }
 
+        public Long getMaximumWeight() {
+            return maximumWeight;
+        }
+
+        public void setMaximumWeight(Long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+        }
+
         public ExpireTime getExpireAfterAccess() {
             return expireAfterAccess;
         }
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import java.util.function.Supplier;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryPlan;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryPlanCache;
+
+/**
+ * Local {@link AqlQueryPlanCache}.
+ * It is not managed by the spring {@link org.springframework.cache.CacheManager}, since the plans cannot be
+ * serialized to a distributed cache.
+ */
+public class CaffeineAqlQueryPlanCache implements AqlQueryPlanCache {
+
+    private final Cache<Key, AqlQueryPlan> cache;
+
+    public CaffeineAqlQueryPlanCache(Cache<Key, AqlQueryPlan> cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public AqlQueryPlan get(Key key, Supplier<AqlQueryPlan> planner) {
+        return cache.get(key, k -> planner.get());
+    }
+
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryResultCache;
+import org.ehrbase.openehr.aqlengine.service.CommitWatermark;
+
+/**
+ * Local {@link AqlQueryResultCache}, weighted by the length of the JSON data of the results.
+ * Entries are validated against the {@link CommitWatermark} of this instance, so it is not suited for deployments
+ * with several EHRbase instances writing to the same database.
+ */
+public class CaffeineAqlQueryResultCache implements AqlQueryResultCache {
+
+    /**
+     * Estimated size of an entry besides the SQL and the JSON data, in bytes
+     */
+    static final int ENTRY_OVERHEAD = 128;
+
+    /**
+     * Estimated size of a row besides the JSON data, in bytes
+     */
+    static final int ROW_OVERHEAD = 32;
+
+    record Entry(List<List<Object>> rows, long bytes, long watermark) {}
+
+    private final Cache<String, Entry> cache;
+    private final CommitWatermark commitWatermark;
+
+    public CaffeineAqlQueryResultCache(Cache<String, Entry> cache, CommitWatermark commitWatermark) {
+        this.cache = cache;
+        this.commitWatermark = commitWatermark;
+    }
+
+    /**
+     * @return the weight of a cache entry, roughly its size in bytes
+     */
+    static int weigh(String sql, Entry entry) {
+        // UTF-16 chars, unless compact strings apply
+        long weight = ENTRY_OVERHEAD
+                + 2L * sql.length()
+                + (long) ROW_OVERHEAD * entry.rows().size()
+                + 2L * entry.bytes();
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<List<Object>> get(String sql, Set<UUID> ehrIds, Supplier<Result> query) {
+        Entry entry = cache.getIfPresent(sql);
+        if (entry != null && commitWatermark.isUnchanged(entry.watermark(), ehrIds)) {
+            return entry.rows();
+        }
+        // captured before querying: commits during the execution invalidate the entry
+        long watermark = commitWatermark.current();
+        Result result = query.get();
+        cache.put(sql, new Entry(result.rows(), result.bytes(), watermark));
+        return result.rows();
+    }
+
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+}
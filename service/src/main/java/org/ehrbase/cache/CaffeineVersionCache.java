@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.ehrbase.openehr.aqlengine.service.CommitWatermark;
+import org.ehrbase.repository.VersionCache;
+
+/**
+ * Local {@link VersionCache}, weighted by the length of the cached JSON.
+ * Heads are validated against the {@link CommitWatermark} of this instance, and admin deletes are only seen by this
+ * instance, so it is not suited for deployments with several EHRbase instances writing to the same database.
+ */
+public class CaffeineVersionCache implements VersionCache {
+
+    /**
+     * Estimated size of an entry besides the JSON, in bytes
+     */
+    static final int ENTRY_OVERHEAD = 128;
+
+    record VersionKey(Class<?> type, UUID voId, int version) {}
+
+    record HeadKey(Class<?> type, UUID headId) {}
+
+    record Head(UUID ehrId, UUID voId, int version, long watermark) {}
+
+    /**
+     * Both versions and heads, so they share the size bound
+     */
+    private final Cache<Object, Object> cache;
+
+    private final CommitWatermark commitWatermark;
+
+    public CaffeineVersionCache(Cache<Object, Object> cache, CommitWatermark commitWatermark) {
+        this.cache = cache;
+        this.commitWatermark = commitWatermark;
+    }
+
+    /**
+     * @return the weight of a cache entry, roughly its size in bytes
+     */
+    static int weigh(Object key, Object value) {
+        if (value instanceof CachedVersion version) {
+            // UTF-16 chars, unless compact strings apply
+            long weight = ENTRY_OVERHEAD + 2L * version.canonicalJson().length();
+            return (int) Math.min(weight, Integer.MAX_VALUE);
+        }
+        return ENTRY_OVERHEAD;
+    }
+
+    @Override
+    public Optional<CachedVersion> get(Class<?> type, UUID ehrId, UUID voId, int version) {
+        return Optional.ofNullable(cache.getIfPresent(new VersionKey(type, voId, version)))
+                .map(CachedVersion.class::cast)
+                .filter(v -> v.ehrId().equals(ehrId));
+    }
+
+    @Override
+    public void put(Class<?> type, CachedVersion version) {
+        cache.put(new VersionKey(type, version.voId(), version.version()), version);
+    }
+
+    @Override
+    public Optional<CachedVersion> getHead(Class<?> type, UUID ehrId, UUID headId) {
+        Head head = (Head) cache.getIfPresent(new HeadKey(type, headId));
+        if (head == null || !head.ehrId().equals(ehrId)) {
+            return Optional.empty();
+        }
+        if (!commitWatermark.isUnchanged(head.watermark(), List.of(ehrId))) {
+            cache.asMap().remove(new HeadKey(type, headId), head);
+            return Optional.empty();
+        }
+        return get(type, ehrId, head.voId(), head.version());
+    }
+
+    @Override
+    public void putHead(Class<?> type, UUID headId, long watermark, CachedVersion version) {
+        put(type, version);
+        cache.put(new HeadKey(type, headId), new Head(version.ehrId(), version.voId(), version.version(), watermark));
+    }
+
+    @Override
+    public void invalidateHead(Class<?> type, UUID headId) {
+        cache.invalidate(new HeadKey(type, headId));
+    }
+
+    @Override
+    public void invalidateVersionedObject(Class<?> type, UUID voId) {
+        cache.asMap().entrySet().removeIf(e -> switch (e.getKey()) {
+            case VersionKey k -> k.type().equals(type) && k.voId().equals(voId);
+            case HeadKey k -> k.type().equals(type) && ((Head) e.getValue()).voId().equals(voId);
+            default -> false;
+        });
+    }
+
+    @Override
+    public void invalidateEhr(UUID ehrId) {
+        cache.asMap().values().removeIf(v -> switch (v) {
+            case CachedVersion version -> version.ehrId().equals(ehrId);
+            case Head head -> head.ehrId().equals(ehrId);
+            default -> false;
+        });
+    }
+
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SequencedMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * Warm-up of the template cache during application startup.
+ * <p>
+ * With {@link CacheProperties#getTemplateInitParallelism()} threads the templates are loaded in the background, in the
+ * requested order; the instance is considered ready once {@link CacheProperties#getTemplateInitReadyFraction()} of them
+ * have been processed. Otherwise they are loaded on the calling thread and failures are propagated.
+ */
+@Component
+public class TemplateCacheWarmUp implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(TemplateCacheWarmUp.class);
+
+    private final int parallelism;
+    private final double readyFraction;
+
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger loaded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private volatile ExecutorService executor;
+
+    public TemplateCacheWarmUp(CacheProperties cacheProperties) {
+        this.parallelism = Math.max(0, cacheProperties.getTemplateInitParallelism());
+        this.readyFraction = Math.clamp(cacheProperties.getTemplateInitReadyFraction(), 0.0, 1.0);
+    }
+
+    /**
+     * @param loaders adding the templates to the cache by template_id, in the order they are to be loaded
+     */
+    public void run(SequencedMap<String, Runnable> loaders) {
+        run(loaders, () -> (a, b) -> 0);
+    }
+
+    /**
+     * @param loaders adding the templates to the cache by template_id
+     * @param order   of the template_ids to load the templates in. In the background it is determined on a warm-up
+     *                thread, as it may be expensive; should that fail, the templates are loaded in the given order.
+     *                Otherwise all templates are loaded before the instance is ready, so it is not evaluated.
+     */
+    public void run(SequencedMap<String, Runnable> loaders, Supplier<Comparator<String>> order) {
+        total.addAndGet(loaders.size());
+        if (parallelism == 0) {
+            loaders.values().forEach(loader -> {
+                loader.run();
+                loaded.incrementAndGet();
+            });
+            return;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, threadFactory());
+        executor = pool;
+        pool.execute(() -> {
+            List<String> templateIds = new ArrayList<>(loaders.keySet());
+            try {
+                templateIds.sort(order.get());
+            } catch (RuntimeException e) {
+                log.warn("Failed to determine the order of the WebTemplate cache warm-up: {}", e.getMessage(), e);
+            }
+            try {
+                templateIds.forEach(templateId -> pool.execute(() -> load(templateId, loaders.get(templateId))));
+            } catch (RejectedExecutionException e) {
+                // destroyed during the warm-up
+            }
+            // the threads terminate once all templates are processed
+            pool.shutdown();
+        });
+    }
+
+    private void load(String templateId, Runnable loader) {
+        try {
+            loader.run();
+            loaded.incrementAndGet();
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            log.error("Failed to prepare WebTemplate cache for template {}: {}", templateId, e.getMessage(), e);
+        }
+        if (getProcessed() == total.get()) {
+            log.info("Prepared WebTemplate cache for {} templates, {} failed", loaded.get(), failed.get());
+        }
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, "template-warm-up-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * @return if enough templates have been processed for the instance to serve requests
+     */
+    public boolean isReady() {
+        int t = total.get();
+        return t == 0 || getProcessed() >= Math.ceil(t * readyFraction);
+    }
+
+    public int getTotal() {
+        return total.get();
+    }
+
+    public int getLoaded() {
+        return loaded.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    private int getProcessed() {
+        return loaded.get() + failed.get();
+    }
+
+    @Override
+    public void destroy() {
+        ExecutorService pool = executor;
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.ehrbase.repository;
 
 import static org.ehrbase.jooq.pg.Tables.AUDIT_DETAILS;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -35,12 +36,14 @@ import com.nedap.archie.rm.support.identification.ObjectRef;
 import com.nedap.archie.rm.support.identification.ObjectVersionId;
 import com.nedap.archie.rm.support.identification.UIDBasedId;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.UncheckedIOException;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
@@ -63,12 +66,16 @@ import org.ehrbase.jooq.pg.enums.ContributionChangeType;
 import org.ehrbase.jooq.pg.enums.ContributionDataType;
 import org.ehrbase.jooq.pg.tables.Ehr;
 import org.ehrbase.jooq.pg.util.AdditionalSQLFunctions;
+import org.ehrbase.openehr.aqlengine.service.CommitWatermark;
 import org.ehrbase.openehr.dbformat.DbToRmFormat;
+import org.ehrbase.openehr.dbformat.StreamingDbToRmFormat;
 import org.ehrbase.openehr.dbformat.StructureNode;
 import org.ehrbase.openehr.dbformat.jooq.prototypes.ObjectDataTablePrototype;
 import org.ehrbase.openehr.dbformat.jooq.prototypes.ObjectHistoryTablePrototype;
 import org.ehrbase.openehr.dbformat.jooq.prototypes.ObjectVersionTablePrototype;
 import org.ehrbase.openehr.dbformat.json.RmDbJson;
+import org.ehrbase.openehr.sdk.serialisation.jsonencoding.CanonicalJson;
+import org.ehrbase.repository.VersionCache.CachedVersion;
 import org.ehrbase.service.TimeProvider;
 import org.jooq.CaseConditionStep;
 import org.jooq.Condition;
@@ -91,6 +98,7 @@ import org.jooq.TableField;
 import org.jooq.UpdatableRecord;
 import org.jooq.impl.DSL;
 import org.jooq.impl.SQLDataType;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 public abstract class AbstractVersionedObjectRepository<
         VR extends UpdatableRecord,
@@ -126,6 +134,8 @@ public abstract class AbstractVersionedObjectRepository<
     protected final ContributionRepository contributionRepository;
     protected final SystemService systemService;
     protected final TimeProvider timeProvider;
+    protected final CommitWatermark commitWatermark;
+    protected final Optional<VersionCache> versionCache;
 
     protected AbstractVersionedObjectRepository(
             AuditDetailsTargetType targetType,
@@ -135,13 +145,40 @@ public abstract class AbstractVersionedObjectRepository<
             DSLContext context,
             ContributionRepository contributionRepository,
             SystemService systemService,
-            TimeProvider timeProvider) {
+            TimeProvider timeProvider,
+            CommitWatermark commitWatermark) {
+        this(
+                targetType,
+                versionHead,
+                dataHead,
+                versionHistory,
+                context,
+                contributionRepository,
+                systemService,
+                timeProvider,
+                commitWatermark,
+                Optional.empty());
+    }
+
+    protected AbstractVersionedObjectRepository(
+            AuditDetailsTargetType targetType,
+            Table<VR> versionHead,
+            Table<DR> dataHead,
+            Table<HR> versionHistory,
+            DSLContext context,
+            ContributionRepository contributionRepository,
+            SystemService systemService,
+            TimeProvider timeProvider,
+            CommitWatermark commitWatermark,
+            Optional<VersionCache> versionCache) {
         this.targetType = targetType;
         this.tables = new Tables<>(versionHead.as("version"), dataHead.as("data"), versionHistory.as("history"));
         this.context = context;
         this.contributionRepository = contributionRepository;
         this.systemService = systemService;
         this.timeProvider = timeProvider;
+        this.commitWatermark = commitWatermark;
+        this.versionCache = versionCache;
     }
 
     public static ObjectVersionId buildObjectVersionId(
@@ -151,12 +188,160 @@ public abstract class AbstractVersionedObjectRepository<
     }
 
     protected Optional<O> findHead(Function<Table<?>, Condition> condition) {
+        return findHead(condition, r -> toRootLocatable(r, getLocatableClass()));
+    }
+
+    protected <T> Optional<T> findHead(
+            Function<Table<?>, Condition> condition, Function<Record, Optional<T>> dataRecordMapper) {
         SelectQuery<Record> locatableDataQuery = buildLocatableDataQuery(condition, true);
-        return toRootLocatable(locatableDataQuery.fetchOne(), getLocatableClass());
+        return dataRecordMapper.apply(locatableDataQuery.fetchOne());
+    }
+
+    /**
+     * Reads the head via the {@link VersionCache}, if present.
+     * Cached heads are materialized from their canonical JSON, on misses as on hits, so both yield equal objects.
+     *
+     * @param headId            identifies the head in the cache, see {@link #headCacheId(UUID, UUID)}
+     * @param fromCanonicalJson creates the result from the canonical JSON, if the cache is used
+     * @param dataRecordMapper  creates the result from the data record, if there is no cache
+     */
+    protected <T> Optional<T> findHead(
+            UUID ehrId,
+            UUID headId,
+            Function<Table<?>, Condition> condition,
+            Function<String, T> fromCanonicalJson,
+            Function<Record, Optional<T>> dataRecordMapper) {
+        if (versionCache.isEmpty()) {
+            return findHead(condition, dataRecordMapper);
+        }
+        return findHeadVersion(ehrId, headId, condition)
+                .map(CachedVersion::canonicalJson)
+                .map(fromCanonicalJson);
+    }
+
+    /**
+     * Reads the head in canonical JSON, via the {@link VersionCache} if present.
+     *
+     * @param headId identifies the head in the cache, see {@link #headCacheId(UUID, UUID)}
+     */
+    protected Optional<CachedVersion> findHeadVersion(
+            UUID ehrId, UUID headId, Function<Table<?>, Condition> condition) {
+        if (versionCache.isEmpty()) {
+            return findHead(condition, r -> toCachedVersion(ehrId, r));
+        }
+        VersionCache cache = versionCache.get();
+        Optional<CachedVersion> version = cache.getHead(getLocatableClass(), ehrId, headId);
+        if (version.isEmpty()) {
+            // captured before reading: commits in the meantime invalidate the head
+            long watermark = commitWatermark.current();
+            version = findHead(condition, r -> toCachedVersion(ehrId, r));
+            if (isVersionCacheable()) {
+                version.ifPresent(v -> cache.putHead(getLocatableClass(), headId, watermark, v));
+            }
+        }
+        return version;
+    }
+
+    /**
+     * Reads the version via the {@link VersionCache}, if present.
+     *
+     * @param voId              the id of the versioned object, as the conditions select it
+     * @param fromCanonicalJson creates the result from the canonical JSON, if the cache is used
+     * @param dataRecordMapper  creates the result from the data record, if there is no cache
+     * @see #findHead(UUID, UUID, Function, Function, Function)
+     */
+    protected <T> Optional<T> findByVersion(
+            UUID ehrId,
+            UUID voId,
+            Function<Table<?>, Condition> condition,
+            Function<Table<?>, Condition> historyCondition,
+            int version,
+            Function<String, T> fromCanonicalJson,
+            Function<Record, Optional<T>> dataRecordMapper) {
+        if (versionCache.isEmpty()) {
+            return findByVersion(condition, historyCondition, version, dataRecordMapper);
+        }
+        return findVersion(ehrId, voId, condition, historyCondition, version)
+                .map(CachedVersion::canonicalJson)
+                .map(fromCanonicalJson);
+    }
+
+    /**
+     * Reads the version in canonical JSON, via the {@link VersionCache} if present.
+     *
+     * @param voId the id of the versioned object, as the conditions select it
+     */
+    protected Optional<CachedVersion> findVersion(
+            UUID ehrId,
+            UUID voId,
+            Function<Table<?>, Condition> condition,
+            Function<Table<?>, Condition> historyCondition,
+            int version) {
+        if (versionCache.isEmpty()) {
+            return findByVersion(condition, historyCondition, version, r -> toCachedVersion(ehrId, r));
+        }
+        VersionCache cache = versionCache.get();
+        Optional<CachedVersion> cached = cache.get(getLocatableClass(), ehrId, voId, version);
+        if (cached.isEmpty()) {
+            cached = findByVersion(condition, historyCondition, version, r -> toCachedVersion(ehrId, r));
+            if (isVersionCacheable()) {
+                cached.ifPresent(v -> cache.put(getLocatableClass(), v));
+            }
+        }
+        return cached;
+    }
+
+    private Optional<CachedVersion> toCachedVersion(UUID ehrId, Record /*<UUID, Integer, String, …>*/ dataRecord) {
+        return toRootCanonicalJson(dataRecord)
+                .map(json -> new CachedVersion(
+                        ehrId,
+                        dataRecord.get(0, UUID.class),
+                        dataRecord.get(1, Integer.class),
+                        json,
+                        toTemplateId(dataRecord)));
+    }
+
+    /**
+     * @param dataRecord {vo_id, sys_version, aggregated json data as string, …}
+     * @return the id of the template stored alongside the data, <code>null</code> if the type has none
+     */
+    protected UUID toTemplateId(Record /*<UUID, Integer, String, …>*/ dataRecord) {
+        return null;
+    }
+
+    /**
+     * Versions read by a transaction that writes are not cached: they may not be committed.
+     */
+    private static boolean isVersionCacheable() {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    /**
+     * @return the key of the head in the {@link VersionCache}, the vo_id by default
+     */
+    protected UUID headCacheId(UUID ehrId, UUID voId) {
+        return voId;
+    }
+
+    protected void invalidateCachedHead(UUID ehrId, UUID voId) {
+        versionCache.ifPresent(c -> c.invalidateHead(getLocatableClass(), headCacheId(ehrId, voId)));
+    }
+
+    protected O fromCanonicalJson(String canonicalJson) {
+        return CanonicalJson.DEFAULT_INSTANCE.unmarshal(canonicalJson, getLocatableClass());
     }
 
     public Optional<O> findByVersion(
             Function<Table<?>, Condition> condition, Function<Table<?>, Condition> historyCondition, int version) {
+        return findByVersion(condition, historyCondition, version, r -> toRootLocatable(r, getLocatableClass()));
+    }
+
+    protected <T> Optional<T> findByVersion(
+            Function<Table<?>, Condition> condition,
+            Function<Table<?>, Condition> historyCondition,
+            int version,
+            Function<Record, Optional<T>> dataRecordMapper) {
         SelectQuery<Record /*<UUID, Integer, JSONB, …>*/> headQuery = buildLocatableDataQuery(condition, true);
         headQuery.addConditions(
                 tables.versionHead().field(VERSION_PROTOTYPE.SYS_VERSION).eq(version));
@@ -173,7 +358,7 @@ public abstract class AbstractVersionedObjectRepository<
             throw new ObjectNotFoundException(typeName, "No %s with given ID found".formatted(typeName));
         }
 
-        return toRootLocatable(dataRecord, getLocatableClass());
+        return dataRecordMapper.apply(dataRecord);
     }
 
     protected Optional<HR> findRootRecordByVersion(
@@ -271,6 +456,8 @@ public abstract class AbstractVersionedObjectRepository<
         copyHeadToHistory(versionHead, now);
 
         deleteHead(condition, version, StateConflictException::new);
+        commitWatermark.advance(ehrId);
+        invalidateCachedHead(ehrId, versionHead.get(HISTORY_PROTOTYPE.VO_ID));
 
         UUID finalContributionId = Optional.ofNullable(contributionId)
                 .orElseGet(() -> contributionRepository.createDefault(
@@ -395,6 +582,8 @@ public abstract class AbstractVersionedObjectRepository<
             Consumer<VR> addVersionFieldsFunction,
             BiConsumer<StructureNode, DR> addDataFieldsFunction) {
 
+        commitWatermark.advance(ehrId);
+
         UUID finalContributionId = Optional.ofNullable(contributionId)
                 .orElseGet(() ->
                         contributionRepository.createDefault(ehrId, ContributionDataType.composition, changeType));
@@ -407,10 +596,10 @@ public abstract class AbstractVersionedObjectRepository<
         // Version
         VR versionRecord = versionData.versionRecord().into(tables.versionHead());
         addVersionFieldsFunction.accept(versionRecord);
-        versionRecord.store();
+        InsertBatch.insert(versionRecord);
 
         // Data
-        RepositoryHelper.executeBulkInsert(
+        InsertBatch.bulkInsert(
                 context,
                 versionData.dataRecords().get().map(r -> {
                     var v = r.getValue().into(tables.dataHead());
@@ -496,6 +685,8 @@ public abstract class AbstractVersionedObjectRepository<
             deleteHead(condition, headVersion, PreconditionFailedException::new);
         }
 
+        invalidateCachedHead(ehrId, headVoId);
+
         // commit new version
         commitHead(
                 ehrId,
@@ -667,27 +858,79 @@ public abstract class AbstractVersionedObjectRepository<
      */
     protected <L extends Locatable> Optional<L> toRootLocatable(
             Record /*<UUID, Integer, String, …>*/ dataRecord, Class<L> locatableClass) {
-        if (dataRecord == null || dataRecord.get(2) == null) {
+        if (!hasData(dataRecord)) {
             return Optional.empty();
         }
         UUID id = dataRecord.get(0, UUID.class);
         Integer version = dataRecord.get(1, Integer.class);
-        if (GONE_MARKER.equals(dataRecord.get(2))) {
-            throw new ResourceGoneException(
-                    "Data for %s (id: %s, version: %s) gone".formatted(targetType, id, version));
+        String dbFormat = dataRecord.get(2, String.class);
+        L rmObject = reconstructLocatable(dataRecord, dbFormat, locatableClass);
+        rmObject.setUid(buildObjectVersionId(id, version, systemService));
+        return Optional.of(rmObject);
+    }
+
+    /**
+     * Transcodes the data record to canonical JSON without creating RM objects.
+     *
+     * @param dataRecord {vo_id, sys_version, aggregated json data as string, …}
+     * @return the canonical JSON, including the uid
+     * @see StreamingDbToRmFormat#writeCanonicalJson
+     */
+    protected Optional<String> toRootCanonicalJson(Record /*<UUID, Integer, String, …>*/ dataRecord) {
+        if (!hasData(dataRecord)) {
+            return Optional.empty();
         }
+        UUID id = dataRecord.get(0, UUID.class);
+        Integer version = dataRecord.get(1, Integer.class);
         String dbFormat = dataRecord.get(2, String.class);
+
+        StringWriter writer = new StringWriter(dbFormat.length());
+        try (JsonGenerator gen = CanonicalJson.MARSHAL_OM.createGenerator(writer)) {
+            StreamingDbToRmFormat.writeCanonicalJson(
+                    gen, dbFormat, Map.of("uid", buildObjectVersionId(id, version, systemService)));
+        } catch (IOException e) {
+            throw new InternalServerException(e);
+        }
+        return Optional.of(writer.toString());
+    }
+
+    private boolean hasData(Record /*<UUID, Integer, String, …>*/ dataRecord) {
+        if (dataRecord == null || dataRecord.get(2) == null) {
+            return false;
+        }
+        if (GONE_MARKER.equals(dataRecord.get(2))) {
+            throw new ResourceGoneException("Data for %s (id: %s, version: %s) gone"
+                    .formatted(targetType, dataRecord.get(0, UUID.class), dataRecord.get(1, Integer.class)));
+        }
+        return true;
+    }
+
+    /**
+     * Builds the RM object from the aggregated db format without an intermediate JSON tree.
+     * Repositories that need to adjust the parsed rows (see {@link #parseJsonData}) use
+     * {@link #reconstructLocatableTree} instead.
+     *
+     * @param dataRecord {vo_id, sys_version, aggregated json data as string, …}
+     * @param dbFormat the aggregated json data
+     * @param locatableClass
+     * @return
+     * @param <L>
+     */
+    protected <L extends Locatable> L reconstructLocatable(
+            Record dataRecord, String dbFormat, Class<L> locatableClass) {
+        return StreamingDbToRmFormat.reconstructRmObject(locatableClass, dbFormat);
+    }
+
+    protected final <L extends Locatable> L reconstructLocatableTree(
+            Record dataRecord, String dbFormat, Class<L> locatableClass) {
         P_CTX pCtx = buildParseContext(dataRecord, RmDbJson.MARSHAL_OM);
         ObjectNode reconstructed = reconstruct(dbFormat, (p, idx) -> parseJsonData(p, dataRecord, idx, pCtx));
         DbToRmFormat.revertDbInPlace(reconstructed, false, true, true);
-        final Locatable rmObject;
         try {
-            rmObject = RmDbJson.MARSHAL_OM.treeToValue(reconstructed, locatableClass);
+            return RmDbJson.MARSHAL_OM.treeToValue(reconstructed, locatableClass);
         } catch (JsonProcessingException e) {
             throw new InternalServerException(e);
         }
-        rmObject.setUid(buildObjectVersionId(id, version, systemService));
-        return Optional.of((L) rmObject);
     }
 
     protected P_CTX buildParseContext(Record rec, ObjectMapper objectMapper) {
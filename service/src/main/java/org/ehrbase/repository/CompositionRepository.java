@@ -42,9 +42,13 @@ import org.ehrbase.jooq.pg.tables.records.CompDataRecord;
 import org.ehrbase.jooq.pg.tables.records.CompVersionHistoryRecord;
 import org.ehrbase.jooq.pg.tables.records.CompVersionRecord;
 import org.ehrbase.openehr.aqlengine.asl.model.AslRmTypeAndConcept;
+import org.ehrbase.openehr.aqlengine.service.CommitWatermark;
+import org.ehrbase.repository.VersionCache.CachedVersion;
 import org.ehrbase.service.TimeProvider;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
 import org.jooq.Record1;
 import org.jooq.Table;
 import org.jooq.TableField;
@@ -60,7 +64,9 @@ public class CompositionRepository
             DSLContext context,
             ContributionRepository contributionRepository,
             SystemService systemService,
-            TimeProvider timeProvider) {
+            TimeProvider timeProvider,
+            CommitWatermark commitWatermark,
+            Optional<VersionCache> versionCache) {
         super(
                 AuditDetailsTargetType.COMPOSITION,
                 COMP_VERSION,
@@ -69,7 +75,9 @@ public class CompositionRepository
                 context,
                 contributionRepository,
                 systemService,
-                timeProvider);
+                timeProvider,
+                commitWatermark,
+                versionCache);
     }
 
     @Override
@@ -142,6 +150,12 @@ public class CompositionRepository
 
     public boolean exists(UUID compId) {
 
+        if (InsertBatch.current()
+                .filter(b -> b.anyPending(COMP_VERSION, r -> compId.equals(r.getVoId())))
+                .isPresent()) {
+            return true;
+        }
+
         return context.selectOne()
                         .from(COMP_VERSION)
                         .where(COMP_VERSION.VO_ID.eq(compId))
@@ -198,13 +212,57 @@ public class CompositionRepository
     public Optional<Composition> findByVersion(UUID ehrId, UUID compId, int version) {
 
         return findByVersion(
+                ehrId,
+                compId,
                 singleCompositionInEhrCondition(ehrId, compId),
                 singleCompositionInEhrCondition(ehrId, compId),
-                version);
+                version,
+                this::fromCanonicalJson,
+                r -> toRootLocatable(r, Composition.class));
     }
 
     public Optional<Composition> findHead(UUID ehrId, UUID compId) {
-        return findHead(singleCompositionInEhrCondition(ehrId, compId));
+        return findHead(
+                ehrId,
+                compId,
+                singleCompositionInEhrCondition(ehrId, compId),
+                this::fromCanonicalJson,
+                r -> toRootLocatable(r, Composition.class));
+    }
+
+    /**
+     * @return the composition in canonical JSON, transcoded from the database format, along with its template
+     */
+    public Optional<CachedVersion> findCanonicalJson(UUID ehrId, UUID compId, Integer version) {
+        if (version == null) {
+            return findHeadVersion(ehrId, compId, singleCompositionInEhrCondition(ehrId, compId));
+        }
+        return findVersion(
+                ehrId,
+                compId,
+                singleCompositionInEhrCondition(ehrId, compId),
+                singleCompositionInEhrCondition(ehrId, compId),
+                version);
+    }
+
+    /**
+     * The template_id is read along with the data, so it does not need to be looked up separately
+     */
+    @Override
+    protected AdditionalDataQuerySelectFields getAdditionalDataQuerySelectFields(
+            Table<?> versionTable, Table<?> dataTable, boolean head) {
+        if (head) {
+            Field<UUID> templateId = versionTable.field(COMP_VERSION.TEMPLATE_ID);
+            return new AdditionalDataQuerySelectFields(new Field[] {templateId}, new Field[] {templateId});
+        } else {
+            return new AdditionalDataQuerySelectFields(
+                    new Field[] {versionTable.field(COMP_VERSION_HISTORY.TEMPLATE_ID)}, new Field[] {});
+        }
+    }
+
+    @Override
+    protected UUID toTemplateId(Record dataRecord) {
+        return dataRecord.get(3, UUID.class);
     }
 
     private Optional<CompVersionHistoryRecord> findRootRecordByVersion(UUID ehrId, UUID compId, int version) {
@@ -275,6 +333,9 @@ public class CompositionRepository
                 .where(COMP_VERSION_HISTORY.VO_ID.eq(compId))
                 .execute();
         context.delete(COMP_VERSION).where(COMP_VERSION.VO_ID.eq(compId)).execute();
+        // the EHR of the composition is not known
+        commitWatermark.advance(null);
+        versionCache.ifPresent(c -> c.invalidateVersionedObject(Composition.class, compId));
     }
 
     @Transactional
@@ -283,5 +344,7 @@ public class CompositionRepository
                 .where(COMP_VERSION_HISTORY.EHR_ID.eq(ehrId))
                 .execute();
         context.delete(COMP_VERSION).where(COMP_VERSION.EHR_ID.eq(ehrId)).execute();
+        commitWatermark.advance(ehrId);
+        versionCache.ifPresent(c -> c.invalidateEhr(ehrId));
     }
 }
@@ -157,7 +157,7 @@ public class ContributionRepository {
                 .orElse(null));
         auditDetailsRecord.setUserId(userService.getCurrentUserId());
 
-        auditDetailsRecord.store();
+        InsertBatch.insert(auditDetailsRecord);
         return auditDetailsRecord.getId();
     }
 
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.temporal.TemporalAccessor;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.ehrbase.api.exception.InternalServerException;
+import org.jooq.DSLContext;
+import org.jooq.EnumType;
+import org.jooq.Field;
+import org.jooq.JSONB;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+/**
+ * Writes records via <code>COPY ... FROM STDIN</code> in CSV format on the connection of the current transaction.
+ * <p>
+ * The rows are streamed to the server in chunks of {@link #CHUNK_SIZE} bytes, so no statement needs to be prepared
+ * and no bind values are sent per row.
+ */
+final class CopyBulkInsert {
+
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    private CopyBulkInsert() {}
+
+    static <T extends Record> void execute(DSLContext context, Stream<T> recordStream, Table<?> table) {
+        Field<?>[] fields = table.fields();
+        String sql = copySql(context, table, fields);
+
+        context.connection(connection -> {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+            try {
+                StringBuilder sb = new StringBuilder(CHUNK_SIZE + 4096);
+                recordStream.forEach(r -> {
+                    appendRow(sb, r, fields);
+                    if (sb.length() >= CHUNK_SIZE) {
+                        writeChunk(copyIn, sb);
+                    }
+                });
+                writeChunk(copyIn, sb);
+                copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        });
+    }
+
+    static String copySql(DSLContext context, Table<?> table, Field<?>[] fields) {
+        return "COPY %s (%s) FROM STDIN (FORMAT csv)"
+                .formatted(
+                        context.render(table.$aliased()),
+                        Arrays.stream(fields)
+                                .map(f -> context.render(DSL.name(f.getName())))
+                                .collect(Collectors.joining(", ")));
+    }
+
+    static void appendRow(StringBuilder sb, Record rec, Field<?>[] fields) {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            Object value = rec.get(fields[i]);
+            // an unquoted empty value is NULL, while a quoted one is an empty string
+            if (value != null) {
+                appendQuoted(sb, toText(value));
+            }
+        }
+        sb.append('\n');
+    }
+
+    /**
+     * @return the PostgreSQL text representation of the value
+     */
+    static String toText(Object value) {
+        return switch (value) {
+            case String s -> s;
+            case JSONB jsonb -> jsonb.data();
+            case UUID uuid -> uuid.toString();
+            case Number number -> number.toString();
+            case Boolean bool -> bool.toString();
+            case TemporalAccessor temporal -> temporal.toString();
+            case EnumType enumType -> enumType.getLiteral();
+            case Object[] array -> arrayLiteral(array);
+            default ->
+                throw new IllegalArgumentException(
+                        "Unsupported type for COPY: %s".formatted(value.getClass().getName()));
+        };
+    }
+
+    private static String arrayLiteral(Object[] array) {
+        return Arrays.stream(array)
+                .map(e -> e == null
+                        ? "NULL"
+                        : "\"" + toText(e).replace("\\", "\\\\").replace("\"", "\\\"") + "\"")
+                .collect(Collectors.joining(",", "{", "}"));
+    }
+
+    private static void appendQuoted(StringBuilder sb, String text) {
+        sb.append('"');
+        for (int i = 0, l = text.length(); i < l; i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                sb.append('"');
+            }
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    private static void writeChunk(CopyIn copyIn, StringBuilder sb) {
+        if (sb.isEmpty()) {
+            return;
+        }
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        sb.setLength(0);
+        try {
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+        } catch (SQLException e) {
+            throw new InternalServerException(e);
+        }
+    }
+}
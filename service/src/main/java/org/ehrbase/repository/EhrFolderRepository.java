@@ -26,6 +26,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.google.common.collect.Streams;
+import com.nedap.archie.rm.archetyped.Locatable;
 import com.nedap.archie.rm.directory.Folder;
 import com.nedap.archie.rm.support.identification.ObjectVersionId;
 import java.time.OffsetDateTime;
@@ -47,6 +48,7 @@ import org.ehrbase.jooq.pg.tables.records.EhrFolderDataRecord;
 import org.ehrbase.jooq.pg.tables.records.EhrFolderVersionHistoryRecord;
 import org.ehrbase.jooq.pg.tables.records.EhrFolderVersionRecord;
 import org.ehrbase.jooq.pg.util.AdditionalSQLFunctions;
+import org.ehrbase.openehr.aqlengine.service.CommitWatermark;
 import org.ehrbase.openehr.dbformat.DbToRmFormat;
 import org.ehrbase.openehr.dbformat.StructureNode;
 import org.ehrbase.openehr.dbformat.VersionedObjectDataStructure;
@@ -117,7 +119,8 @@ public class EhrFolderRepository
             DSLContext context,
             ContributionRepository contributionRepository,
             SystemService systemService,
-            TimeProvider timeProvider) {
+            TimeProvider timeProvider,
+            CommitWatermark commitWatermark) {
         super(
                 AuditDetailsTargetType.EHR_FOLDER,
                 EhrFolderVersion.EHR_FOLDER_VERSION,
@@ -126,7 +129,8 @@ public class EhrFolderRepository
                 context,
                 contributionRepository,
                 systemService,
-                timeProvider);
+                timeProvider,
+                commitWatermark);
     }
 
     @Override
@@ -207,6 +211,15 @@ public class EhrFolderRepository
         return new FolderParseContext(rec.get(3, UUID[].class), objectMapper.getNodeFactory());
     }
 
+    /**
+     * The folder items are not part of the data rows, so the tree based reconstruction is used.
+     */
+    @Override
+    protected <L extends Locatable> L reconstructLocatable(
+            final Record dataRecord, final String dbFormat, final Class<L> locatableClass) {
+        return reconstructLocatableTree(dataRecord, dbFormat, locatableClass);
+    }
+
     @Override
     public ParsedRow parseJsonData(
             final Pair<CharSequence, CharSequence> p, final Record rec, final int idx, FolderParseContext ctx) {
@@ -246,8 +259,7 @@ public class EhrFolderRepository
 
         if (itemsNode != null) {
             // re-serialize the json because items was removed
-            r.setData(JSONB.valueOf(
-                    VersionedObjectDataStructure.applyRmAliases(n.getJsonNode()).toString()));
+            r.setData(JSONB.valueOf(VersionedObjectDataStructure.toAliasedJson(n.getJsonNode())));
         }
         r.setEhrId(ehrId);
         r.setEhrFoldersIdx(ehrFoldersIdx);
@@ -395,6 +407,7 @@ public class EhrFolderRepository
         }
 
         deleteHistoryQuery.execute();
+        commitWatermark.advance(ehrId);
     }
 
     private Function<Table<?>, Condition> singleFolderInEhrCondition(UUID ehrId, int folderIdx) {
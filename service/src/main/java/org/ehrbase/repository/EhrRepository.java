@@ -46,6 +46,7 @@ import org.ehrbase.jooq.pg.tables.records.EhrRecord;
 import org.ehrbase.jooq.pg.tables.records.EhrStatusDataRecord;
 import org.ehrbase.jooq.pg.tables.records.EhrStatusVersionHistoryRecord;
 import org.ehrbase.jooq.pg.tables.records.EhrStatusVersionRecord;
+import org.ehrbase.openehr.aqlengine.service.CommitWatermark;
 import org.ehrbase.openehr.dbformat.RmAttributeAlias;
 import org.ehrbase.service.TimeProvider;
 import org.jooq.Condition;
@@ -75,7 +76,9 @@ public class EhrRepository
             DSLContext context,
             ContributionRepository contributionRepository,
             SystemService systemService,
-            TimeProvider timeProvider) {
+            TimeProvider timeProvider,
+            CommitWatermark commitWatermark,
+            Optional<VersionCache> versionCache) {
 
         super(
                 AuditDetailsTargetType.EHR_STATUS,
@@ -85,7 +88,9 @@ public class EhrRepository
                 context,
                 contributionRepository,
                 systemService,
-                timeProvider);
+                timeProvider,
+                commitWatermark,
+                versionCache);
     }
 
     @Override
@@ -163,7 +168,20 @@ public class EhrRepository
     }
 
     public Optional<EhrStatus> findHead(UUID ehrId) {
-        return findHead(singleEhrStatusCondition(ehrId));
+        return findHead(
+                ehrId,
+                ehrId,
+                singleEhrStatusCondition(ehrId),
+                this::fromCanonicalJson,
+                r -> toRootLocatable(r, EhrStatus.class));
+    }
+
+    /**
+     * The head of the EHR_STATUS is looked up by the EHR
+     */
+    @Override
+    protected UUID headCacheId(UUID ehrId, UUID voId) {
+        return ehrId;
     }
 
     @Override
@@ -198,6 +216,8 @@ public class EhrRepository
         EhrStatusVersionHistory history = EHR_STATUS_VERSION_HISTORY.as("h");
         context.deleteFrom(history).where(history.EHR_ID.eq(ehrId)).execute();
         context.deleteFrom(EHR_).where(EHR_.ID.eq(ehrId)).execute();
+        commitWatermark.advance(ehrId);
+        versionCache.ifPresent(c -> c.invalidateEhr(ehrId));
     }
 
     @Transactional
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import org.jooq.DSLContext;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.TableRecord;
+
+/**
+ * Defers the insertion of new records, so they are written with a few statements per table when the batch is flushed,
+ * instead of one or more statements per versioned object.
+ * <p>
+ * Repositories only add records to the batch while it is {@link #run(Runnable) running}; otherwise they write
+ * directly. As the records are not visible to the database before {@link #flush()}, the batch must only be used for
+ * operations that do not read what was written before by the same batch.
+ * <p>
+ * Tables are flushed in the order they were first used, so foreign keys are satisfied if the records were added in
+ * dependency order.
+ */
+public final class InsertBatch {
+
+    private static final ThreadLocal<InsertBatch> CURRENT = new ThreadLocal<>();
+
+    private record TableRecords(List<Record> records, boolean bulk) {}
+
+    private final DSLContext context;
+    private final Map<Table<?>, TableRecords> pending = new LinkedHashMap<>();
+
+    public InsertBatch(DSLContext context) {
+        this.context = context;
+    }
+
+    /**
+     * @return the batch running in the current thread
+     */
+    static Optional<InsertBatch> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    /**
+     * Executes the work, collecting the inserts of the repositories in this batch.
+     */
+    public void run(Runnable work) {
+        if (CURRENT.get() != null) {
+            throw new IllegalStateException("An insert batch is already running");
+        }
+        CURRENT.set(this);
+        try {
+            work.run();
+        } finally {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Writes all pending records.
+     */
+    public void flush() {
+        pending.forEach((table, tableRecords) -> {
+            if (tableRecords.bulk()) {
+                RepositoryHelper.executeBulkInsert(context, tableRecords.records().stream(), table);
+            } else {
+                // only the changed fields are inserted, so column defaults still apply
+                context.batchInsert(tableRecords.records().stream()
+                                .map(r -> (TableRecord<?>) r)
+                                .toList())
+                        .execute();
+            }
+        });
+        pending.clear();
+    }
+
+    /**
+     * Inserts the record, or adds it to the running batch.
+     */
+    static void insert(TableRecord<?> rec) {
+        current().ifPresentOrElse(b -> b.add(rec.getTable(), Stream.of(rec), false), rec::store);
+    }
+
+    /**
+     * Inserts all records via {@link RepositoryHelper#executeBulkInsert}, or adds them to the running batch.
+     */
+    static <T extends Record> void bulkInsert(DSLContext context, Stream<T> records, Table<?> table) {
+        current()
+                .ifPresentOrElse(
+                        b -> b.add(table, records, true),
+                        () -> RepositoryHelper.executeBulkInsert(context, records, table));
+    }
+
+    /**
+     * @return if a pending record of the table matches the predicate
+     */
+    <R extends TableRecord<R>> boolean anyPending(Table<R> table, Predicate<R> predicate) {
+        return Optional.ofNullable(pending.get(table)).stream()
+                .flatMap(t -> t.records().stream())
+                .map(table.getRecordType()::cast)
+                .anyMatch(predicate);
+    }
+
+    private void add(Table<?> table, Stream<? extends Record> records, boolean bulk) {
+        List<Record> tableRecords = pending.computeIfAbsent(
+                        table, t -> new TableRecords(new ArrayList<>(), bulk))
+                .records();
+        records.forEach(tableRecords::add);
+    }
+}
@@ -28,6 +28,22 @@ import org.jooq.Table;
 
 public class RepositoryHelper {
 
+    /**
+     * Key of the {@link org.jooq.Configuration#data(Object) configuration data} holding the {@link BulkInsertMode}
+     */
+    public static final String PROP_BULK_INSERT_MODE = "ehrbase.persistence.bulk-insert-mode";
+
+    public enum BulkInsertMode {
+        /**
+         * jOOQ {@link Loader} executing batched INSERT statements
+         */
+        LOADER,
+        /**
+         * PostgreSQL <code>COPY ... FROM STDIN</code>
+         */
+        COPY
+    }
+
     private RepositoryHelper() {
 
         // Helper Class
@@ -37,6 +53,11 @@ public class RepositoryHelper {
     public static <T extends Record> void executeBulkInsert(
             DSLContext context, Stream<T> recordStream, Table<?> table) {
 
+        if (context.configuration().data(PROP_BULK_INSERT_MODE) == BulkInsertMode.COPY) {
+            CopyBulkInsert.execute(context, recordStream, table);
+            return;
+        }
+
         try {
             Loader<?> execute = context.loadInto(table)
                     .bulkAfter(500)
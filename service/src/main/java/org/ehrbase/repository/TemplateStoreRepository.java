@@ -21,7 +21,9 @@ import static org.ehrbase.jooq.pg.Tables.COMP_VERSION;
 import static org.ehrbase.jooq.pg.Tables.COMP_VERSION_HISTORY;
 import static org.ehrbase.jooq.pg.tables.TemplateStore.TEMPLATE_STORE;
 
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import org.ehrbase.api.exception.ObjectNotFoundException;
@@ -37,14 +39,19 @@ import org.ehrbase.util.UuidGenerator;
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.Record1;
+import org.jooq.Record2;
 import org.jooq.Table;
+import org.jooq.impl.DSL;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 @Transactional
 public class TemplateStoreRepository {
 
+    private static final String SORT_COLLATION = "en_US";
+
     private final DSLContext context;
     private final TimeProvider timeProvider;
 
@@ -54,13 +61,36 @@ public class TemplateStoreRepository {
     }
 
     public TemplateWithDetails store(TemplateWithDetails templateData) {
+        // serializes concurrent inserts, so the sort keys are computed from all templates
+        context.execute("LOCK TABLE {0} IN SHARE ROW EXCLUSIVE MODE", TEMPLATE_STORE);
+
         TemplateStoreRecord templateStoreRecord = context.newRecord(TEMPLATE_STORE);
         templateStoreRecord.setId(UuidGenerator.randomUUID());
         setTemplateFields(templateData, templateStoreRecord, timeProvider);
         templateStoreRecord.store();
+        updateSortKeys();
         return buildMetadata(templateStoreRecord);
     }
 
+    /**
+     * Numbers the templates by template_id, so AQL can order by the <code>sort_key</code> column.
+     * Deleting templates leaves gaps, which do not affect the order.
+     */
+    private void updateSortKeys() {
+        Field<Integer> pos = DSL.rowNumber()
+                .over(DSL.orderBy(TEMPLATE_STORE.TEMPLATE_ID.collate(SORT_COLLATION)))
+                .as("pos");
+        Table<Record2<UUID, Integer>> sorted =
+                context.select(TEMPLATE_STORE.ID, pos).from(TEMPLATE_STORE).asTable("sorted");
+
+        context.update(TEMPLATE_STORE)
+                .set(TEMPLATE_STORE.SORT_KEY, sorted.field(pos))
+                .from(sorted)
+                .where(TEMPLATE_STORE.ID.eq(sorted.field(TEMPLATE_STORE.ID)))
+                .and(TEMPLATE_STORE.SORT_KEY.isDistinctFrom(sorted.field(pos)))
+                .execute();
+    }
+
     public TemplateWithDetails update(TemplateWithDetails templateData) {
         String templateId = templateData.meta().templateId();
         TemplateStoreRecord templateStoreRecord = context.selectFrom(TEMPLATE_STORE)
@@ -161,6 +191,51 @@ public class TemplateStoreRepository {
                 .fetch(TemplateStoreRepository::buildMetadata);
     }
 
+    /**
+     * Find the serialized WebTemplates of the given templates
+     * @param templateIds
+     * @return serialized WebTemplate by template_id; templates without one are missing
+     * @see org.ehrbase.util.WebTemplateSerialization
+     */
+    public Map<String, byte[]> findWebTemplates(String... templateIds) {
+
+        if (templateIds.length == 0) return Map.of();
+
+        return context.select(TEMPLATE_STORE.TEMPLATE_ID, TEMPLATE_STORE.WEB_TEMPLATE)
+                .from(TEMPLATE_STORE)
+                .where(TEMPLATE_STORE.TEMPLATE_ID.in(templateIds))
+                .and(TEMPLATE_STORE.WEB_TEMPLATE.isNotNull())
+                .fetchMap(TEMPLATE_STORE.TEMPLATE_ID, TEMPLATE_STORE.WEB_TEMPLATE);
+    }
+
+    public Optional<byte[]> findWebTemplate(String templateId) {
+        return context.select(TEMPLATE_STORE.WEB_TEMPLATE)
+                .from(TEMPLATE_STORE)
+                .where(TEMPLATE_STORE.TEMPLATE_ID.eq(templateId))
+                .and(TEMPLATE_STORE.WEB_TEMPLATE.isNotNull())
+                .fetchOptional(TEMPLATE_STORE.WEB_TEMPLATE);
+    }
+
+    /**
+     * Stores the serialized WebTemplate of a template.
+     * Runs in a transaction of its own, since WebTemplates are also built within read-only transactions;
+     * callers within a transaction have to defer it until the template is committed.
+     *
+     * @param meta the template the WebTemplate was built from; it is not stored if the template was updated since
+     * @param webTemplate the serialized WebTemplate
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void storeWebTemplate(TemplateService.TemplateDetails meta, byte[] webTemplate) {
+        context.update(TEMPLATE_STORE)
+                .set(TEMPLATE_STORE.WEB_TEMPLATE, webTemplate)
+                .where(TEMPLATE_STORE.ID.eq(meta.id()))
+                // the creation time of a freshly stored template has not been rounded to microseconds yet
+                .and(TEMPLATE_STORE.CREATION_TIME.between(
+                        meta.creationTime().minus(1, ChronoUnit.MICROS),
+                        meta.creationTime().plus(1, ChronoUnit.MICROS)))
+                .execute();
+    }
+
     public Optional<String> findTemplateIdByUuid(UUID uuid) {
         return context.select(TEMPLATE_STORE.TEMPLATE_ID)
                 .from(TEMPLATE_STORE)
@@ -182,6 +257,8 @@ public class TemplateStoreRepository {
         templateStoreRecord.setContent(templateData.operationalTemplate());
         templateStoreRecord.setConcept(templateData.meta().concept());
         templateStoreRecord.setRootArchetype(templateData.meta().archetypeId());
+        // built from the new content after storing
+        templateStoreRecord.setWebTemplate(null);
     }
 
     public boolean isTemplateUsed(UUID templateUuid) {
@@ -201,6 +278,37 @@ public class TemplateStoreRepository {
                 .isPresent();
     }
 
+    /**
+     * The number of templates combined with the latest creation time, which changes whenever a template is stored,
+     * updated or deleted.
+     *
+     * @return identifies the current contents of the template store
+     */
+    public String findStoreVersion() {
+        return context.select(DSL.count(), DSL.max(TEMPLATE_STORE.CREATION_TIME))
+                .from(TEMPLATE_STORE)
+                .fetchSingle(r -> r.value1() + "@" + r.value2());
+    }
+
+    /**
+     * @return the number of compositions by template_id; unused templates are missing
+     */
+    public Map<String, Integer> countCompositionsByTemplateId() {
+        CompVersion vTable = COMP_VERSION.as("v");
+        Field<Integer> count = DSL.count().as("count");
+
+        Table<Record2<UUID, Integer>> usage = context.select(vTable.TEMPLATE_ID, count)
+                .from(vTable)
+                .groupBy(vTable.TEMPLATE_ID)
+                .asTable("usage");
+
+        return context.select(TEMPLATE_STORE.TEMPLATE_ID, usage.field(count))
+                .from(TEMPLATE_STORE)
+                .join(usage)
+                .on(TEMPLATE_STORE.ID.eq(usage.field(vTable.TEMPLATE_ID)))
+                .fetchMap(TEMPLATE_STORE.TEMPLATE_ID, usage.field(count));
+    }
+
     public List<String> getAllUsedTemplateIds() {
         CompVersion vTable = COMP_VERSION.as("v");
         CompVersionHistory hTable = COMP_VERSION_HISTORY.as("h");
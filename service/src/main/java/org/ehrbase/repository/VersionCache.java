@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Near cache for versions of versioned objects in canonical JSON, so reading them skips both the database and the
+ * reconstruction from the database format.
+ * <p>
+ * A version, i.e. <code>(vo_id, sys_version)</code>, does not change once it is committed, so cached versions stay
+ * valid until the object is removed by an admin delete.
+ * Which version is the head is tracked separately: implementations must only return a head if the
+ * {@link org.ehrbase.openehr.aqlengine.service.CommitWatermark} did not advance for its EHR since it was read.
+ *
+ * @see AbstractVersionedObjectRepository
+ */
+public interface VersionCache {
+
+    /**
+     * @param ehrId         the EHR the version belongs to
+     * @param voId          the id of the versioned object
+     * @param version       the <code>sys_version</code>
+     * @param canonicalJson the version in canonical JSON, including the uid
+     * @param templateId    the id of the template in the template store, <code>null</code> for types without one
+     */
+    record CachedVersion(UUID ehrId, UUID voId, int version, String canonicalJson, UUID templateId) {
+
+        public CachedVersion(UUID ehrId, UUID voId, int version, String canonicalJson) {
+            this(ehrId, voId, version, canonicalJson, null);
+        }
+    }
+
+    /**
+     * @param type    the RM type of the versioned object
+     * @param ehrId   the EHR the version must belong to
+     * @param voId    the id of the versioned object
+     * @param version the <code>sys_version</code>
+     */
+    Optional<CachedVersion> get(Class<?> type, UUID ehrId, UUID voId, int version);
+
+    void put(Class<?> type, CachedVersion version);
+
+    /**
+     * @param type   the RM type of the versioned object
+     * @param ehrId  the EHR the head must belong to
+     * @param headId identifies the head, e.g. the vo_id of a composition or the EHR of an EHR_STATUS
+     * @return the head version, unless the EHR was modified since it was put
+     */
+    Optional<CachedVersion> getHead(Class<?> type, UUID ehrId, UUID headId);
+
+    /**
+     * @param watermark the {@link org.ehrbase.openehr.aqlengine.service.CommitWatermark#current()} before the head was
+     *                  read
+     */
+    void putHead(Class<?> type, UUID headId, long watermark, CachedVersion version);
+
+    void invalidateHead(Class<?> type, UUID headId);
+
+    /**
+     * Removes all versions of the given versioned object, e.g. after it was removed by an admin delete
+     */
+    void invalidateVersionedObject(Class<?> type, UUID voId);
+
+    /**
+     * Removes all versions belonging to the given EHR
+     */
+    void invalidateEhr(UUID ehrId);
+
+    void clear();
+}
@@ -124,8 +124,7 @@ public record VersionDataDbRecord(
         rec.setEntityIdx(index.printIndexString(false, true));
         rec.setEntityIdxLen(index.length());
 
-        rec.setData(JSONB.valueOf(
-                VersionedObjectDataStructure.applyRmAliases(node.getJsonNode()).toString()));
+        rec.setData(JSONB.valueOf(VersionedObjectDataStructure.toAliasedJson(node.getJsonNode())));
 
         // system columns
         rec.setVoId(voId);
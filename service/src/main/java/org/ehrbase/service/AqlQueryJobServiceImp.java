@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang3.StringUtils;
+import org.ehrbase.api.dto.AqlQueryJob;
+import org.ehrbase.api.dto.AqlQueryJob.Status;
+import org.ehrbase.api.dto.AqlQueryJobPage;
+import org.ehrbase.api.dto.AqlQueryRequest;
+import org.ehrbase.api.dto.AqlQueryResultStream;
+import org.ehrbase.api.exception.InternalServerException;
+import org.ehrbase.api.exception.InvalidApiParameterException;
+import org.ehrbase.api.exception.ObjectNotFoundException;
+import org.ehrbase.api.exception.ServiceUnavailableException;
+import org.ehrbase.api.exception.StateConflictException;
+import org.ehrbase.api.service.AqlQueryJobService;
+import org.ehrbase.api.service.AqlQueryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * {@link AqlQueryJobService} implementation, enabled by <code>ehrbase.rest.aql.jobs.enabled</code>.
+ * <p>
+ * The queries are prepared when they are submitted, so invalid queries are rejected right away. They are executed by
+ * a bounded pool of workers that spool the rows to local files: the rows file holds the JSON of the rows, the index
+ * file the offset of each row in the rows file, followed by the length of the rows file. Pages are read by mapping
+ * the respective ranges of both files. Completed jobs and their files are discarded after the configured TTL.
+ */
+@Service
+@ConditionalOnProperty(prefix = AqlQueryJobServiceImp.PROP_PREFIX, name = "enabled", havingValue = "true")
+public class AqlQueryJobServiceImp implements AqlQueryJobService, DisposableBean {
+
+    public static final String PROP_PREFIX = "ehrbase.rest.aql.jobs";
+
+    private static final String JOB_TYPE = "AQL_QUERY_JOB";
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final AqlQueryService aqlQueryService;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final int maxFetch;
+    private final Path spoolDirectory;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService cleanupExecutor;
+    private final Map<UUID, Job> jobs = new ConcurrentHashMap<>();
+
+    public AqlQueryJobServiceImp(
+            AqlQueryService aqlQueryService,
+            ObjectMapper objectMapper,
+            @Value("${" + PROP_PREFIX + ".threads:2}") int threads,
+            @Value("${" + PROP_PREFIX + ".queue-capacity:10}") int queueCapacity,
+            @Value("${" + PROP_PREFIX + ".ttl:1h}") Duration ttl,
+            @Value("${" + PROP_PREFIX + ".max-fetch:10000}") int maxFetch,
+            @Value("${" + PROP_PREFIX + ".spool-directory:}") String spoolDirectory) {
+        this.aqlQueryService = aqlQueryService;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.maxFetch = maxFetch;
+        try {
+            this.spoolDirectory = StringUtils.isBlank(spoolDirectory)
+                    ? Files.createTempDirectory("ehrbase-aql-jobs")
+                    : Files.createDirectories(Path.of(spoolDirectory));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                daemonThreads("aql-job-"));
+        this.cleanupExecutor = Executors.newSingleThreadScheduledExecutor(daemonThreads("aql-job-cleanup-"));
+        long cleanupInterval = Math.clamp(ttl.toMillis() / 2, 1_000, 60_000);
+        cleanupExecutor.scheduleWithFixedDelay(
+                this::discardExpiredJobs, cleanupInterval, cleanupInterval, TimeUnit.MILLISECONDS);
+    }
+
+    private static ThreadFactory daemonThreads(String namePrefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, namePrefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @Override
+    public AqlQueryJob submit(AqlQueryRequest aqlQueryRequest) {
+
+        // prepared in the request scope, only the rows are consumed by the worker
+        AqlQueryResultStream resultStream = aqlQueryService.queryStreaming(aqlQueryRequest);
+
+        UUID jobId = UUID.randomUUID();
+        Job job = new Job(
+                jobId,
+                aqlQueryRequest.queryName(),
+                resultStream,
+                spoolDirectory.resolve(jobId + ".rows"),
+                spoolDirectory.resolve(jobId + ".idx"));
+        jobs.put(jobId, job);
+        try {
+            job.future = executor.submit(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(jobId);
+            throw new ServiceUnavailableException("Too many AQL query jobs, please retry later", e);
+        }
+        return job.toDto(ttl);
+    }
+
+    @Override
+    public AqlQueryJob getJob(UUID jobId) {
+        return findJob(jobId).toDto(ttl);
+    }
+
+    @Override
+    public AqlQueryJobPage getPage(UUID jobId, long offset, int fetch) {
+        if (offset < 0 || fetch < 0) {
+            throw new InvalidApiParameterException("offset and fetch must not be negative");
+        }
+        Job job = findJob(jobId);
+        AqlQueryJob dto = job.toDto(ttl);
+        if (dto.status() != Status.COMPLETED) {
+            throw new StateConflictException("AQL query job %s is %s".formatted(jobId, dto.status()));
+        }
+
+        long end = Math.min(offset + Math.min(fetch, maxFetch), dto.rowCount());
+        if (offset >= end) {
+            return new AqlQueryJobPage(dto, offset, List.of());
+        }
+        try {
+            return new AqlQueryJobPage(dto, offset, readRows(job, offset, (int) (end - offset)));
+        } catch (IOException e) {
+            if (!jobs.containsKey(jobId)) {
+                // deleted or expired while reading
+                throw new ObjectNotFoundException(JOB_TYPE, "AQL query job %s not found".formatted(jobId));
+            }
+            throw new InternalServerException("Failed to read the result of AQL query job " + jobId, e);
+        }
+    }
+
+    @Override
+    public void delete(UUID jobId) {
+        Job job = jobs.remove(jobId);
+        if (job == null) {
+            throw new ObjectNotFoundException(JOB_TYPE, "AQL query job %s not found".formatted(jobId));
+        }
+        discard(job);
+    }
+
+    @Override
+    public void destroy() {
+        cleanupExecutor.shutdownNow();
+        executor.shutdownNow();
+        jobs.values().forEach(this::discard);
+        jobs.clear();
+    }
+
+    private Job findJob(UUID jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new ObjectNotFoundException(JOB_TYPE, "AQL query job %s not found".formatted(jobId));
+        }
+        return job;
+    }
+
+    private void run(Job job) {
+        if (!job.start()) {
+            return;
+        }
+        try (RowSpool spool = new RowSpool(job.rowsFile, job.indexFile)) {
+            job.resultStream.forEachRow(row -> {
+                if (job.isCancelled()) {
+                    throw new CancellationException();
+                }
+                spool.write(toJson(row));
+                job.rowSpooled();
+            });
+            spool.finish();
+            job.finish(Status.COMPLETED, null);
+        } catch (CancellationException e) {
+            job.finish(Status.CANCELLED, null);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("AQL query job {} failed", job.id, e);
+            job.finish(Status.FAILED, StringUtils.defaultIfBlank(e.getMessage(), e.getClass().getSimpleName()));
+        }
+        if (job.toDto(ttl).status() != Status.COMPLETED || !jobs.containsKey(job.id)) {
+            // failed, or deleted while running
+            deleteFiles(job);
+        }
+    }
+
+    private byte[] toJson(List<Object> row) {
+        try {
+            return objectMapper.writeValueAsBytes(row);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<String> readRows(Job job, long offset, int count) throws IOException {
+        try (FileChannel index = FileChannel.open(job.indexFile, StandardOpenOption.READ);
+                FileChannel data = FileChannel.open(job.rowsFile, StandardOpenOption.READ)) {
+            MappedByteBuffer offsets =
+                    index.map(FileChannel.MapMode.READ_ONLY, offset * Long.BYTES, (count + 1L) * Long.BYTES);
+            long first = offsets.getLong(0);
+            long last = offsets.getLong(count * Long.BYTES);
+            MappedByteBuffer rows = data.map(FileChannel.MapMode.READ_ONLY, first, last - first);
+
+            List<String> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int start = (int) (offsets.getLong(i * Long.BYTES) - first);
+                int end = (int) (offsets.getLong((i + 1) * Long.BYTES) - first);
+                byte[] json = new byte[end - start];
+                rows.get(start, json);
+                result.add(new String(json, StandardCharsets.UTF_8));
+            }
+            return result;
+        }
+    }
+
+    void discardExpiredJobs() {
+        Instant now = Instant.now();
+        jobs.values().removeIf(job -> {
+            Instant expires = job.toDto(ttl).expires();
+            if (expires != null && expires.isBefore(now)) {
+                deleteFiles(job);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void discard(Job job) {
+        job.cancel();
+        // cancels the statement, a query may not return any row for a long time
+        job.resultStream.cancel();
+        Future<?> future = job.future;
+        if (future != null) {
+            future.cancel(true);
+        }
+        // a running job deletes its files when it notices the cancellation
+        if (!job.isRunning()) {
+            deleteFiles(job);
+        }
+    }
+
+    private void deleteFiles(Job job) {
+        try {
+            Files.deleteIfExists(job.rowsFile);
+            Files.deleteIfExists(job.indexFile);
+        } catch (IOException e) {
+            logger.warn("Failed to delete the files of AQL query job {}", job.id, e);
+        }
+    }
+
+    /**
+     * Writes the rows file and the index file of a job
+     */
+    private static final class RowSpool implements Closeable {
+
+        private final OutputStream rows;
+        private final DataOutputStream index;
+        private long position;
+
+        RowSpool(Path rowsFile, Path indexFile) throws IOException {
+            this.rows = new BufferedOutputStream(Files.newOutputStream(rowsFile));
+            this.index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile)));
+        }
+
+        void write(byte[] row) {
+            try {
+                index.writeLong(position);
+                rows.write(row);
+                position += row.length;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void finish() throws IOException {
+            index.writeLong(position);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                index.close();
+            } finally {
+                rows.close();
+            }
+        }
+    }
+
+    private static final class Job {
+
+        private final UUID id;
+        private final String queryName;
+        private final AqlQueryResultStream resultStream;
+        private final Instant submitted = Instant.now();
+        private final Path rowsFile;
+        private final Path indexFile;
+
+        private volatile Future<?> future;
+        private volatile boolean cancelled;
+        private Status status = Status.QUEUED;
+        private Instant started;
+        private Instant finished;
+        private long rowCount;
+        private String error;
+
+        Job(UUID id, String queryName, AqlQueryResultStream resultStream, Path rowsFile, Path indexFile) {
+            this.id = id;
+            this.queryName = queryName;
+            this.resultStream = resultStream;
+            this.rowsFile = rowsFile;
+            this.indexFile = indexFile;
+        }
+
+        /**
+         * @return if the job shall be run, i.e. was not cancelled while queued
+         */
+        synchronized boolean start() {
+            if (cancelled) {
+                status = Status.CANCELLED;
+                finished = Instant.now();
+                return false;
+            }
+            status = Status.RUNNING;
+            started = Instant.now();
+            return true;
+        }
+
+        synchronized void rowSpooled() {
+            rowCount++;
+        }
+
+        synchronized void finish(Status finalStatus, String errorMessage) {
+            status = cancelled ? Status.CANCELLED : finalStatus;
+            error = errorMessage;
+            finished = Instant.now();
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (status == Status.QUEUED) {
+                status = Status.CANCELLED;
+                finished = Instant.now();
+            }
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        synchronized boolean isRunning() {
+            return status == Status.RUNNING;
+        }
+
+        synchronized AqlQueryJob toDto(Duration ttl) {
+            return new AqlQueryJob(
+                    id,
+                    status,
+                    queryName,
+                    resultStream.variables(),
+                    submitted,
+                    started,
+                    finished,
+                    finished == null ? null : finished.plus(ttl),
+                    rowCount,
+                    status == Status.COMPLETED ? resultStream.continuationToken() : null,
+                    error);
+        }
+    }
+}
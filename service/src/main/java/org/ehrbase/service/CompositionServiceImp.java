@@ -61,6 +61,7 @@ import org.ehrbase.openehr.sdk.serialisation.xmlencoding.CanonicalXML;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
 import org.ehrbase.openehr.sdk.webtemplate.templateprovider.TemplateProvider;
 import org.ehrbase.repository.CompositionRepository;
+import org.ehrbase.repository.VersionCache.CachedVersion;
 import org.ehrbase.repository.experimental.ItemTagRepository;
 import org.ehrbase.util.SemVer;
 import org.ehrbase.util.UuidGenerator;
@@ -398,6 +399,21 @@ public class CompositionServiceImp implements CompositionService {
         return result;
     }
 
+    @Override
+    public Optional<CanonicalJsonComposition> retrieveCanonicalJson(UUID ehrId, UUID compositionId, Integer version) {
+
+        Optional<CachedVersion> result = compositionRepository.findCanonicalJson(ehrId, compositionId, version);
+
+        if (result.isEmpty()) {
+            // check that the ehr exists and throw error if not
+            ehrService.checkEhrExists(ehrId);
+        }
+
+        return result.map(v -> new CanonicalJsonComposition(
+                new StructuredString(v.canonicalJson(), StructuredStringFormat.JSON),
+                templateService.findTemplateIdByUuid(v.templateId())));
+    }
+
     @Override
     public Optional<UUID> getEhrIdForComposition(UUID compositionId) {
         return compositionRepository.findEHRforComposition(compositionId);
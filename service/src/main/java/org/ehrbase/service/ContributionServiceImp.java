@@ -53,8 +53,11 @@ import org.ehrbase.repository.CompositionRepository;
 import org.ehrbase.repository.ContributionRepository;
 import org.ehrbase.repository.EhrFolderRepository;
 import org.ehrbase.repository.EhrRepository;
+import org.ehrbase.repository.InsertBatch;
 import org.ehrbase.util.UuidGenerator;
+import org.jooq.DSLContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -63,6 +66,8 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional
 public class ContributionServiceImp implements ContributionService {
 
+    public static final String PROP_BATCH_COMMIT = "ehrbase.contribution.batch-commit";
+
     // the version list in a contribution adds a type tag to each item, so the specific object is distinguishable
     private final CompositionService compositionService;
     private final EhrService ehrService;
@@ -77,6 +82,9 @@ public class ContributionServiceImp implements ContributionService {
 
     private final EhrRepository ehrRepository;
 
+    private final DSLContext dslContext;
+    private final boolean batchCommit;
+
     public enum SupportedVersionedObject {
         COMPOSITION,
         EHR_STATUS,
@@ -93,7 +101,9 @@ public class ContributionServiceImp implements ContributionService {
             ContributionRepository contributionRepository,
             CompositionRepository compositionRepository,
             EhrFolderRepository ehrFolderRepository,
-            EhrRepository ehrRepository) {
+            EhrRepository ehrRepository,
+            DSLContext dslContext,
+            @Value("${" + PROP_BATCH_COMMIT + ":false}") boolean batchCommit) {
 
         this.compositionService = compositionService;
         this.ehrService = ehrService;
@@ -104,6 +114,8 @@ public class ContributionServiceImp implements ContributionService {
         this.compositionRepository = compositionRepository;
         this.ehrFolderRepository = ehrFolderRepository;
         this.ehrRepository = ehrRepository;
+        this.dslContext = dslContext;
+        this.batchCommit = batchCommit;
     }
 
     /**
@@ -142,42 +154,65 @@ public class ContributionServiceImp implements ContributionService {
         UUID contributionId = contributionRepository.createContribution(
                 ehrId, contributionUuid, ContributionDataType.other, auditUuid);
 
+        // new versions of compositions only depend on the EHR, so their inserts may be batched
+        InsertBatch insertBatch = batchCommit ? new InsertBatch(dslContext) : null;
+
         // go through those RM objects versions and execute the action of it (as listed in its audit) and connect it to
         // new
         // contribution. Prefer to use the DTOs objects instead of the RMObjects.
         contribution.getVersions().forEach(version -> {
-            RMObject versionRmObject = version.getData();
-
-            // the version contains the optional "data" attribute (i.e. payload),
-            // therefore has specific object type (composition, folder,...)
-            // This must be in sync with SupportedVersionedObject.
-
-            switch (versionRmObject) {
-                case Composition composition -> {
-                    try {
-                        processCompositionVersion(ehrId, contributionId, version, composition);
-                    } catch (UnprocessableEntityException e) {
-                        throw new ValidationException(e.getMessage());
-                    }
-                }
-                case Folder folder -> processFolderVersion(ehrId, contributionId, version, folder);
-                case EhrStatus status -> processEhrStatusVersion(ehrId, contributionId, version, status);
-                case null ->
-                    // version doesn't contain "data", so it is only a metadata one to, for
-                    // instance, delete a specific object via ID regardless of type
-                    processMetadataVersion(ehrId, contributionId, version);
-                default ->
-                    throw new ValidationException(ERR_VER_INVALID.formatted(Optional.of(versionRmObject.getClass())
-                            .map(ArchieRMInfoLookup.getInstance()::getTypeInfo)
-                            .map(RMTypeInfo::getRmName)
-                            .orElseGet(() ->
-                                    versionRmObject.getClass().getSimpleName().toUpperCase())));
+            if (insertBatch == null) {
+                processVersion(ehrId, contributionId, version);
+            } else if (isCompositionCreation(version)) {
+                insertBatch.run(() -> processVersion(ehrId, contributionId, version));
+            } else {
+                // the version may depend on the previous ones
+                insertBatch.flush();
+                processVersion(ehrId, contributionId, version);
             }
         });
+        if (insertBatch != null) {
+            insertBatch.flush();
+        }
 
         return contributionId;
     }
 
+    private void processVersion(UUID ehrId, UUID contributionId, OriginalVersion<? extends RMObject> version) {
+        RMObject versionRmObject = version.getData();
+
+        // the version contains the optional "data" attribute (i.e. payload),
+        // therefore has specific object type (composition, folder,...)
+        // This must be in sync with SupportedVersionedObject.
+
+        switch (versionRmObject) {
+            case Composition composition -> {
+                try {
+                    processCompositionVersion(ehrId, contributionId, version, composition);
+                } catch (UnprocessableEntityException e) {
+                    throw new ValidationException(e.getMessage());
+                }
+            }
+            case Folder folder -> processFolderVersion(ehrId, contributionId, version, folder);
+            case EhrStatus status -> processEhrStatusVersion(ehrId, contributionId, version, status);
+            case null ->
+                // version doesn't contain "data", so it is only a metadata one to, for
+                // instance, delete a specific object via ID regardless of type
+                processMetadataVersion(ehrId, contributionId, version);
+            default ->
+                throw new ValidationException(ERR_VER_INVALID.formatted(Optional.of(versionRmObject.getClass())
+                        .map(ArchieRMInfoLookup.getInstance()::getTypeInfo)
+                        .map(RMTypeInfo::getRmName)
+                        .orElseGet(() ->
+                                versionRmObject.getClass().getSimpleName().toUpperCase())));
+        }
+    }
+
+    private static boolean isCompositionCreation(OriginalVersion<? extends RMObject> version) {
+        return version.getData() instanceof Composition
+                && ContributionChangeType.fromAuditDetails(version.getCommitAudit()) == ContributionChangeType.CREATION;
+    }
+
     /**
      * <p>
      * A modifiable check is needed, if a non-EHR_STATUS is not preceded by an EHR_STATUS.
@@ -19,6 +19,8 @@ package org.ehrbase.service;
 
 import java.sql.SQLException;
 import javax.sql.DataSource;
+import org.ehrbase.repository.RepositoryHelper;
+import org.ehrbase.repository.RepositoryHelper.BulkInsertMode;
 import org.jooq.ExecuteContext;
 import org.jooq.ExecuteListener;
 import org.jooq.SQLDialect;
@@ -29,6 +31,7 @@ import org.jooq.impl.DefaultExecuteListenerProvider;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.jooq.JooqProperties;
 import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -91,11 +94,15 @@ public class PersistenceConfig {
     }
 
     @Bean
-    public DefaultConfiguration configuration(JooqProperties properties, DataSourceConnectionProvider provider) {
+    public DefaultConfiguration configuration(
+            JooqProperties properties,
+            DataSourceConnectionProvider provider,
+            @Value("${" + RepositoryHelper.PROP_BULK_INSERT_MODE + ":LOADER}") BulkInsertMode bulkInsertMode) {
         DefaultConfiguration jooqConfiguration = new DefaultConfiguration();
         jooqConfiguration.set(provider);
         jooqConfiguration.set(new DefaultExecuteListenerProvider(exceptionTransformer()));
         jooqConfiguration.set(properties.determineSqlDialect(provider.dataSource()));
+        jooqConfiguration.data(RepositoryHelper.PROP_BULK_INSERT_MODE, bulkInsertMode);
 
         return jooqConfiguration;
     }
@@ -26,14 +26,17 @@ import java.util.function.Supplier;
 import java.util.stream.Stream;
 import org.ehrbase.api.service.TemplateService;
 import org.ehrbase.cache.CacheProvider;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryPlanCache;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
 import org.springframework.cache.Cache;
 
 final class TemplateCacheHelper {
     private final CacheProvider cacheProvider;
+    private final Optional<AqlQueryPlanCache> aqlQueryPlanCache;
 
-    public TemplateCacheHelper(CacheProvider cacheProvider) {
+    public TemplateCacheHelper(CacheProvider cacheProvider, Optional<AqlQueryPlanCache> aqlQueryPlanCache) {
         this.cacheProvider = cacheProvider;
+        this.aqlQueryPlanCache = aqlQueryPlanCache;
     }
 
     public void addToCache(UUID internalId, String templateId, WebTemplate tpl, boolean inbound) {
@@ -42,6 +45,8 @@ final class TemplateCacheHelper {
         CacheProvider.TEMPLATE_ID_UUID_CACHE.put(cacheProvider, templateId, internalId);
         if (inbound) {
             CacheProvider.TEMPLATE_LIST_CACHE.clear(cacheProvider);
+            // AQL queries may have been translated without the template
+            aqlQueryPlanCache.ifPresent(AqlQueryPlanCache::clear);
         }
     }
 
@@ -51,6 +56,7 @@ final class TemplateCacheHelper {
         CacheProvider.TEMPLATE_ID_UUID_CACHE.evict(cacheProvider, templateId);
         CacheProvider.TEMPLATE_UUID_ID_CACHE.evict(cacheProvider, internalId);
         CacheProvider.TEMPLATE_LIST_CACHE.clear(cacheProvider);
+        aqlQueryPlanCache.ifPresent(AqlQueryPlanCache::clear);
     }
 
     public void clearCaches() {
@@ -61,6 +67,7 @@ final class TemplateCacheHelper {
                         CacheProvider.TEMPLATE_UUID_ID_CACHE,
                         CacheProvider.TEMPLATE_LIST_CACHE)
                 .forEach(c -> c.clear(cacheProvider));
+        aqlQueryPlanCache.ifPresent(AqlQueryPlanCache::clear);
     }
 
     public String retrieveOperationalTemplate(String templateId, Function<String, String> loader) {
@@ -19,12 +19,21 @@ package org.ehrbase.service;
 
 import com.nedap.archie.rm.composition.Composition;
 import java.text.MessageFormat;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.SequencedMap;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import javax.annotation.PostConstruct;
 import javax.xml.namespace.QName;
@@ -40,6 +49,8 @@ import org.ehrbase.api.exception.UnprocessableEntityException;
 import org.ehrbase.api.service.TemplateService;
 import org.ehrbase.cache.CacheProperties;
 import org.ehrbase.cache.CacheProvider;
+import org.ehrbase.cache.TemplateCacheWarmUp;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryPlanCache;
 import org.ehrbase.openehr.sdk.examplegenerator.ExampleGeneratorConfig;
 import org.ehrbase.openehr.sdk.examplegenerator.ExampleGeneratorToCompositionWalker;
 import org.ehrbase.openehr.sdk.generator.commons.shareddefinition.Language;
@@ -55,15 +66,19 @@ import org.ehrbase.openehr.sdk.webtemplate.parser.OPTParser;
 import org.ehrbase.openehr.sdk.webtemplate.webtemplateskeletonbuilder.WebTemplateSkeletonBuilder;
 import org.ehrbase.repository.TemplateStoreRepository;
 import org.ehrbase.util.TemplateUtils;
+import org.ehrbase.util.WebTemplateSerialization;
 import org.jspecify.annotations.NonNull;
 import org.openehr.schemas.v1.OPERATIONALTEMPLATE;
 import org.openehr.schemas.v1.RESOURCEDESCRIPTION;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.Cache;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * Lookup and caching for Web and Operational Templates.<br>
@@ -80,29 +95,47 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 // This service is not @Transactional since we only want to get DB connections when we really need to and an already
 // running transaction is propagated anyway
-public class TemplateServiceImp implements TemplateService {
+public class TemplateServiceImp implements TemplateService, DisposableBean {
 
     public record TemplateWithDetails(String operationalTemplate, TemplateDetails meta) {}
 
     public static final String PROP_ALLOW_TEMPLATE_OVERWRITE = "ehrbase.template.allow-overwrite";
 
+    public static final String PROP_STORE_VERSION_CHECK_INTERVAL = "ehrbase.template.store-version-check-interval";
+
     private static final Logger log = LoggerFactory.getLogger(TemplateServiceImp.class);
 
     private final TemplateStoreRepository templateStoreRepository;
 
     private final TemplateCacheHelper cacheHelper;
 
+    private final TemplateCacheWarmUp cacheWarmUp;
+
     private final String[] initTemplateCache;
 
     private final boolean allowTemplateOverwrite;
 
+    private final Duration storeVersionCheckInterval;
+
+    private final AtomicReference<String> templateStoreVersion = new AtomicReference<>();
+
+    /**
+     * Started once the version of the template store is used
+     */
+    private ScheduledExecutorService storeVersionCheck;
+
     public TemplateServiceImp(
             TemplateStoreRepository templateStoreRepository,
             CacheProvider cacheProvider,
             CacheProperties cacheProperties,
-            @Value("${" + PROP_ALLOW_TEMPLATE_OVERWRITE + ":false}") boolean allowTemplateOverwrite) {
+            Optional<AqlQueryPlanCache> aqlQueryPlanCache,
+            TemplateCacheWarmUp cacheWarmUp,
+            @Value("${" + PROP_ALLOW_TEMPLATE_OVERWRITE + ":false}") boolean allowTemplateOverwrite,
+            @Value("${" + PROP_STORE_VERSION_CHECK_INTERVAL + ":5s}") Duration storeVersionCheckInterval) {
         this.templateStoreRepository = templateStoreRepository;
-        this.cacheHelper = new TemplateCacheHelper(cacheProvider);
+        this.storeVersionCheckInterval = storeVersionCheckInterval;
+        this.cacheHelper = new TemplateCacheHelper(cacheProvider, aqlQueryPlanCache);
+        this.cacheWarmUp = cacheWarmUp;
 
         String templateInitOnStartup = cacheProperties.getTemplateInitOnStartup();
         this.initTemplateCache = switch (templateInitOnStartup) {
@@ -137,7 +170,22 @@ public class TemplateServiceImp implements TemplateService {
                         .collect(Collectors.joining(", "));
                 log.info("Preparing WebTemplate cache for templates: {}", templateIdsStr);
             }
-            templateMetaData.forEach(template -> addWebTemplateToCache(template, false));
+            Map<String, byte[]> storedWebTemplates = templateStoreRepository.findWebTemplates(templateIds);
+
+            SequencedMap<String, Runnable> loaders = new LinkedHashMap<>();
+            templateMetaData.forEach(template -> loaders.put(
+                    template.meta().templateId(),
+                    () -> WebTemplateSerialization.deserialize(storedWebTemplates.get(template.meta().templateId()))
+                            .ifPresentOrElse(
+                                    tpl -> cacheHelper.addToCache(
+                                            template.meta().id(), template.meta().templateId(), tpl, false),
+                                    () -> addWebTemplateToCache(template, false))));
+            // the most used templates first, counting the compositions is left to the warm-up
+            cacheWarmUp.run(loaders, () -> {
+                Map<String, Integer> usage = templateStoreRepository.countCompositionsByTemplateId();
+                return Comparator.comparing((String templateId) -> usage.getOrDefault(templateId, 0))
+                        .reversed();
+            });
         }
     }
 
@@ -157,6 +205,35 @@ public class TemplateServiceImp implements TemplateService {
         WebTemplate tpl = buildWebTemplate(operationaltemplate, inbound);
 
         cacheHelper.addToCache(template.meta().id(), templateId, tpl, inbound);
+        storeWebTemplate(template.meta(), tpl);
+    }
+
+    /**
+     * Persists the WebTemplate, so it does not need to be built from the OPT again after a restart.
+     * Within a transaction this is deferred until the template is committed.
+     * Failures are only logged, since the WebTemplate can always be built from the OPT.
+     */
+    private void storeWebTemplate(TemplateDetails meta, WebTemplate webTemplate) {
+        afterCommit(() -> {
+            try {
+                templateStoreRepository.storeWebTemplate(meta, WebTemplateSerialization.serialize(webTemplate));
+            } catch (RuntimeException e) {
+                log.warn("Failed to store WebTemplate for template {}: {}", meta.templateId(), e.getMessage());
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 
     String storeOperationalTemplate(
@@ -212,6 +289,7 @@ public class TemplateServiceImp implements TemplateService {
 
         log.debug("Updating WebTemplate cache for template: {}", templateId);
         addWebTemplateToCache(templateMetaData, true);
+        afterCommit(this::updateTemplateStoreVersion);
 
         return templateId;
     }
@@ -240,6 +318,64 @@ public class TemplateServiceImp implements TemplateService {
         return cacheHelper.findAllTemplates(templateStoreRepository::findAllTemplates);
     }
 
+    /**
+     * The version is read from the database on first use. Afterwards it is updated by the changes of this instance and
+     * checked for changes by other instances every {@link #PROP_STORE_VERSION_CHECK_INTERVAL}.
+     */
+    @Override
+    public String getTemplateStoreVersion() {
+        String version = templateStoreVersion.get();
+        return version != null ? version : startStoreVersionCheck();
+    }
+
+    private synchronized String startStoreVersionCheck() {
+        if (storeVersionCheck == null) {
+            templateStoreVersion.set(templateStoreRepository.findStoreVersion());
+            storeVersionCheck = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "template-store-version-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = storeVersionCheckInterval.toMillis();
+            storeVersionCheck.scheduleWithFixedDelay(
+                    this::checkTemplateStoreVersion, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        return templateStoreVersion.get();
+    }
+
+    /**
+     * If the version changed since it was last read, i.e. by another instance, the template caches and the AQL query
+     * plans are cleared, as they may be based on the previous templates.
+     */
+    void checkTemplateStoreVersion() {
+        try {
+            String version = templateStoreRepository.findStoreVersion();
+            String previous = templateStoreVersion.getAndSet(version);
+            if (previous != null && !previous.equals(version)) {
+                log.info("Template store changed by another instance, clearing the template caches");
+                cacheHelper.clearCaches();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to check the version of the template store: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Takes over the version after a change by this instance, which already updated the caches
+     */
+    private void updateTemplateStoreVersion() {
+        if (templateStoreVersion.get() != null) {
+            templateStoreVersion.set(templateStoreRepository.findStoreVersion());
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (storeVersionCheck != null) {
+            storeVersionCheck.shutdownNow();
+        }
+    }
+
     /**
      *
      * @param templateId
@@ -252,19 +388,25 @@ public class TemplateServiceImp implements TemplateService {
         try {
             return cacheHelper.getInternalTemplate(templateId, tid -> {
                 log.info("Updating WebTemplate cache for template: {}", tid);
-                return templateStoreRepository.findByTemplateIds(tid).stream()
-                        .findFirst()
-                        .map(TemplateWithDetails::operationalTemplate)
-                        .map(t -> {
-                            OPERATIONALTEMPLATE operationaltemplate;
-                            try {
-                                operationaltemplate = TemplateService.buildOperationalTemplate(t);
-                            } catch (XmlException e) {
-                                throw new InternalServerException("Cannot process template: " + e.getMessage(), e);
-                            }
-                            return buildWebTemplate(operationaltemplate, false);
-                        })
-                        .orElseThrow(() -> templateNotFound(templateId));
+                return templateStoreRepository
+                        .findWebTemplate(tid)
+                        .flatMap(WebTemplateSerialization::deserialize)
+                        .orElseGet(() -> templateStoreRepository.findByTemplateIds(tid).stream()
+                                .findFirst()
+                                .map(t -> {
+                                    OPERATIONALTEMPLATE operationaltemplate;
+                                    try {
+                                        operationaltemplate =
+                                                TemplateService.buildOperationalTemplate(t.operationalTemplate());
+                                    } catch (XmlException e) {
+                                        throw new InternalServerException(
+                                                "Cannot process template: " + e.getMessage(), e);
+                                    }
+                                    WebTemplate webTemplate = buildWebTemplate(operationaltemplate, false);
+                                    storeWebTemplate(t.meta(), webTemplate);
+                                    return webTemplate;
+                                })
+                                .orElseThrow(() -> templateNotFound(templateId)));
             });
         } catch (Cache.ValueRetrievalException ex) {
             // unwrap exception
@@ -388,6 +530,7 @@ public class TemplateServiceImp implements TemplateService {
                 Optional.of(templateId).map(this::findUuidByTemplateId).orElseThrow(() -> templateNotFound(templateId));
         templateStoreRepository.deleteTemplate(templateUuid);
         cacheHelper.invalidateCaches(templateId, templateUuid);
+        afterCommit(this::updateTemplateStoreVersion);
     }
 
     /**
@@ -398,6 +541,7 @@ public class TemplateServiceImp implements TemplateService {
     public int adminDeleteAllTemplates() {
         int deleted = templateStoreRepository.deleteAllTemplates();
         cacheHelper.clearCaches();
+        afterCommit(this::updateTemplateStoreVersion);
         return deleted;
     }
 
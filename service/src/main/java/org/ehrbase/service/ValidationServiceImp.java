@@ -17,6 +17,8 @@
  */
 package org.ehrbase.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.nedap.archie.query.RMPathQuery;
 import com.nedap.archie.rm.archetyped.Archetyped;
 import com.nedap.archie.rm.archetyped.TemplateId;
@@ -53,10 +55,12 @@ import org.ehrbase.openehr.sdk.validation.ConstraintViolation;
 import org.ehrbase.openehr.sdk.validation.ConstraintViolationException;
 import org.ehrbase.openehr.sdk.validation.LocatableValidator;
 import org.ehrbase.openehr.sdk.validation.terminology.ExternalTerminologyValidation;
-import org.ehrbase.openehr.sdk.validation.terminology.ItemStructureVisitor;
 import org.ehrbase.openehr.sdk.validation.webtemplate.FastRMObjectValidator;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
+import org.ehrbase.service.validation.TerminologyValidationPlan;
+import org.ehrbase.service.validation.ValidationMetrics;
 import org.ehrbase.service.validation.ValidationProperties;
+import org.ehrbase.service.validation.ValidatorPool;
 import org.ehrbase.util.FolderUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -79,19 +83,30 @@ public class ValidationServiceImp implements ValidationService {
     private final TerminologyService terminologyService;
     private final boolean folderValidationEnabled;
 
-    private final ThreadLocal<LocatableValidator> locatableValidator;
+    private final ValidationMetrics validationMetrics;
+
+    private final ValidatorPool<LocatableValidator> locatableValidator;
 
     private final Map<String, RMPathQuery> rmPathQueryCache = new ConcurrentHashMap<>();
 
+    /**
+     * Compiled terminology checks by WebTemplate: weak keys are compared by identity, so a plan is dropped along with
+     * its template when the template cache evicts or replaces it.
+     */
+    private final Cache<WebTemplate, TerminologyValidationPlan> terminologyValidationPlans =
+            Caffeine.newBuilder().weakKeys().build();
+
     public ValidationServiceImp(
             TemplateService templateService,
             TerminologyService terminologyService,
             ValidationProperties validationProperties,
             ObjectProvider<ExternalTerminologyValidation> objectProvider,
+            ValidationMetrics validationMetrics,
             @Value("${cache.validation.useSharedRMPathQueryCache:true}") boolean sharedAqlQueryCache) {
         this.templateService = templateService;
         this.terminologyService = terminologyService;
         this.folderValidationEnabled = validationProperties.validateFolders();
+        this.validationMetrics = validationMetrics;
 
         boolean disableStrictValidation = !validationProperties.validateRmConstraints();
         if (disableStrictValidation) {
@@ -110,8 +125,11 @@ public class ValidationServiceImp implements ValidationService {
             logger.warn("shared RMPathQueryCache is disabled");
             delegator = null;
         }
-        locatableValidator = ThreadLocal.withInitial(() -> createCompositionValidator(
-                objectProvider, disableStrictValidation, delegator, validationProperties.checkForExtraNodes()));
+        locatableValidator = new ValidatorPool<>(
+                validationProperties.validatorPoolSize(),
+                () -> createCompositionValidator(
+                        objectProvider, disableStrictValidation, delegator, validationProperties.checkForExtraNodes()),
+                validationMetrics);
     }
 
     private static LocatableValidator createCompositionValidator(
@@ -175,18 +193,26 @@ public class ValidationServiceImp implements ValidationService {
         }
 
         // Validate the composition based on WebTemplate
-        List<ConstraintViolation> violations = locatableValidator.get().validate(composition, webTemplate);
+        List<ConstraintViolation> violations = locatableValidator.apply(validator -> validationMetrics.time(
+                templateID,
+                ValidationMetrics.Phase.TEMPLATE,
+                () -> validator.validate(composition, webTemplate),
+                List::isEmpty));
         if (!violations.isEmpty()) {
             throw new ConstraintViolationException(violations);
         }
 
         // check code phrases against terminologies
-        try {
-            ItemStructureVisitor itemStructureVisitor = new ItemStructureVisitor(terminologyService);
-            itemStructureVisitor.validate(composition);
-        } catch (ReflectiveOperationException e) {
-            throw new InternalServerException(e);
-        }
+        validationMetrics.time(
+                templateID,
+                ValidationMetrics.Phase.TERMINOLOGY,
+                () -> {
+                    terminologyValidationPlans
+                            .get(webTemplate, t -> TerminologyValidationPlan.compile(t, terminologyService))
+                            .validate(composition);
+                    return true;
+                },
+                valid -> valid);
     }
 
     private static void compositionMandatoryProperty(Object value, String attribute) {
@@ -200,7 +226,7 @@ public class ValidationServiceImp implements ValidationService {
         FolderUtils.checkSiblingNameConflicts(folder);
 
         if (folderValidationEnabled) {
-            List<ConstraintViolation> result = locatableValidator.get().validate(folder);
+            List<ConstraintViolation> result = locatableValidator.apply(validator -> validator.validate(folder));
             if (!result.isEmpty()) {
                 throw new ConstraintViolationException(result);
             }
@@ -211,8 +237,8 @@ public class ValidationServiceImp implements ValidationService {
     public void check(EhrStatus ehrStatus) {
 
         // second, additional specific checks and other mandatory attributes
-        List<RMObjectValidationMessage> validationIssues =
-                validate(locatableValidator.get().getRmObjectValidator(), "", ehrStatus);
+        List<RMObjectValidationMessage> validationIssues = locatableValidator.apply(
+                validator -> validate(validator.getRmObjectValidator(), "", ehrStatus));
         validationIssues.addAll(matches(
                 RmConstants.EHR_STATUS,
                 "/subject/external_ref/namespace",
@@ -232,7 +258,17 @@ public class ValidationServiceImp implements ValidationService {
     public void check(ContributionCreateDto contribution) {
 
         // first, check the built EhrStatus using the general Archie RM-Validator
-        RMObjectValidator rmObjectValidator = locatableValidator.get().getRmObjectValidator();
+        List<RMObjectValidationMessage> messages = locatableValidator.apply(
+                validator -> validate(validator.getRmObjectValidator(), contribution));
+
+        if (!messages.isEmpty()) {
+            String messageStr = messages.stream().map(Object::toString).collect(Collectors.joining("\n"));
+            throw new ValidationException(messageStr);
+        }
+    }
+
+    private static List<RMObjectValidationMessage> validate(
+            RMObjectValidator rmObjectValidator, ContributionCreateDto contribution) {
 
         // UID does not have to be validated
 
@@ -284,11 +320,7 @@ public class ValidationServiceImp implements ValidationService {
                     })
                     .forEach(messages::add);
         }
-
-        if (!messages.isEmpty()) {
-            String messageStr = messages.stream().map(Object::toString).collect(Collectors.joining("\n"));
-            throw new ValidationException(messageStr);
-        }
+        return messages;
     }
 
     private static List<RMObjectValidationMessage> validate(
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.service.validation;
+
+import com.nedap.archie.query.RMPathQuery;
+import com.nedap.archie.rm.composition.Composition;
+import com.nedap.archie.rm.datatypes.CodePhrase;
+import com.nedap.archie.rm.datavalues.DvCodedText;
+import com.nedap.archie.rm.support.identification.TerminologyId;
+import com.nedap.archie.rminfo.ArchieRMInfoLookup;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.ehrbase.openehr.sdk.terminology.openehr.CodeSetAccess;
+import org.ehrbase.openehr.sdk.terminology.openehr.TerminologyService;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
+
+/**
+ * The terminology checks of the compositions of one template, compiled from its {@link WebTemplate}.
+ * <p>
+ * The plan consists of the paths of the coded attributes that are bound to a group of the openEHR terminology, e.g.
+ * <code>category</code> or <code>ism_transition/current_state</code>, or to a code set, e.g. <code>language</code>,
+ * along with the allowed codes. Only these paths are evaluated, instead of reflectively walking the whole composition.
+ */
+public final class TerminologyValidationPlan {
+
+    static final String OPENEHR = "openehr";
+
+    /**
+     * Coded RM attributes that are bound to a group of the openEHR terminology
+     */
+    private static final Map<String, String> OPENEHR_GROUPS = Map.of(
+            "category", "composition category",
+            "setting", "setting",
+            "math_function", "event math function",
+            "null_flavour", "null flavours",
+            "current_state", "instruction states",
+            "transition", "instruction transitions",
+            "mode", "participation mode",
+            "relationship", "subject relationship");
+
+    /**
+     * Coded RM attributes that are bound to a code set
+     */
+    private static final Map<String, String> CODE_SETS = Map.of(
+            "language", "LANGUAGES",
+            "territory", "COUNTRIES",
+            "encoding", "CHARACTER_SETS");
+
+    private static final Set<String> CODED_RM_TYPES = Set.of("DV_CODED_TEXT", "CODE_PHRASE");
+
+    /**
+     * Name predicates, e.g. <code>[at0001,'Systolic']</code>, as the archetype node id suffices to find the values
+     */
+    private static final Pattern NAME_PREDICATE = Pattern.compile("\\[([^\\],'\\s]+)"
+            + "(?:\\s*,\\s*'(?:[^'\\\\]|\\\\.)*'|\\s+and\\s+name/value\\s*=\\s*'(?:[^'\\\\]|\\\\.)*')]");
+
+    record Check(String path, RMPathQuery query, String valueSet, Predicate<CodePhrase> isValid) {}
+
+    private final List<Check> checks;
+
+    private TerminologyValidationPlan(List<Check> checks) {
+        this.checks = checks;
+    }
+
+    /**
+     * Resolves the value sets of the coded attributes of the template.
+     * Attributes whose group or code set is unknown to the terminology service are not checked.
+     */
+    public static TerminologyValidationPlan compile(WebTemplate webTemplate, TerminologyService terminologyService) {
+        Map<String, String> attributesByPath = new LinkedHashMap<>();
+        nodes(webTemplate.getTree())
+                .filter(n -> CODED_RM_TYPES.contains(n.getRmType()))
+                .map(n -> NAME_PREDICATE.matcher(n.getAqlPath()).replaceAll("[$1]"))
+                .forEach(path -> attributesByPath.put(path, attribute(path)));
+
+        Map<String, Optional<Predicate<CodePhrase>>> valueSets = new LinkedHashMap<>();
+        List<Check> checks = new ArrayList<>();
+        attributesByPath.forEach((path, attribute) -> {
+            String valueSet = OPENEHR_GROUPS.getOrDefault(attribute, CODE_SETS.get(attribute));
+            if (valueSet != null) {
+                valueSets
+                        .computeIfAbsent(valueSet, vs -> valueSet(terminologyService, attribute))
+                        .ifPresent(isValid -> checks.add(new Check(path, new RMPathQuery(path), valueSet, isValid)));
+            }
+        });
+        return new TerminologyValidationPlan(List.copyOf(checks));
+    }
+
+    private static Optional<Predicate<CodePhrase>> valueSet(TerminologyService terminologyService, String attribute) {
+        String group = OPENEHR_GROUPS.get(attribute);
+        if (group != null) {
+            Set<String> codes = Optional.ofNullable(
+                            terminologyService.terminology(OPENEHR).codesForGroupName(group, "en"))
+                    .stream()
+                    .flatMap(Collection::stream)
+                    .map(CodePhrase::getCodeString)
+                    .collect(Collectors.toUnmodifiableSet());
+            return codes.isEmpty()
+                    ? Optional.empty()
+                    : Optional.of(code -> code.getTerminologyId() != null
+                            && OPENEHR.equals(code.getTerminologyId().getValue())
+                            && codes.contains(code.getCodeString()));
+        }
+        CodeSetAccess codeSet = terminologyService.codeSetForId(CODE_SETS.get(attribute));
+        return Optional.ofNullable(codeSet).map(cs -> cs::hasCode);
+    }
+
+    private static Stream<WebTemplateNode> nodes(WebTemplateNode node) {
+        return Stream.concat(Stream.of(node), node.getChildren().stream().flatMap(TerminologyValidationPlan::nodes));
+    }
+
+    /**
+     * @return the RM attribute of the last path segment, e.g. <code>setting</code> for <code>/context/setting</code>
+     */
+    static String attribute(String path) {
+        String segment = path.substring(path.lastIndexOf('/') + 1);
+        int predicate = segment.indexOf('[');
+        return predicate < 0 ? segment : segment.substring(0, predicate);
+    }
+
+    /**
+     * @throws IllegalArgumentException listing the codes not contained in the value set of their attribute
+     */
+    public void validate(Composition composition) {
+        List<String> errors = new ArrayList<>();
+        for (Check check : checks) {
+            for (Object value : check.query().findList(ArchieRMInfoLookup.getInstance(), composition)) {
+                CodePhrase code = switch (value) {
+                    case DvCodedText dvCodedText -> dvCodedText.getDefiningCode();
+                    case CodePhrase codePhrase -> codePhrase;
+                    case null, default -> null;
+                };
+                if (code != null && !check.isValid().test(code)) {
+                    errors.add("Invalid code '%s' of terminology '%s' at %s, not contained in %s"
+                            .formatted(
+                                    code.getCodeString(),
+                                    Optional.ofNullable(code.getTerminologyId())
+                                            .map(TerminologyId::getValue)
+                                            .orElse(null),
+                                    check.path(),
+                                    check.valueSet()));
+                }
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException(String.join("\n", errors));
+        }
+    }
+
+    List<Check> getChecks() {
+        return checks;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.service.validation;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import org.ehrbase.openehr.sdk.validation.ValidationException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer metrics of the validation of compositions.
+ * <p>
+ * The duration of each {@link Phase} is exported as <code>ehrbase.validation.composition.phase</code>, tagged with the
+ * template_id and whether the composition passed the phase (<code>valid</code>), violated a constraint
+ * (<code>invalid</code>) or could not be validated (<code>error</code>). Constraint violations signalled by an
+ * {@link IllegalArgumentException} or a {@link ValidationException} count as <code>invalid</code>.
+ * <p>
+ * The time spent waiting for a validator of the {@link ValidatorPool} is exported as
+ * <code>ehrbase.validation.validator.wait</code>, the number of validators created and in use as the gauges
+ * <code>ehrbase.validation.validator.pool.size</code> and <code>ehrbase.validation.validator.pool.active</code>.
+ */
+@Component
+public class ValidationMetrics {
+
+    public static final String PHASE_TIMER = "ehrbase.validation.composition.phase";
+    public static final String VALIDATOR_WAIT_TIMER = "ehrbase.validation.validator.wait";
+    public static final String VALIDATOR_POOL_SIZE = "ehrbase.validation.validator.pool.size";
+    public static final String VALIDATOR_POOL_ACTIVE = "ehrbase.validation.validator.pool.active";
+
+    public static final String TAG_TEMPLATE = "template";
+    public static final String TAG_PHASE = "phase";
+    public static final String TAG_OUTCOME = "outcome";
+
+    public enum Phase {
+        /**
+         * Validation of the composition against the WebTemplate, including the RM invariants
+         */
+        TEMPLATE("template"),
+        /**
+         * Validation of the codes of the openEHR and ISO terminologies
+         */
+        TERMINOLOGY("terminology");
+
+        private final String tag;
+
+        Phase(String tag) {
+            this.tag = tag;
+        }
+
+        public String tag() {
+            return tag;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public ValidationMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+
+    public ValidationMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param isValid determines from the result of the action if the composition passed the phase
+     */
+    public <T> T time(String templateId, Phase phase, Supplier<T> action, Predicate<T> isValid) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = action.get();
+            outcome = isValid.test(result) ? "valid" : "invalid";
+            return result;
+        } catch (RuntimeException e) {
+            if (e instanceof IllegalArgumentException || e instanceof ValidationException) {
+                outcome = "invalid";
+            }
+            throw e;
+        } finally {
+            record(templateId, phase, outcome, System.nanoTime() - start);
+        }
+    }
+
+    void record(String templateId, Phase phase, String outcome, long nanos) {
+        Timer.builder(PHASE_TIMER)
+                .description("Duration of the phases of the validation of compositions")
+                .tag(TAG_TEMPLATE, templateId)
+                .tag(TAG_PHASE, phase.tag())
+                .tag(TAG_OUTCOME, outcome)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordValidatorWait(long nanos) {
+        Timer.builder(VALIDATOR_WAIT_TIMER)
+                .description("Time spent waiting for a validator of the pool")
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void monitorValidatorPool(ValidatorPool<?> pool) {
+        Gauge.builder(VALIDATOR_POOL_SIZE, pool, ValidatorPool::getSize)
+                .description("Number of validators created by the pool")
+                .register(meterRegistry);
+        Gauge.builder(VALIDATOR_POOL_ACTIVE, pool, ValidatorPool::getActive)
+                .description("Number of validators of the pool in use")
+                .register(meterRegistry);
+    }
+}
@@ -18,7 +18,14 @@
 package org.ehrbase.service.validation;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
 
+/**
+ * @param validatorPoolSize maximum number of validators, each used by one validation at a time
+ */
 @ConfigurationProperties(prefix = "ehrbase.validation")
 public record ValidationProperties(
-        boolean validateRmConstraints, boolean checkForExtraNodes, boolean validateFolders) {}
+        boolean validateRmConstraints,
+        boolean checkForExtraNodes,
+        boolean validateFolders,
+        @DefaultValue("200") int validatorPoolSize) {}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.service.validation;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.ehrbase.api.exception.InternalServerException;
+
+/**
+ * Bounded pool of validators, which are expensive to create and not thread-safe.
+ * <p>
+ * Validators are created on demand, up to the maximum size. If all of them are in use, callers wait for one to be
+ * released. Unlike a <code>ThreadLocal</code>, the number of validators does not grow with the number of request
+ * threads, so the pool can be used from virtual threads.
+ */
+public final class ValidatorPool<T> {
+
+    private final Supplier<T> factory;
+    private final ValidationMetrics metrics;
+    private final int maxSize;
+
+    private final Semaphore permits;
+    private final Queue<T> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    public ValidatorPool(int maxSize, Supplier<T> factory, ValidationMetrics metrics) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The validator pool size must be positive: " + maxSize);
+        }
+        this.factory = factory;
+        this.metrics = metrics;
+        this.maxSize = maxSize;
+        this.permits = new Semaphore(maxSize, true);
+        metrics.monitorValidatorPool(this);
+    }
+
+    /**
+     * Applies the action to a validator, which is exclusively used by the caller until the action returns.
+     */
+    public <R> R apply(Function<T, R> action) {
+        T validator = acquire();
+        try {
+            return action.apply(validator);
+        } finally {
+            idle.offer(validator);
+            permits.release();
+        }
+    }
+
+    private T acquire() {
+        long start = System.nanoTime();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InternalServerException("Interrupted while waiting for a validator", e);
+        } finally {
+            metrics.recordValidatorWait(System.nanoTime() - start);
+        }
+
+        T validator = idle.poll();
+        if (validator == null) {
+            try {
+                validator = factory.get();
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+            size.incrementAndGet();
+        }
+        return validator;
+    }
+
+    /**
+     * @return the number of validators created so far
+     */
+    public int getSize() {
+        return size.get();
+    }
+
+    /**
+     * @return the number of validators currently in use
+     */
+    public int getActive() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+}
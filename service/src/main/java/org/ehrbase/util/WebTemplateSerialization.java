@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compact binary form of a {@link WebTemplate}, so it can be stored alongside the OPT and loaded without parsing the
+ * OPT again.
+ * <p>
+ * The header carries a format version, the version of the openEHR SDK that built the {@link WebTemplate} together
+ * with the serialVersionUIDs of the model classes, and a CRC32 of the payload. Data written by another format or SDK version, or corrupted data, is not deserialized: the
+ * {@link WebTemplate} has to be built from the OPT instead.
+ */
+public final class WebTemplateSerialization {
+
+    private static final Logger log = LoggerFactory.getLogger(WebTemplateSerialization.class);
+
+    private static final int MAGIC = 0x45575450; // "EWTP"
+
+    /**
+     * To be incremented on changes of the layout
+     */
+    static final int FORMAT_VERSION = 1;
+
+    /**
+     * Only the classes of the web template model may be deserialized
+     */
+    private static final ObjectInputFilter CLASS_FILTER = ObjectInputFilter.Config.createFilter(
+            "org.ehrbase.openehr.sdk.**;com.nedap.archie.**;java.lang.*;java.util.*;java.time.*;java.math.*;!*");
+
+    private static final String SDK_VERSION = sdkVersion();
+
+    private WebTemplateSerialization() {}
+
+    /**
+     * The serialVersionUIDs are included, as the implementation version is missing if the SDK is not loaded from its
+     * jar. Unless declared by the class, they are derived from its structure.
+     *
+     * @return identifies the SDK version, so web templates built by other versions are rebuilt from the OPT
+     */
+    static String sdkVersion() {
+        return "%s;%x;%x"
+                .formatted(
+                        Objects.toString(WebTemplate.class.getPackage().getImplementationVersion(), ""),
+                        ObjectStreamClass.lookup(WebTemplate.class).getSerialVersionUID(),
+                        ObjectStreamClass.lookup(WebTemplateNode.class).getSerialVersionUID());
+    }
+
+    public static byte[] serialize(WebTemplate webTemplate) {
+        try {
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(new DeflaterOutputStream(payload))) {
+                out.writeObject(webTemplate);
+            }
+            byte[] payloadBytes = payload.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(payloadBytes);
+
+            ByteArrayOutputStream result = new ByteArrayOutputStream(payloadBytes.length + 64);
+            try (DataOutputStream out = new DataOutputStream(result)) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(SDK_VERSION);
+                out.writeLong(crc.getValue());
+                out.writeInt(payloadBytes.length);
+                out.write(payloadBytes);
+            }
+            return result.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param data as written by {@link #serialize(WebTemplate)}, may be <code>null</code>
+     * @return the web template, empty if the data is missing, stale or corrupted
+     */
+    public static Optional<WebTemplate> deserialize(byte[] data) {
+        if (data == null) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !SDK_VERSION.equals(in.readUTF())) {
+                return Optional.empty();
+            }
+            long checksum = in.readLong();
+            byte[] payload = in.readNBytes(in.readInt());
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if (crc.getValue() != checksum) {
+                log.warn("Ignoring stored WebTemplate with invalid checksum");
+                return Optional.empty();
+            }
+            try (ObjectInputStream objectIn =
+                    new ObjectInputStream(new InflaterInputStream(new ByteArrayInputStream(payload)))) {
+                objectIn.setObjectInputFilter(CLASS_FILTER);
+                return Optional.of((WebTemplate) objectIn.readObject());
+            }
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            log.warn("Ignoring stored WebTemplate that cannot be deserialized: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryResultCache.Result;
+import org.ehrbase.openehr.aqlengine.service.CommitWatermark;
+import org.junit.jupiter.api.Test;
+
+class CaffeineAqlQueryResultCacheTest {
+
+    private static final String SQL = "select 1";
+
+    private final CommitWatermark commitWatermark = new CommitWatermark();
+    private final CaffeineAqlQueryResultCache cut =
+            new CaffeineAqlQueryResultCache(Caffeine.newBuilder().build(), commitWatermark);
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private List<List<Object>> query(Set<UUID> ehrIds) {
+        return cut.get(SQL, ehrIds, () -> {
+            int execution = executions.incrementAndGet();
+            return new Result(List.of(List.of(execution)), 10);
+        });
+    }
+
+    @Test
+    void hit() {
+        UUID ehrId = UUID.randomUUID();
+
+        assertThat(query(Set.of(ehrId))).containsExactly(List.of(1));
+        assertThat(query(Set.of(ehrId))).containsExactly(List.of(1));
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void commitToUnrelatedEhr() {
+        UUID ehrId = UUID.randomUUID();
+        query(Set.of(ehrId));
+
+        commitWatermark.advance(UUID.randomUUID());
+
+        assertThat(query(Set.of(ehrId))).containsExactly(List.of(1));
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void commitToScopedEhr() {
+        UUID ehrId = UUID.randomUUID();
+        query(Set.of(ehrId));
+
+        commitWatermark.advance(ehrId);
+
+        assertThat(query(Set.of(ehrId))).containsExactly(List.of(2));
+        assertThat(query(Set.of(ehrId))).containsExactly(List.of(2));
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void commitToAnyEhrForUnrestrictedQuery() {
+        query(Set.of());
+
+        commitWatermark.advance(UUID.randomUUID());
+
+        assertThat(query(Set.of())).containsExactly(List.of(2));
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void commitDuringExecution() {
+        UUID ehrId = UUID.randomUUID();
+        cut.get(SQL, Set.of(ehrId), () -> {
+            executions.incrementAndGet();
+            // the result may or may not contain the commit
+            commitWatermark.advance(ehrId);
+            return new Result(List.of(List.of(1)), 10);
+        });
+
+        assertThat(query(Set.of(ehrId))).containsExactly(List.of(2));
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void clear() {
+        query(Set.of());
+        cut.clear();
+
+        assertThat(query(Set.of())).containsExactly(List.of(2));
+    }
+
+    @Test
+    void weigh() {
+        CaffeineAqlQueryResultCache.Entry entry =
+                new CaffeineAqlQueryResultCache.Entry(List.of(List.of(), List.of()), 100, 0);
+        assertThat(CaffeineAqlQueryResultCache.weigh("x".repeat(10), entry))
+                .isEqualTo(CaffeineAqlQueryResultCache.ENTRY_OVERHEAD
+                        + 20
+                        + 2 * CaffeineAqlQueryResultCache.ROW_OVERHEAD
+                        + 200);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nedap.archie.rm.composition.Composition;
+import com.nedap.archie.rm.ehr.EhrStatus;
+import java.util.UUID;
+import org.ehrbase.openehr.aqlengine.service.CommitWatermark;
+import org.ehrbase.repository.VersionCache.CachedVersion;
+import org.junit.jupiter.api.Test;
+
+class CaffeineVersionCacheTest {
+
+    private final CommitWatermark commitWatermark = new CommitWatermark();
+    private final CaffeineVersionCache cut =
+            new CaffeineVersionCache(Caffeine.newBuilder().build(), commitWatermark);
+
+    @Test
+    void version() {
+        UUID ehrId = UUID.randomUUID();
+        UUID voId = UUID.randomUUID();
+        CachedVersion version = new CachedVersion(ehrId, voId, 2, "{}");
+        cut.put(Composition.class, version);
+
+        assertThat(cut.get(Composition.class, ehrId, voId, 2)).contains(version);
+        assertThat(cut.get(Composition.class, ehrId, voId, 1)).isEmpty();
+        // other EHR or type
+        assertThat(cut.get(Composition.class, UUID.randomUUID(), voId, 2)).isEmpty();
+        assertThat(cut.get(EhrStatus.class, ehrId, voId, 2)).isEmpty();
+
+        // versions are immutable
+        commitWatermark.advance(ehrId);
+        assertThat(cut.get(Composition.class, ehrId, voId, 2)).contains(version);
+
+        cut.invalidateVersionedObject(Composition.class, voId);
+        assertThat(cut.get(Composition.class, ehrId, voId, 2)).isEmpty();
+    }
+
+    @Test
+    void head() {
+        UUID ehrId = UUID.randomUUID();
+        UUID voId = UUID.randomUUID();
+        CachedVersion version = new CachedVersion(ehrId, voId, 1, "{}");
+        cut.putHead(EhrStatus.class, ehrId, commitWatermark.current(), version);
+
+        assertThat(cut.getHead(EhrStatus.class, ehrId, ehrId)).contains(version);
+
+        // commits to other EHRs do not affect the head
+        commitWatermark.advance(UUID.randomUUID());
+        assertThat(cut.getHead(EhrStatus.class, ehrId, ehrId)).contains(version);
+
+        commitWatermark.advance(ehrId);
+        assertThat(cut.getHead(EhrStatus.class, ehrId, ehrId)).isEmpty();
+        // the version itself stays valid
+        assertThat(cut.get(EhrStatus.class, ehrId, voId, 1)).contains(version);
+
+        cut.putHead(EhrStatus.class, ehrId, commitWatermark.current(), version);
+        cut.invalidateHead(EhrStatus.class, ehrId);
+        assertThat(cut.getHead(EhrStatus.class, ehrId, ehrId)).isEmpty();
+    }
+
+    @Test
+    void invalidateEhr() {
+        UUID ehrId = UUID.randomUUID();
+        UUID otherEhrId = UUID.randomUUID();
+        CachedVersion composition = new CachedVersion(ehrId, UUID.randomUUID(), 1, "{}");
+        CachedVersion otherComposition = new CachedVersion(otherEhrId, UUID.randomUUID(), 1, "{}");
+        cut.putHead(Composition.class, composition.voId(), commitWatermark.current(), composition);
+        cut.putHead(Composition.class, otherComposition.voId(), commitWatermark.current(), otherComposition);
+
+        cut.invalidateEhr(ehrId);
+        assertThat(cut.getHead(Composition.class, ehrId, composition.voId())).isEmpty();
+        assertThat(cut.get(Composition.class, ehrId, composition.voId(), 1)).isEmpty();
+        assertThat(cut.getHead(Composition.class, otherEhrId, otherComposition.voId()))
+                .contains(otherComposition);
+    }
+
+    @Test
+    void weigh() {
+        assertThat(CaffeineVersionCache.weigh(null, new CachedVersion(null, null, 1, "x".repeat(100))))
+                .isEqualTo(CaffeineVersionCache.ENTRY_OVERHEAD + 200);
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.SequencedMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class TemplateCacheWarmUpTest {
+
+    private static TemplateCacheWarmUp warmUp(int parallelism, double readyFraction) {
+        CacheProperties cacheProperties = new CacheProperties();
+        cacheProperties.setTemplateInitParallelism(parallelism);
+        cacheProperties.setTemplateInitReadyFraction(readyFraction);
+        return new TemplateCacheWarmUp(cacheProperties);
+    }
+
+    @Test
+    void readyWithoutTemplates() {
+        TemplateCacheWarmUp cut = warmUp(2, 1.0);
+        assertThat(cut.isReady()).isTrue();
+
+        cut.run(new LinkedHashMap<>());
+        assertThat(cut.isReady()).isTrue();
+    }
+
+    @Test
+    void runOnCallingThread() {
+        TemplateCacheWarmUp cut = warmUp(0, 1.0);
+        List<String> order = new CopyOnWriteArrayList<>();
+        SequencedMap<String, Runnable> loaders = new LinkedHashMap<>();
+        loaders.put("t1", () -> order.add("t1"));
+        loaders.put("t2", () -> order.add("t2"));
+
+        cut.run(loaders);
+
+        assertThat(order).containsExactly("t1", "t2");
+        assertThat(cut.isReady()).isTrue();
+        assertThat(cut.getLoaded()).isEqualTo(2);
+    }
+
+    @Test
+    void runOnCallingThreadPropagatesFailure() {
+        TemplateCacheWarmUp cut = warmUp(0, 1.0);
+        SequencedMap<String, Runnable> loaders = new LinkedHashMap<>();
+        loaders.put("t1", () -> {
+            throw new IllegalStateException("broken");
+        });
+
+        assertThatThrownBy(() -> cut.run(loaders)).isInstanceOf(IllegalStateException.class);
+        assertThat(cut.isReady()).isFalse();
+    }
+
+    @Test
+    void orderDeterminedOnWarmUpThread() throws InterruptedException {
+        TemplateCacheWarmUp cut = warmUp(1, 1.0);
+        List<String> order = new CopyOnWriteArrayList<>();
+        List<Thread> orderThreads = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        SequencedMap<String, Runnable> loaders = new LinkedHashMap<>();
+        for (String templateId : List.of("t1", "t2", "t3")) {
+            loaders.put(templateId, () -> {
+                order.add(templateId);
+                done.countDown();
+            });
+        }
+
+        try {
+            cut.run(loaders, () -> {
+                orderThreads.add(Thread.currentThread());
+                return Comparator.<String>naturalOrder().reversed();
+            });
+            assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(orderThreads).singleElement().isNotEqualTo(Thread.currentThread());
+            assertThat(order).containsExactly("t3", "t2", "t1");
+        } finally {
+            cut.destroy();
+        }
+    }
+
+    @Test
+    void givenOrderKeptIfOrderFails() throws InterruptedException {
+        TemplateCacheWarmUp cut = warmUp(1, 1.0);
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(2);
+        SequencedMap<String, Runnable> loaders = new LinkedHashMap<>();
+        for (String templateId : List.of("t2", "t1")) {
+            loaders.put(templateId, () -> {
+                order.add(templateId);
+                done.countDown();
+            });
+        }
+
+        try {
+            cut.run(loaders, () -> {
+                throw new IllegalStateException("broken");
+            });
+            assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(order).containsExactly("t2", "t1");
+        } finally {
+            cut.destroy();
+        }
+    }
+
+    @Test
+    void readyAfterFraction() throws InterruptedException {
+        TemplateCacheWarmUp cut = warmUp(1, 0.5);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        SequencedMap<String, Runnable> loaders = new LinkedHashMap<>();
+        loaders.put("t1", () -> {
+            throw new IllegalStateException("broken");
+        });
+        loaders.put("t2", () -> {});
+        loaders.put("t3", () -> {
+            started.countDown();
+            awaitUninterruptibly(blocked);
+        });
+        loaders.put("t4", () -> {});
+
+        try {
+            cut.run(loaders);
+            // a single thread processes the templates in order
+            assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // the failed template counts as processed
+            assertThat(cut.isReady()).isTrue();
+            assertThat(cut.getTotal()).isEqualTo(4);
+            assertThat(cut.getFailed()).isEqualTo(1);
+            assertThat(cut.getLoaded()).isEqualTo(1);
+        } finally {
+            blocked.countDown();
+            cut.destroy();
+        }
+    }
+
+    @Test
+    void notReadyBeforeFraction() {
+        TemplateCacheWarmUp cut = warmUp(1, 0.5);
+        CountDownLatch blocked = new CountDownLatch(1);
+        SequencedMap<String, Runnable> loaders = new LinkedHashMap<>();
+        loaders.put("t1", () -> awaitUninterruptibly(blocked));
+        loaders.put("t2", () -> {});
+
+        try {
+            cut.run(loaders);
+            assertThat(cut.isReady()).isFalse();
+        } finally {
+            blocked.countDown();
+            cut.destroy();
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
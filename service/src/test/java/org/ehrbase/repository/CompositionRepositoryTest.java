@@ -32,10 +32,12 @@ import java.nio.charset.StandardCharsets;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.ehrbase.jooq.pg.tables.records.CompVersionHistoryRecord;
+import org.ehrbase.openehr.aqlengine.service.CommitWatermark;
 import org.ehrbase.openehr.sdk.serialisation.jsonencoding.CanonicalJson;
 import org.ehrbase.openehr.sdk.test_data.composition.CompositionTestDataCanonicalJson;
 import org.ehrbase.openehr.sdk.util.rmconstants.RmConstants;
@@ -104,7 +106,8 @@ class CompositionRepositoryTest {
         }
 
         public Update() {
-            super(spy(new CompositionRepository(mock(), mock(), () -> SYSTEM_ID, OffsetDateTime::now)));
+            super(spy(new CompositionRepository(
+                    mock(), mock(), () -> SYSTEM_ID, OffsetDateTime::now, new CommitWatermark(), Optional.empty())));
         }
 
         @Override
@@ -139,7 +142,8 @@ class CompositionRepositoryTest {
         Mockito.when(timeProvider.getNow()).thenReturn(now);
 
         DefaultDSLContext context = new DefaultDSLContext(SQLDialect.POSTGRES);
-        CompositionRepository repo = new CompositionRepository(context, null, null, timeProvider);
+        CompositionRepository repo = new CompositionRepository(
+                context, null, null, timeProvider, new CommitWatermark(), Optional.empty());
 
         VersionDataDbRecord versionData = repo.toRecords(EHR_ID, versionDataObject, CONTRIBUTION_ID, AUDIT_ID);
 
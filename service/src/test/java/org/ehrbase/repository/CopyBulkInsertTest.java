@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.ehrbase.jooq.pg.Tables.COMP_DATA;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import org.ehrbase.jooq.pg.tables.records.CompDataRecord;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.JSONB;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.Test;
+
+class CopyBulkInsertTest {
+
+    private final DSLContext context = DSL.using(SQLDialect.POSTGRES);
+
+    @Test
+    void copySql() {
+        Field<?>[] fields = {COMP_DATA.VO_ID, COMP_DATA.NUM, COMP_DATA.DATA};
+
+        assertThat(CopyBulkInsert.copySql(context, COMP_DATA.as("data"), fields))
+                .isEqualTo("COPY \"ehr\".\"comp_data\" (\"vo_id\", \"num\", \"data\") FROM STDIN (FORMAT csv)");
+    }
+
+    @Test
+    void appendRow() {
+        UUID voId = UUID.fromString("0b2ea9a1-63a4-4a6c-a1ab-a2e4c8a8e3a4");
+        CompDataRecord rec = context.newRecord(COMP_DATA);
+        rec.setVoId(voId);
+        rec.setNum(3);
+        rec.setEntityName("");
+        rec.setData(JSONB.valueOf("{\"V\": \"a \\\"quoted\\\", value\\n\"}"));
+        Field<?>[] fields = {
+            COMP_DATA.VO_ID, COMP_DATA.NUM, COMP_DATA.ENTITY_NAME, COMP_DATA.ENTITY_CONCEPT, COMP_DATA.DATA
+        };
+
+        StringBuilder sb = new StringBuilder();
+        CopyBulkInsert.appendRow(sb, rec, fields);
+
+        assertThat(sb)
+                .hasToString("\"" + voId + "\",\"3\",\"\",,\"{\"\"V\"\": \"\"a \\\"\"quoted\\\"\", value\\n\"\"}\"\n");
+    }
+
+    @Test
+    void toText() {
+        assertThat(CopyBulkInsert.toText(OffsetDateTime.of(2026, 1, 2, 3, 4, 5, 0, ZoneOffset.UTC)))
+                .isEqualTo("2026-01-02T03:04:05Z");
+        assertThat(CopyBulkInsert.toText(true)).isEqualTo("true");
+        assertThat(CopyBulkInsert.toText(new String[] {"a", null, "b\"c"})).isEqualTo("{\"a\",NULL,\"b\\\"c\"}");
+        assertThatThrownBy(() -> CopyBulkInsert.toText(new Object()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
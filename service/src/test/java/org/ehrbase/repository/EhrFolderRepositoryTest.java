@@ -25,6 +25,7 @@ import com.nedap.archie.rm.support.identification.ObjectVersionId;
 import java.time.OffsetDateTime;
 import java.util.UUID;
 import org.ehrbase.jooq.pg.tables.records.EhrFolderVersionHistoryRecord;
+import org.ehrbase.openehr.aqlengine.service.CommitWatermark;
 
 class EhrFolderRepositoryTest
         extends AbstractVersionedObjectRepositoryUpdateTest<
@@ -37,7 +38,7 @@ class EhrFolderRepositoryTest
     }
 
     public EhrFolderRepositoryTest() {
-        super(spy(new EhrFolderRepository(mock(), mock(), () -> SYSTEM_ID, OffsetDateTime::now)));
+        super(spy(new EhrFolderRepository(mock(), mock(), () -> SYSTEM_ID, OffsetDateTime::now, new CommitWatermark())));
     }
 
     @Override
@@ -23,8 +23,10 @@ import static org.mockito.Mockito.spy;
 import com.nedap.archie.rm.ehr.EhrStatus;
 import com.nedap.archie.rm.support.identification.ObjectVersionId;
 import java.time.OffsetDateTime;
+import java.util.Optional;
 import java.util.UUID;
 import org.ehrbase.jooq.pg.tables.records.EhrStatusVersionHistoryRecord;
+import org.ehrbase.openehr.aqlengine.service.CommitWatermark;
 
 class EhrRepositoryTest
         extends AbstractVersionedObjectRepositoryUpdateTest<EhrRepository, EhrStatus, EhrStatusVersionHistoryRecord> {
@@ -38,7 +40,8 @@ class EhrRepositoryTest
     }
 
     public EhrRepositoryTest() {
-        super(spy(new EhrRepository(mock(), mock(), () -> SYSTEM_ID, OffsetDateTime::now)));
+        super(spy(new EhrRepository(
+                mock(), mock(), () -> SYSTEM_ID, OffsetDateTime::now, new CommitWatermark(), Optional.empty())));
     }
 
     @Override
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.ehrbase.jooq.pg.Tables.AUDIT_DETAILS;
+import static org.ehrbase.jooq.pg.Tables.COMP_VERSION;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.ehrbase.jooq.pg.tables.records.AuditDetailsRecord;
+import org.ehrbase.jooq.pg.tables.records.CompVersionRecord;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class InsertBatchTest {
+
+    private final List<String> executedSql = new ArrayList<>();
+    private DSLContext context;
+
+    @BeforeEach
+    void setUp() {
+        executedSql.clear();
+        context = DSL.using(
+                new MockConnection(ctx -> {
+                    executedSql.add(ctx.sql());
+                    return new MockResult[] {new MockResult(1)};
+                }),
+                SQLDialect.POSTGRES);
+    }
+
+    @Test
+    void insertOutsideOfBatch() {
+        InsertBatch.insert(auditRecord());
+
+        assertThat(InsertBatch.current()).isEmpty();
+        assertThat(executedSql).hasSize(1);
+    }
+
+    @Test
+    void insertIsDeferredUntilFlush() {
+        UUID voId = UUID.randomUUID();
+        InsertBatch batch = new InsertBatch(context);
+
+        batch.run(() -> {
+            InsertBatch.insert(auditRecord());
+            InsertBatch.insert(versionRecord(voId));
+            InsertBatch.insert(auditRecord());
+            InsertBatch.insert(versionRecord(UUID.randomUUID()));
+
+            assertThat(InsertBatch.current()).containsSame(batch);
+            assertThat(batch.anyPending(COMP_VERSION, r -> voId.equals(r.getVoId())))
+                    .isTrue();
+        });
+
+        assertThat(InsertBatch.current()).isEmpty();
+        assertThat(executedSql).isEmpty();
+
+        batch.flush();
+
+        // one batch per table, in order of first use
+        assertThat(executedSql).hasSize(2);
+        assertThat(executedSql.get(0)).contains("audit_details");
+        assertThat(executedSql.get(1)).contains("comp_version");
+        assertThat(batch.anyPending(COMP_VERSION, r -> voId.equals(r.getVoId())))
+                .isFalse();
+    }
+
+    @Test
+    void nestedRunIsRejected() {
+        InsertBatch batch = new InsertBatch(context);
+
+        assertThatThrownBy(() -> batch.run(() -> batch.run(() -> {})))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(InsertBatch.current()).isEmpty();
+    }
+
+    private AuditDetailsRecord auditRecord() {
+        AuditDetailsRecord rec = context.newRecord(AUDIT_DETAILS);
+        rec.setId(UUID.randomUUID());
+        return rec;
+    }
+
+    private CompVersionRecord versionRecord(UUID voId) {
+        CompVersionRecord rec = context.newRecord(COMP_VERSION);
+        rec.setVoId(voId);
+        return rec;
+    }
+}
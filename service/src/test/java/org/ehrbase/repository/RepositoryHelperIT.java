@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.ehrbase.jooq.pg.Tables.COMP_DATA;
+
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.ehrbase.jooq.pg.tables.CompData;
+import org.ehrbase.jooq.pg.tables.records.CompDataRecord;
+import org.ehrbase.repository.RepositoryHelper.BulkInsertMode;
+import org.ehrbase.test.ServiceIntegrationTest;
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.JSONB;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Compares the bulk insert modes by writing the data rows of a large composition into a temporary copy of
+ * <code>comp_data</code>.
+ */
+@ServiceIntegrationTest
+class RepositoryHelperIT {
+
+    private static final Logger log = LoggerFactory.getLogger(RepositoryHelperIT.class);
+
+    private static final int ROWS = 20_000;
+    private static final int RUNS = 5;
+
+    private static final CompData BENCHMARK_TABLE = COMP_DATA.rename(DSL.name("comp_data_benchmark"));
+
+    @Autowired
+    DSLContext context;
+
+    @ParameterizedTest
+    @EnumSource(BulkInsertMode.class)
+    @Transactional
+    void executeBulkInsert(BulkInsertMode mode) {
+
+        Configuration configuration = context.configuration().derive();
+        configuration.data(RepositoryHelper.PROP_BULK_INSERT_MODE, mode);
+        DSLContext modeContext = DSL.using(configuration);
+
+        modeContext.execute("CREATE TEMP TABLE comp_data_benchmark (LIKE ehr.comp_data INCLUDING ALL) ON COMMIT DROP");
+
+        // warm-up
+        RepositoryHelper.executeBulkInsert(modeContext, records(modeContext, UUID.randomUUID()), BENCHMARK_TABLE);
+
+        long nanos = 0;
+        for (int i = 0; i < RUNS; i++) {
+            UUID voId = UUID.randomUUID();
+            long start = System.nanoTime();
+            RepositoryHelper.executeBulkInsert(modeContext, records(modeContext, voId), BENCHMARK_TABLE);
+            nanos += System.nanoTime() - start;
+
+            assertThat(modeContext.fetchCount(BENCHMARK_TABLE, BENCHMARK_TABLE.VO_ID.eq(voId)))
+                    .isEqualTo(ROWS);
+        }
+
+        log.info("{}: {} rows inserted in {} ms on average", mode, ROWS, nanos / RUNS / 1_000_000);
+
+        CompDataRecord last = modeContext
+                .selectFrom(BENCHMARK_TABLE)
+                .where(BENCHMARK_TABLE.NUM.eq(ROWS - 1))
+                .limit(1)
+                .fetchOne();
+        assertThat(last).isNotNull();
+        assertThat(last.getEntityName()).isEqualTo("Element \"%d\", with, commas".formatted(ROWS - 1));
+        assertThat(last.getData().data()).contains("\"V\": \"value " + (ROWS - 1) + "\"");
+    }
+
+    private static Stream<CompDataRecord> records(DSLContext context, UUID voId) {
+        return IntStream.range(0, ROWS).mapToObj(i -> {
+            CompDataRecord rec = context.newRecord(BENCHMARK_TABLE);
+            rec.setVoId(voId);
+            rec.setNum(i);
+            rec.setCitemNum(i == 0 ? null : 0);
+            rec.setParentNum(Math.max(0, i - 1));
+            rec.setNumCap(i);
+            rec.setRmEntity("E");
+            rec.setEntityConcept(".");
+            rec.setEntityName("Element \"%d\", with, commas".formatted(i));
+            rec.setEntityAttribute("i");
+            rec.setEntityIdx("c.i%d.".formatted(i));
+            rec.setEntityIdxLen(2);
+            rec.setData(JSONB.valueOf("{\"T\": \"ELEMENT\", \"V\": \"value %d\"}".formatted(i)));
+            return rec;
+        });
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+import org.ehrbase.api.dto.AqlQueryJob;
+import org.ehrbase.api.dto.AqlQueryJob.Status;
+import org.ehrbase.api.dto.AqlQueryJobPage;
+import org.ehrbase.api.dto.AqlQueryRequest;
+import org.ehrbase.api.dto.AqlQueryResultStream;
+import org.ehrbase.api.exception.ObjectNotFoundException;
+import org.ehrbase.api.exception.ServiceUnavailableException;
+import org.ehrbase.api.exception.StateConflictException;
+import org.ehrbase.api.service.AqlQueryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AqlQueryJobServiceImpTest {
+
+    private static final AqlQueryRequest REQUEST =
+            new AqlQueryRequest("SELECT e/ehr_id/value FROM EHR e", null, null, Map.of(), null, null);
+
+    @TempDir
+    private Path spoolDirectory;
+
+    private final AqlQueryService aqlQueryService = mock();
+    private AqlQueryJobServiceImp cut;
+
+    @AfterEach
+    void tearDown() {
+        if (cut != null) {
+            cut.destroy();
+        }
+    }
+
+    private AqlQueryJobServiceImp service(int threads, int queueCapacity, Duration ttl) {
+        cut = new AqlQueryJobServiceImp(
+                aqlQueryService,
+                new ObjectMapper(),
+                threads,
+                queueCapacity,
+                ttl,
+                100,
+                spoolDirectory.toString());
+        return cut;
+    }
+
+    private static AqlQueryResultStream resultStream(long rows, CountDownLatch latch) {
+        return new AqlQueryResultStream() {
+            @Override
+            public Map<String, String> variables() {
+                return Map.of("id", "e/ehr_id/value");
+            }
+
+            @Override
+            public long forEachRow(Consumer<List<Object>> rowConsumer) {
+                try {
+                    latch.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                LongStream.range(0, rows).forEach(i -> rowConsumer.accept(List.of(i, "row " + i)));
+                return rows;
+            }
+        };
+    }
+
+    private AqlQueryJob awaitFinished(UUID jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        AqlQueryJob job = cut.getJob(jobId);
+        while (job.finished() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            job = cut.getJob(jobId);
+        }
+        return job;
+    }
+
+    @Test
+    void spoolAndPage() throws InterruptedException {
+        doReturn(resultStream(250, new CountDownLatch(0))).when(aqlQueryService).queryStreaming(any());
+        service(1, 1, Duration.ofHours(1));
+
+        AqlQueryJob submitted = cut.submit(REQUEST);
+        assertThat(submitted.columns()).containsEntry("id", "e/ehr_id/value");
+
+        AqlQueryJob job = awaitFinished(submitted.id());
+        assertThat(job.status()).isEqualTo(Status.COMPLETED);
+        assertThat(job.rowCount()).isEqualTo(250);
+        assertThat(job.expires()).isAfter(job.finished());
+
+        AqlQueryJobPage page = cut.getPage(job.id(), 10, 3);
+        assertThat(page.rows()).containsExactly("[10,\"row 10\"]", "[11,\"row 11\"]", "[12,\"row 12\"]");
+
+        // limited by max-fetch
+        assertThat(cut.getPage(job.id(), 0, 1000).rows()).hasSize(100);
+        // limited by the row count
+        assertThat(cut.getPage(job.id(), 240, 100).rows()).hasSize(10).last().isEqualTo("[249,\"row 249\"]");
+        assertThat(cut.getPage(job.id(), 250, 100).rows()).isEmpty();
+    }
+
+    @Test
+    void continuationToken() throws InterruptedException {
+        AqlQueryResultStream rows = resultStream(3, new CountDownLatch(0));
+        doReturn(new AqlQueryResultStream() {
+                    @Override
+                    public Map<String, String> variables() {
+                        return rows.variables();
+                    }
+
+                    @Override
+                    public long forEachRow(Consumer<List<Object>> rowConsumer) {
+                        return rows.forEachRow(rowConsumer);
+                    }
+
+                    @Override
+                    public String continuationToken() {
+                        return "token-1";
+                    }
+                })
+                .when(aqlQueryService)
+                .queryStreaming(any());
+        service(1, 1, Duration.ofHours(1));
+
+        AqlQueryJob submitted = cut.submit(REQUEST);
+
+        AqlQueryJob job = awaitFinished(submitted.id());
+        assertThat(job.status()).isEqualTo(Status.COMPLETED);
+        assertThat(job.continuationToken()).isEqualTo("token-1");
+    }
+
+    @Test
+    void notCompleted() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        doReturn(resultStream(1, latch)).when(aqlQueryService).queryStreaming(any());
+        service(1, 1, Duration.ofHours(1));
+
+        UUID jobId = cut.submit(REQUEST).id();
+        assertThatThrownBy(() -> cut.getPage(jobId, 0, 10)).isInstanceOf(StateConflictException.class);
+
+        latch.countDown();
+        assertThat(awaitFinished(jobId).status()).isEqualTo(Status.COMPLETED);
+    }
+
+    @Test
+    void queueFull() {
+        CountDownLatch latch = new CountDownLatch(1);
+        doReturn(resultStream(1, latch)).when(aqlQueryService).queryStreaming(any());
+        service(1, 1, Duration.ofHours(1));
+
+        // one running, one queued
+        cut.submit(REQUEST);
+        cut.submit(REQUEST);
+        assertThatThrownBy(() -> cut.submit(REQUEST)).isInstanceOf(ServiceUnavailableException.class);
+
+        latch.countDown();
+    }
+
+    @Test
+    void delete() throws InterruptedException {
+        doReturn(resultStream(5, new CountDownLatch(0))).when(aqlQueryService).queryStreaming(any());
+        service(1, 1, Duration.ofHours(1));
+
+        UUID jobId = cut.submit(REQUEST).id();
+        assertThat(awaitFinished(jobId).status()).isEqualTo(Status.COMPLETED);
+        assertThat(spoolDirectory).isNotEmptyDirectory();
+
+        cut.delete(jobId);
+        assertThat(spoolDirectory).isEmptyDirectory();
+        assertThatThrownBy(() -> cut.getJob(jobId)).isInstanceOf(ObjectNotFoundException.class);
+        assertThatThrownBy(() -> cut.delete(jobId)).isInstanceOf(ObjectNotFoundException.class);
+    }
+
+    @Test
+    void deleteRunning() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        doReturn(new AqlQueryResultStream() {
+                    @Override
+                    public Map<String, String> variables() {
+                        return Map.of();
+                    }
+
+                    @Override
+                    public long forEachRow(Consumer<List<Object>> rowConsumer) {
+                        started.countDown();
+                        try {
+                            // a statement not yielding any row until it is cancelled
+                            cancelled.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        throw new CancellationException();
+                    }
+
+                    @Override
+                    public void cancel() {
+                        cancelled.countDown();
+                    }
+                })
+                .when(aqlQueryService)
+                .queryStreaming(any());
+        service(1, 1, Duration.ofHours(1));
+
+        UUID jobId = cut.submit(REQUEST).id();
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+        cut.delete(jobId);
+        assertThat(cancelled.getCount()).isZero();
+        assertThatThrownBy(() -> cut.getJob(jobId)).isInstanceOf(ObjectNotFoundException.class);
+    }
+
+    @Test
+    void expire() throws InterruptedException {
+        doReturn(resultStream(5, new CountDownLatch(0))).when(aqlQueryService).queryStreaming(any());
+        service(1, 1, Duration.ZERO);
+
+        UUID jobId = cut.submit(REQUEST).id();
+        assertThat(awaitFinished(jobId).status()).isEqualTo(Status.COMPLETED);
+        Thread.sleep(5);
+
+        cut.discardExpiredJobs();
+        assertThatThrownBy(() -> cut.getJob(jobId)).isInstanceOf(ObjectNotFoundException.class);
+        assertThat(spoolDirectory).isEmptyDirectory();
+    }
+}
@@ -20,12 +20,16 @@ package org.ehrbase.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Fail.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.ehrbase.cache.CacheProvider;
 import org.ehrbase.cache.CacheProviderImp;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryPlanCache;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -37,6 +41,7 @@ class TemplateCacheHelperTest {
 
     private SimpleCacheManager cacheManager;
     private CacheProvider cacheProvider;
+    private AqlQueryPlanCache aqlQueryPlanCache;
     private TemplateCacheHelper helper;
 
     // Convenience handles to the underlying Spring caches for direct assertions
@@ -60,7 +65,8 @@ class TemplateCacheHelperTest {
         cacheManager.initializeCaches();
 
         cacheProvider = new CacheProviderImp(cacheManager);
-        helper = new TemplateCacheHelper(cacheProvider);
+        aqlQueryPlanCache = mock();
+        helper = new TemplateCacheHelper(cacheProvider, Optional.of(aqlQueryPlanCache));
     }
 
     @Test
@@ -95,6 +101,7 @@ class TemplateCacheHelperTest {
         templateListCache.put(Boolean.TRUE, List.of());
         helper.addToCache(UUID.randomUUID(), "tpl", new WebTemplate(), true);
         assertThat(templateListCache.get(Boolean.TRUE)).isNull();
+        verify(aqlQueryPlanCache).clear();
     }
 
     @Test
@@ -102,6 +109,7 @@ class TemplateCacheHelperTest {
         templateListCache.put(Boolean.TRUE, List.of());
         helper.addToCache(UUID.randomUUID(), "tpl", new WebTemplate(), false);
         assertThat(templateListCache.get(Boolean.TRUE)).isNotNull();
+        verify(aqlQueryPlanCache, never()).clear();
     }
 
     @Test
@@ -130,6 +138,7 @@ class TemplateCacheHelperTest {
         assertThat(templateIdUuidCache.get(templateId)).isNull();
         assertThat(templateUuidIdCache.get(id)).isNull();
         assertThat(templateListCache.get(Boolean.TRUE)).isNull();
+        verify(aqlQueryPlanCache).clear();
 
         // unrelated entries must survive
         assertThat(templateCache.get(otherTemplateId))
@@ -157,6 +166,7 @@ class TemplateCacheHelperTest {
         assertThat(templateIdUuidCache.get(templateId)).isNull();
         assertThat(templateUuidIdCache.get(id)).isNull();
         assertThat(templateListCache.get(Boolean.TRUE)).isNull();
+        verify(aqlQueryPlanCache).clear();
     }
 
     @Test
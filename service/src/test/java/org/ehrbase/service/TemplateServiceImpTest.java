@@ -28,6 +28,7 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -41,9 +42,14 @@ import org.ehrbase.api.service.TemplateService;
 import org.ehrbase.cache.CacheProperties;
 import org.ehrbase.cache.CacheProvider;
 import org.ehrbase.cache.CacheProviderImp;
+import org.ehrbase.cache.TemplateCacheWarmUp;
+import org.ehrbase.openehr.aqlengine.service.AqlQueryPlanCache;
 import org.ehrbase.openehr.sdk.test_data.operationaltemplate.OperationalTemplateTestData;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
+import org.ehrbase.openehr.sdk.webtemplate.parser.OPTParser;
 import org.ehrbase.repository.TemplateStoreRepository;
 import org.ehrbase.test.fixtures.TemplateFixture;
+import org.ehrbase.util.WebTemplateSerialization;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -86,14 +92,23 @@ class TemplateServiceImpTest {
                 mockTemplateStoreRepository,
                 new CacheProviderImp(cacheManager),
                 cacheProperties,
-                allowTemplateOverwrite);
+                Optional.of(mock(AqlQueryPlanCache.class)),
+                new TemplateCacheWarmUp(cacheProperties),
+                allowTemplateOverwrite,
+                Duration.ofHours(1));
     }
 
     private TemplateServiceImp serviceWithInitOnStartup(String initOnStartup) {
         CacheProperties cacheProperties = new CacheProperties();
         cacheProperties.setTemplateInitOnStartup(initOnStartup);
         return new TemplateServiceImp(
-                mockTemplateStoreRepository, new CacheProviderImp(cacheManager), cacheProperties, false);
+                mockTemplateStoreRepository,
+                new CacheProviderImp(cacheManager),
+                cacheProperties,
+                Optional.of(mock(AqlQueryPlanCache.class)),
+                new TemplateCacheWarmUp(cacheProperties),
+                false,
+                Duration.ofHours(1));
     }
 
     // ---------------------------------------------------------------------------
@@ -294,6 +309,56 @@ class TemplateServiceImpTest {
         verify(mockTemplateStoreRepository, times(1)).findAllTemplates();
     }
 
+    @Test
+    void templateStoreVersionChangeClearsCaches() {
+        TemplateFixture.TestTemplate testTemplate = parseAndMock(OperationalTemplateTestData.MINIMAL_ACTION);
+        Mockito.when(mockTemplateStoreRepository.findAllTemplates())
+                .thenReturn(List.of(testTemplate.metaData().meta()));
+        Mockito.when(mockTemplateStoreRepository.findStoreVersion()).thenReturn("1@a", "1@a", "2@b");
+
+        TemplateServiceImp service = service();
+        assertThat(service.getTemplateStoreVersion()).isEqualTo("1@a");
+        service.findAllTemplates();
+
+        // not read again until it is checked
+        assertThat(service.getTemplateStoreVersion()).isEqualTo("1@a");
+        verify(mockTemplateStoreRepository, times(1)).findStoreVersion();
+
+        // unchanged
+        service.checkTemplateStoreVersion();
+        assertThat(service.getTemplateStoreVersion()).isEqualTo("1@a");
+        service.findAllTemplates();
+        verify(mockTemplateStoreRepository, times(1)).findAllTemplates();
+
+        // changed by another instance
+        service.checkTemplateStoreVersion();
+        assertThat(service.getTemplateStoreVersion()).isEqualTo("2@b");
+        service.findAllTemplates();
+        verify(mockTemplateStoreRepository, times(2)).findAllTemplates();
+
+        service.destroy();
+    }
+
+    @Test
+    void templateStoreVersionUpdatedByDelete() {
+        Mockito.when(mockTemplateStoreRepository.findAllTemplates()).thenReturn(List.of());
+        Mockito.when(mockTemplateStoreRepository.findStoreVersion()).thenReturn("1@a", "0@null");
+
+        TemplateServiceImp service = service();
+        assertThat(service.getTemplateStoreVersion()).isEqualTo("1@a");
+
+        service.adminDeleteAllTemplates();
+        assertThat(service.getTemplateStoreVersion()).isEqualTo("0@null");
+
+        // not seen as a change by another instance
+        service.findAllTemplates();
+        service.checkTemplateStoreVersion();
+        service.findAllTemplates();
+        verify(mockTemplateStoreRepository, times(1)).findAllTemplates();
+
+        service.destroy();
+    }
+
     // ---------------------------------------------------------------------------
     // getInternalTemplate()
     // ---------------------------------------------------------------------------
@@ -313,6 +378,40 @@ class TemplateServiceImpTest {
         verify(mockTemplateStoreRepository, times(1)).findByTemplateIds(testTemplate.templateId());
     }
 
+    @Test
+    void getInternalTemplateStoresBuiltWebTemplate() {
+        TemplateFixture.TestTemplate testTemplate = parseAndMock(OperationalTemplateTestData.MINIMAL_ACTION);
+
+        Mockito.when(mockTemplateStoreRepository.findByTemplateIds(testTemplate.templateId()))
+                .thenReturn(List.of(testTemplate.metaData()));
+
+        WebTemplate webTemplate = service().getInternalTemplate(testTemplate.templateId());
+
+        verify(mockTemplateStoreRepository, times(1))
+                .storeWebTemplate(
+                        Mockito.eq(testTemplate.metaData().meta()),
+                        argThat(data -> WebTemplateSerialization.deserialize(data)
+                                .map(WebTemplate::getTemplateId)
+                                .filter(webTemplate.getTemplateId()::equals)
+                                .isPresent()));
+    }
+
+    @Test
+    void getInternalTemplateUsesStoredWebTemplate() {
+        TemplateFixture.TestTemplate testTemplate = parseAndMock(OperationalTemplateTestData.MINIMAL_ACTION);
+        WebTemplate webTemplate = new OPTParser(testTemplate.operationaltemplate()).parse();
+
+        Mockito.when(mockTemplateStoreRepository.findWebTemplate(testTemplate.templateId()))
+                .thenReturn(Optional.of(WebTemplateSerialization.serialize(webTemplate)));
+
+        assertThat(service().getInternalTemplate(testTemplate.templateId()).getTemplateId())
+                .isEqualTo(testTemplate.templateId());
+
+        // the OPT is neither loaded nor parsed
+        verify(mockTemplateStoreRepository, never()).findByTemplateIds(any());
+        verify(mockTemplateStoreRepository, never()).storeWebTemplate(any(), any());
+    }
+
     // ---------------------------------------------------------------------------
     // findOperationalTemplate()
     // ---------------------------------------------------------------------------
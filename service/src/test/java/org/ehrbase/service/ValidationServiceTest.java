@@ -50,6 +50,7 @@ import com.nedap.archie.rm.support.identification.ObjectRef;
 import com.nedap.archie.rm.support.identification.ObjectVersionId;
 import com.nedap.archie.rm.support.identification.PartyRef;
 import com.nedap.archie.rm.support.identification.TerminologyId;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
@@ -79,6 +80,7 @@ import org.ehrbase.openehr.sdk.validation.terminology.ExternalTerminologyValidat
 import org.ehrbase.openehr.sdk.validation.terminology.TerminologyParam;
 import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
 import org.ehrbase.openehr.sdk.webtemplate.parser.OPTParser;
+import org.ehrbase.service.validation.ValidationMetrics;
 import org.ehrbase.service.validation.ValidationProperties;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -92,7 +94,7 @@ class ValidationServiceTest {
 
     private final TemplateService templateService = mock();
 
-    private final ValidationProperties serverConfig = new ValidationProperties(true, true, true);
+    private final ValidationProperties serverConfig = new ValidationProperties(true, true, true, 200);
 
     private final ObjectProvider<ExternalTerminologyValidation> objectProvider = mock();
 
@@ -114,7 +116,12 @@ class ValidationServiceTest {
     }
 
     private final ValidationService spyService = spy(new ValidationServiceImp(
-            templateService, new TerminologyServiceImp(), serverConfig, objectProvider, false));
+            templateService,
+            new TerminologyServiceImp(),
+            serverConfig,
+            objectProvider,
+            new ValidationMetrics(new SimpleMeterRegistry()),
+            false));
 
     @BeforeEach
     void setUp() {
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.service.validation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.nedap.archie.query.RMPathQuery;
+import com.nedap.archie.rm.composition.Composition;
+import com.nedap.archie.rm.datastructures.Element;
+import com.nedap.archie.rm.datatypes.CodePhrase;
+import com.nedap.archie.rm.datavalues.DvCodedText;
+import com.nedap.archie.rm.support.identification.TerminologyId;
+import com.nedap.archie.rminfo.ArchieRMInfoLookup;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import org.apache.xmlbeans.XmlException;
+import org.ehrbase.api.service.TemplateService;
+import org.ehrbase.openehr.sdk.serialisation.jsonencoding.CanonicalJson;
+import org.ehrbase.openehr.sdk.test_data.composition.CompositionTestDataCanonicalJson;
+import org.ehrbase.openehr.sdk.test_data.operationaltemplate.OperationalTemplateTestData;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
+import org.ehrbase.openehr.sdk.webtemplate.parser.OPTParser;
+import org.ehrbase.service.TerminologyServiceImp;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class TerminologyValidationPlanTest {
+
+    private final TerminologyServiceImp terminologyService = new TerminologyServiceImp();
+
+    @ParameterizedTest
+    @CsvSource(
+            delimiterString = "|",
+            textBlock = """
+            /category | category
+            /context/setting | setting
+            /content[openEHR-EHR-ACTION.minimal.v1]/ism_transition/current_state | current_state
+            /content[openEHR-EHR-OBSERVATION.x.v1]/data[at0001]/events[at0002]/math_function | math_function
+            """)
+    void attribute(String path, String expected) {
+        assertThat(TerminologyValidationPlan.attribute(path)).isEqualTo(expected);
+    }
+
+    @Test
+    void compile() {
+        Composition composition = loadComposition(CompositionTestDataCanonicalJson.ALL_TYPES);
+        TerminologyValidationPlan plan = TerminologyValidationPlan.compile(webTemplate(composition), terminologyService);
+
+        assertThat(plan.getChecks())
+                .extracting(TerminologyValidationPlan.Check::path)
+                .contains("/category", "/language", "/territory", "/context/setting")
+                // name predicates are omitted
+                .noneMatch(p -> p.contains("'"));
+    }
+
+    @Test
+    void validate() {
+        Composition composition = loadComposition(CompositionTestDataCanonicalJson.ALL_TYPES);
+        TerminologyValidationPlan plan = TerminologyValidationPlan.compile(webTemplate(composition), terminologyService);
+
+        assertThatNoException().isThrownBy(() -> plan.validate(composition));
+
+        composition.setCategory(new DvCodedText("event", new CodePhrase(new TerminologyId("openehr"), "999")));
+        assertThatThrownBy(() -> plan.validate(composition))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("'999'")
+                .hasMessageContaining("/category");
+    }
+
+    /**
+     * Codes of archetyped nodes were validated by the reflective walk as well
+     */
+    @Test
+    void validateNullFlavour() {
+        Composition composition = loadComposition(CompositionTestDataCanonicalJson.ALL_TYPES);
+        TerminologyValidationPlan plan = TerminologyValidationPlan.compile(webTemplate(composition), terminologyService);
+
+        Element element = plan.getChecks().stream()
+                .map(TerminologyValidationPlan.Check::path)
+                .filter(p -> p.endsWith("/null_flavour"))
+                .map(p -> new RMPathQuery(p.substring(0, p.length() - "/null_flavour".length()))
+                        .findList(ArchieRMInfoLookup.getInstance(), composition))
+                .flatMap(List::stream)
+                .filter(Element.class::isInstance)
+                .map(Element.class::cast)
+                .findFirst()
+                .orElseThrow();
+        element.setValue(null);
+        element.setNullFlavour(new DvCodedText("unknown", new CodePhrase(new TerminologyId("openehr"), "253")));
+        assertThatNoException().isThrownBy(() -> plan.validate(composition));
+
+        element.setNullFlavour(new DvCodedText("unknown", new CodePhrase(new TerminologyId("openehr"), "999")));
+        assertThatThrownBy(() -> plan.validate(composition))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("'999'")
+                .hasMessageContaining("/null_flavour")
+                .hasMessageContaining("null flavours");
+    }
+
+    private static Composition loadComposition(CompositionTestDataCanonicalJson data) {
+        try (var in = data.getStream()) {
+            return CanonicalJson.MARSHAL_OM.readValue(in, Composition.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static WebTemplate webTemplate(Composition composition) {
+        String templateId = composition.getArchetypeDetails().getTemplateId().getValue();
+        try {
+            return new OPTParser(TemplateService.buildOperationalTemplate(
+                            OperationalTemplateTestData.findByTemplateId(templateId).getStream()))
+                    .parse();
+        } catch (XmlException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.service.validation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.ehrbase.api.exception.InternalServerException;
+import org.ehrbase.service.validation.ValidationMetrics.Phase;
+import org.junit.jupiter.api.Test;
+
+class ValidationMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final ValidationMetrics metrics = new ValidationMetrics(registry);
+
+    private long count(Phase phase, String outcome) {
+        return registry.get(ValidationMetrics.PHASE_TIMER)
+                .tag(ValidationMetrics.TAG_TEMPLATE, "minimal_action.en.v1")
+                .tag(ValidationMetrics.TAG_PHASE, phase.tag())
+                .tag(ValidationMetrics.TAG_OUTCOME, outcome)
+                .timer()
+                .count();
+    }
+
+    @Test
+    void recordOutcome() {
+        assertThat(metrics.time("minimal_action.en.v1", Phase.TEMPLATE, List::of, List::isEmpty))
+                .isEmpty();
+        metrics.time("minimal_action.en.v1", Phase.TEMPLATE, () -> List.of("violation"), List::isEmpty);
+
+        assertThat(count(Phase.TEMPLATE, "valid")).isEqualTo(1);
+        assertThat(count(Phase.TEMPLATE, "invalid")).isEqualTo(1);
+    }
+
+    @Test
+    void recordFailure() {
+        assertThatThrownBy(() -> metrics.time(
+                        "minimal_action.en.v1",
+                        Phase.TERMINOLOGY,
+                        () -> {
+                            throw new IllegalArgumentException("unknown code");
+                        },
+                        valid -> true))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> metrics.time(
+                        "minimal_action.en.v1",
+                        Phase.TERMINOLOGY,
+                        () -> {
+                            throw new InternalServerException("broken");
+                        },
+                        valid -> true))
+                .isInstanceOf(InternalServerException.class);
+
+        assertThat(count(Phase.TERMINOLOGY, "invalid")).isEqualTo(1);
+        assertThat(count(Phase.TERMINOLOGY, "error")).isEqualTo(1);
+    }
+}
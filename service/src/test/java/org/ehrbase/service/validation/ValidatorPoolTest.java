@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.service.validation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ValidatorPoolTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final ValidationMetrics metrics = new ValidationMetrics(registry);
+
+    @Test
+    void reuseValidators() {
+        AtomicInteger created = new AtomicInteger();
+        ValidatorPool<Integer> pool = new ValidatorPool<>(2, created::incrementAndGet, metrics);
+
+        assertThat(pool.apply(v -> v)).isEqualTo(1);
+        assertThat(pool.apply(v -> v)).isEqualTo(1);
+        assertThat(pool.apply(v -> pool.apply(w -> v + w))).isEqualTo(3);
+
+        assertThat(pool.getSize()).isEqualTo(2);
+        assertThat(pool.getActive()).isZero();
+        assertThat(registry.get(ValidationMetrics.VALIDATOR_WAIT_TIMER).timer().count())
+                .isEqualTo(4);
+        assertThat(registry.get(ValidationMetrics.VALIDATOR_POOL_SIZE).gauge().value())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void releaseOnFailure() {
+        ValidatorPool<Object> pool = new ValidatorPool<>(1, Object::new, metrics);
+
+        assertThatThrownBy(() -> pool.apply(v -> {
+                    throw new IllegalStateException("broken");
+                }))
+                .isInstanceOf(IllegalStateException.class);
+
+        assertThat(pool.getActive()).isZero();
+        assertThat(pool.apply(v -> "ok")).isEqualTo("ok");
+    }
+
+    @Test
+    void waitForValidator() throws Exception {
+        ValidatorPool<Object> pool = new ValidatorPool<>(1, Object::new, metrics);
+        CountDownLatch acquired = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Object> first = CompletableFuture.supplyAsync(() -> pool.apply(v -> {
+            acquired.countDown();
+            await(release);
+            return v;
+        }));
+        assertThat(acquired.await(10, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Object> second = CompletableFuture.supplyAsync(() -> pool.apply(v -> v));
+        Thread.sleep(50);
+        assertThat(second).isNotDone();
+        assertThat(pool.getActive()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(second.get(10, TimeUnit.SECONDS)).isSameAs(first.get(10, TimeUnit.SECONDS));
+        assertThat(pool.getSize()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidSize() {
+        assertThatThrownBy(() -> new ValidatorPool<>(0, Object::new, metrics))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2026 vitasystems GmbH.
+ *
+ * This file is part of project EHRbase
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ehrbase.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ObjectStreamClass;
+import java.util.Arrays;
+import org.ehrbase.openehr.sdk.test_data.operationaltemplate.OperationalTemplateTestData;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplate;
+import org.ehrbase.openehr.sdk.webtemplate.model.WebTemplateNode;
+import org.ehrbase.openehr.sdk.webtemplate.parser.OPTParser;
+import org.ehrbase.test.fixtures.TemplateFixture;
+import org.junit.jupiter.api.Test;
+
+class WebTemplateSerializationTest {
+
+    private static WebTemplate webTemplate() {
+        return new OPTParser(TemplateFixture.fixtureTemplate(OperationalTemplateTestData.MINIMAL_ACTION)
+                        .operationaltemplate())
+                .parse();
+    }
+
+    @Test
+    void roundTrip() {
+        WebTemplate webTemplate = webTemplate();
+
+        byte[] data = WebTemplateSerialization.serialize(webTemplate);
+
+        WebTemplate restored = WebTemplateSerialization.deserialize(data).orElseThrow();
+        assertThat(restored.getTemplateId()).isEqualTo(webTemplate.getTemplateId());
+        assertThat(restored.getTree().getAqlPath()).isEqualTo(webTemplate.getTree().getAqlPath());
+        assertThat(restored.getTree().getChildren())
+                .hasSameSizeAs(webTemplate.getTree().getChildren());
+    }
+
+    @Test
+    void missing() {
+        assertThat(WebTemplateSerialization.deserialize(null)).isEmpty();
+        assertThat(WebTemplateSerialization.deserialize(new byte[0])).isEmpty();
+    }
+
+    @Test
+    void corrupted() {
+        byte[] data = WebTemplateSerialization.serialize(webTemplate());
+        data[data.length - 10] ^= 0x55;
+
+        assertThat(WebTemplateSerialization.deserialize(data)).isEmpty();
+        assertThat(WebTemplateSerialization.deserialize(Arrays.copyOf(data, data.length / 2)))
+                .isEmpty();
+    }
+
+    @Test
+    void otherFormatVersion() {
+        byte[] data = WebTemplateSerialization.serialize(webTemplate());
+        // format version follows the magic number
+        data[7] = (byte) (WebTemplateSerialization.FORMAT_VERSION + 1);
+
+        assertThat(WebTemplateSerialization.deserialize(data)).isEmpty();
+    }
+
+    @Test
+    void sdkVersion() {
+        assertThat(WebTemplateSerialization.sdkVersion())
+                .endsWith(";%x;%x"
+                        .formatted(
+                                ObjectStreamClass.lookup(WebTemplate.class).getSerialVersionUID(),
+                                ObjectStreamClass.lookup(WebTemplateNode.class).getSerialVersionUID()));
+    }
+}